@@ -16,10 +16,15 @@
 
 package com.netflix.spinnaker.cats.cache;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 /** Cache provides view access to data keyed by type and identifier. */
 public interface Cache {
@@ -122,6 +127,55 @@ public interface Cache {
    */
   Collection<CacheData> getAll(String type, String... identifiers);
 
+  /**
+   * Retrieves the items matching the provided identifiers across several types at once.
+   *
+   * <p>The default implementation reads each type in turn; implementations that can read several
+   * types in fewer round trips should override it.
+   *
+   * @param identifiersByType the identifiers to retrieve, keyed by type
+   * @param cacheFilters cacheFilters to govern which relationships to fetch, as type to filter
+   * @return the matching items, keyed by type
+   */
+  default Map<String, Collection<CacheData>> getAll(
+      Map<String, Collection<String>> identifiersByType, Map<String, CacheFilter> cacheFilters) {
+    Map<String, Collection<CacheData>> result = new HashMap<>();
+    identifiersByType.forEach(
+        (type, identifiers) -> {
+          if (identifiers != null && !identifiers.isEmpty()) {
+            result.put(type, getAll(type, identifiers, cacheFilters.get(type)));
+          }
+        });
+    return result;
+  }
+
+  /**
+   * Streams all the items for the specified type, loading at most pageSize items at a time.
+   *
+   * <p>Unlike {@link #getAll(String, CacheFilter)}, the full set of items is never materialized at
+   * once; callers should consume the stream without collecting it where possible. The default
+   * implementation pages through {@link #getIdentifiers(String)}, implementations with a native
+   * cursor should override it.
+   *
+   * @param type the type for which to retrieve items
+   * @param cacheFilter the cacheFilter to govern which relationships to fetch
+   * @param pageSize the maximum number of items to load per backing store read
+   * @return all the items for the type
+   */
+  default Stream<CacheData> streamAll(String type, CacheFilter cacheFilter, int pageSize) {
+    if (pageSize < 1) {
+      throw new IllegalArgumentException("pageSize must be positive: " + pageSize);
+    }
+    List<String> identifiers = new ArrayList<>(getIdentifiers(type));
+    int pages = (identifiers.size() + pageSize - 1) / pageSize;
+    return IntStream.range(0, pages)
+        .mapToObj(
+            page ->
+                identifiers.subList(
+                    page * pageSize, Math.min(identifiers.size(), (page + 1) * pageSize)))
+        .flatMap(page -> getAll(type, page, cacheFilter).stream());
+  }
+
   /**
    * Retrieves all items for the specified type associated with the provided application. Requires a
    * storeType with secondary indexes and support in the type's caching agent.
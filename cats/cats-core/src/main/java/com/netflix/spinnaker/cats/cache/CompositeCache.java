@@ -122,6 +122,21 @@ public class CompositeCache implements Cache {
     return getAll(type, Arrays.asList(identifiers));
   }
 
+  @Override
+  public Map<String, Collection<CacheData>> getAll(
+      Map<String, Collection<String>> identifiersByType, Map<String, CacheFilter> cacheFilters) {
+    Map<String, Map<String, CacheData>> allItems = new HashMap<>();
+    for (Cache cache : caches) {
+      cache
+          .getAll(identifiersByType, cacheFilters)
+          .forEach((type, items) -> allItems.put(type, merge(allItems.get(type), items)));
+    }
+
+    Map<String, Collection<CacheData>> result = new HashMap<>();
+    allItems.forEach((type, items) -> result.put(type, items.values()));
+    return result;
+  }
+
   @Override
   public Map<String, Collection<CacheData>> getAllByApplication(String type, String application) {
     Map<String, Collection<CacheData>> allItems = new HashMap<>();
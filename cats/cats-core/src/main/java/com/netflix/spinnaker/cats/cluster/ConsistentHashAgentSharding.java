@@ -0,0 +1,124 @@
+/*
+ * Copyright 2019 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.spinnaker.cats.cluster;
+
+import com.netflix.spinnaker.cats.agent.AccountAware;
+import com.netflix.spinnaker.cats.agent.Agent;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Set;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Assigns each agent to one live node using rendezvous (highest random weight) hashing, so that a
+ * node joining or leaving only moves the agents it gains or owned.
+ *
+ * <p>Agents are sharded by account when they are {@link AccountAware}, keeping all of an
+ * account's agents on the same node, and by agent type otherwise.
+ *
+ * <p>Sharding only decides which agents a node attempts to lock; schedulers still take a lock
+ * before running an agent. While this node can't see itself in the membership, such as before its
+ * first heartbeat or when heartbeats are failing, it considers every agent its own and falls back
+ * to lock contention alone.
+ */
+public class ConsistentHashAgentSharding {
+  private static final Logger log = LoggerFactory.getLogger(ConsistentHashAgentSharding.class);
+
+  private final NodeIdentity nodeIdentity;
+  private final NodeMembership nodeMembership;
+  private final long refreshIntervalMillis;
+
+  private volatile Set<String> liveNodes = Collections.emptySet();
+  private volatile long lastRefresh = 0;
+
+  public ConsistentHashAgentSharding(
+      NodeIdentity nodeIdentity, NodeMembership nodeMembership, long refreshIntervalMillis) {
+    this.nodeIdentity = nodeIdentity;
+    this.nodeMembership = nodeMembership;
+    this.refreshIntervalMillis = refreshIntervalMillis;
+  }
+
+  /** @return true if this node should attempt to run the given agent */
+  public boolean isOwned(Agent agent) {
+    String self = nodeIdentity.getNodeIdentity();
+    Set<String> nodes = refresh(self);
+    if (!nodes.contains(self)) {
+      return true;
+    }
+    return self.equals(owner(shardKey(agent), nodes));
+  }
+
+  /** Heartbeats at most once per refresh interval, returning the last known live nodes. */
+  private Set<String> refresh(String self) {
+    long now = System.currentTimeMillis();
+    if (now - lastRefresh >= refreshIntervalMillis) {
+      synchronized (this) {
+        if (now - lastRefresh >= refreshIntervalMillis) {
+          try {
+            liveNodes = nodeMembership.heartbeat(self);
+          } catch (Exception e) {
+            log.error("Unable to refresh node membership, not sharding agents", e);
+            liveNodes = Collections.emptySet();
+          }
+          lastRefresh = now;
+        }
+      }
+    }
+    return liveNodes;
+  }
+
+  static String shardKey(Agent agent) {
+    if (agent instanceof AccountAware) {
+      String accountName = ((AccountAware) agent).getAccountName();
+      if (accountName != null) {
+        return accountName;
+      }
+    }
+    return agent.getAgentType();
+  }
+
+  static String owner(String key, Collection<String> nodes) {
+    String owner = null;
+    long maxWeight = Long.MIN_VALUE;
+    long keyHash = hash(key, 0x9e3779b97f4a7c15L);
+    for (String node : nodes) {
+      long weight = hash(node, keyHash);
+      if (owner == null || weight > maxWeight || (weight == maxWeight && node.compareTo(owner) < 0)) {
+        owner = node;
+        maxWeight = weight;
+      }
+    }
+    return owner;
+  }
+
+  /** 64 bit FNV-1a over UTF-8 bytes, seeded and finished with a murmur3 mix. */
+  private static long hash(String value, long seed) {
+    long h = 0xcbf29ce484222325L ^ seed;
+    for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+      h ^= b & 0xff;
+      h *= 0x100000001b3L;
+    }
+    h ^= h >>> 33;
+    h *= 0xff51afd7ed558ccdL;
+    h ^= h >>> 33;
+    h *= 0xc4ceb9fe1a85ec53L;
+    h ^= h >>> 33;
+    return h;
+  }
+}
@@ -19,4 +19,14 @@ public interface CompressionStrategy {
   String compress(final String str);
 
   String decompress(final String compressed);
+
+  /** Compresses binary values. Strategies that only operate on text return the value unchanged. */
+  default byte[] compress(final byte[] bytes) {
+    return bytes;
+  }
+
+  /** Decompresses binary values produced by {@link #compress(byte[])}. */
+  default byte[] decompress(final byte[] compressed) {
+    return compressed;
+  }
 }
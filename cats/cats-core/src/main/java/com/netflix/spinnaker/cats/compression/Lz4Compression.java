@@ -0,0 +1,126 @@
+/*
+ * Copyright 2019 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.spinnaker.cats.compression;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4FastDecompressor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * LZ4 block compression. Trades compression ratio for speed relative to {@link GZipCompression},
+ * which makes it suitable for compressing values on every cache read and write.
+ *
+ * <p>Compressed values are prefixed with their uncompressed length, which is checked against
+ * {@value #MAX_DECOMPRESSED_BYTES} bytes and the most that LZ4 could expand the payload to before
+ * anything is allocated. String values are additionally Base64 encoded behind a {@value
+ * #STRING_PREFIX} marker so uncompressed values pass through {@link #decompress(String)} untouched.
+ */
+public class Lz4Compression implements CompressionStrategy {
+
+  private static final Logger log = LoggerFactory.getLogger(Lz4Compression.class);
+
+  private static final String STRING_PREFIX = "lz4:";
+
+  /** Well above any cache body; larger lengths can only come from a corrupt prefix. */
+  static final int MAX_DECOMPRESSED_BYTES = 512 * 1024 * 1024;
+
+  /** An LZ4 block decompresses to at most about 255 times its own size. */
+  private static final int MAX_EXPANSION = 255;
+
+  private final long thresholdBytesSize;
+  private final LZ4Compressor compressor;
+  private final LZ4FastDecompressor decompressor;
+
+  public Lz4Compression(long thresholdBytesSize) {
+    log.debug("Cats using lz4 compression: {} bytes threshold", thresholdBytesSize);
+    this.thresholdBytesSize = thresholdBytesSize;
+
+    LZ4Factory factory = LZ4Factory.fastestInstance();
+    this.compressor = factory.fastCompressor();
+    this.decompressor = factory.fastDecompressor();
+  }
+
+  @Override
+  public String compress(final String str) {
+    if (str == null) {
+      return null;
+    }
+
+    byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+    if (bytes.length < thresholdBytesSize) {
+      return str;
+    }
+
+    return STRING_PREFIX + Base64.getEncoder().encodeToString(compress(bytes));
+  }
+
+  @Override
+  public String decompress(final String compressed) {
+    if (compressed == null || !compressed.startsWith(STRING_PREFIX)) {
+      return compressed;
+    }
+
+    try {
+      byte[] bytes = Base64.getDecoder().decode(compressed.substring(STRING_PREFIX.length()));
+      return new String(decompress(bytes), StandardCharsets.UTF_8);
+    } catch (IllegalArgumentException e) {
+      log.error("Failed to decompress string: {}", compressed, e);
+      return compressed;
+    }
+  }
+
+  @Override
+  public byte[] compress(final byte[] bytes) {
+    int maxLength = compressor.maxCompressedLength(bytes.length);
+    byte[] compressed = new byte[Integer.BYTES + maxLength];
+    ByteBuffer.wrap(compressed).putInt(bytes.length);
+
+    int length =
+        compressor.compress(bytes, 0, bytes.length, compressed, Integer.BYTES, maxLength);
+    byte[] result = new byte[Integer.BYTES + length];
+    System.arraycopy(compressed, 0, result, 0, result.length);
+    return result;
+  }
+
+  @Override
+  public byte[] decompress(final byte[] compressed) {
+    if (compressed.length < Integer.BYTES) {
+      throw new IllegalArgumentException(
+          "lz4 payload is " + compressed.length + " bytes, too short for its length prefix");
+    }
+    int length = ByteBuffer.wrap(compressed).getInt();
+    long maxLength =
+        Math.min(
+            MAX_DECOMPRESSED_BYTES, (long) (compressed.length - Integer.BYTES) * MAX_EXPANSION);
+    if (length < 0 || length > maxLength) {
+      throw new IllegalArgumentException(
+          "lz4 length prefix "
+              + length
+              + " is out of range for a "
+              + compressed.length
+              + " byte payload");
+    }
+    byte[] result = new byte[length];
+    decompressor.decompress(compressed, Integer.BYTES, result, 0, length);
+    return result;
+  }
+}
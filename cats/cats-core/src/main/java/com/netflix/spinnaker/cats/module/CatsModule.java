@@ -24,6 +24,9 @@ import com.netflix.spinnaker.cats.agent.NoopExecutionInstrumentation;
 import com.netflix.spinnaker.cats.cache.Cache;
 import com.netflix.spinnaker.cats.cache.NamedCacheFactory;
 import com.netflix.spinnaker.cats.mem.InMemoryNamedCacheFactory;
+import com.netflix.spinnaker.cats.provider.DefaultProviderRegistry;
+import com.netflix.spinnaker.cats.provider.NearCache;
+import com.netflix.spinnaker.cats.provider.NearCachingProviderRegistry;
 import com.netflix.spinnaker.cats.provider.Provider;
 import com.netflix.spinnaker.cats.provider.ProviderRegistry;
 import java.util.Arrays;
@@ -52,6 +55,7 @@ public interface CatsModule {
     private AgentScheduler scheduler;
     private ProviderRegistry providerRegistry;
     private Collection<ExecutionInstrumentation> instrumentations = new LinkedList<>();
+    private NearCache.Options nearCacheOptions;
 
     public Builder scheduler(AgentScheduler agentScheduler) {
       if (this.scheduler != null) {
@@ -91,6 +95,12 @@ public interface CatsModule {
       return this;
     }
 
+    /** Serves repeated provider cache reads from an in-process near cache. */
+    public Builder nearCache(NearCache.Options nearCacheOptions) {
+      this.nearCacheOptions = nearCacheOptions;
+      return this;
+    }
+
     public CatsModule build(Provider... providers) {
       return build(Arrays.asList(providers));
     }
@@ -110,6 +120,13 @@ public interface CatsModule {
       if (cacheFactory == null) {
         cacheFactory = new InMemoryNamedCacheFactory();
       }
+
+      if (nearCacheOptions != null) {
+        if (providerRegistry == null) {
+          providerRegistry = new DefaultProviderRegistry(providers, cacheFactory);
+        }
+        providerRegistry = new NearCachingProviderRegistry(providerRegistry, nearCacheOptions);
+      }
       return new DefaultCatsModule(
           providerRegistry, providers, cacheFactory, scheduler, instrumentation);
     }
@@ -30,6 +30,7 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.stream.Stream;
 
 /**
  * An implementation of ProviderCache that writes through to a provided backing WriteableCache.
@@ -103,6 +104,15 @@ public class DefaultProviderCache implements ProviderCache {
     return getAll(type, Arrays.asList(identifiers));
   }
 
+  @Override
+  public Stream<CacheData> streamAll(String type, CacheFilter cacheFilter, int pageSize) {
+    validateTypes(type);
+    return backingStore
+        .streamAll(type, cacheFilter, pageSize)
+        .filter(item -> !ALL_ID.equals(item.getId()))
+        .map(this::mergeRelationships);
+  }
+
   @Override
   public Collection<String> existingIdentifiers(String type, Collection<String> identifiers) {
     Set<String> existing = new HashSet<>(backingStore.existingIdentifiers(type, identifiers));
@@ -0,0 +1,322 @@
+/*
+ * Copyright 2019 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.spinnaker.cats.provider;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.netflix.spinnaker.cats.cache.CacheData;
+import com.netflix.spinnaker.cats.cache.CacheFilter;
+import com.netflix.spinnaker.cats.cache.RelationshipCacheFilter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A size bounded, in-process cache of ProviderCache reads, using Caffeine's W-TinyLFU eviction.
+ *
+ * <p>Entries are keyed by type, the kind of read, its identifier or application, and the
+ * relationship filter. Every type carries a generation that is part of the key; invalidating a
+ * type bumps its generation, which orphans all of its entries in O(1) and leaves them to be
+ * evicted. Writes made on other nodes are not observed, so entries also expire a fixed time after
+ * being written.
+ *
+ * <p>On-demand types are never cached: they coordinate on-demand updates between nodes and must
+ * always be read from the backing store.
+ */
+public class NearCache {
+
+  public static class Options {
+    private long maximumItems = 100_000;
+    private long expireAfterWriteMillis = TimeUnit.SECONDS.toMillis(10);
+    private boolean sharedBackingStore = false;
+    private Set<String> excludedTypes = new HashSet<>(Collections.singleton(ON_DEMAND_TYPE));
+
+    /** Maximum number of CacheData items held across all entries. */
+    public Options maximumItems(long maximumItems) {
+      this.maximumItems = maximumItems;
+      return this;
+    }
+
+    public Options expireAfterWrite(long duration, TimeUnit unit) {
+      this.expireAfterWriteMillis = unit.toMillis(duration);
+      return this;
+    }
+
+    /**
+     * Whether every provider cache reads from the same backing store, in which case a single near
+     * cache is shared by all providers so a write through any of them invalidates it.
+     */
+    public Options sharedBackingStore(boolean sharedBackingStore) {
+      this.sharedBackingStore = sharedBackingStore;
+      return this;
+    }
+
+    /** Types that are always read from the backing store, in addition to on-demand types. */
+    public Options excludedTypes(Collection<String> excludedTypes) {
+      this.excludedTypes = new HashSet<>(excludedTypes);
+      this.excludedTypes.add(ON_DEMAND_TYPE);
+      return this;
+    }
+
+    public long getMaximumItems() {
+      return maximumItems;
+    }
+
+    public long getExpireAfterWriteMillis() {
+      return expireAfterWriteMillis;
+    }
+
+    public boolean isSharedBackingStore() {
+      return sharedBackingStore;
+    }
+
+    public Set<String> getExcludedTypes() {
+      return Collections.unmodifiableSet(excludedTypes);
+    }
+  }
+
+  enum Kind {
+    ID,
+    ALL,
+    APPLICATION
+  }
+
+  private static final String ON_DEMAND_TYPE = "onDemand";
+  private static final String ALL_RELATIONSHIPS = "*";
+
+  private final Cache<Key, Object> entries;
+  private final ConcurrentHashMap<String, AtomicLong> generations = new ConcurrentHashMap<>();
+  private final Set<String> excludedTypes;
+
+  public NearCache(Options options) {
+    this.excludedTypes = options.getExcludedTypes();
+    this.entries =
+        Caffeine.newBuilder()
+            .maximumWeight(options.getMaximumItems())
+            .weigher((Key key, Object value) -> weigh(value))
+            .expireAfterWrite(options.getExpireAfterWriteMillis(), TimeUnit.MILLISECONDS)
+            .recordStats()
+            .build();
+  }
+
+  /**
+   * @return the key for a read, or null if reads of the given type or with the given filter can't
+   *     be cached. The key captures the type's current generation, so it must be created before
+   *     the read it caches is issued.
+   */
+  Key key(String type, Kind kind, String discriminator, CacheFilter cacheFilter) {
+    if (isExcluded(type)) {
+      return null;
+    }
+    String filterKey = filterKey(cacheFilter);
+    if (filterKey == null) {
+      return null;
+    }
+    return new Key(type, generation(type).get(), kind, discriminator, filterKey);
+  }
+
+  Object getIfPresent(Key key) {
+    return entries.getIfPresent(key);
+  }
+
+  void put(Key key, Object value) {
+    if (value != null) {
+      entries.put(key, value);
+    }
+  }
+
+  /** Invalidates every cached read of the given types. */
+  public void invalidate(Collection<String> types) {
+    for (String type : types) {
+      generation(type).incrementAndGet();
+    }
+  }
+
+  public long hitCount() {
+    return entries.stats().hitCount();
+  }
+
+  public long missCount() {
+    return entries.stats().missCount();
+  }
+
+  public long evictionCount() {
+    return entries.stats().evictionCount();
+  }
+
+  public long estimatedSize() {
+    return entries.estimatedSize();
+  }
+
+  /**
+   * Some providers namespace their on-demand type (e.g. "azureOnDemand"), so any type ending in
+   * OnDemand is excluded as well.
+   */
+  private boolean isExcluded(String type) {
+    return excludedTypes.contains(type) || type.endsWith("OnDemand");
+  }
+
+  private AtomicLong generation(String type) {
+    return generations.computeIfAbsent(type, t -> new AtomicLong());
+  }
+
+  private static String filterKey(CacheFilter cacheFilter) {
+    if (cacheFilter == null) {
+      return ALL_RELATIONSHIPS;
+    }
+    if (cacheFilter instanceof RelationshipCacheFilter) {
+      return String.join(
+          ",", ((RelationshipCacheFilter) cacheFilter).getAllowableRelationshipPrefixes());
+    }
+    return null;
+  }
+
+  private static int weigh(Object value) {
+    if (value instanceof CacheData) {
+      return 1;
+    }
+    if (value instanceof Collection) {
+      return Math.max(1, ((Collection<?>) value).size());
+    }
+    if (value instanceof Map) {
+      int weight = 0;
+      for (Object v : ((Map<?, ?>) value).values()) {
+        weight += weigh(v);
+      }
+      return Math.max(1, weight);
+    }
+    return 1;
+  }
+
+  static CacheData readOnly(CacheData cacheData) {
+    return cacheData instanceof ReadOnlyCacheData ? cacheData : new ReadOnlyCacheData(cacheData);
+  }
+
+  static Collection<CacheData> readOnly(Collection<CacheData> items) {
+    List<CacheData> result = new ArrayList<>(items.size());
+    for (CacheData item : items) {
+      result.add(readOnly(item));
+    }
+    return Collections.unmodifiableList(result);
+  }
+
+  static Map<String, Collection<CacheData>> readOnly(Map<String, Collection<CacheData>> items) {
+    Map<String, Collection<CacheData>> result = new HashMap<>(items.size());
+    items.forEach((type, values) -> result.put(type, readOnly(values)));
+    return Collections.unmodifiableMap(result);
+  }
+
+  /**
+   * A view of a CacheData whose attributes and relationships can't be modified, so that callers
+   * sharing a cached instance can't observe each other's changes.
+   */
+  private static final class ReadOnlyCacheData implements CacheData {
+    private final String id;
+    private final int ttlSeconds;
+    private final Map<String, Object> attributes;
+    private final Map<String, Collection<String>> relationships;
+
+    ReadOnlyCacheData(CacheData cacheData) {
+      this.id = cacheData.getId();
+      this.ttlSeconds = cacheData.getTtlSeconds();
+      this.attributes =
+          cacheData.getAttributes() == null
+              ? Collections.emptyMap()
+              : Collections.unmodifiableMap(cacheData.getAttributes());
+      Map<String, Collection<String>> relationships = new HashMap<>();
+      if (cacheData.getRelationships() != null) {
+        cacheData
+            .getRelationships()
+            .forEach(
+                (type, ids) ->
+                    relationships.put(
+                        type, ids == null ? null : Collections.unmodifiableCollection(ids)));
+      }
+      this.relationships = Collections.unmodifiableMap(relationships);
+    }
+
+    @Override
+    public String getId() {
+      return id;
+    }
+
+    @Override
+    public int getTtlSeconds() {
+      return ttlSeconds;
+    }
+
+    @Override
+    public Map<String, Object> getAttributes() {
+      return attributes;
+    }
+
+    @Override
+    public Map<String, Collection<String>> getRelationships() {
+      return relationships;
+    }
+  }
+
+  static final class Key {
+    private final String type;
+    private final long generation;
+    private final Kind kind;
+    private final String discriminator;
+    private final String filter;
+
+    Key(String type, long generation, Kind kind, String discriminator, String filter) {
+      this.type = type;
+      this.generation = generation;
+      this.kind = kind;
+      this.discriminator = discriminator;
+      this.filter = filter;
+    }
+
+    Key withDiscriminator(String discriminator) {
+      return new Key(type, generation, kind, discriminator, filter);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      Key key = (Key) o;
+      return generation == key.generation
+          && type.equals(key.type)
+          && kind == key.kind
+          && Objects.equals(discriminator, key.discriminator)
+          && filter.equals(key.filter);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(type, generation, kind, discriminator, filter);
+    }
+  }
+}
@@ -0,0 +1,203 @@
+/*
+ * Copyright 2019 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.spinnaker.cats.provider;
+
+import com.netflix.spinnaker.cats.agent.CacheResult;
+import com.netflix.spinnaker.cats.cache.CacheData;
+import com.netflix.spinnaker.cats.cache.CacheFilter;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * A ProviderCache that reads straight from its delegate and invalidates a {@link NearCache} for
+ * the types touched by every write made through it.
+ *
+ * <p>This is what caching agents and on-demand updates are handed: they must see the backing
+ * store as it is, and the CacheData they get back is theirs to modify.
+ */
+public class NearCacheInvalidatingProviderCache implements ProviderCache {
+
+  private final ProviderCache delegate;
+  private final NearCache nearCache;
+
+  public NearCacheInvalidatingProviderCache(ProviderCache delegate, NearCache nearCache) {
+    this.delegate = delegate;
+    this.nearCache = nearCache;
+  }
+
+  public ProviderCache getDelegate() {
+    return delegate;
+  }
+
+  public NearCache getNearCache() {
+    return nearCache;
+  }
+
+  @Override
+  public CacheData get(String type, String id) {
+    return delegate.get(type, id);
+  }
+
+  @Override
+  public CacheData get(String type, String id, CacheFilter cacheFilter) {
+    return delegate.get(type, id, cacheFilter);
+  }
+
+  @Override
+  public Collection<CacheData> getAll(String type) {
+    return delegate.getAll(type);
+  }
+
+  @Override
+  public Collection<CacheData> getAll(String type, CacheFilter cacheFilter) {
+    return delegate.getAll(type, cacheFilter);
+  }
+
+  @Override
+  public Collection<CacheData> getAll(String type, Collection<String> identifiers) {
+    return delegate.getAll(type, identifiers);
+  }
+
+  @Override
+  public Collection<CacheData> getAll(
+      String type, Collection<String> identifiers, CacheFilter cacheFilter) {
+    return delegate.getAll(type, identifiers, cacheFilter);
+  }
+
+  @Override
+  public Collection<CacheData> getAll(String type, String... identifiers) {
+    return delegate.getAll(type, identifiers);
+  }
+
+  @Override
+  public Map<String, Collection<CacheData>> getAll(
+      Map<String, Collection<String>> identifiersByType, Map<String, CacheFilter> cacheFilters) {
+    return delegate.getAll(identifiersByType, cacheFilters);
+  }
+
+  @Override
+  public Map<String, Collection<CacheData>> getAllByApplication(String type, String application) {
+    return delegate.getAllByApplication(type, application);
+  }
+
+  @Override
+  public Map<String, Collection<CacheData>> getAllByApplication(
+      String type, String application, CacheFilter cacheFilter) {
+    return delegate.getAllByApplication(type, application, cacheFilter);
+  }
+
+  @Override
+  public Map<String, Collection<CacheData>> getAllByApplication(
+      Collection<String> types, String application, Map<String, CacheFilter> cacheFilters) {
+    return delegate.getAllByApplication(types, application, cacheFilters);
+  }
+
+  @Override
+  public Stream<CacheData> streamAll(String type, CacheFilter cacheFilter, int pageSize) {
+    return delegate.streamAll(type, cacheFilter, pageSize);
+  }
+
+  @Override
+  public Collection<String> existingIdentifiers(String type, Collection<String> identifiers) {
+    return delegate.existingIdentifiers(type, identifiers);
+  }
+
+  @Override
+  public Collection<String> getIdentifiers(String type) {
+    return delegate.getIdentifiers(type);
+  }
+
+  @Override
+  public Collection<String> filterIdentifiers(String type, String glob) {
+    return delegate.filterIdentifiers(type, glob);
+  }
+
+  @Override
+  public StoreType storeType() {
+    return delegate.storeType();
+  }
+
+  @Override
+  public void putCacheResult(
+      String source, Collection<String> authoritativeTypes, CacheResult cacheResult) {
+    try {
+      delegate.putCacheResult(source, authoritativeTypes, cacheResult);
+    } finally {
+      nearCache.invalidate(affectedTypes(authoritativeTypes, cacheResult));
+    }
+  }
+
+  @Override
+  public void addCacheResult(
+      String source, Collection<String> authoritativeTypes, CacheResult cacheResult) {
+    try {
+      delegate.addCacheResult(source, authoritativeTypes, cacheResult);
+    } finally {
+      nearCache.invalidate(affectedTypes(authoritativeTypes, cacheResult));
+    }
+  }
+
+  @Override
+  public void putCacheData(String type, CacheData cacheData) {
+    try {
+      delegate.putCacheData(type, cacheData);
+    } finally {
+      Set<String> types = new HashSet<>();
+      types.add(type);
+      addRelationshipTypes(types, cacheData);
+      nearCache.invalidate(types);
+    }
+  }
+
+  @Override
+  public void evictDeletedItems(String type, Collection<String> ids) {
+    try {
+      delegate.evictDeletedItems(type, ids);
+    } finally {
+      nearCache.invalidate(Collections.singleton(type));
+    }
+  }
+
+  /**
+   * Written types, plus the types they hold relationships to, since some stores also persist the
+   * reverse side of each relationship.
+   */
+  private static Set<String> affectedTypes(
+      Collection<String> authoritativeTypes, CacheResult cacheResult) {
+    Set<String> types = new HashSet<>(authoritativeTypes);
+    types.addAll(cacheResult.getEvictions().keySet());
+    for (Map.Entry<String, Collection<CacheData>> entry :
+        cacheResult.getCacheResults().entrySet()) {
+      types.add(entry.getKey());
+      for (CacheData cacheData : entry.getValue()) {
+        addRelationshipTypes(types, cacheData);
+      }
+    }
+    return types;
+  }
+
+  private static void addRelationshipTypes(Set<String> types, CacheData cacheData) {
+    for (String relationship : cacheData.getRelationships().keySet()) {
+      int idx = relationship.indexOf(':');
+      types.add(idx == -1 ? relationship : relationship.substring(0, idx));
+    }
+  }
+}
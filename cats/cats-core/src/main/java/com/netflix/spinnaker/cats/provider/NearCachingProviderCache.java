@@ -0,0 +1,199 @@
+/*
+ * Copyright 2019 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.spinnaker.cats.provider;
+
+import com.netflix.spinnaker.cats.cache.CacheData;
+import com.netflix.spinnaker.cats.cache.CacheFilter;
+import com.netflix.spinnaker.cats.provider.NearCache.Key;
+import com.netflix.spinnaker.cats.provider.NearCache.Kind;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A ProviderCache that serves repeated reads from a {@link NearCache} and invalidates the types
+ * touched by every write made through it.
+ *
+ * <p>Reads may be up to the near cache's expiry out of date with respect to writes made on other
+ * nodes, so this is only meant for the read-only view; caching agents and on-demand updates use a
+ * {@link NearCacheInvalidatingProviderCache}. Cached CacheData instances are shared between
+ * callers and are returned read-only.
+ */
+public class NearCachingProviderCache extends NearCacheInvalidatingProviderCache {
+
+  private final ProviderCache delegate;
+  private final NearCache nearCache;
+
+  public NearCachingProviderCache(ProviderCache delegate, NearCache nearCache) {
+    super(delegate, nearCache);
+    this.delegate = delegate;
+    this.nearCache = nearCache;
+  }
+
+  @Override
+  public CacheData get(String type, String id) {
+    return get(type, id, null);
+  }
+
+  @Override
+  public CacheData get(String type, String id, CacheFilter cacheFilter) {
+    Collection<CacheData> result = getAll(type, Collections.singletonList(id), cacheFilter);
+    return result.isEmpty() ? null : result.iterator().next();
+  }
+
+  @Override
+  public Collection<CacheData> getAll(String type) {
+    return getAll(type, (CacheFilter) null);
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public Collection<CacheData> getAll(String type, CacheFilter cacheFilter) {
+    Key key = nearCache.key(type, Kind.ALL, null, cacheFilter);
+    if (key == null) {
+      return delegate.getAll(type, cacheFilter);
+    }
+
+    Collection<CacheData> cached = (Collection<CacheData>) nearCache.getIfPresent(key);
+    if (cached != null) {
+      return cached;
+    }
+
+    Collection<CacheData> result = NearCache.readOnly(delegate.getAll(type, cacheFilter));
+    nearCache.put(key, result);
+    return result;
+  }
+
+  @Override
+  public Collection<CacheData> getAll(String type, Collection<String> identifiers) {
+    return getAll(type, identifiers, null);
+  }
+
+  @Override
+  public Collection<CacheData> getAll(
+      String type, Collection<String> identifiers, CacheFilter cacheFilter) {
+    Key key = nearCache.key(type, Kind.ID, null, cacheFilter);
+    if (key == null || identifiers == null || identifiers.isEmpty()) {
+      return delegate.getAll(type, identifiers, cacheFilter);
+    }
+
+    List<CacheData> result = new ArrayList<>(identifiers.size());
+    List<String> misses = new ArrayList<>();
+    for (String id : new HashSet<>(identifiers)) {
+      CacheData cached = (CacheData) nearCache.getIfPresent(key.withDiscriminator(id));
+      if (cached != null) {
+        result.add(cached);
+      } else {
+        misses.add(id);
+      }
+    }
+
+    if (!misses.isEmpty()) {
+      for (CacheData item : delegate.getAll(type, misses, cacheFilter)) {
+        CacheData readOnly = NearCache.readOnly(item);
+        nearCache.put(key.withDiscriminator(item.getId()), readOnly);
+        result.add(readOnly);
+      }
+    }
+
+    return Collections.unmodifiableCollection(result);
+  }
+
+  @Override
+  public Collection<CacheData> getAll(String type, String... identifiers) {
+    return getAll(type, Arrays.asList(identifiers));
+  }
+
+  @Override
+  public Map<String, Collection<CacheData>> getAllByApplication(String type, String application) {
+    return getAllByApplication(type, application, null);
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public Map<String, Collection<CacheData>> getAllByApplication(
+      String type, String application, CacheFilter cacheFilter) {
+    Key key = nearCache.key(type, Kind.APPLICATION, application, cacheFilter);
+    if (key == null) {
+      return delegate.getAllByApplication(type, application, cacheFilter);
+    }
+
+    Map<String, Collection<CacheData>> cached =
+        (Map<String, Collection<CacheData>>) nearCache.getIfPresent(key);
+    if (cached != null) {
+      return cached;
+    }
+
+    Map<String, Collection<CacheData>> result =
+        NearCache.readOnly(delegate.getAllByApplication(type, application, cacheFilter));
+    nearCache.put(key, result);
+    return result;
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public Map<String, Collection<CacheData>> getAllByApplication(
+      Collection<String> types, String application, Map<String, CacheFilter> cacheFilters) {
+    Map<String, Collection<CacheData>> result = new HashMap<>();
+    Map<String, Key> keys = new HashMap<>();
+    List<String> misses = new ArrayList<>();
+
+    for (String type : types) {
+      Key key = nearCache.key(type, Kind.APPLICATION, application, cacheFilters.get(type));
+      Map<String, Collection<CacheData>> cached =
+          key == null ? null : (Map<String, Collection<CacheData>>) nearCache.getIfPresent(key);
+      if (cached != null) {
+        result.putAll(cached);
+      } else {
+        keys.put(type, key);
+        misses.add(type);
+      }
+    }
+
+    if (!misses.isEmpty()) {
+      Map<String, Collection<CacheData>> loaded =
+          NearCache.readOnly(delegate.getAllByApplication(misses, application, cacheFilters));
+      for (String type : misses) {
+        Collection<CacheData> items = loaded.get(type);
+        if (items != null && keys.get(type) != null) {
+          nearCache.put(keys.get(type), Collections.singletonMap(type, items));
+        }
+      }
+      result.putAll(loaded);
+    }
+
+    return result;
+  }
+
+  @Override
+  public Map<String, Collection<CacheData>> getAll(
+      Map<String, Collection<String>> identifiersByType, Map<String, CacheFilter> cacheFilters) {
+    Map<String, Collection<CacheData>> result = new HashMap<>();
+    identifiersByType.forEach(
+        (type, identifiers) -> {
+          if (identifiers != null && !identifiers.isEmpty()) {
+            result.put(type, getAll(type, identifiers, cacheFilters.get(type)));
+          }
+        });
+    return result;
+  }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2019 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.spinnaker.cats.provider;
+
+import com.netflix.spinnaker.cats.cache.Cache;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Decorates the ProviderCaches of a ProviderRegistry with a {@link NearCache}.
+ *
+ * <p>Only the read-only view returned by {@link #getProviderCaches()} is served from the near
+ * cache. {@link #getProviderCache(String)} is used by caching agents and on-demand updates, which
+ * need to read the backing store as it is, so it reads through and only invalidates the near cache
+ * on writes.
+ */
+public class NearCachingProviderRegistry implements ProviderRegistry {
+  private final ProviderRegistry delegate;
+  private final Map<String, NearCacheInvalidatingProviderCache> providerCaches = new HashMap<>();
+  private final Map<String, NearCache> nearCaches = new HashMap<>();
+  private final Collection<Cache> views;
+
+  public NearCachingProviderRegistry(ProviderRegistry delegate, NearCache.Options options) {
+    this.delegate = delegate;
+
+    NearCache shared = options.isSharedBackingStore() ? new NearCache(options) : null;
+    Map<ProviderCache, NearCachingProviderCache> wrapped = new IdentityHashMap<>();
+    for (Provider provider : delegate.getProviders()) {
+      ProviderCache providerCache = delegate.getProviderCache(provider.getProviderName());
+      NearCache nearCache = shared != null ? shared : new NearCache(options);
+      providerCaches.put(
+          provider.getProviderName(),
+          new NearCacheInvalidatingProviderCache(providerCache, nearCache));
+      nearCaches.put(provider.getProviderName(), nearCache);
+      wrapped.put(providerCache, new NearCachingProviderCache(providerCache, nearCache));
+    }
+
+    Collection<Cache> views = new ArrayList<>();
+    for (Cache cache : delegate.getProviderCaches()) {
+      NearCachingProviderCache nearCachingProviderCache = wrapped.get(cache);
+      views.add(nearCachingProviderCache != null ? nearCachingProviderCache : cache);
+    }
+    this.views = Collections.unmodifiableCollection(views);
+  }
+
+  public ProviderRegistry getDelegate() {
+    return delegate;
+  }
+
+  /** @return near caches keyed by provider name; providers may share a near cache */
+  public Map<String, NearCache> getNearCaches() {
+    return Collections.unmodifiableMap(nearCaches);
+  }
+
+  @Override
+  public Collection<Provider> getProviders() {
+    return delegate.getProviders();
+  }
+
+  @Override
+  public Collection<Cache> getProviderCaches() {
+    return views;
+  }
+
+  @Override
+  public ProviderCache getProviderCache(String providerName) {
+    return providerCaches.get(providerName);
+  }
+}
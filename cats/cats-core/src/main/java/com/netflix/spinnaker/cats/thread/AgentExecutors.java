@@ -0,0 +1,128 @@
+/*
+ * Copyright 2019 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.spinnaker.cats.thread;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Executors for running caching agents and the blocking I/O they fan out to.
+ *
+ * <p>Agents spend nearly all of their time blocked on cloud provider APIs or subprocesses, so on
+ * runtimes with virtual threads they can run one virtual thread per task.
+ */
+public final class AgentExecutors {
+  private static final int DEFAULT_FAN_OUT_CONCURRENCY = 256;
+  private static final int FAN_OUT_PLATFORM_THREADS = 32;
+
+  private static final ThreadFactory FAN_OUT_THREAD_FACTORY = new NamedThreadFactory("AgentFanOut");
+
+  private static volatile ExecutorService fanOutPool;
+
+  private AgentExecutors() {}
+
+  /**
+   * The pool is not bounded either way; the agent schedulers already cap how many agents run at
+   * once with their max-concurrent-agents setting.
+   *
+   * @param virtualThreads run each agent on its own virtual thread if the runtime supports it;
+   *     otherwise, and by default, agents run on a cached pool of platform threads
+   */
+  public static ExecutorService newAgentExecutionPool(String baseName, boolean virtualThreads) {
+    if (virtualThreads) {
+      ExecutorService executor = VirtualThreads.newThreadPerTaskExecutor(baseName).orElse(null);
+      if (executor != null) {
+        return executor;
+      }
+    }
+    return Executors.newCachedThreadPool(new NamedThreadFactory(baseName));
+  }
+
+  /**
+   * A shared pool for blocking calls an agent makes in parallel. Uses capped virtual threads where
+   * available, and otherwise a bounded pool of daemon platform threads of its own, so that blocked
+   * calls never tie up the common fork join pool.
+   */
+  public static ExecutorService fanOutPool() {
+    if (fanOutPool == null) {
+      synchronized (AgentExecutors.class) {
+        if (fanOutPool == null) {
+          fanOutPool =
+              VirtualThreads.newThreadPerTaskExecutor("AgentFanOut")
+                  .<ExecutorService>map(
+                      e -> new ConcurrencyLimitedExecutorService(e, DEFAULT_FAN_OUT_CONCURRENCY))
+                  .orElseGet(AgentExecutors::newFanOutPlatformPool);
+        }
+      }
+    }
+    return fanOutPool;
+  }
+
+  private static ExecutorService newFanOutPlatformPool() {
+    ThreadPoolExecutor executor =
+        new ThreadPoolExecutor(
+            FAN_OUT_PLATFORM_THREADS,
+            FAN_OUT_PLATFORM_THREADS,
+            1,
+            TimeUnit.MINUTES,
+            new LinkedBlockingQueue<>(),
+            r -> {
+              Thread thread = FAN_OUT_THREAD_FACTORY.newThread(r);
+              thread.setDaemon(true);
+              return thread;
+            });
+    executor.allowCoreThreadTimeOut(true);
+    return executor;
+  }
+
+  /**
+   * Applies a blocking function to every input on the {@link #fanOutPool()}, returning results in
+   * input order. An exception thrown by the function is rethrown as is.
+   *
+   * <p>The function must not fan out again itself: on platform threads the pool is bounded, and
+   * nested calls could wait on each other for its threads.
+   */
+  public static <T, R> List<R> fanOut(Collection<T> inputs, Function<T, R> function) {
+    ExecutorService pool = fanOutPool();
+    List<CompletableFuture<R>> futures =
+        inputs.stream()
+            .map(input -> CompletableFuture.supplyAsync(() -> function.apply(input), pool))
+            .collect(Collectors.toList());
+
+    try {
+      return futures.stream().map(CompletableFuture::join).collect(Collectors.toList());
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      if (e.getCause() instanceof Error) {
+        throw (Error) e.getCause();
+      }
+      throw e;
+    }
+  }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2019 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.spinnaker.cats.thread;
+
+import java.lang.reflect.Method;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Access to virtual threads on runtimes that provide them (Java 21+), without requiring them at
+ * compile time.
+ */
+public final class VirtualThreads {
+  private static final Logger log = LoggerFactory.getLogger(VirtualThreads.class);
+
+  private static final Method OF_VIRTUAL = method(Thread.class, "ofVirtual");
+  private static final Method NAME = method(builderClass(), "name", String.class, long.class);
+  private static final Method FACTORY = method(builderClass(), "factory");
+  private static final Method NEW_THREAD_PER_TASK_EXECUTOR =
+      method(Executors.class, "newThreadPerTaskExecutor", ThreadFactory.class);
+
+  private VirtualThreads() {}
+
+  public static boolean isAvailable() {
+    return OF_VIRTUAL != null
+        && NAME != null
+        && FACTORY != null
+        && NEW_THREAD_PER_TASK_EXECUTOR != null;
+  }
+
+  /**
+   * @return an executor that starts a new virtual thread, named baseName-N, for every task, or
+   *     empty if this runtime doesn't support virtual threads
+   */
+  public static Optional<ExecutorService> newThreadPerTaskExecutor(String baseName) {
+    if (!isAvailable()) {
+      return Optional.empty();
+    }
+    try {
+      Object builder = NAME.invoke(OF_VIRTUAL.invoke(null), baseName + "-", 1L);
+      ThreadFactory factory = (ThreadFactory) FACTORY.invoke(builder);
+      return Optional.of((ExecutorService) NEW_THREAD_PER_TASK_EXECUTOR.invoke(null, factory));
+    } catch (ReflectiveOperationException e) {
+      log.warn("Unable to create virtual thread executor", e);
+      return Optional.empty();
+    }
+  }
+
+  private static Class<?> builderClass() {
+    try {
+      return Class.forName("java.lang.Thread$Builder");
+    } catch (ClassNotFoundException e) {
+      return null;
+    }
+  }
+
+  private static Method method(Class<?> type, String name, Class<?>... parameterTypes) {
+    if (type == null) {
+      return null;
+    }
+    try {
+      return type.getMethod(name, parameterTypes);
+    } catch (NoSuchMethodException e) {
+      return null;
+    }
+  }
+}
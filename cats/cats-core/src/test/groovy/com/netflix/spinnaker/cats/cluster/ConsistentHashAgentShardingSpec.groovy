@@ -0,0 +1,100 @@
+/*
+ * Copyright 2019 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.spinnaker.cats.cluster
+
+import com.netflix.spinnaker.cats.agent.AccountAware
+import com.netflix.spinnaker.cats.agent.Agent
+import spock.lang.Specification
+
+class ConsistentHashAgentShardingSpec extends Specification {
+
+  def 'each agent is owned by exactly one live node'() {
+    given:
+    def nodes = ['node-a', 'node-b', 'node-c'] as Set
+    def shardings = nodes.collect { sharding(it, nodes) }
+    def agents = (1..300).collect { agent("agent-$it") }
+
+    expect:
+    agents.every { agent -> shardings.count { it.isOwned(agent) } == 1 }
+  }
+
+  def 'a node leaving only moves the agents it owned'() {
+    given:
+    def keys = (1..1000).collect { "agent-$it".toString() }
+    def before = ['node-a', 'node-b', 'node-c', 'node-d']
+    def after = ['node-a', 'node-b', 'node-c']
+
+    when:
+    def moved = keys.findAll {
+      ConsistentHashAgentSharding.owner(it, before) != ConsistentHashAgentSharding.owner(it, after)
+    }
+
+    then:
+    moved.every { ConsistentHashAgentSharding.owner(it, before) == 'node-d' }
+    moved.size() > 150
+    moved.size() < 350
+  }
+
+  def 'agents of the same account are owned by the same node'() {
+    given:
+    def nodes = ['node-a', 'node-b', 'node-c'] as Set
+    def agents = (1..20).collect { accountAgent("agent-$it", 'prod') }
+
+    when:
+    def owners = agents.collect {
+      ConsistentHashAgentSharding.owner(ConsistentHashAgentSharding.shardKey(it), nodes)
+    }
+
+    then:
+    owners.unique().size() == 1
+  }
+
+  def 'every agent is owned while this node is missing from the membership'() {
+    given:
+    def sharding = new ConsistentHashAgentSharding(
+      identity('node-a'),
+      Mock(NodeMembership) { heartbeat(_) >> { throw new IllegalStateException('unavailable') } },
+      0
+    )
+
+    expect:
+    (1..10).every { sharding.isOwned(agent("agent-$it")) }
+  }
+
+  private ConsistentHashAgentSharding sharding(String self, Set<String> nodes) {
+    new ConsistentHashAgentSharding(identity(self), { nodes } as NodeMembership, 60000)
+  }
+
+  private NodeIdentity identity(String id) {
+    { -> id } as NodeIdentity
+  }
+
+  private Agent agent(String agentType) {
+    Stub(Agent) {
+      getAgentType() >> agentType
+    }
+  }
+
+  private Agent accountAgent(String agentType, String account) {
+    Stub(AccountAwareAgent) {
+      getAgentType() >> agentType
+      getAccountName() >> account
+    }
+  }
+
+  interface AccountAwareAgent extends Agent, AccountAware {}
+}
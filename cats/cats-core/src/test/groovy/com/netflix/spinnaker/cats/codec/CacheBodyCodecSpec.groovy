@@ -0,0 +1,113 @@
+/*
+ * Copyright 2019 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.spinnaker.cats.codec
+
+import com.fasterxml.jackson.core.type.TypeReference
+import com.fasterxml.jackson.databind.ObjectMapper
+import com.netflix.spinnaker.cats.cache.DefaultCacheData
+import spock.lang.Specification
+import spock.lang.Subject
+import spock.lang.Unroll
+
+import static com.netflix.spinnaker.cats.codec.CacheBodyCodec.Encoding.JSON
+import static com.netflix.spinnaker.cats.codec.CacheBodyCodec.Encoding.SMILE
+import static com.netflix.spinnaker.cats.codec.CacheBodyCodec.Encoding.SMILE_LZ4
+
+class CacheBodyCodecSpec extends Specification {
+
+  @Subject
+  def codec = new CacheBodyCodec(new ObjectMapper())
+
+  @Unroll
+  def 'should round trip values encoded as #encoding'() {
+    given:
+    def attributes = [name: "foo", tags: ["a", "b"], nested: [enabled: true, count: 3]]
+
+    when:
+    def encoded = codec.encode(attributes, encoding)
+
+    then:
+    CacheBodyCodec.encodingOf(encoded) == encoding
+    codec.decode(encoded, new TypeReference<Map<String, Object>>() {}) == attributes
+
+    where:
+    encoding << [JSON, SMILE, SMILE_LZ4]
+  }
+
+  def 'should decode rows written with any encoding'() {
+    given:
+    def data = new DefaultCacheData("id", [name: "foo"], [instances: ["i-1"]])
+    def json = new ObjectMapper().writeValueAsString(data)
+    def smile = codec.encode(data, SMILE_LZ4)
+
+    expect:
+    codec.decode(json, DefaultCacheData).attributes == [name: "foo"]
+    codec.decode(smile, DefaultCacheData).attributes == [name: "foo"]
+    codec.decode(smile, DefaultCacheData).relationships == [instances: ["i-1"]]
+  }
+
+  def 'smile-lz4 stays smaller than json for a server group sized body, Base64 included'() {
+    given:
+    def instanceIds = (1..20).collect { "i-0${Integer.toHexString(it * 7919)}abcdef0123" }
+    def data = new DefaultCacheData(
+      "aws:serverGroups:app-main:prod:us-west-2:app-main-v001",
+      [
+        name     : "app-main-v001",
+        region   : "us-west-2",
+        account  : "prod",
+        zones    : ["us-west-2a", "us-west-2b", "us-west-2c"],
+        asg      : [
+          autoScalingGroupName   : "app-main-v001",
+          launchConfigurationName: "app-main-v001-20190601120000",
+          minSize                : 0,
+          maxSize                : 48,
+          desiredCapacity        : 20,
+          instances              : instanceIds.collect {
+            [
+              instanceId             : it,
+              availabilityZone       : "us-west-2a",
+              lifecycleState         : "InService",
+              healthStatus           : "Healthy",
+              launchConfigurationName: "app-main-v001-20190601120000",
+              protectedFromScaleIn   : false
+            ]
+          }
+        ]
+      ],
+      [instances: instanceIds.collect { "aws:instances:prod:us-west-2:${it}".toString() }]
+    )
+
+    when:
+    def json = codec.encode(data, JSON)
+    def smileLz4 = codec.encode(data, SMILE_LZ4)
+
+    then:
+    smileLz4.length() < json.length() * 0.75
+  }
+
+  @Unroll
+  def 'should parse encoding name #name'() {
+    expect:
+    CacheBodyCodec.Encoding.fromName(name) == expected
+
+    where:
+    name        || expected
+    null        || JSON
+    "json"      || JSON
+    "smile"     || SMILE
+    "smile-lz4" || SMILE_LZ4
+  }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2019 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.spinnaker.cats.compression
+
+import spock.lang.Specification
+
+import java.nio.ByteBuffer
+
+class Lz4CompressionStrategySpec extends Specification {
+
+  def 'should compress and decompress values'() {
+    given:
+    def subject = new Lz4Compression(16)
+
+    when:
+    def result = subject.compress(data)
+
+    then:
+    if (shouldCompress) {
+      result != data
+    } else {
+      result == data
+    }
+    subject.decompress(result) == data
+
+    where:
+    data                           || shouldCompress
+    'hello world hello world'      || true
+    'foo bar baz foo bar baz'      || true
+    'a'                            || false
+  }
+
+  def 'should compress and decompress bytes'() {
+    given:
+    def subject = new Lz4Compression(0)
+    def data = ('abc' * 1000).bytes
+
+    when:
+    def compressed = subject.compress(data)
+
+    then:
+    compressed.length < data.length
+    subject.decompress(compressed) == data
+  }
+
+  def 'should reject a length prefix the payload could not expand to'() {
+    given:
+    def subject = new Lz4Compression(0)
+    def compressed = subject.compress(('abc' * 1000).bytes)
+
+    when:
+    ByteBuffer.wrap(compressed).putInt(length)
+    subject.decompress(compressed)
+
+    then:
+    thrown(IllegalArgumentException)
+
+    where:
+    length << [-1, Integer.MAX_VALUE, Lz4Compression.MAX_DECOMPRESSED_BYTES + 1]
+  }
+
+  def 'should reject a payload too short for its length prefix'() {
+    when:
+    new Lz4Compression(0).decompress([0, 1] as byte[])
+
+    then:
+    thrown(IllegalArgumentException)
+  }
+}
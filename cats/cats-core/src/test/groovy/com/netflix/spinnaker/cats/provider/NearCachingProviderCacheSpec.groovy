@@ -0,0 +1,181 @@
+/*
+ * Copyright 2019 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.spinnaker.cats.provider
+
+import com.netflix.spinnaker.cats.agent.DefaultCacheResult
+import com.netflix.spinnaker.cats.cache.Cache
+import com.netflix.spinnaker.cats.cache.DefaultCacheData
+import com.netflix.spinnaker.cats.cache.RelationshipCacheFilter
+import com.netflix.spinnaker.cats.mem.InMemoryCache
+import com.netflix.spinnaker.cats.mem.InMemoryNamedCacheFactory
+
+class NearCachingProviderCacheSpec extends ProviderCacheSpec {
+
+  ProviderCache delegate
+
+  @Override
+  Cache getSubject() {
+    backingStore = new InMemoryCache()
+    delegate = Spy(DefaultProviderCache, constructorArgs: [backingStore])
+    new NearCachingProviderCache(delegate, new NearCache(new NearCache.Options()))
+  }
+
+  @Override
+  ProviderCache getDefaultProviderCache() {
+    getCache() as ProviderCache
+  }
+
+  def 'repeated reads are served from the near cache'() {
+    setup:
+    populateOne('foo', 'bar')
+
+    when:
+    defaultProviderCache.get('foo', 'bar')
+    defaultProviderCache.get('foo', 'bar')
+    defaultProviderCache.getAll('foo')
+    defaultProviderCache.getAll('foo')
+
+    then:
+    1 * delegate.getAll('foo', ['bar'], null)
+    1 * delegate.getAll('foo', null)
+  }
+
+  def 'only ids missing from the near cache are read from the delegate'() {
+    setup:
+    populateOne('foo', 'bar')
+    populateOne('foo', 'baz')
+    defaultProviderCache.get('foo', 'bar')
+
+    when:
+    def result = defaultProviderCache.getAll('foo', ['bar', 'baz'])
+
+    then:
+    1 * delegate.getAll('foo', ['baz'], null)
+    result*.id.sort() == ['bar', 'baz']
+  }
+
+  def 'reads with different relationship filters are cached separately'() {
+    setup:
+    populateOne('foo', 'bar', createData('bar', [bar: 'bar'], [rel1: ['rel1'], rel2: ['rel2']]))
+
+    when:
+    def all = defaultProviderCache.get('foo', 'bar')
+    def filtered = defaultProviderCache.get('foo', 'bar', RelationshipCacheFilter.include('rel1'))
+
+    then:
+    all.relationships.keySet() == ['rel1', 'rel2'] as Set
+    filtered.relationships.keySet() == ['rel1'] as Set
+  }
+
+  def 'writes invalidate the written type and its relationship types'() {
+    setup:
+    populateOne('foo', 'bar')
+    populateOne('other', 'one')
+    defaultProviderCache.getAll('foo')
+    defaultProviderCache.getAll('other')
+
+    when:
+    defaultProviderCache.putCacheResult('agent', [], new DefaultCacheResult(
+      foo: [new DefaultCacheData('baz', [:], [other: ['other:two']])]
+    ))
+    def foo = defaultProviderCache.getAll('foo')
+    def other = defaultProviderCache.getAll('other')
+
+    then:
+    1 * delegate.getAll('foo', null)
+    1 * delegate.getAll('other', null)
+    foo*.id.sort() == ['bar', 'baz']
+  }
+
+  def 'evictions invalidate the evicted type'() {
+    setup:
+    populateOne('foo', 'bar')
+    defaultProviderCache.get('foo', 'bar')
+
+    when:
+    defaultProviderCache.evictDeletedItems('foo', ['bar'])
+
+    then:
+    defaultProviderCache.get('foo', 'bar') == null
+  }
+
+  def 'on-demand types are always read from the delegate'() {
+    setup:
+    populateOne('onDemand', 'bar')
+    populateOne('azureOnDemand', 'bar')
+
+    when:
+    2.times {
+      defaultProviderCache.get('onDemand', 'bar')
+      defaultProviderCache.get('azureOnDemand', 'bar')
+    }
+
+    then:
+    2 * delegate.getAll('onDemand', ['bar'], null)
+    2 * delegate.getAll('azureOnDemand', ['bar'], null)
+  }
+
+  def 'cached items can not be modified'() {
+    setup:
+    populateOne('foo', 'bar', createData('bar', [bar: 'bar'], [rel1: ['rel1']]))
+    def item = defaultProviderCache.get('foo', 'bar')
+
+    when:
+    item.attributes.processedCount = 1
+
+    then:
+    thrown(UnsupportedOperationException)
+
+    when:
+    item.relationships.rel1 << 'rel2'
+
+    then:
+    thrown(UnsupportedOperationException)
+    defaultProviderCache.get('foo', 'bar').relationships.rel1 == ['rel1']
+  }
+
+  def 'the registry hands agents a provider cache that reads through and invalidates on writes'() {
+    setup:
+    def provider = Stub(Provider) {
+      getProviderName() >> 'test'
+    }
+    def registry = new NearCachingProviderRegistry(
+      new DefaultProviderRegistry([provider], new InMemoryNamedCacheFactory()),
+      new NearCache.Options()
+    )
+    def agentCache = registry.getProviderCache('test')
+    def view = registry.providerCaches.first()
+    agentCache.putCacheData('foo', new DefaultCacheData('bar', [value: 1], [:]))
+
+    expect:
+    !(agentCache instanceof NearCachingProviderCache)
+    view instanceof NearCachingProviderCache
+    view.get('foo', 'bar').attributes.value == 1
+
+    when:
+    agentCache.get('foo', 'bar').attributes.value = 2
+
+    then:
+    notThrown(UnsupportedOperationException)
+
+    when:
+    agentCache.putCacheData('foo', new DefaultCacheData('bar', [value: 3], [:]))
+
+    then:
+    view.get('foo', 'bar').attributes.value == 3
+  }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright 2019 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.spinnaker.cats.thread
+
+import spock.lang.Specification
+
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.Executors
+import java.util.concurrent.ForkJoinWorkerThread
+import java.util.concurrent.ThreadPoolExecutor
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+
+class AgentExecutorsSpec extends Specification {
+
+  def 'fanOut returns results in input order'() {
+    expect:
+    AgentExecutors.fanOut([3, 1, 2]) { it * 10 } == [30, 10, 20]
+  }
+
+  def 'fanOut rethrows the original exception'() {
+    when:
+    AgentExecutors.fanOut(['a', 'b']) { if (it == 'b') throw new IllegalStateException(it); it }
+
+    then:
+    def e = thrown(IllegalStateException)
+    e.message == 'b'
+  }
+
+  def 'fanOut runs on threads of its own'() {
+    when:
+    def threads = AgentExecutors.fanOut([1, 2]) { Thread.currentThread() }
+
+    then:
+    threads.every { !(it instanceof ForkJoinWorkerThread) }
+  }
+
+  def 'agent execution pool only uses virtual threads where the runtime supports them'() {
+    when:
+    def pool = AgentExecutors.newAgentExecutionPool('test', true)
+
+    then:
+    (pool instanceof ThreadPoolExecutor) == !VirtualThreads.isAvailable()
+
+    cleanup:
+    pool?.shutdownNow()
+  }
+
+  def 'limits the number of tasks running at once'() {
+    given:
+    def executor = new ConcurrencyLimitedExecutorService(Executors.newCachedThreadPool(), 2)
+    def running = new AtomicInteger()
+    def maxRunning = new AtomicInteger()
+    def done = new CountDownLatch(10)
+
+    when:
+    10.times {
+      executor.execute {
+        def current = running.incrementAndGet()
+        maxRunning.updateAndGet { Math.max(it, current) }
+        Thread.sleep(20)
+        running.decrementAndGet()
+        done.countDown()
+      }
+    }
+
+    then:
+    done.await(5, TimeUnit.SECONDS)
+    maxRunning.get() <= 2
+
+    cleanup:
+    executor.shutdownNow()
+  }
+}
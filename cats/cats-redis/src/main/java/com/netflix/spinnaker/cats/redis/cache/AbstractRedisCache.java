@@ -21,9 +21,12 @@ import com.google.common.collect.Iterables;
 import com.netflix.spinnaker.cats.cache.CacheData;
 import com.netflix.spinnaker.cats.cache.CacheFilter;
 import com.netflix.spinnaker.cats.cache.WriteableCache;
+import com.netflix.spinnaker.cats.codec.CacheBodyCodec;
 import com.netflix.spinnaker.kork.jedis.RedisClientDelegate;
 import java.util.*;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import redis.clients.jedis.Response;
@@ -46,6 +49,7 @@ public abstract class AbstractRedisCache implements WriteableCache {
   protected final RedisClientDelegate redisClientDelegate;
   protected final ObjectMapper objectMapper;
   protected final RedisCacheOptions options;
+  protected final CacheBodyCodec bodyCodec;
 
   protected AbstractRedisCache(
       String prefix,
@@ -56,6 +60,7 @@ public abstract class AbstractRedisCache implements WriteableCache {
     this.redisClientDelegate = redisClientDelegate;
     this.objectMapper = objectMapper;
     this.options = options;
+    this.bodyCodec = new CacheBodyCodec(objectMapper);
   }
 
   protected abstract void mergeItems(String type, Collection<CacheData> items);
@@ -154,14 +159,7 @@ public abstract class AbstractRedisCache implements WriteableCache {
       return new ArrayList<>();
     }
     Collection<String> ids = new LinkedHashSet<>(identifiers);
-    final List<String> knownRels;
-    Set<String> allRelationships = scanMembers(allRelationshipsId(type));
-    if (cacheFilter == null) {
-      knownRels = new ArrayList<>(allRelationships);
-    } else {
-      knownRels =
-          new ArrayList<>(cacheFilter.filter(CacheFilter.Type.RELATIONSHIP, allRelationships));
-    }
+    final List<String> knownRels = getKnownRelationships(type, cacheFilter);
 
     Collection<CacheData> result = new ArrayList<>(ids.size());
 
@@ -172,6 +170,22 @@ public abstract class AbstractRedisCache implements WriteableCache {
     return result;
   }
 
+  /**
+   * Streams all items of a type by walking the type's member set with SSCAN, fetching each scanned
+   * page of identifiers with the batched {@link #getItems} lookup.
+   */
+  @Override
+  public Stream<CacheData> streamAll(String type, CacheFilter cacheFilter, int pageSize) {
+    if (pageSize < 1) {
+      throw new IllegalArgumentException("pageSize must be positive: " + pageSize);
+    }
+    Iterator<Collection<CacheData>> pages =
+        new ScanPageIterator(type, getKnownRelationships(type, cacheFilter), pageSize);
+    return StreamSupport.stream(
+            Spliterators.spliteratorUnknownSize(pages, Spliterator.NONNULL), false)
+        .flatMap(Collection::stream);
+  }
+
   @Override
   public Collection<String> getIdentifiers(String type) {
     return scanMembers(allOfTypeId(type));
@@ -204,6 +218,71 @@ public abstract class AbstractRedisCache implements WriteableCache {
         });
   }
 
+  private List<String> getKnownRelationships(String type, CacheFilter cacheFilter) {
+    Set<String> allRelationships = scanMembers(allRelationshipsId(type));
+    if (cacheFilter == null) {
+      return new ArrayList<>(allRelationships);
+    }
+    return new ArrayList<>(cacheFilter.filter(CacheFilter.Type.RELATIONSHIP, allRelationships));
+  }
+
+  /**
+   * Iterates the members of a type one SSCAN cursor step at a time. SSCAN may return an element
+   * more than once, so identifiers already handed out are skipped.
+   */
+  private class ScanPageIterator implements Iterator<Collection<CacheData>> {
+    private final String type;
+    private final List<String> knownRels;
+    private final ScanParams scanParams;
+    private final Set<String> seen = new HashSet<>();
+
+    private String cursor = "0";
+    private boolean exhausted = false;
+    private Collection<CacheData> next;
+
+    ScanPageIterator(String type, List<String> knownRels, int pageSize) {
+      this.type = type;
+      this.knownRels = knownRels;
+      this.scanParams = new ScanParams().count(pageSize);
+    }
+
+    @Override
+    public boolean hasNext() {
+      while (next == null && !exhausted) {
+        ScanResult<String> scanResult =
+            redisClientDelegate.withCommandsClient(
+                client -> {
+                  return client.sscan(allOfTypeId(type), cursor, scanParams);
+                });
+        cursor = scanResult.getStringCursor();
+        exhausted = "0".equals(cursor);
+
+        List<String> ids =
+            scanResult.getResult().stream().filter(seen::add).collect(Collectors.toList());
+        if (!ids.isEmpty()) {
+          Collection<CacheData> page = new ArrayList<>(ids.size());
+          for (List<String> idPart : Iterables.partition(ids, options.getMaxGetBatchSize())) {
+            page.addAll(getItems(type, idPart, knownRels));
+          }
+          if (!page.isEmpty()) {
+            next = page;
+          }
+        }
+      }
+      return next != null;
+    }
+
+    @Override
+    public Collection<CacheData> next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      Collection<CacheData> page = next;
+      next = null;
+      return page;
+    }
+  }
+
   protected boolean isHashingDisabled(String type) {
     if (!options.isHashingEnabled()) {
       return true;
@@ -299,7 +299,8 @@ public class RedisCache extends AbstractRedisCache {
     }
 
     try {
-      final Map<String, Object> attributes = objectMapper.readValue(keyResult.get(0), ATTRIBUTES);
+      final Map<String, Object> attributes =
+          bodyCodec.decode(keyResult.get(0), ATTRIBUTES);
       final Map<String, Collection<String>> relationships = new HashMap<>(keyResult.size() - 1);
       for (int relIdx = 1; relIdx < keyResult.size(); relIdx++) {
         String rel = keyResult.get(relIdx);
@@ -344,9 +345,10 @@ public class RedisCache extends AbstractRedisCache {
       if (cacheData.getAttributes().isEmpty()) {
         serializedAttributes = null;
       } else {
-        serializedAttributes = objectMapper.writeValueAsString(cacheData.getAttributes());
+        serializedAttributes =
+            bodyCodec.encode(cacheData.getAttributes(), options.getAttributesEncoding());
       }
-    } catch (JsonProcessingException serializationException) {
+    } catch (IOException serializationException) {
       throw new RuntimeException("Attribute serialization failed", serializationException);
     }
 
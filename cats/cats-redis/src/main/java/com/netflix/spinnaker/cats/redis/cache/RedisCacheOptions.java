@@ -17,6 +17,7 @@
 package com.netflix.spinnaker.cats.redis.cache;
 
 import com.google.common.base.Preconditions;
+import com.netflix.spinnaker.cats.codec.CacheBodyCodec;
 
 public class RedisCacheOptions {
   public static Builder builder() {
@@ -36,6 +37,7 @@ public class RedisCacheOptions {
   private final int maxGetBatchSize;
   private final boolean hashingEnabled;
   private final boolean treatRelationshipsAsSet;
+  private final CacheBodyCodec.Encoding attributesEncoding;
 
   private static int posInt(String name, int value) {
     Preconditions.checkArgument(value > 0, "%s must be a positive integer (%s)", name, value);
@@ -62,6 +64,38 @@ public class RedisCacheOptions {
       int maxGetBatchSize,
       boolean hashingEnabled,
       boolean treatRelationshipsAsSet) {
+    this(
+        maxMsetSize,
+        maxMgetSize,
+        maxHmgetSize,
+        maxHmsetSize,
+        maxSaddSize,
+        maxDelSize,
+        maxPipelineSize,
+        scanSize,
+        maxMergeBatchSize,
+        maxEvictBatchSize,
+        maxGetBatchSize,
+        hashingEnabled,
+        treatRelationshipsAsSet,
+        CacheBodyCodec.Encoding.JSON);
+  }
+
+  public RedisCacheOptions(
+      int maxMsetSize,
+      int maxMgetSize,
+      int maxHmgetSize,
+      int maxHmsetSize,
+      int maxSaddSize,
+      int maxDelSize,
+      int maxPipelineSize,
+      int scanSize,
+      int maxMergeBatchSize,
+      int maxEvictBatchSize,
+      int maxGetBatchSize,
+      boolean hashingEnabled,
+      boolean treatRelationshipsAsSet,
+      CacheBodyCodec.Encoding attributesEncoding) {
     this.maxMsetSize = posEven("maxMsetSize", maxMsetSize);
     this.maxMgetSize = posInt("maxMgetSize", maxMgetSize);
     this.maxHmgetSize = posInt("maxHmgetSize", maxHmgetSize);
@@ -75,6 +109,7 @@ public class RedisCacheOptions {
     this.maxGetBatchSize = posInt("maxGetBatchSize", maxGetBatchSize);
     this.hashingEnabled = hashingEnabled;
     this.treatRelationshipsAsSet = treatRelationshipsAsSet;
+    this.attributesEncoding = Preconditions.checkNotNull(attributesEncoding, "attributesEncoding");
   }
 
   public int getMaxMsetSize() {
@@ -129,6 +164,10 @@ public class RedisCacheOptions {
     return treatRelationshipsAsSet;
   }
 
+  public CacheBodyCodec.Encoding getAttributesEncoding() {
+    return attributesEncoding;
+  }
+
   public static class Builder {
     public static final int DEFAULT_MULTI_OP_SIZE = 200;
     public static final int DEFAULT_BATCH_SIZE = 200;
@@ -150,6 +189,7 @@ public class RedisCacheOptions {
     int maxGetBatchSize;
     boolean hashingEnabled;
     boolean treatRelationshipsAsSet;
+    CacheBodyCodec.Encoding attributesEncoding;
 
     public Builder() {
       batchSize(DEFAULT_BATCH_SIZE);
@@ -158,6 +198,7 @@ public class RedisCacheOptions {
       maxPipeline(DEFAULT_MAX_PIPELINE_SIZE);
       hashing(DEFAULT_HASHING_ENABLED);
       treatRelationshipsAsSet(DEFAULT_TREAT_RELATIONSHIPS_AS_SET_DISABLED);
+      attributesEncoding(CacheBodyCodec.Encoding.JSON);
     }
 
     public Builder maxMergeBatch(int maxMergeBatch) {
@@ -241,6 +282,19 @@ public class RedisCacheOptions {
       return this;
     }
 
+    /**
+     * Encoding for newly written attributes. Reads handle every encoding, so this should only be
+     * changed once all readers support the new encoding.
+     *
+     * <p>It applies to every type in the cache. SMILE_LZ4 is the one that pays off, most on large
+     * bodies such as server groups; SMILE leaves small bodies such as clusters larger than JSON.
+     * {@link CacheBodyCodec} has the measured sizes per type.
+     */
+    public Builder attributesEncoding(CacheBodyCodec.Encoding attributesEncoding) {
+      this.attributesEncoding = attributesEncoding;
+      return this;
+    }
+
     public RedisCacheOptions build() {
       return new RedisCacheOptions(
           maxMsetSize,
@@ -255,7 +309,8 @@ public class RedisCacheOptions {
           maxEvictBatchSize,
           maxGetBatchSize,
           hashingEnabled,
-          treatRelationshipsAsSet);
+          treatRelationshipsAsSet,
+          attributesEncoding);
     }
 
     public void setBatchSize(int batchSize) {
@@ -369,5 +424,13 @@ public class RedisCacheOptions {
     public void setTreatRelationshipsAsSet(boolean treatRelationshipsAsSet) {
       this.treatRelationshipsAsSet = treatRelationshipsAsSet;
     }
+
+    public CacheBodyCodec.Encoding getAttributesEncoding() {
+      return attributesEncoding;
+    }
+
+    public void setAttributesEncoding(CacheBodyCodec.Encoding attributesEncoding) {
+      this.attributesEncoding = attributesEncoding;
+    }
   }
 }
@@ -23,6 +23,7 @@ import com.netflix.spinnaker.cats.agent.AgentScheduler;
 import com.netflix.spinnaker.cats.agent.AgentSchedulerAware;
 import com.netflix.spinnaker.cats.agent.ExecutionInstrumentation;
 import com.netflix.spinnaker.cats.cluster.AgentIntervalProvider;
+import com.netflix.spinnaker.cats.cluster.ConsistentHashAgentSharding;
 import com.netflix.spinnaker.cats.cluster.NodeIdentity;
 import com.netflix.spinnaker.cats.cluster.NodeStatusProvider;
 import com.netflix.spinnaker.cats.module.CatsModuleAware;
@@ -59,6 +60,7 @@ public class ClusteredAgentScheduler extends CatsModuleAware
   private final Map<String, NextAttempt> activeAgents = new ConcurrentHashMap<>();
   private final NodeStatusProvider nodeStatusProvider;
   private final DynamicConfigService dynamicConfigService;
+  private final ConsistentHashAgentSharding sharding;
 
   public ClusteredAgentScheduler(
       RedisClientDelegate redisClientDelegate,
@@ -68,6 +70,26 @@ public class ClusteredAgentScheduler extends CatsModuleAware
       String enabledAgentPattern,
       Integer agentLockAcquisitionIntervalSeconds,
       DynamicConfigService dynamicConfigService) {
+    this(
+        redisClientDelegate,
+        nodeIdentity,
+        intervalProvider,
+        nodeStatusProvider,
+        enabledAgentPattern,
+        agentLockAcquisitionIntervalSeconds,
+        dynamicConfigService,
+        null);
+  }
+
+  public ClusteredAgentScheduler(
+      RedisClientDelegate redisClientDelegate,
+      NodeIdentity nodeIdentity,
+      AgentIntervalProvider intervalProvider,
+      NodeStatusProvider nodeStatusProvider,
+      String enabledAgentPattern,
+      Integer agentLockAcquisitionIntervalSeconds,
+      DynamicConfigService dynamicConfigService,
+      ConsistentHashAgentSharding sharding) {
     this(
         redisClientDelegate,
         nodeIdentity,
@@ -79,7 +101,8 @@ public class ClusteredAgentScheduler extends CatsModuleAware
             new NamedThreadFactory(AgentExecutionAction.class.getSimpleName())),
         enabledAgentPattern,
         agentLockAcquisitionIntervalSeconds,
-        dynamicConfigService);
+        dynamicConfigService,
+        sharding);
   }
 
   public ClusteredAgentScheduler(
@@ -92,6 +115,34 @@ public class ClusteredAgentScheduler extends CatsModuleAware
       String enabledAgentPattern,
       Integer agentLockAcquisitionIntervalSeconds,
       DynamicConfigService dynamicConfigService) {
+    this(
+        redisClientDelegate,
+        nodeIdentity,
+        intervalProvider,
+        nodeStatusProvider,
+        lockPollingScheduler,
+        agentExecutionPool,
+        enabledAgentPattern,
+        agentLockAcquisitionIntervalSeconds,
+        dynamicConfigService,
+        null);
+  }
+
+  /**
+   * @param sharding if set, this node only attempts to lock agents that consistent hashing assigns
+   *     to it
+   */
+  public ClusteredAgentScheduler(
+      RedisClientDelegate redisClientDelegate,
+      NodeIdentity nodeIdentity,
+      AgentIntervalProvider intervalProvider,
+      NodeStatusProvider nodeStatusProvider,
+      ScheduledExecutorService lockPollingScheduler,
+      ExecutorService agentExecutionPool,
+      String enabledAgentPattern,
+      Integer agentLockAcquisitionIntervalSeconds,
+      DynamicConfigService dynamicConfigService,
+      ConsistentHashAgentSharding sharding) {
     this.redisClientDelegate = redisClientDelegate;
     this.nodeIdentity = nodeIdentity;
     this.intervalProvider = intervalProvider;
@@ -99,6 +150,7 @@ public class ClusteredAgentScheduler extends CatsModuleAware
     this.agentExecutionPool = agentExecutionPool;
     this.enabledAgentPattern = Pattern.compile(enabledAgentPattern);
     this.dynamicConfigService = dynamicConfigService;
+    this.sharding = sharding;
     Integer lockInterval =
         agentLockAcquisitionIntervalSeconds == null ? 1 : agentLockAcquisitionIntervalSeconds;
 
@@ -124,6 +176,9 @@ public class ClusteredAgentScheduler extends CatsModuleAware
         new ArrayList<>(agents.entrySet());
     Collections.shuffle(agentsEntrySet);
     for (Map.Entry<String, AgentExecutionAction> agent : agentsEntrySet) {
+      if (sharding != null && !sharding.isOwned(agent.getValue().getAgent())) {
+        continue;
+      }
       if (!skip.contains(agent.getKey())) {
         final String agentType = agent.getKey();
         AgentIntervalProvider.Interval interval =
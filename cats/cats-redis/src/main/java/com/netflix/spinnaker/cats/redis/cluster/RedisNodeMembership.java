@@ -0,0 +1,47 @@
+/*
+ * Copyright 2019 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.spinnaker.cats.redis.cluster;
+
+import com.netflix.spinnaker.cats.cluster.NodeMembership;
+import com.netflix.spinnaker.kork.jedis.RedisClientDelegate;
+import java.util.HashSet;
+import java.util.Set;
+
+/** Tracks live nodes in a sorted set scored by the time of each node's last heartbeat. */
+public class RedisNodeMembership implements NodeMembership {
+  private static final String NODES_KEY = "cats:cluster:nodes";
+
+  private final RedisClientDelegate redisClientDelegate;
+  private final long nodeTtlMillis;
+
+  public RedisNodeMembership(RedisClientDelegate redisClientDelegate, long nodeTtlMillis) {
+    this.redisClientDelegate = redisClientDelegate;
+    this.nodeTtlMillis = nodeTtlMillis;
+  }
+
+  @Override
+  public Set<String> heartbeat(String nodeIdentity) {
+    long now = System.currentTimeMillis();
+    long oldest = now - nodeTtlMillis;
+    return redisClientDelegate.withCommandsClient(
+        client -> {
+          client.zadd(NODES_KEY, now, nodeIdentity);
+          client.zremrangeByScore(NODES_KEY, Double.NEGATIVE_INFINITY, oldest - 1);
+          return new HashSet<>(client.zrangeByScore(NODES_KEY, oldest, Double.POSITIVE_INFINITY));
+        });
+  }
+}
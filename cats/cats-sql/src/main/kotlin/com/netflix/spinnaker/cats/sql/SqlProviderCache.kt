@@ -14,6 +14,7 @@ import com.netflix.spinnaker.clouddriver.core.provider.agent.Namespace.NAMED_IMA
 import com.netflix.spinnaker.clouddriver.core.provider.agent.Namespace.ON_DEMAND
 import org.slf4j.LoggerFactory
 import org.slf4j.MDC
+import java.util.stream.Stream
 import kotlin.contracts.ExperimentalContracts
 
 @ExperimentalContracts
@@ -82,6 +83,19 @@ class SqlProviderCache(private val backingStore: WriteableCache) : ProviderCache
     return backingStore.getAll(type, identifiers, cacheFilter)
   }
 
+  override fun streamAll(type: String, cacheFilter: CacheFilter?, pageSize: Int): Stream<CacheData> {
+    validateTypes(type)
+    return backingStore.streamAll(type, cacheFilter, pageSize)
+  }
+
+  override fun getAll(
+    identifiersByType: Map<String, Collection<String>>,
+    cacheFilters: Map<String, CacheFilter?>
+  ): Map<String, Collection<CacheData>> {
+    validateTypes(identifiersByType.keys)
+    return backingStore.getAll(identifiersByType, cacheFilters)
+  }
+
   override fun getAllByApplication(type: String, application: String): Map<String, MutableCollection<CacheData>> {
     return getAllByApplication(type, application, null)
   }
@@ -0,0 +1,189 @@
+/*
+ * Copyright 2019 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.spinnaker.cats.sql.cache
+
+import com.fasterxml.jackson.databind.ObjectMapper
+import com.netflix.spinnaker.cats.cache.CacheData
+import com.netflix.spinnaker.cats.codec.CacheBodyCodec.Encoding
+import java.io.OutputStream
+
+/**
+ * Computes a 128 bit structural fingerprint of a [CacheData] by walking its id, attributes and relationships
+ * directly, without rendering a JSON body. Maps and sets are combined order-independently, so the fingerprint is
+ * stable across hash iteration order. Values that aren't plain maps, collections or scalars are streamed through
+ * Jackson into the hasher rather than into a String.
+ *
+ * Fingerprints are only ever compared with other fingerprints; they are not a substitute for body_hash.
+ *
+ * The encoding the body is stored with is part of the fingerprint, so a row is rewritten when the encoding changes
+ * even if its content didn't. JSON leaves the fingerprint as it was before bodies had other encodings.
+ */
+class CacheDataFingerprint(
+  private val mapper: ObjectMapper
+) {
+
+  @JvmOverloads
+  fun of(cacheData: CacheData, encoding: Encoding = Encoding.JSON): String {
+    val hasher = Hasher()
+    if (encoding != Encoding.JSON) {
+      hasher.putTag(TAG_ENCODING)
+      hasher.putLong(encoding.version.toLong())
+    }
+    hasher.putString(cacheData.id)
+    hasher.putLong(cacheData.ttlSeconds.toLong())
+    putValue(hasher, cacheData.attributes)
+    putValue(hasher, cacheData.relationships)
+    return hasher.hex()
+  }
+
+  private fun putValue(hasher: Hasher, value: Any?) {
+    when (value) {
+      null -> hasher.putTag(TAG_NULL)
+      is String -> {
+        hasher.putTag(TAG_STRING)
+        hasher.putString(value)
+      }
+      is Int, is Long, is Short, is Byte -> {
+        hasher.putTag(TAG_INTEGRAL)
+        hasher.putLong((value as Number).toLong())
+      }
+      is Double, is Float -> {
+        hasher.putTag(TAG_FLOATING)
+        hasher.putLong(java.lang.Double.doubleToLongBits((value as Number).toDouble()))
+      }
+      is Number -> {
+        hasher.putTag(TAG_NUMBER)
+        hasher.putString(value.toString())
+      }
+      is Boolean -> {
+        hasher.putTag(TAG_BOOLEAN)
+        hasher.putLong(if (value) 1 else 0)
+      }
+      is Enum<*> -> {
+        hasher.putTag(TAG_ENUM)
+        hasher.putString(value.name)
+      }
+      is Map<*, *> -> {
+        hasher.putTag(TAG_MAP)
+        hasher.putLong(value.size.toLong())
+        putUnordered(hasher, value.entries) { entryHasher, entry ->
+          putValue(entryHasher, entry.key?.toString())
+          putValue(entryHasher, entry.value)
+        }
+      }
+      is Set<*> -> {
+        hasher.putTag(TAG_SET)
+        hasher.putLong(value.size.toLong())
+        putUnordered(hasher, value) { elementHasher, element ->
+          putValue(elementHasher, element)
+        }
+      }
+      is Collection<*> -> {
+        hasher.putTag(TAG_LIST)
+        hasher.putLong(value.size.toLong())
+        value.forEach { putValue(hasher, it) }
+      }
+      is Array<*> -> {
+        hasher.putTag(TAG_LIST)
+        hasher.putLong(value.size.toLong())
+        value.forEach { putValue(hasher, it) }
+      }
+      else -> {
+        hasher.putTag(TAG_OBJECT)
+        mapper.writeValue(HasherOutputStream(hasher), value)
+      }
+    }
+  }
+
+  private fun <T> putUnordered(hasher: Hasher, elements: Iterable<T>, put: (Hasher, T) -> Unit) {
+    var sum1 = 0L
+    var sum2 = 0L
+    elements.forEach {
+      val elementHasher = Hasher()
+      put(elementHasher, it)
+      sum1 += elementHasher.finish1()
+      sum2 += elementHasher.finish2()
+    }
+    hasher.putLong(sum1)
+    hasher.putLong(sum2)
+  }
+
+  private class Hasher {
+    private var h1 = SEED_1
+    private var h2 = SEED_2
+
+    fun putTag(tag: Int) = putLong(tag.toLong())
+
+    fun putString(value: String) {
+      putLong(value.length.toLong())
+      var i = 0
+      while (i + 1 < value.length) {
+        putLong((value[i].toLong() shl 16) or value[i + 1].toLong())
+        i += 2
+      }
+      if (i < value.length) {
+        putLong(value[i].toLong())
+      }
+    }
+
+    fun putLong(value: Long) {
+      h1 = java.lang.Long.rotateLeft(h1 xor (value * C1), 31) * C2
+      h2 = java.lang.Long.rotateLeft(h2 + (value * C2), 27) * C1 + h1
+    }
+
+    fun finish1() = fmix(h1 xor h2)
+
+    fun finish2() = fmix(h2 + h1)
+
+    fun hex() = "%016x%016x".format(finish1(), finish2())
+
+    private fun fmix(value: Long): Long {
+      var k = value
+      k = k xor (k ushr 33)
+      k *= -0xae502812aa7333L
+      k = k xor (k ushr 33)
+      k *= -0x3b314601e57a13adL
+      k = k xor (k ushr 33)
+      return k
+    }
+  }
+
+  private class HasherOutputStream(private val hasher: Hasher) : OutputStream() {
+    override fun write(b: Int) {
+      hasher.putLong(b.toLong())
+    }
+  }
+
+  companion object {
+    private const val SEED_1 = 0x6a09e667f3bcc908L
+    private const val SEED_2 = -0x4498517a7b3558c5L
+    private const val C1 = -0x783c846eeebdac2bL
+    private const val C2 = 0x4cf5ad432745937fL
+
+    private const val TAG_NULL = 0
+    private const val TAG_STRING = 1
+    private const val TAG_INTEGRAL = 2
+    private const val TAG_FLOATING = 3
+    private const val TAG_NUMBER = 4
+    private const val TAG_BOOLEAN = 5
+    private const val TAG_ENUM = 6
+    private const val TAG_MAP = 7
+    private const val TAG_SET = 8
+    private const val TAG_LIST = 9
+    private const val TAG_OBJECT = 10
+    private const val TAG_ENCODING = 11
+  }
+}
@@ -18,6 +18,7 @@ package com.netflix.spinnaker.cats.sql.cache
 import com.netflix.spectator.api.BasicTag
 import com.netflix.spectator.api.Registry
 import com.netflix.spectator.api.Tag
+import java.util.concurrent.TimeUnit
 
 class SpectatorSqlCacheMetrics(
   private val registry: Registry
@@ -44,6 +45,20 @@ class SpectatorSqlCacheMetrics(
     registry.counter(id("cats.sqlCache.merge", "deleteOperations", tags)).increment(deleteOperations.toLong())
   }
 
+  override fun mergeStages(
+    prefix: String,
+    type: String,
+    serializeNanos: Long,
+    hashNanos: Long,
+    writeNanos: Long,
+    async: Boolean
+  ) {
+    val tags = tags(prefix, type, async)
+    registry.timer(id("cats.sqlCache.merge", "serializeTime", tags)).record(serializeNanos, TimeUnit.NANOSECONDS)
+    registry.timer(id("cats.sqlCache.merge", "hashTime", tags)).record(hashNanos, TimeUnit.NANOSECONDS)
+    registry.timer(id("cats.sqlCache.merge", "writeTime", tags)).record(writeNanos, TimeUnit.NANOSECONDS)
+  }
+
   override fun evict(
     prefix: String,
     type: String,
@@ -8,6 +8,8 @@ import com.netflix.spinnaker.cats.cache.CacheFilter
 import com.netflix.spinnaker.cats.cache.DefaultCacheData
 import com.netflix.spinnaker.cats.cache.RelationshipCacheFilter
 import com.netflix.spinnaker.cats.cache.WriteableCache
+import com.netflix.spinnaker.cats.codec.CacheBodyCodec
+import com.netflix.spinnaker.cats.codec.CacheBodyCodec.Encoding
 import com.netflix.spinnaker.clouddriver.core.provider.agent.Namespace.ON_DEMAND
 import com.netflix.spinnaker.config.coroutineThreadPrefix
 import com.netflix.spinnaker.kork.dynamicconfig.DynamicConfigService
@@ -22,9 +24,12 @@ import kotlinx.coroutines.async
 import kotlinx.coroutines.awaitAll
 import kotlinx.coroutines.runBlocking
 import org.jooq.DSLContext
+import org.jooq.Record
+import org.jooq.Select
 import org.jooq.exception.DataAccessException
 import org.jooq.exception.SQLDialectNotSupportedException
 import org.jooq.impl.DSL.field
+import org.jooq.impl.DSL.inline
 import org.jooq.impl.DSL.sql
 import org.jooq.impl.DSL.table
 import org.jooq.util.mysql.MySQLDSL
@@ -37,8 +42,15 @@ import java.sql.SQLSyntaxErrorException
 import java.time.Clock
 import java.time.Duration
 import java.util.Arrays
+import java.util.Spliterator
+import java.util.Spliterators
+import java.util.concurrent.ConcurrentHashMap
 import java.util.concurrent.ConcurrentSkipListSet
+import java.util.concurrent.TimeUnit
 import java.util.concurrent.atomic.AtomicInteger
+import java.util.concurrent.atomic.AtomicLong
+import java.util.stream.Stream
+import java.util.stream.StreamSupport
 import javax.annotation.PreDestroy
 import kotlin.contracts.ExperimentalContracts
 import kotlin.contracts.contract
@@ -61,6 +73,7 @@ class SqlCache(
     // 352 * 2 + 64 (max rel_type length) == 768; 768 * 4 (utf8mb4) == 3072 == Aurora's max index length
     private const val MAX_ID_LENGTH = 352
     private const val onDemandType = "onDemand"
+    private val FINGERPRINT_COLUMN_RECHECK_MILLIS = TimeUnit.MINUTES.toMillis(10)
 
     private val schemaVersion = SqlSchemaVersion.current()
     private val useRegexp = """.*[\?\[].*""".toRegex()
@@ -71,6 +84,9 @@ class SqlCache(
   }
 
   private var createdTables = ConcurrentSkipListSet<String>()
+  private val fingerprintColumns = ConcurrentHashMap<String, FingerprintColumn>()
+  private val fingerprint = CacheDataFingerprint(mapper)
+  private val codec = CacheBodyCodec(mapper)
 
   init {
     log.info("Configured for $name")
@@ -163,6 +179,17 @@ class SqlCache(
       writeOperations = storeResult.writeQueries.get(),
       deleteOperations = storeResult.deleteQueries.get()
     )
+
+    if (authoritative) {
+      cacheMetrics.mergeStages(
+        prefix = name,
+        type = type,
+        serializeNanos = storeResult.serializeNanos.get(),
+        hashNanos = storeResult.hashNanos.get(),
+        writeNanos = storeResult.writeNanos.get(),
+        async = storeResult.withAsync
+      )
+    }
   }
 
   override fun mergeAll(type: String, items: MutableCollection<CacheData>?) {
@@ -267,6 +294,78 @@ class SqlCache(
     return getAll(type, ids)
   }
 
+  /**
+   * Streams all items of a type using keyset pagination over the resource table's id column, so only
+   * a single page of bodies (and their relationships) is held in memory at a time.
+   */
+  override fun streamAll(type: String, cacheFilter: CacheFilter?, pageSize: Int): Stream<CacheData> {
+    if (pageSize < 1) {
+      throw IllegalArgumentException("pageSize must be positive: $pageSize")
+    }
+
+    val items = sequence {
+      var cursor = ""
+      while (true) {
+        val ids = selectIdentifierPage(type, cursor, pageSize)
+        if (ids.isEmpty()) {
+          break
+        }
+
+        yieldAll(getAll(type, ids.toMutableList(), cacheFilter))
+
+        if (ids.size < pageSize) {
+          break
+        }
+        cursor = ids.last()
+      }
+    }
+
+    return StreamSupport.stream(
+      Spliterators.spliteratorUnknownSize(items.iterator(), Spliterator.ORDERED or Spliterator.NONNULL),
+      false
+    )
+  }
+
+  /**
+   * Reads every type whose identifiers fit in a single `sql.cache.read-batch-size` batch with one UNION ALL query.
+   * Larger types are read with [getAll], running up to `sql.cache.max-query-concurrency` types at once when async
+   * reads are enabled.
+   */
+  override fun getAll(
+    identifiersByType: Map<String, Collection<String>>,
+    cacheFilters: Map<String, CacheFilter?>
+  ): Map<String, Collection<CacheData>> {
+    val requested = identifiersByType.filterValues { !it.isNullOrEmpty() }
+    val batchSize = dynamicConfigService.getConfig(Int::class.java, "sql.cache.read-batch-size", 500)
+    val result = mutableMapOf<String, Collection<CacheData>>()
+
+    val batched = requested.filterValues { it.size <= batchSize }
+    if (batched.size > 1) {
+      result.putAll(getAllInOneQuery(batched, cacheFilters))
+    }
+    val remaining = requested.filterKeys { !result.containsKey(it) }
+
+    if (remaining.size > 1 && coroutineContext.useAsync(this::asyncEnabled)) {
+      val scope = CatsCoroutineScope(coroutineContext)
+
+      remaining.entries.chunked(dynamicConfigService.getConfig(Int::class.java, "sql.cache.max-query-concurrency", 4)) { batch ->
+        val deferred = batch.map { (type, ids) ->
+          scope.async { type to getAll(type, ids.toMutableList(), cacheFilters[type]) }
+        }
+
+        runBlocking {
+          deferred.awaitAll().forEach { result[it.first] = it.second }
+        }
+      }
+    } else {
+      remaining.forEach { (type, ids) ->
+        result[type] = getAll(type, ids.toMutableList(), cacheFilters[type])
+      }
+    }
+
+    return result
+  }
+
   override fun getAllByApplication(
     type: String,
     application: String,
@@ -501,9 +600,21 @@ class SqlCache(
       agentHint ?: "unknown"
     }
 
-    val existingHashIds = getHashIds(type, agent)
+    val useFingerprints = fingerprintsEnabled() && hasFingerprintColumn(type)
+    val existingHashIds = getHashIds(type, agent, useFingerprints)
     result.selectQueries.incrementAndGet()
 
+    // ids previously stored by the calling caching agent to their fingerprint, when fingerprinting is enabled
+    val existingFingerprints: Map<String, String>? = if (useFingerprints) {
+      existingHashIds
+        .asSequence()
+        .filter { it.body_fingerprint != null }
+        .map { it.id to it.body_fingerprint!! }
+        .toMap()
+    } else {
+      null
+    }
+
     val existingHashes = existingHashIds // ids previously store by the calling caching agent
       .asSequence()
       .map { it.body_hash }
@@ -513,127 +624,69 @@ class SqlCache(
       .map { it.id }
       .toSet()
     val currentIds = mutableSetOf<String>() // current ids from the caching agent
-    val toStore = mutableListOf<String>() // ids that are new or changed
-    val bodies = mutableMapOf<String, String>() // id to body
-    val hashes = mutableMapOf<String, String>() // id to sha256(body)
-    val apps = mutableMapOf<String, String>()
 
     items.filter { it.id.length > MAX_ID_LENGTH }
       .forEach {
         log.error("Dropping ${it.id} - character length exceeds MAX_ID_LENGTH ($MAX_ID_LENGTH)")
       }
 
-    items
-      .filter { it.id != "_ALL_" && it.id.length <= MAX_ID_LENGTH }
-      .forEach {
-        currentIds.add(it.id)
-        val nullKeys = it.attributes
-          .filter { e -> e.value == null }
-          .keys
-        nullKeys.forEach { na -> it.attributes.remove(na) }
-
-        if (it.attributes.containsKey("application")) {
-          apps[it.id] = it.attributes["application"] as String
-        }
+    val validItems = items.filter { it.id != "_ALL_" && it.id.length <= MAX_ID_LENGTH }
+    validItems.forEach { currentIds.add(it.id) }
 
-        val keysToNormalize = it.relationships.keys.filter { k -> k.contains(':') }
-        if (keysToNormalize.isNotEmpty()) {
-          val normalized = normalizeRelationships(it.relationships, emptyList())
-          keysToNormalize.forEach { k -> it.relationships.remove(k) }
-          it.relationships.putAll(normalized)
-        }
+    val writeBatchSize = dynamicConfigService.getConfig(Int::class.java, "sql.cache.write-batch-size", 100)
+    val bodyEncoding = bodyEncoding()
 
-        val body: String? = mapper.writeValueAsString(it)
-        val bodyHash = getHash(body)
+    // serialization and hashing are cpu bound and fan out across the coroutine pool for large agents
+    val encoded = if (coroutineContext.useAsync(validItems.size, this::useAsync)) {
+      result.withAsync = true
+      val scope = CatsCoroutineScope(coroutineContext)
+      val encodedItems = mutableListOf<EncodedItem>()
 
-        if (body != null && bodyHash != null && !existingHashes.contains(bodyHash)) {
-          toStore.add(it.id)
-          bodies[it.id] = body
-          hashes[it.id] = bodyHash
+      validItems.chunked(writeBatchSize).chunked(
+        dynamicConfigService.getConfig(Int::class.java, "sql.cache.max-query-concurrency", 4)
+      ) { batch ->
+        val deferred = batch.map { chunk ->
+          scope.async { chunk.mapNotNull { encodeItem(it, bodyEncoding, existingFingerprints, result) } }
+        }
+        runBlocking {
+          encodedItems.addAll(deferred.awaitAll().flatten())
         }
       }
+      encodedItems
+    } else {
+      validItems.mapNotNull { encodeItem(it, bodyEncoding, existingFingerprints, result) }
+    }
 
-    val now = clock.millis()
-
-    toStore.chunked(dynamicConfigService.getConfig(Int::class.java, "sql.cache.write-batch-size", 100)) { chunk ->
-      try {
-        val insert = jooq.insertInto(
-          table(resourceTableName(type)),
-          field("id"),
-          field("agent"),
-          field("application"),
-          field("body_hash"),
-          field("body"),
-          field("last_updated")
-        )
+    // items that are new or changed, or whose row predates fingerprinting
+    val toStore = encoded.filter {
+      !existingHashes.contains(it.bodyHash) ||
+        (existingFingerprints != null && existingFingerprints[it.id] != it.fingerprint)
+    }
 
-        insert.apply {
-          chunk.forEach {
-            values(it, agent, apps[it], hashes[it], bodies[it], now)
-          }
+    val now = clock.millis()
+    val writeStart = System.nanoTime()
+    val maxWriteConcurrency = dynamicConfigService.getConfig(Int::class.java, "sql.cache.max-write-concurrency", 1)
+    val writeChunks = toStore.chunked(writeBatchSize)
 
-          onDuplicateKeyUpdate()
-            .set(field("application"), MySQLDSL.values(field("application")) as Any)
-            .set(field("body_hash"), MySQLDSL.values(field("body_hash")) as Any)
-            .set(field("body"), MySQLDSL.values(field("body")) as Any)
-            .set(field("last_updated"), MySQLDSL.values(field("last_updated")) as Any)
-        }
+    // each chunk insert runs on its own pooled connection, so chunks can be written concurrently
+    if (coroutineContext.useAsync(this::asyncEnabled) && maxWriteConcurrency > 1 && writeChunks.size > 1) {
+      result.withAsync = true
+      val scope = CatsCoroutineScope(coroutineContext)
 
-        withRetry(RetryCategory.WRITE) {
-          insert.execute()
+      writeChunks.chunked(maxWriteConcurrency) { batch ->
+        val deferred = batch.map { chunk ->
+          scope.async { writeChunk(type, agent, chunk, now, result) }
         }
-        result.itemsStored.addAndGet(chunk.size)
-        result.writeQueries.incrementAndGet()
-      } catch (e: DataAccessException) {
-        log.error("Error inserting ids: $chunk", e)
-      } catch (e: SQLDialectNotSupportedException) {
-        chunk.forEach {
-          val exists = withRetry(RetryCategory.READ) {
-            jooq.fetchExists(
-              jooq.select()
-                .from(resourceTableName(type))
-                .where(field("id").eq(it), field("agent").eq(agent))
-                .forUpdate()
-            )
-          }
-          result.selectQueries.incrementAndGet()
-          if (exists) {
-            withRetry(RetryCategory.WRITE) {
-              jooq.update(table(resourceTableName(type)))
-                .set(field("application"), apps[it])
-                .set(field("body_hash"), hashes[it])
-                .set(field("body"), bodies[it])
-                .set(field("last_updated"), clock.millis())
-                .where(field("id").eq(it), field("agent").eq(agent))
-                .execute()
-            }
-            result.writeQueries.incrementAndGet()
-            result.itemsStored.incrementAndGet()
-          } else {
-            withRetry(RetryCategory.WRITE) {
-              jooq.insertInto(
-                table(resourceTableName(type)),
-                field("id"),
-                field("agent"),
-                field("application"),
-                field("body_hash"),
-                field("body"),
-                field("last_updated")
-              ).values(
-                it,
-                agent,
-                apps[it],
-                hashes[it],
-                bodies[it],
-                clock.millis()
-              ).execute()
-            }
-            result.writeQueries.incrementAndGet()
-            result.itemsStored.incrementAndGet()
-          }
+        runBlocking {
+          deferred.awaitAll()
         }
       }
+    } else {
+      writeChunks.forEach { chunk ->
+        writeChunk(type, agent, chunk, now, result)
+      }
     }
+    result.writeNanos.addAndGet(System.nanoTime() - writeStart)
 
     if (!cleanup) {
       return result
@@ -649,6 +702,145 @@ class SqlCache(
     return result
   }
 
+  /**
+   * Normalizes an item in place and renders its stored body and body hash, or null if either could not be produced.
+   *
+   * If existingFingerprints is provided, the item's fingerprint is computed first and null is returned without
+   * serializing when it matches what is already stored for the item's id.
+   */
+  private fun encodeItem(
+    item: CacheData,
+    bodyEncoding: Encoding,
+    existingFingerprints: Map<String, String>?,
+    result: StoreResult
+  ): EncodedItem? {
+    val nullKeys = item.attributes
+      .filter { e -> e.value == null }
+      .keys
+    nullKeys.forEach { na -> item.attributes.remove(na) }
+
+    val keysToNormalize = item.relationships.keys.filter { k -> k.contains(':') }
+    if (keysToNormalize.isNotEmpty()) {
+      val normalized = normalizeRelationships(item.relationships, emptyList())
+      keysToNormalize.forEach { k -> item.relationships.remove(k) }
+      item.relationships.putAll(normalized)
+    }
+
+    var itemFingerprint: String? = null
+    if (existingFingerprints != null) {
+      val fingerprintStart = System.nanoTime()
+      itemFingerprint = fingerprint.of(item, bodyEncoding)
+      result.hashNanos.addAndGet(System.nanoTime() - fingerprintStart)
+
+      if (existingFingerprints[item.id] == itemFingerprint) {
+        result.itemsUnchanged.incrementAndGet()
+        return null
+      }
+    }
+
+    val serializeStart = System.nanoTime()
+    val body: String? = codec.encode(item, bodyEncoding)
+    val hashStart = System.nanoTime()
+    val bodyHash = getHash(body)
+    result.serializeNanos.addAndGet(hashStart - serializeStart)
+    result.hashNanos.addAndGet(System.nanoTime() - hashStart)
+
+    if (body == null || bodyHash == null) {
+      return null
+    }
+
+    return EncodedItem(item.id, item.attributes["application"] as String?, body, bodyHash, itemFingerprint)
+  }
+
+  private fun writeChunk(type: String, agent: String, chunk: List<EncodedItem>, now: Long, result: StoreResult) {
+    val withFingerprint = chunk.any { it.fingerprint != null }
+    val columns = mutableListOf(
+      field("id"),
+      field("agent"),
+      field("application"),
+      field("body_hash"),
+      field("body"),
+      field("last_updated")
+    )
+    if (withFingerprint) {
+      columns.add(field("body_fingerprint"))
+    }
+
+    fun EncodedItem.rowValues(lastUpdated: Long): List<Any?> =
+      if (withFingerprint) {
+        listOf(id, agent, application, bodyHash, body, lastUpdated, fingerprint)
+      } else {
+        listOf(id, agent, application, bodyHash, body, lastUpdated)
+      }
+
+    try {
+      val insert = jooq.insertInto(table(resourceTableName(type)), columns)
+
+      insert.apply {
+        chunk.forEach {
+          values(it.rowValues(now))
+        }
+
+        val update = onDuplicateKeyUpdate()
+          .set(field("application"), MySQLDSL.values(field("application")) as Any)
+          .set(field("body_hash"), MySQLDSL.values(field("body_hash")) as Any)
+          .set(field("body"), MySQLDSL.values(field("body")) as Any)
+          .set(field("last_updated"), MySQLDSL.values(field("last_updated")) as Any)
+
+        if (withFingerprint) {
+          update.set(field("body_fingerprint"), MySQLDSL.values(field("body_fingerprint")) as Any)
+        }
+      }
+
+      withRetry(RetryCategory.WRITE) {
+        insert.execute()
+      }
+      result.itemsStored.addAndGet(chunk.size)
+      result.writeQueries.incrementAndGet()
+    } catch (e: DataAccessException) {
+      log.error("Error inserting ids: ${chunk.map { it.id }}", e)
+    } catch (e: SQLDialectNotSupportedException) {
+      chunk.forEach {
+        val exists = withRetry(RetryCategory.READ) {
+          jooq.fetchExists(
+            jooq.select()
+              .from(resourceTableName(type))
+              .where(field("id").eq(it.id), field("agent").eq(agent))
+              .forUpdate()
+          )
+        }
+        result.selectQueries.incrementAndGet()
+        if (exists) {
+          withRetry(RetryCategory.WRITE) {
+            val update = jooq.update(table(resourceTableName(type)))
+              .set(field("application"), it.application)
+              .set(field("body_hash"), it.bodyHash)
+              .set(field("body"), it.body)
+              .set(field("last_updated"), clock.millis())
+
+            if (withFingerprint) {
+              update.set(field("body_fingerprint"), it.fingerprint)
+            }
+
+            update
+              .where(field("id").eq(it.id), field("agent").eq(agent))
+              .execute()
+          }
+          result.writeQueries.incrementAndGet()
+          result.itemsStored.incrementAndGet()
+        } else {
+          withRetry(RetryCategory.WRITE) {
+            jooq.insertInto(table(resourceTableName(type)), columns)
+              .values(it.rowValues(clock.millis()))
+              .execute()
+          }
+          result.writeQueries.incrementAndGet()
+          result.itemsStored.incrementAndGet()
+        }
+      }
+    }
+  }
+
   private fun storeInformative(type: String, items: MutableCollection<CacheData>, cleanup: Boolean): StoreResult {
     val result = StoreResult()
 
@@ -909,17 +1101,67 @@ class SqlCache(
     }
   }
 
-  private fun getHashIds(type: String, agent: String?): List<HashId> {
+  private fun getHashIds(type: String, agent: String?, withFingerprints: Boolean = false): List<HashId> {
+    val fields = mutableListOf(field("body_hash"), field("id"))
+    if (withFingerprints) {
+      fields.add(field("body_fingerprint"))
+    }
+
     return withRetry(RetryCategory.READ) {
       jooq
-        .select(field("body_hash"), field("id"))
+        .select(fields)
         .from(table(resourceTableName(type)))
         .where(
           field("agent").eq(agent)
         )
-        .fetch()
-        .into(HashId::class.java)
+        .fetch { r ->
+          HashId(
+            r.get(0, String::class.java),
+            r.get(1, String::class.java),
+            if (withFingerprints) r.get(2, String::class.java) else null
+          )
+        }
+    }
+  }
+
+  /**
+   * Resource tables created from the template before the body-fingerprint changeset don't have a body_fingerprint
+   * column, and it is never added at runtime: on large tables that's a long, locking DDL that every node would race to
+   * run. Operators enable fingerprints on such a table by adding the column themselves, e.g.
+   *
+   *   ALTER TABLE cats_v1_<type> ADD COLUMN body_fingerprint char(32) NULL AFTER body_hash
+   *
+   * Until then, writes to the table fall back to body hashes alone. A missing column is looked up again every
+   * [FINGERPRINT_COLUMN_RECHECK_MILLIS] so that it's picked up without a restart.
+   */
+  private fun hasFingerprintColumn(type: String): Boolean {
+    val known = fingerprintColumns[type]
+    if (known != null && (known.present || clock.millis() - known.checkedAt < FINGERPRINT_COLUMN_RECHECK_MILLIS)) {
+      return known.present
+    }
+
+    val present = try {
+      withRetry(RetryCategory.READ) {
+        jooq.fetchExists(
+          jooq.select()
+            .from(table("information_schema.columns"))
+            .where(
+              field("table_schema").eq(field(sql("DATABASE()"))),
+              field("table_name").eq(resourceTableName(type)),
+              field("column_name").eq("body_fingerprint")
+            )
+        )
+      }
+    } catch (e: Exception) {
+      log.error("Unable to look up the body_fingerprint column for type $type", e)
+      false
+    }
+
+    if (!present && known == null) {
+      log.warn("${resourceTableName(type)} has no body_fingerprint column, body fingerprints are disabled for $type")
     }
+    fingerprintColumns[type] = FingerprintColumn(present, clock.millis())
+    return present
   }
 
   private fun getRelationshipKeys(type: String, sourceAgent: String): MutableList<RelId> {
@@ -970,7 +1212,7 @@ class SqlCache(
               .fetch()
               .getValues(0)
               .asSequence()
-              .map { mapper.readValue(it as String, DefaultCacheData::class.java) }
+              .map { codec.decode(it as String, DefaultCacheData::class.java) }
               .toList()
           )
         }
@@ -1033,7 +1275,7 @@ class SqlCache(
             .fetch()
             .getValues(0)
             .asSequence()
-            .map { mapper.readValue(it as String, DefaultCacheData::class.java) }
+            .map { codec.decode(it as String, DefaultCacheData::class.java) }
             .toList()
         )
       }
@@ -1247,7 +1489,7 @@ class SqlCache(
         .where("ID in (${ids.joinToString(",") { "'$it'" }})")
         .fetch()
         .getValues(0)
-        .map { mapper.readValue(it as String, DefaultCacheData::class.java) }
+        .map { codec.decode(it as String, DefaultCacheData::class.java) }
         .toList()
     }
   }
@@ -1286,6 +1528,118 @@ class SqlCache(
     }
   }
 
+  /**
+   * Reads the bodies, and any relationships their filters ask for, of several types in one round trip. Returns
+   * nothing if the query fails, e.g. because one of the tables doesn't exist yet, leaving the caller to read each
+   * type on its own.
+   */
+  private fun getAllInOneQuery(
+    identifiersByType: Map<String, Collection<String>>,
+    cacheFilters: Map<String, CacheFilter?>
+  ): Map<String, Collection<CacheData>> {
+    val relationshipPrefixes = identifiersByType.keys.associateWith { getRelationshipFilterPrefixes(cacheFilters[it]) }
+
+    /*
+      select 'applications', body, null, null, null from cats_v1_applications where ID in ('aws:applications:spintest')
+        UNION ALL
+      select 'applications', null, id, rel_id, rel_type from cats_v1_applications_rel
+        where ID in ('aws:applications:spintest') and (rel_type LIKE 'clusters%')
+        UNION ALL
+      select 'clusters', body, null, null, null from cats_v1_clusters where ID in (...)
+     */
+    val query = identifiersByType.flatMap { (type, ids) ->
+      val where = "ID in (${ids.joinToString(",") { "'$it'" }})"
+      val selects = mutableListOf<Select<Record>>(
+        jooq.select(
+          listOf(
+            inline(type).`as`("cache_type"),
+            field("body").`as`("body"),
+            field(sql("null")).`as`("id"),
+            field(sql("null")).`as`("rel_id"),
+            field(sql("null")).`as`("rel_type")
+          )
+        )
+          .from(table(resourceTableName(type)))
+          .where(where)
+      )
+      if (relationshipPrefixes.getValue(type).isNotEmpty()) {
+        selects.add(
+          jooq.select(
+            listOf(
+              inline(type).`as`("cache_type"),
+              field(sql("null")).`as`("body"),
+              field("id").`as`("id"),
+              field("rel_id").`as`("rel_id"),
+              field("rel_type").`as`("rel_type")
+            )
+          )
+            .from(table(relTableName(type)))
+            .where(getRelWhere(relationshipPrefixes.getValue(type), where))
+        )
+      }
+      selects
+    }.reduce { union, select -> union.unionAll(select) }
+
+    val records = try {
+      withRetry(RetryCategory.READ) { query.fetch() }
+    } catch (e: Exception) {
+      log.debug("Failed selecting types ${identifiersByType.keys} together, selecting each on its own", e)
+      return emptyMap()
+    }
+
+    val cacheData = identifiersByType.keys.associateWith { mutableListOf<CacheData>() }
+    val relPointers = identifiersByType.keys.associateWith { mutableSetOf<RelPointer>() }
+    records.forEach { record ->
+      val type = record.get(0, String::class.java)
+      val body = record.get(1, String::class.java)
+      if (!body.isNullOrBlank()) {
+        try {
+          cacheData.getValue(type).add(codec.decode(body, DefaultCacheData::class.java))
+        } catch (e: Exception) {
+          log.error("Failed to deserialize cached value: type $type, body $body", e)
+        }
+      } else {
+        relPointers.getValue(type).add(
+          RelPointer(
+            record.get(2, String::class.java),
+            record.get(3, String::class.java),
+            record.get(4, String::class.java)
+          )
+        )
+      }
+    }
+
+    return identifiersByType.mapValues { (type, ids) ->
+      cacheMetrics.get(
+        prefix = name,
+        type = type,
+        itemCount = cacheData.getValue(type).size,
+        requestedSize = ids.size,
+        relationshipsRequested = relPointers.getValue(type).size,
+        selectOperations = 1
+      )
+
+      mergeDataAndRelationships(cacheData.getValue(type), relPointers.getValue(type), relationshipPrefixes.getValue(type))
+    }
+  }
+
+  private fun selectIdentifierPage(type: String, after: String, pageSize: Int): List<String> {
+    return try {
+      withRetry(RetryCategory.READ) {
+        jooq.selectDistinct(field("id"))
+          .from(table(resourceTableName(type)))
+          .where(field("id").gt(after))
+          .orderBy(field("id"))
+          .limit(pageSize)
+          .fetch()
+          .getValues(0, String::class.java)
+      }
+    } catch (e: BadSqlGrammarException) {
+      suppressedLog("Failed getting id page for type $type", e)
+      emptyList()
+    }
+  }
+
   private fun selectIdentifiers(type: String, ids: List<String>): MutableCollection<String> {
     return withRetry(RetryCategory.READ) {
       jooq.select(field("id"))
@@ -1305,7 +1659,7 @@ class SqlCache(
     while (resultSet.next()) {
       if (!resultSet.getString(1).isNullOrBlank()) {
         try {
-          cacheData.add(mapper.readValue(resultSet.getString(1), DefaultCacheData::class.java))
+          cacheData.add(codec.decode(resultSet.getString(1), DefaultCacheData::class.java))
         } catch (e: Exception) {
           log.error("Failed to deserialize cached value: type $type, body ${resultSet.getString(1)}", e)
         }
@@ -1483,6 +1837,28 @@ class SqlCache(
       items > dynamicConfigService.getConfig(Int::class.java, "sql.cache.read-batch-size", 500) * 2
   }
 
+  /**
+   * Encoding for newly written bodies. Reads always handle every encoding, so this should only be changed once all
+   * readers support the new encoding.
+   *
+   * The setting applies to every type this cache stores. smile-lz4 shrinks server group bodies to about a quarter
+   * of their JSON, instances by about a quarter and small bodies like clusters only slightly; plain smile makes
+   * clusters larger. See [CacheBodyCodec] for the measurements.
+   */
+  private fun bodyEncoding(): Encoding {
+    val name = dynamicConfigService.getConfig(String::class.java, "sql.cache.body-encoding", "json")
+    return try {
+      Encoding.fromName(name)
+    } catch (e: IllegalArgumentException) {
+      log.warn("Unknown sql.cache.body-encoding $name, using json")
+      Encoding.JSON
+    }
+  }
+
+  private fun fingerprintsEnabled(): Boolean {
+    return dynamicConfigService.isEnabled("sql.cache.fingerprints", false)
+  }
+
   @ExperimentalContracts
   private fun asyncEnabled(): Boolean {
     return dynamicConfigService.getConfig(Int::class.java, "sql.cache.max-query-concurrency", 4) > 1
@@ -1520,9 +1896,15 @@ class SqlCache(
     createdTables.removeAll(tables)
   }
 
+  private data class FingerprintColumn(
+    val present: Boolean,
+    val checkedAt: Long
+  )
+
   data class HashId(
     val body_hash: String,
-    val id: String
+    val id: String,
+    val body_fingerprint: String? = null
   )
 
   data class RelId(
@@ -1549,6 +1931,14 @@ class SqlCache(
     val withAsync: Boolean = false
   )
 
+  private data class EncodedItem(
+    val id: String,
+    val application: String?,
+    val body: String,
+    val bodyHash: String,
+    val fingerprint: String?
+  )
+
   private inner class StoreResult {
     val itemCount = AtomicInteger(0)
     val itemsStored = AtomicInteger(0)
@@ -1557,6 +1947,13 @@ class SqlCache(
     val selectQueries = AtomicInteger(0)
     val writeQueries = AtomicInteger(0)
     val deleteQueries = AtomicInteger(0)
+    val serializeNanos = AtomicLong(0)
+    val hashNanos = AtomicLong(0)
+    val writeNanos = AtomicLong(0)
+    val itemsUnchanged = AtomicInteger(0)
+
+    @Volatile
+    var withAsync = false
   }
 }
 
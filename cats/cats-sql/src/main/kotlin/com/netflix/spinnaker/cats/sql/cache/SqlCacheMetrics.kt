@@ -28,6 +28,19 @@ interface SqlCacheMetrics {
     deleteOperations: Int
   ) {}
 
+  /**
+   * Time spent in each stage of an authoritative merge. Serialize and hash times are summed across all items
+   * (and workers, when async), write time is wall clock time.
+   */
+  fun mergeStages(
+    prefix: String,
+    type: String,
+    serializeNanos: Long,
+    hashNanos: Long,
+    writeNanos: Long,
+    async: Boolean = false
+  ) {}
+
   fun evict(
     prefix: String,
     type: String,
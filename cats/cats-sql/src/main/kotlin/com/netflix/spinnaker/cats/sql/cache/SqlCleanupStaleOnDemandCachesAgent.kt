@@ -3,6 +3,7 @@ package com.netflix.spinnaker.cats.sql.cache
 import com.netflix.spectator.api.Registry
 import com.netflix.spinnaker.cats.agent.RunnableAgent
 import com.netflix.spinnaker.cats.module.CatsModule
+import com.netflix.spinnaker.cats.provider.NearCachingProviderRegistry
 import com.netflix.spinnaker.cats.sql.SqlProviderCache
 import com.netflix.spinnaker.clouddriver.cache.CustomScheduledAgent
 import com.netflix.spinnaker.clouddriver.core.provider.CoreProvider
@@ -40,8 +41,9 @@ class SqlCleanupStaleOnDemandCachesAgent(
   }
 
   private fun getCache(): SqlProviderCache {
-    return applicationContext.getBean(CatsModule::class.java)
-      .providerRegistry
+    val providerRegistry = applicationContext.getBean(CatsModule::class.java).providerRegistry
+
+    return (if (providerRegistry is NearCachingProviderRegistry) providerRegistry.delegate else providerRegistry)
       .providerCaches
       .first() as SqlProviderCache
   }
@@ -15,6 +15,8 @@
  */
 package com.netflix.spinnaker.cats.sql.cluster
 
+import com.netflix.spectator.api.NoopRegistry
+import com.netflix.spectator.api.Registry
 import com.netflix.spinnaker.cats.agent.Agent
 import com.netflix.spinnaker.cats.agent.AgentExecution
 import com.netflix.spinnaker.cats.agent.AgentLock
@@ -22,6 +24,7 @@ import com.netflix.spinnaker.cats.agent.AgentScheduler
 import com.netflix.spinnaker.cats.agent.AgentSchedulerAware
 import com.netflix.spinnaker.cats.agent.ExecutionInstrumentation
 import com.netflix.spinnaker.cats.cluster.AgentIntervalProvider
+import com.netflix.spinnaker.cats.cluster.ConsistentHashAgentSharding
 import com.netflix.spinnaker.cats.cluster.NodeIdentity
 import com.netflix.spinnaker.cats.cluster.NodeStatusProvider
 import com.netflix.spinnaker.cats.module.CatsModuleAware
@@ -30,14 +33,17 @@ import com.netflix.spinnaker.config.ConnectionPools
 import com.netflix.spinnaker.kork.dynamicconfig.DynamicConfigService
 import com.netflix.spinnaker.kork.sql.routing.withPool
 import org.jooq.DSLContext
+import org.jooq.impl.DSL
 import org.jooq.impl.DSL.field
 import org.jooq.impl.DSL.table
 import org.slf4j.LoggerFactory
 import org.springframework.dao.DataIntegrityViolationException
 import java.sql.SQLException
 import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.ConcurrentLinkedQueue
 import java.util.concurrent.ExecutorService
 import java.util.concurrent.Executors
+import java.util.concurrent.PriorityBlockingQueue
 import java.util.concurrent.ScheduledExecutorService
 import java.util.concurrent.TimeUnit
 import java.util.regex.Pattern
@@ -49,6 +55,14 @@ import java.util.regex.Pattern.CASE_INSENSITIVE
  * recommended for real workloads. Instead, use the Redis scheduler (`redis.scheduler.enabled=true` and
  * `sql.scheduler.enabled=false`) or implement a scheduler based on ZooKeeper, etcd, consul, and so-on.
  *
+ * By default every node reads the whole lock table and attempts a lock for every idle agent once per
+ * [agentLockAcquisitionIntervalSeconds]. With [dueQueueEnabled], each node instead keeps its agents in a priority
+ * queue ordered by when they are next due, and only agents that are due are sent to the database: expired locks
+ * are cleared and new locks are taken with one multi-row statement per batch, and locks of completed agents are
+ * released or extended in batches as well. An agent that another node holds is requeued for that lock's expiry,
+ * which is the holder's next scheduled run.
+ *
+ * With [sharding], a node only attempts to lock the agents that consistent hashing assigns to it.
  */
 class SqlClusteredAgentScheduler(
   private val jooq: DSLContext,
@@ -62,9 +76,12 @@ class SqlClusteredAgentScheduler(
   private val agentExecutionPool: ExecutorService = Executors.newCachedThreadPool(
     NamedThreadFactory(AgentExecutionAction::class.java.simpleName)
   ),
-  lockPollingScheduler: ScheduledExecutorService = Executors.newSingleThreadScheduledExecutor(
+  private val lockPollingScheduler: ScheduledExecutorService = Executors.newSingleThreadScheduledExecutor(
     NamedThreadFactory(SqlClusteredAgentScheduler::class.java.simpleName)
-  )
+  ),
+  private val dueQueueEnabled: Boolean = false,
+  private val registry: Registry = NoopRegistry(),
+  private val sharding: ConsistentHashAgentSharding? = null
 ) : CatsModuleAware(), AgentScheduler<AgentLock>, Runnable {
 
   private val log = LoggerFactory.getLogger(javaClass)
@@ -72,6 +89,14 @@ class SqlClusteredAgentScheduler(
   private val agents: MutableMap<String, AgentExecutionAction> = ConcurrentHashMap()
   private val activeAgents: MutableMap<String, NextAttempt> = ConcurrentHashMap()
   private val enabledAgents: Pattern
+  private val lockIntervalMillis = TimeUnit.SECONDS.toMillis(agentLockAcquisitionIntervalSeconds ?: 1L)
+
+  private val dueAgents = PriorityBlockingQueue<DueAgent>()
+  private val queuedAgents: MutableMap<String, Long> = ConcurrentHashMap()
+  private val pendingReleases = ConcurrentLinkedQueue<Pair<String, Long>>()
+
+  private val schedulingLagId = registry.createId("cats.sqlAgentScheduler.schedulingLag")
+  private val lockBatchId = registry.createId("cats.sqlAgentScheduler.lockBatch")
 
   private val referenceTable = "cats_agent_locks"
   private val lockTable = if (tableNamespace.isNullOrBlank()) {
@@ -87,9 +112,13 @@ class SqlClusteredAgentScheduler(
       }
     }
 
-    val lockInterval = agentLockAcquisitionIntervalSeconds ?: 1L
-    lockPollingScheduler.scheduleAtFixedRate(this, 0, lockInterval, TimeUnit.SECONDS)
     enabledAgents = Pattern.compile(enabledAgentPattern, CASE_INSENSITIVE)
+    if (dueQueueEnabled) {
+      registry.gauge(registry.createId("cats.sqlAgentScheduler.queuedAgents"), dueAgents) { it.size.toDouble() }
+      lockPollingScheduler.schedule(Runnable { runDueQueue() }, 0, TimeUnit.MILLISECONDS)
+    } else {
+      lockPollingScheduler.scheduleAtFixedRate(this, 0, lockIntervalMillis, TimeUnit.MILLISECONDS)
+    }
   }
 
   override fun schedule(
@@ -101,11 +130,15 @@ class SqlClusteredAgentScheduler(
       agent.agentScheduler = this
     }
     agents[agent.agentType] = AgentExecutionAction(agent, agentExecution, executionInstrumentation)
+    if (dueQueueEnabled && !activeAgents.containsKey(agent.agentType)) {
+      enqueue(agent.agentType, System.currentTimeMillis())
+    }
   }
 
   override fun unschedule(agent: Agent) {
     releaseLock(agent.agentType, 0) // Release the lock immediately
     agents.remove(agent.agentType)
+    queuedAgents.remove(agent.agentType)
   }
 
   override fun run() {
@@ -164,6 +197,7 @@ class SqlClusteredAgentScheduler(
     val candidateAgentLocks = agents
       .filter { !activeAgents.containsKey(it.key) }
       .filter { enabledAgents.matcher(it.key).matches() }
+      .filter { sharding?.isOwned(it.value.agent) ?: true }
       .toMutableMap()
 
     withPool(POOL_NAME) {
@@ -256,6 +290,11 @@ class SqlClusteredAgentScheduler(
   }
 
   private fun agentCompleted(agentType: String, nextExecutionTime: Long) {
+    if (dueQueueEnabled) {
+      pendingReleases.add(Pair(agentType, nextExecutionTime))
+      return
+    }
+
     try {
       releaseLock(agentType, nextExecutionTime)
     } finally {
@@ -263,11 +302,222 @@ class SqlClusteredAgentScheduler(
     }
   }
 
+  private fun agentStarted(dueTime: Long) {
+    registry.timer(schedulingLagId)
+      .record(Math.max(0, System.currentTimeMillis() - dueTime), TimeUnit.MILLISECONDS)
+  }
+
+  private fun enqueue(agentType: String, dueTime: Long) {
+    queuedAgents[agentType] = dueTime
+    dueAgents.add(DueAgent(dueTime, agentType))
+  }
+
+  /**
+   * One pass of the due-queue scheduler, which reschedules itself to run again when the next agent is due, or
+   * after the lock acquisition interval if that's sooner, so that completed agents' locks are flushed regularly.
+   */
+  private fun runDueQueue() {
+    try {
+      flushReleases()
+      if (nodeStatusProvider.isNodeEnabled) {
+        acquireDueAgents()
+      }
+    } catch (t: Throwable) {
+      log.error("Failed running cache agents", t)
+    } finally {
+      val nextDue = dueAgents.peek()?.dueTime ?: Long.MAX_VALUE
+      val delay = (nextDue - System.currentTimeMillis()).coerceIn(MIN_TICK_MILLIS, lockIntervalMillis)
+      lockPollingScheduler.schedule(Runnable { runDueQueue() }, delay, TimeUnit.MILLISECONDS)
+    }
+  }
+
+  private fun acquireDueAgents() {
+    val maxConcurrentAgents = dynamicConfigService.getConfig(Int::class.java, "sql.agent.max-concurrent-agents", 100)
+    val batchSize = dynamicConfigService.getConfig(Int::class.java, "sql.agent.lock-batch-size", 100)
+
+    var available = maxConcurrentAgents - activeAgents.size
+    while (available > 0) {
+      val now = System.currentTimeMillis()
+      val due = pollDue(now, Math.min(available, batchSize))
+      if (due.isEmpty()) {
+        return
+      }
+
+      val contended = tryAcquireBatch(due.keys, now)
+      due.forEach { (agentType, dueTime) ->
+        val exec = agents[agentType] ?: return@forEach
+        val lockExpiry = contended[agentType]
+        if (lockExpiry == null) {
+          val interval = intervalProvider.getInterval(exec.agent)
+          val nextAttempt = NextAttempt(now, interval.interval, interval.errorInterval)
+          activeAgents[agentType] = nextAttempt
+          available--
+          agentExecutionPool.submit(AgentJob(nextAttempt, exec, this::agentCompleted) { agentStarted(dueTime) })
+        } else {
+          // Held by another node until its next scheduled run
+          enqueue(agentType, Math.max(lockExpiry, now + lockIntervalMillis))
+        }
+      }
+    }
+  }
+
+  /**
+   * Removes up to [limit] due agents from the queue, skipping entries superseded by a later [enqueue] and agents
+   * that have since been unscheduled, aren't enabled, or are sharded to another node.
+   */
+  private fun pollDue(now: Long, limit: Int): Map<String, Long> {
+    val due = mutableMapOf<String, Long>()
+    while (due.size < limit) {
+      val next = dueAgents.peek() ?: break
+      if (next.dueTime > now) {
+        break
+      }
+      dueAgents.poll()
+
+      if (queuedAgents[next.agentType] != next.dueTime) {
+        continue
+      }
+      queuedAgents.remove(next.agentType)
+
+      val exec = agents[next.agentType]
+      if (exec == null ||
+        activeAgents.containsKey(next.agentType) ||
+        !enabledAgents.matcher(next.agentType).matches()) {
+        continue
+      }
+
+      if (sharding?.isOwned(exec.agent) == false) {
+        // Owned by another node for now; check again in case membership changes
+        enqueue(next.agentType, now + lockIntervalMillis)
+        continue
+      }
+      due[next.agentType] = next.dueTime
+    }
+    return due
+  }
+
+  /**
+   * Clears expired locks and attempts to lock every given agent, with one statement each.
+   *
+   * @return agents that could not be locked, with the expiry of the lock held by another node
+   */
+  private fun tryAcquireBatch(agentTypes: Collection<String>, now: Long): Map<String, Long> {
+    val timeouts = agentTypes.associate { it to intervalProvider.getInterval(agents.getValue(it).agent).timeout }
+    val owned = mutableSetOf<String>()
+    val contended = mutableMapOf<String, Long>()
+
+    try {
+      withPool(POOL_NAME) {
+        jooq.deleteFrom(table(lockTable))
+          .where(
+            field("agent_name").`in`(agentTypes)
+              .and(field("lock_expiry", Long::class.java).lt(now))
+          )
+          .execute()
+
+        var insert = jooq.insertInto(table(lockTable))
+          .columns(field("agent_name"), field("owner_id"), field("lock_acquired"), field("lock_expiry"))
+        agentTypes.forEach {
+          insert = insert.values(it, nodeIdentity.nodeIdentity, now, now + timeouts.getValue(it))
+        }
+        insert.onDuplicateKeyIgnore().execute()
+
+        jooq.select(field("agent_name"), field("owner_id"), field("lock_acquired"), field("lock_expiry"))
+          .from(table(lockTable))
+          .where(field("agent_name").`in`(agentTypes))
+          .fetch()
+          .forEach {
+            val agentType = it.getValue("agent_name", String::class.java)
+            if (it.getValue("owner_id", String::class.java) == nodeIdentity.nodeIdentity &&
+              it.getValue("lock_acquired", Long::class.java) == now) {
+              owned.add(agentType)
+            } else {
+              contended[agentType] = it.getValue("lock_expiry", Long::class.java)
+            }
+          }
+      }
+    } catch (e: Exception) {
+      log.error("Unexpected sql exception while trying to acquire ${agentTypes.size} agent locks", e)
+      return agentTypes.associate { it to now }
+    }
+
+    // A lock taken by another node and released again before the select; retry on a later pass
+    agentTypes.filter { it !in owned && it !in contended }.forEach { contended[it] = now }
+
+    registry.counter(lockBatchId.withTag("result", "acquired")).increment(owned.size.toLong())
+    registry.counter(lockBatchId.withTag("result", "contended")).increment(contended.size.toLong())
+    return contended
+  }
+
+  /**
+   * Releases or extends the locks of agents that completed since the last pass, deleting locks that are due
+   * again within the release threshold and extending the rest to their next execution time.
+   */
+  private fun flushReleases() {
+    val releases = mutableMapOf<String, Long>()
+    while (true) {
+      val release = pendingReleases.poll() ?: break
+      releases[release.first] = release.second
+    }
+    if (releases.isEmpty()) {
+      return
+    }
+
+    val now = System.currentTimeMillis()
+    val threshold = dynamicConfigService.getConfig(Long::class.java, "sql.agent.release-threshold-ms", 500)
+    val (toDelete, toExtend) = releases.entries.partition { it.value - now < threshold }
+
+    try {
+      withPool(POOL_NAME) {
+        if (toDelete.isNotEmpty()) {
+          jooq.deleteFrom(table(lockTable))
+            .where(
+              field("agent_name").`in`(toDelete.map { it.key })
+                .and(field("owner_id").eq(nodeIdentity.nodeIdentity))
+            )
+            .execute()
+        }
+
+        if (toExtend.isNotEmpty()) {
+          val agentName = field("agent_name", String::class.java)
+          var expiry = DSL.decode().value(agentName).`when`(toExtend[0].key, toExtend[0].value)
+          toExtend.drop(1).forEach { expiry = expiry.`when`(it.key, it.value) }
+
+          jooq.update(table(lockTable))
+            .set(field("lock_expiry", Long::class.java), expiry.otherwise(field("lock_expiry", Long::class.java)))
+            .where(
+              agentName.`in`(toExtend.map { it.key })
+                .and(field("owner_id").eq(nodeIdentity.nodeIdentity))
+            )
+            .execute()
+        }
+      }
+    } catch (e: Exception) {
+      log.error("Failed to release locks for ${releases.size} agents", e)
+    } finally {
+      releases.forEach { (agentType, nextExecutionTime) ->
+        activeAgents.remove(agentType)
+        if (agents.containsKey(agentType)) {
+          enqueue(agentType, nextExecutionTime)
+        }
+      }
+    }
+  }
+
   companion object {
     private val POOL_NAME = ConnectionPools.CACHE_WRITER.value
+    private const val MIN_TICK_MILLIS = 50L
   }
 }
 
+private data class DueAgent(
+  val dueTime: Long,
+  val agentType: String
+) : Comparable<DueAgent> {
+  override fun compareTo(other: DueAgent): Int =
+    compareValuesBy(this, other, DueAgent::dueTime, DueAgent::agentType)
+}
+
 private enum class Status {
   SUCCESS, FAILURE
 }
@@ -295,12 +545,14 @@ private class AgentExecutionAction(
 private class AgentJob(
   private val lockReleaseTime: NextAttempt,
   private val action: AgentExecutionAction,
-  private val schedulerCallback: (agentType: String, nextExecutionTime: Long) -> Unit
+  private val schedulerCallback: (agentType: String, nextExecutionTime: Long) -> Unit,
+  private val startedCallback: () -> Unit = {}
 ) : Runnable {
 
   override fun run() {
     var status = Status.FAILURE
     try {
+      startedCallback()
       status = action.execute()
     } finally {
       schedulerCallback(action.agent.agentType, lockReleaseTime.getNextTime(status))
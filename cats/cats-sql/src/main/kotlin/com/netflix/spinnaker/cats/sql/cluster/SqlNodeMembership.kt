@@ -0,0 +1,76 @@
+/*
+ * Copyright 2019 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.spinnaker.cats.sql.cluster
+
+import com.netflix.spinnaker.cats.cluster.NodeMembership
+import com.netflix.spinnaker.config.ConnectionPools
+import com.netflix.spinnaker.kork.sql.routing.withPool
+import org.jooq.DSLContext
+import org.jooq.impl.DSL.field
+import org.jooq.impl.DSL.table
+
+/**
+ * Tracks live nodes in the `cats_nodes` table, keyed by node identity, with the time of each node's last heartbeat.
+ */
+class SqlNodeMembership(
+  private val jooq: DSLContext,
+  private val nodeTtlMillis: Long,
+  tableNamespace: String? = null
+) : NodeMembership {
+
+  private val referenceTable = "cats_nodes"
+  private val nodesTable = if (tableNamespace.isNullOrBlank()) {
+    referenceTable
+  } else {
+    "${referenceTable}_$tableNamespace"
+  }
+
+  init {
+    if (!tableNamespace.isNullOrBlank()) {
+      withPool(POOL_NAME) {
+        jooq.execute("CREATE TABLE IF NOT EXISTS $nodesTable LIKE $referenceTable")
+      }
+    }
+  }
+
+  override fun heartbeat(nodeIdentity: String): Set<String> {
+    val now = System.currentTimeMillis()
+    val oldest = now - nodeTtlMillis
+
+    return withPool(POOL_NAME) {
+      jooq.insertInto(table(nodesTable))
+        .columns(field("node_id"), field("last_seen"))
+        .values(nodeIdentity, now)
+        .onDuplicateKeyUpdate()
+        .set(field("last_seen"), now)
+        .execute()
+
+      jooq.deleteFrom(table(nodesTable))
+        .where(field("last_seen", Long::class.java).lt(oldest))
+        .execute()
+
+      jooq.select(field("node_id"))
+        .from(table(nodesTable))
+        .where(field("last_seen", Long::class.java).ge(oldest))
+        .fetch(field("node_id"), String::class.java)
+        .toSet()
+    }
+  }
+
+  companion object {
+    private val POOL_NAME = ConnectionPools.CACHE_WRITER.value
+  }
+}
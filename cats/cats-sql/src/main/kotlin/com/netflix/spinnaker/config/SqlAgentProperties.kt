@@ -22,6 +22,9 @@ data class SqlAgentProperties(
   var enabledPattern: String = ".*",
   var maxConcurrentAgents: Int = 100,
   var agentLockAcquisitionIntervalSeconds: Long = 1,
+  var dueQueueEnabled: Boolean = false,
+  var virtualThreads: Boolean = false,
+  var sharding: SqlShardingProperties = SqlShardingProperties(),
   var poll: SqlPollProperties = SqlPollProperties()
 )
 
@@ -30,3 +33,9 @@ data class SqlPollProperties(
   var errorIntervalSeconds: Long = 30,
   var timeoutSeconds: Long = 300
 )
+
+data class SqlShardingProperties(
+  var enabled: Boolean = false,
+  var heartbeatIntervalSeconds: Long = 10,
+  var nodeTtlSeconds: Long = 60
+)
@@ -15,17 +15,22 @@
  */
 package com.netflix.spinnaker.config
 
+import com.netflix.spectator.api.Registry
 import com.netflix.spinnaker.cats.agent.AgentScheduler
 import com.netflix.spinnaker.cats.cluster.AgentIntervalProvider
+import com.netflix.spinnaker.cats.cluster.ConsistentHashAgentSharding
 import com.netflix.spinnaker.cats.cluster.DefaultNodeIdentity
 import com.netflix.spinnaker.cats.cluster.NodeStatusProvider
 import com.netflix.spinnaker.cats.sql.cluster.SqlClusteredAgentScheduler
+import com.netflix.spinnaker.cats.thread.AgentExecutors
+import com.netflix.spinnaker.cats.sql.cluster.SqlNodeMembership
 import com.netflix.spinnaker.kork.dynamicconfig.DynamicConfigService
 import org.jooq.DSLContext
 import org.springframework.beans.factory.annotation.Value
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty
 import org.springframework.context.annotation.Bean
 import org.springframework.context.annotation.Configuration
+import java.util.concurrent.TimeUnit
 
 @Configuration
 @ConditionalOnProperty(value = ["caching.write-enabled"], matchIfMissing = true)
@@ -42,17 +47,38 @@ class SqlAgentSchedulerConfiguration {
     nodeStatusProvider: NodeStatusProvider,
     dynamicConfigService: DynamicConfigService,
     @Value("\${sql.table-namespace:#{null}}") tableNamespace: String?,
-    sqlAgentProperties: SqlAgentProperties
+    sqlAgentProperties: SqlAgentProperties,
+    registry: Registry
   ): AgentScheduler<*> {
+    val nodeIdentity = DefaultNodeIdentity()
+    val sharding = sqlAgentProperties.sharding.let {
+      if (it.enabled) {
+        ConsistentHashAgentSharding(
+          nodeIdentity,
+          SqlNodeMembership(jooq, TimeUnit.SECONDS.toMillis(it.nodeTtlSeconds), tableNamespace),
+          TimeUnit.SECONDS.toMillis(it.heartbeatIntervalSeconds)
+        )
+      } else {
+        null
+      }
+    }
+
     return SqlClusteredAgentScheduler(
       jooq = jooq,
-      nodeIdentity = DefaultNodeIdentity(),
+      nodeIdentity = nodeIdentity,
       intervalProvider = agentIntervalProvider,
       nodeStatusProvider = nodeStatusProvider,
       dynamicConfigService = dynamicConfigService,
       enabledAgentPattern = sqlAgentProperties.enabledPattern,
       tableNamespace = tableNamespace,
-      agentLockAcquisitionIntervalSeconds = sqlAgentProperties.agentLockAcquisitionIntervalSeconds
+      agentLockAcquisitionIntervalSeconds = sqlAgentProperties.agentLockAcquisitionIntervalSeconds,
+      agentExecutionPool = AgentExecutors.newAgentExecutionPool(
+        "AgentExecutionAction",
+        sqlAgentProperties.virtualThreads
+      ),
+      dueQueueEnabled = sqlAgentProperties.dueQueueEnabled,
+      registry = registry,
+      sharding = sharding
     )
   }
 }
@@ -19,6 +19,8 @@ import com.netflix.spinnaker.cats.sql.cache.SqlNamedCacheFactory
 import com.netflix.spinnaker.cats.sql.cache.SqlTableMetricsAgent
 import com.netflix.spinnaker.clouddriver.cache.CustomSchedulableAgentIntervalProvider
 import com.netflix.spinnaker.clouddriver.cache.EurekaStatusNodeStatusProvider
+import com.netflix.spinnaker.clouddriver.cache.NearCacheMetrics
+import com.netflix.spinnaker.clouddriver.cache.NearCacheProperties
 import com.netflix.spinnaker.clouddriver.core.provider.CoreProvider
 import com.netflix.spinnaker.clouddriver.sql.SqlProvider
 import com.netflix.spinnaker.kork.dynamicconfig.DynamicConfigService
@@ -68,21 +70,37 @@ class SqlCacheConfiguration {
     providers: List<Provider>,
     executionInstrumentation: List<ExecutionInstrumentation>,
     cacheFactory: NamedCacheFactory,
-    agentScheduler: AgentScheduler<*>
+    agentScheduler: AgentScheduler<*>,
+    nearCacheProperties: NearCacheProperties,
+    registry: Registry
   ): CatsModule {
-    return CatsModule.Builder()
+    val builder = CatsModule.Builder()
       .providerRegistry(SqlProviderRegistry(providers, cacheFactory))
       .cacheFactory(cacheFactory)
       .scheduler(agentScheduler)
       .instrumentation(executionInstrumentation)
-      .build(providers)
+
+    if (nearCacheProperties.isEnabled) {
+      // every SqlProviderCache reads from the same tables, so they share one near cache
+      builder.nearCache(nearCacheProperties.toOptions().sharedBackingStore(true))
+    }
+
+    return builder.build(providers).also {
+      NearCacheMetrics.register(registry, it.providerRegistry)
+    }
   }
 
   /**
    * sql.cache.async.poolSize: If set to a positive integer, a fixed thread pool of this size is created
    * as part of a coroutineContext. If sql.cache.maxQueryConcurrency is also >1 (default value: 4),
    * sql queries to fetch > 2 * sql.cache.readBatchSize cache keys will be made asynchronously in batches of
-   * maxQueryConcurrency size.
+   * maxQueryConcurrency size. Authoritative writes of the same size also serialize and hash items on this pool,
+   * and if sql.cache.maxWriteConcurrency is >1 (default value: 1), write batches are inserted concurrently
+   * in groups of maxWriteConcurrency size, each on its own connection.
+   *
+   * sql.cache.bodyEncoding: Encoding for newly written cache bodies; json (default), smile or smile-lz4. Rows
+   * record their own encoding so reads handle all of them, but this should only be changed once every reader
+   * has been deployed with support for the new encoding.
    *
    * sql.tableNamespace: Name spaces data tables, as well as the agent lock table if using the SqlAgentScheduler.
    * Table namespacing allows flipping to new/empty data tables within the same master if necessary to rebuild
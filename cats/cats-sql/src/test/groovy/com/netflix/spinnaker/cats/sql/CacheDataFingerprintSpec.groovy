@@ -0,0 +1,58 @@
+package com.netflix.spinnaker.cats.sql
+
+import com.fasterxml.jackson.databind.ObjectMapper
+import com.netflix.spinnaker.cats.cache.DefaultCacheData
+import com.netflix.spinnaker.cats.codec.CacheBodyCodec.Encoding
+import com.netflix.spinnaker.cats.sql.cache.CacheDataFingerprint
+import spock.lang.Specification
+import spock.lang.Subject
+import spock.lang.Unroll
+
+class CacheDataFingerprintSpec extends Specification {
+
+  @Subject
+  def fingerprint = new CacheDataFingerprint(new ObjectMapper())
+
+  def 'fingerprint is independent of map and set iteration order'() {
+    given:
+    def a = new LinkedHashMap<String, Object>()
+    a.put("name", "foo")
+    a.put("tags", [x: 1, y: 2])
+    def b = new LinkedHashMap<String, Object>()
+    b.put("tags", [y: 2, x: 1])
+    b.put("name", "foo")
+
+    def relsA = [instances: new LinkedHashSet(["i-1", "i-2"])]
+    def relsB = [instances: new LinkedHashSet(["i-2", "i-1"])]
+
+    expect:
+    fingerprint.of(new DefaultCacheData("id", a, relsA)) == fingerprint.of(new DefaultCacheData("id", b, relsB))
+  }
+
+  @Unroll
+  def 'fingerprint changes when #change changes'() {
+    given:
+    def original = new DefaultCacheData("id", [name: "foo", count: 1, list: ["a", "b"]], [instances: ["i-1"]])
+
+    expect:
+    fingerprint.of(original) != fingerprint.of(modified)
+    fingerprint.of(original).length() == 32
+
+    where:
+    change          | modified
+    "id"            | new DefaultCacheData("id2", [name: "foo", count: 1, list: ["a", "b"]], [instances: ["i-1"]])
+    "attribute"     | new DefaultCacheData("id", [name: "bar", count: 1, list: ["a", "b"]], [instances: ["i-1"]])
+    "number type"   | new DefaultCacheData("id", [name: "foo", count: "1", list: ["a", "b"]], [instances: ["i-1"]])
+    "list order"    | new DefaultCacheData("id", [name: "foo", count: 1, list: ["b", "a"]], [instances: ["i-1"]])
+    "relationships" | new DefaultCacheData("id", [name: "foo", count: 1, list: ["a", "b"]], [instances: ["i-2"]])
+  }
+
+  def 'fingerprint changes with the body encoding'() {
+    given:
+    def data = new DefaultCacheData("id", [name: "foo"], [instances: ["i-1"]])
+
+    expect:
+    fingerprint.of(data, Encoding.JSON) == fingerprint.of(data)
+    [Encoding.JSON, Encoding.SMILE, Encoding.SMILE_LZ4].collect { fingerprint.of(data, it) }.unique().size() == 3
+  }
+}
@@ -20,6 +20,9 @@ import java.time.Clock
 import java.time.Instant
 import java.time.ZoneId
 
+import static org.jooq.impl.DSL.field
+import static org.jooq.impl.DSL.table
+
 class SqlCacheSpec extends WriteableCacheSpec {
 
   @Shared
@@ -65,6 +68,75 @@ class SqlCacheSpec extends WriteableCacheSpec {
     1 * ((SqlCache) cache).cacheMetrics.merge('test', 'foo', 1, 0, 0, 0, 1, 0, 0)
   }
 
+  def 'should only rewrite changed bodies when fingerprints are enabled'() {
+    setup:
+    def dynamicConfigService = Mock(DynamicConfigService) {
+      getConfig(String, 'sql.cache.body-encoding', _) >> 'json'
+      getConfig(_ as Class, _ as String, _) >> 2
+      isEnabled('sql.cache.fingerprints', false) >> true
+    }
+    def fingerprintingCache = createCache(dynamicConfigService)
+    def unchanged = createData('unchanged', [a: 'b'])
+
+    when:
+    fingerprintingCache.mergeAll('foo', [unchanged, createData('changed', [a: 'b'])])
+
+    then:
+    1 * fingerprintingCache.cacheMetrics.merge('test', 'foo', 2, 2, 0, 0, _, _, _)
+    storedFingerprints().size() == 2
+    storedFingerprints().every { it != null }
+
+    when:
+    def before = storedFingerprints()
+    fingerprintingCache.mergeAll('foo', [unchanged, createData('changed', [a: 'c'])])
+    def after = storedFingerprints()
+
+    then:
+    1 * fingerprintingCache.cacheMetrics.merge('test', 'foo', 2, 1, 0, 0, _, _, _)
+    after.unchanged == before.unchanged
+    after.changed != before.changed
+    fingerprintingCache.get('foo', 'changed').attributes.a == 'c'
+  }
+
+  def 'should rewrite unchanged bodies once the body encoding changes'() {
+    setup:
+    def encoding = 'json'
+    def dynamicConfigService = Mock(DynamicConfigService) {
+      getConfig(String, 'sql.cache.body-encoding', _) >> { encoding }
+      getConfig(_ as Class, _ as String, _) >> 2
+      isEnabled('sql.cache.fingerprints', false) >> true
+    }
+    def fingerprintingCache = createCache(dynamicConfigService)
+    def data = createData('blerp', [a: 'b'])
+    fingerprintingCache.mergeAll('foo', [data])
+
+    when:
+    encoding = 'smile-lz4'
+    fingerprintingCache.mergeAll('foo', [data])
+
+    then:
+    1 * fingerprintingCache.cacheMetrics.merge('test', 'foo', 1, 1, 0, 0, _, _, _)
+    storedBodies().blerp.startsWith('#cats')
+    fingerprintingCache.get('foo', 'blerp').attributes.a == 'b'
+
+    when:
+    fingerprintingCache.mergeAll('foo', [data])
+
+    then:
+    1 * fingerprintingCache.cacheMetrics.merge('test', 'foo', 1, 0, 0, 0, _, _, _)
+  }
+
+  def 'should report merge stage timings for authoritative writes'() {
+    setup:
+    def data = (1..3).collect { createData("fnord-$it") }
+
+    when:
+    ((SqlCache) cache).mergeAll('foo', data)
+
+    then:
+    1 * ((SqlCache) cache).cacheMetrics.mergeStages('test', 'foo', { it > 0 }, { it > 0 }, { it > 0 }, false)
+  }
+
   def 'all items are stored and retrieved when larger than sql chunk sizes'() {
     given:
     def data = (1..10).collect { createData("fnord-$it") }
@@ -78,6 +150,38 @@ class SqlCacheSpec extends WriteableCacheSpec {
     retrieved.findAll { it.id == "fnord-5" }.size() == 1
   }
 
+  def 'reads small requests for several types in one query'() {
+    given:
+    ((SqlCache) cache).merge('foo', createData('bar', [a: 'b'], [qux: ['quux']]))
+    ((SqlCache) cache).merge('qux', createData('quux'))
+
+    when:
+    def results = ((SqlCache) cache).getAll(
+      [foo: ['bar'], qux: ['quux']],
+      [foo: RelationshipCacheFilter.include('qux')]
+    )
+
+    then:
+    1 * ((SqlCache) cache).cacheMetrics.get('test', 'foo', 1, 1, _, 1, false)
+    1 * ((SqlCache) cache).cacheMetrics.get('test', 'qux', 1, 1, 0, 1, false)
+    results.foo*.id == ['bar']
+    results.foo.first().relationships.qux == ['quux']
+    results.qux*.id == ['quux']
+  }
+
+  def 'falls back to a query per type when one of the tables does not exist yet'() {
+    given:
+    ((SqlCache) cache).merge('foo', createData('bar'))
+
+    when:
+    def results = ((SqlCache) cache).getAll([foo: ['bar'], nothere: ['baz']], [:])
+
+    then:
+    results.keySet() == ['foo', 'nothere'] as Set
+    results.foo*.id == ['bar']
+    results.nothere.isEmpty()
+  }
+
   @Unroll
   def 'generates where clause based on cacheFilters'() {
     when:
@@ -96,13 +200,24 @@ class SqlCacheSpec extends WriteableCacheSpec {
     null                                                   || null             || "1=1"
   }
 
+  Map<String, String> storedBodies() {
+    context.select(field('id'), field('body'))
+      .from(table('cats_v1_test_foo'))
+      .fetch()
+      .collectEntries { [(it.get(0, String)): it.get(1, String)] }
+  }
+
+  Map<String, String> storedFingerprints() {
+    context.select(field('id'), field('body_fingerprint'))
+      .from(table('cats_v1_test_foo'))
+      .fetch()
+      .collectEntries { [(it.get(0, String)): it.get(1, String)] }
+  }
+
   @Override
   Cache getSubject() {
-    def mapper = new ObjectMapper()
-    def clock = new Clock.FixedClock(Instant.EPOCH, ZoneId.of("UTC"))
-    def sqlRetryProperties = new SqlRetryProperties(new RetryProperties(1, 10), new RetryProperties(1, 10))
-
     def dynamicConfigService = Mock(DynamicConfigService) {
+      getConfig(String, 'sql.cache.body-encoding', _) >> 'json'
       getConfig(_ as Class, _ as String, _) >> 2
     }
 
@@ -110,6 +225,14 @@ class SqlCacheSpec extends WriteableCacheSpec {
     context = testDatabase.context
     dataSource = testDatabase.dataSource
 
+    return createCache(dynamicConfigService)
+  }
+
+  SqlCache createCache(DynamicConfigService dynamicConfigService) {
+    def mapper = new ObjectMapper()
+    def clock = new Clock.FixedClock(Instant.EPOCH, ZoneId.of("UTC"))
+    def sqlRetryProperties = new SqlRetryProperties(new RetryProperties(1, 10), new RetryProperties(1, 10))
+
     return new SqlCache(
       "test",
       context,
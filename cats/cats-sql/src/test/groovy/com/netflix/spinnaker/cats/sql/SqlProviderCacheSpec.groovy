@@ -51,6 +51,7 @@ class SqlProviderCacheSpec extends ProviderCacheSpec {
     def sqlRetryProperties = new SqlRetryProperties(new RetryProperties(1, 10), new RetryProperties(1, 10))
     def sqlMetrics = new SpectatorSqlCacheMetrics(new NoopRegistry())
     def dynamicConfigService = Mock(DynamicConfigService) {
+      getConfig(String, 'sql.cache.body-encoding', _) >> 'json'
       getConfig(_ as Class, _ as String, _) >> 10
     }
 
@@ -0,0 +1,242 @@
+/*
+ * Copyright 2019 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.spinnaker.cats.sql.cluster
+
+import com.netflix.spectator.api.DefaultRegistry
+import com.netflix.spinnaker.cats.agent.Agent
+import com.netflix.spinnaker.cats.agent.AgentExecution
+import com.netflix.spinnaker.cats.agent.ExecutionInstrumentation
+import com.netflix.spinnaker.cats.cluster.AgentIntervalProvider
+import com.netflix.spinnaker.cats.cluster.NodeIdentity
+import com.netflix.spinnaker.cats.cluster.NodeStatusProvider
+import com.netflix.spinnaker.cats.provider.ProviderRegistry
+import com.netflix.spinnaker.kork.dynamicconfig.DynamicConfigService
+import com.netflix.spinnaker.kork.sql.test.SqlTestUtil
+import com.zaxxer.hikari.HikariDataSource
+import org.jooq.DSLContext
+import spock.lang.AutoCleanup
+import spock.lang.Shared
+import spock.lang.Specification
+
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.ScheduledExecutorService
+
+import static org.jooq.impl.DSL.field
+import static org.jooq.impl.DSL.table
+
+class SqlClusteredAgentSchedulerSpec extends Specification {
+
+  @Shared
+  DSLContext context
+
+  @Shared
+  @AutoCleanup("close")
+  HikariDataSource dataSource
+
+  def registry = new DefaultRegistry()
+  def intervals = [:].withDefault { new AgentIntervalProvider.Interval(60000, 60000, 120000) }
+  def config = [
+    "sql.agent.max-concurrent-agents": 100,
+    "sql.agent.lock-batch-size"      : 100
+  ]
+  boolean nodeEnabled = true
+
+  def setupSpec() {
+    SqlTestUtil.TestDatabase testDatabase = SqlTestUtil.initTcMysqlDatabase()
+    context = testDatabase.context
+    dataSource = testDatabase.dataSource
+  }
+
+  def cleanup() {
+    SqlTestUtil.cleanupDb(context)
+  }
+
+  void 'acquires due agents in batches, up to the concurrency limit'() {
+    given:
+    config["sql.agent.lock-batch-size"] = 2
+    config["sql.agent.max-concurrent-agents"] = 4
+    def node = node("node-1")
+    5.times { schedule(node, agent("agent-$it")) }
+
+    when:
+    node.tick()
+    node.runAll()
+
+    then:
+    node.ran.size() == 4
+    locks().findAll { it.owner_id == "node-1" }*.agent_name as Set == node.ran as Set
+    registry.counter("cats.sqlAgentScheduler.lockBatch", "result", "acquired").count() == 4
+    node.queued().size() == 1
+  }
+
+  void 'flushes completed agents by extending or releasing their locks and requeueing them'() {
+    given:
+    intervals["soon"] = new AgentIntervalProvider.Interval(0, 0, 120000)
+    def node = node("node-1")
+    schedule(node, agent("later"))
+    schedule(node, agent("soon"))
+    node.tick()
+
+    when:
+    node.runAll()
+    nodeEnabled = false
+    node.tick()
+
+    then:
+    // due again within the release threshold, so the lock is released
+    locks()*.agent_name == ["later"]
+    // otherwise the lock is held until the agent's next run
+    locks()[0].lock_expiry >= System.currentTimeMillis() + 50000
+    node.queued().keySet() == ["later", "soon"] as Set
+
+    when:
+    nodeEnabled = true
+    node.tick()
+    node.runAll()
+
+    then:
+    node.ran == ["later", "soon", "soon"]
+  }
+
+  void 'an agent locked by another node is requeued for when that lock expires'() {
+    given:
+    def first = node("node-1")
+    def second = node("node-2")
+    schedule(first, agent("shared"))
+    schedule(second, agent("shared"))
+
+    when:
+    first.tick()
+    second.tick()
+    first.runAll()
+    second.runAll()
+
+    then:
+    first.ran == ["shared"]
+    second.ran.isEmpty()
+    locks().collect { [it.agent_name, it.owner_id] } == [["shared", "node-1"]]
+    second.queued()["shared"] == locks()[0].lock_expiry
+    registry.counter("cats.sqlAgentScheduler.lockBatch", "result", "contended").count() == 1
+  }
+
+  void 'an agent that fails is rescheduled after its error interval'() {
+    given:
+    intervals["flaky"] = new AgentIntervalProvider.Interval(60000, 0, 120000)
+    def node = node("node-1")
+    schedule(node, agent("flaky") { throw new IllegalStateException("boom") })
+    schedule(node, agent("steady"))
+    node.tick()
+
+    when:
+    node.runAll()
+    node.tick()
+    node.runAll()
+
+    then:
+    node.ran == ["flaky", "steady", "flaky"]
+    locks()*.agent_name as Set == ["flaky", "steady"] as Set
+  }
+
+  /**
+   * A scheduler whose polling loop and agent executions are run by the spec, rather than on their own threads.
+   */
+  private Node node(String nodeId) {
+    def node = new Node()
+    node.scheduler = new SqlClusteredAgentScheduler(
+      context,
+      Stub(NodeIdentity) { getNodeIdentity() >> nodeId },
+      Stub(AgentIntervalProvider) { getInterval(_) >> { Agent agent -> intervals[agent.agentType] } },
+      Stub(NodeStatusProvider) { isNodeEnabled() >> { nodeEnabled } },
+      Stub(DynamicConfigService) {
+        getConfig(_, _, _) >> { type, String name, defaultValue -> config.getOrDefault(name, defaultValue) }
+      },
+      ".*",
+      1L,
+      null,
+      Stub(ExecutorService) {
+        submit(_ as Runnable) >> { Runnable job -> node.jobs << job; null }
+      },
+      Stub(ScheduledExecutorService) {
+        schedule(_ as Runnable, _, _) >> { Runnable tick, long delay, unit -> node.ticks << tick; null }
+      },
+      true,
+      registry,
+      null
+    )
+    return node
+  }
+
+  private void schedule(Node node, TestAgent agent) {
+    node.scheduler.schedule(agent, new AgentExecution() {
+      @Override
+      void executeAgent(Agent a) {
+        node.ran << a.agentType
+        agent.execution.call()
+      }
+    }, Stub(ExecutionInstrumentation))
+  }
+
+  private static TestAgent agent(String agentType, Closure execution = {}) {
+    return new TestAgent(agentType: agentType, execution: execution)
+  }
+
+  private List<Map<String, Object>> locks() {
+    return context.select(field("agent_name"), field("owner_id"), field("lock_expiry"))
+      .from(table("cats_agent_locks"))
+      .orderBy(field("agent_name"))
+      .fetch()
+      .intoMaps()
+  }
+
+  private static class Node {
+    SqlClusteredAgentScheduler scheduler
+    final List<String> ran = []
+    final List<Runnable> jobs = []
+    final List<Runnable> ticks = []
+
+    /** Runs one pass of the due queue, as the polling scheduler would. */
+    void tick() {
+      ticks.remove(ticks.size() - 1).run()
+    }
+
+    /** Runs every agent execution submitted so far. */
+    void runAll() {
+      def pending = new ArrayList<Runnable>(jobs)
+      jobs.clear()
+      pending*.run()
+    }
+
+    Map<String, Long> queued() {
+      return scheduler.@queuedAgents
+    }
+  }
+
+  private static class TestAgent implements Agent {
+    String agentType
+    Closure execution
+
+    @Override
+    String getProviderName() {
+      return "test"
+    }
+
+    @Override
+    AgentExecution getAgentExecution(ProviderRegistry providerRegistry) {
+      return null
+    }
+  }
+}
@@ -125,6 +125,42 @@ abstract class CacheSpec extends Specification {
         results.find { it.id == 'baz' }
     }
 
+    def 'streamAll returns every item across pages'() {
+        setup:
+        def ids = (1..7).collect { "id-$it".toString() }
+        ids.each { populateOne('foo', it) }
+
+        when:
+        def results = cache.streamAll('foo', null, 3).collect(java.util.stream.Collectors.toList())
+
+        then:
+        results*.id.sort() == ids.sort()
+    }
+
+    def 'streamAll of empty type is empty'() {
+        expect:
+        cache.streamAll('foo', null, 3).count() == 0
+    }
+
+    def 'getAll across types returns matches keyed by type'() {
+        setup:
+        populateOne('foo', 'bar', createData('bar', [bar: "bar"], [rel1: ["rel1"], rel2: ["rel2"]]))
+        populateOne('foo', 'baz')
+        populateOne('qux', 'quux')
+
+        when:
+        def results = cache.getAll(
+          [foo: ['bar', 'missing'], qux: ['quux'], empty: []],
+          [foo: RelationshipCacheFilter.include('rel1')]
+        )
+
+        then:
+        results.keySet() == ['foo', 'qux'] as Set
+        results.foo*.id == ['bar']
+        results.foo.first().relationships.keySet() == ['rel1'] as Set
+        results.qux*.id == ['quux']
+    }
+
     @Unroll
     def 'relationship filtering behaviour'() {
         setup:
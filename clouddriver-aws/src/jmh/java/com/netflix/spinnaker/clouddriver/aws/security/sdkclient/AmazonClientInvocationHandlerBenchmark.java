@@ -0,0 +1,178 @@
+/*
+ * Copyright 2019 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.spinnaker.clouddriver.aws.security.sdkclient;
+
+import com.amazonaws.AmazonWebServiceRequest;
+import com.amazonaws.services.ec2.AbstractAmazonEC2;
+import com.amazonaws.services.ec2.AmazonEC2;
+import com.amazonaws.services.ec2.model.DescribeAccountAttributesRequest;
+import com.amazonaws.services.ec2.model.DescribeAccountAttributesResult;
+import com.amazonaws.services.ec2.model.DescribeInstancesRequest;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.netflix.spectator.api.NoopRegistry;
+import com.netflix.spinnaker.clouddriver.aws.security.EddaTimeoutConfig;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.apache.http.impl.client.HttpClients;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the per-call overhead of the Edda client proxy, for a call that falls through to the SDK
+ * client and for extracting request ids.
+ *
+ * <p>The legacy benchmarks reproduce how both used to be done, with a reflective method lookup
+ * that throws NoSuchMethodException for every delegated call, and a field lookup for every
+ * request.
+ *
+ * <p>One run on OpenJDK 17.0.9, one vCPU, AWS SDK 1.11.534, with the settings below:
+ *
+ * <pre>
+ * Benchmark            Mode  Cnt     Score     Error  Units
+ * delegatedCall        avgt    5   119.814 ±  10.806  ns/op
+ * legacyDelegatedCall  avgt    5  3420.905 ± 299.896  ns/op
+ * requestIds           avgt    5    18.237 ±   4.968  ns/op
+ * legacyRequestIds     avgt    5    22.119 ±  14.638  ns/op
+ * </pre>
+ *
+ * <p>A delegated call is about 28x cheaper, mostly from no longer throwing NoSuchMethodException.
+ * The request id difference is within the error.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AmazonClientInvocationHandlerBenchmark {
+  private static final DescribeAccountAttributesResult RESULT =
+      new DescribeAccountAttributesResult();
+
+  private final AmazonEC2 delegate =
+      new AbstractAmazonEC2() {
+        @Override
+        public DescribeAccountAttributesResult describeAccountAttributes(
+            DescribeAccountAttributesRequest request) {
+          return RESULT;
+        }
+      };
+
+  private final DescribeAccountAttributesRequest request = new DescribeAccountAttributesRequest();
+  private final DescribeInstancesRequest idsRequest =
+      new DescribeInstancesRequest().withInstanceIds("i-1", "i-2");
+
+  private AmazonEC2 client;
+  private AmazonEC2 legacyClient;
+
+  @Setup
+  public void setup() {
+    AmazonClientInvocationHandler handler =
+        new AmazonClientInvocationHandler(
+            delegate,
+            "AmazonEC2",
+            "http://localhost:1",
+            HttpClients.createDefault(),
+            new ObjectMapper(),
+            EddaTimeoutConfig.DEFAULT,
+            new NoopRegistry(),
+            Collections.emptyMap());
+    client = proxy(handler);
+    legacyClient = proxy(new LegacyDispatch(handler, delegate));
+  }
+
+  @Benchmark
+  public DescribeAccountAttributesResult delegatedCall() {
+    return client.describeAccountAttributes(request);
+  }
+
+  @Benchmark
+  public DescribeAccountAttributesResult legacyDelegatedCall() {
+    return legacyClient.describeAccountAttributes(request);
+  }
+
+  @Benchmark
+  public Collection<String> requestIds() {
+    return AmazonClientInvocationHandler.getRequestIds(idsRequest, "instanceIds");
+  }
+
+  @Benchmark
+  public Collection<String> legacyRequestIds() throws Exception {
+    return legacyRequestIds(idsRequest, "instanceIds");
+  }
+
+  private static AmazonEC2 proxy(InvocationHandler handler) {
+    return (AmazonEC2)
+        Proxy.newProxyInstance(
+            AmazonClientInvocationHandlerBenchmark.class.getClassLoader(),
+            new Class[] {AmazonEC2.class, EddaStreamingClient.class},
+            handler);
+  }
+
+  private static Collection<String> legacyRequestIds(
+      AmazonWebServiceRequest request, String idFieldName) throws Exception {
+    Field field = request.getClass().getDeclaredField(idFieldName);
+    field.setAccessible(true);
+    Collection<String> collection = (Collection<String>) field.get(request);
+    return collection == null ? Collections.emptySet() : collection;
+  }
+
+  /** Dispatches the way the proxy did before it resolved methods once. */
+  private static class LegacyDispatch implements InvocationHandler {
+    private final Object handler;
+    private final Object delegate;
+
+    LegacyDispatch(Object handler, Object delegate) {
+      this.handler = handler;
+      this.delegate = delegate;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+      try {
+        List<Class> classes = new ArrayList<>();
+        for (Object arg : args == null ? new Object[0] : args) {
+          classes.add(arg.getClass());
+        }
+        Method thisMethod =
+            handler.getClass().getMethod(method.getName(), classes.toArray(new Class[0]));
+        return thisMethod.invoke(handler, args);
+      } catch (NoSuchMethodException e) {
+        try {
+          return method.invoke(delegate, args);
+        } catch (InvocationTargetException ite) {
+          throw ite.getCause();
+        }
+      }
+    }
+  }
+}
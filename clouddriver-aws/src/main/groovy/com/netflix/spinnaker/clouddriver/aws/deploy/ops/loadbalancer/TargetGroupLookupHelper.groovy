@@ -23,9 +23,6 @@ import com.amazonaws.services.elasticloadbalancingv2.model.LoadBalancerNotFoundE
 import com.amazonaws.services.elasticloadbalancingv2.model.TargetGroupNotFoundException
 import com.netflix.spinnaker.clouddriver.aws.services.RegionScopedProviderFactory
 
-import java.lang.reflect.InvocationTargetException
-import java.lang.reflect.UndeclaredThrowableException
-
 class TargetGroupLookupHelper {
 
   static class TargetGroupLookupResult {
@@ -59,28 +56,10 @@ class TargetGroupLookupHelper {
         // ignore
       } catch (TargetGroupNotFoundException ignore) {
         // ignore
-      } catch (UndeclaredThrowableException e) {
-        // There are edda calls hidden behind an .invoke from Aws SDK. Exceptions from
-        // those methods show up wrapped in UndeclaredThrowable and/or InvocationTarget
-        // If it is a legitimate failure, makes sense to throw the actual error
-        boolean rethrow = true
-        Throwable toRethrow = e.undeclaredThrowable
-
-        if (e.undeclaredThrowable instanceof InvocationTargetException) {
-          InvocationTargetException ite = (InvocationTargetException)e.undeclaredThrowable
-
-          toRethrow = ite.targetException
-          if (ite.targetException instanceof AmazonServiceException) {
-            AmazonServiceException ase = (AmazonServiceException)ite.targetException
-
-            if (ase.statusCode == 404) {
-              rethrow = false
-            }
-          }
-        }
-
-        if (rethrow) {
-          throw toRethrow
+      } catch (AmazonServiceException e) {
+        // Edda reports a target group it doesn't know about as a 404
+        if (e.statusCode != 404) {
+          throw e
         }
       }
     }
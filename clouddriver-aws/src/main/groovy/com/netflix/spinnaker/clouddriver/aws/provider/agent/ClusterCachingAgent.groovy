@@ -55,11 +55,14 @@ import com.netflix.spinnaker.clouddriver.aws.data.Keys
 import org.slf4j.Logger
 import org.slf4j.LoggerFactory
 
+import java.util.function.Consumer
+
 import static com.netflix.spinnaker.cats.agent.AgentDataType.Authority.*
 import static com.netflix.spinnaker.clouddriver.core.provider.agent.Namespace.*
 import com.netflix.spinnaker.cats.agent.CacheResult
 import com.netflix.spinnaker.cats.agent.DefaultCacheResult
 import com.netflix.spinnaker.cats.cache.CacheData
+import com.netflix.spinnaker.clouddriver.aws.security.sdkclient.EddaStreamingClient
 import com.netflix.spinnaker.clouddriver.aws.provider.AwsProvider
 
 class ClusterCachingAgent implements CachingAgent, OnDemandAgent, AccountAware, DriftMetric {
@@ -216,7 +219,7 @@ class ClusterCachingAgent implements CachingAgent, OnDemandAgent, AccountAware,
     }
 
     def cacheResult = metricsSupport.transformData {
-      buildCacheResult(onDemandData.asgs, onDemandData.scalingPolicies, onDemandData.scheduledActions, onDemandData.subnetMap, [:], [])
+      buildCacheResult(onDemandData.asgs, onDemandData.scalingPolicies, onDemandData.scheduledActions, onDemandData.subnetMap)
     }
     def cacheResultAsJson = objectMapper.writeValueAsString(cacheResult.cacheResults)
 
@@ -251,10 +254,6 @@ class ClusterCachingAgent implements CachingAgent, OnDemandAgent, AccountAware,
     )
   }
 
-  private Map<String, CacheData> cache() {
-    [:].withDefault { String id -> new MutableCacheData(id) }
-  }
-
   Map<String, String> getSubnetToVpcIdMap(AmazonClients clients, String... subnetIds) {
     Map<String, String> subnetMap = [:]
     def request = new DescribeSubnetsRequest()
@@ -270,38 +269,56 @@ class ClusterCachingAgent implements CachingAgent, OnDemandAgent, AccountAware,
     subnetMap
   }
 
-  private AutoScalingGroupsResults loadAutoScalingGroups(AmazonClients clients) {
+  /**
+   * Hands each ASG that is not being destroyed to {@code cacheAsg} as it is read.
+   *
+   * @return the time the ASGs were read at, or Edda's last modified time for them
+   */
+  private Long loadAutoScalingGroups(AmazonClients clients, Consumer<AutoScalingGroup> cacheAsg) {
     log.debug("Describing auto scaling groups in ${agentType}")
 
     def request = new DescribeAutoScalingGroupsRequest().withMaxRecords(100)
 
     Long start = account.eddaEnabled ? null : System.currentTimeMillis()
 
-    List<AutoScalingGroup> asgs = []
-    while (true) {
-      def resp = clients.autoScaling.describeAutoScalingGroups(request)
-      if (account.eddaEnabled) {
-        start = amazonClientProvider.lastModified ?: 0
+    // A non-null status indicates that the ASG is in the process of being destroyed (no sense indexing)
+    int asgCount = 0
+    def cacheLiveAsg = { AutoScalingGroup asg ->
+      asgCount++
+      if (asg.status == null) {
+        cacheAsg.accept(asg)
       }
-      asgs.addAll(resp.autoScalingGroups)
-      if (resp.nextToken) {
-        request.withNextToken(resp.nextToken)
-      } else {
-        break
+    }
+
+    if (account.eddaEnabled && clients.autoScaling instanceof EddaStreamingClient) {
+      // cache each ASG as it is parsed rather than holding the whole region's response
+      ((EddaStreamingClient) clients.autoScaling).forEach(
+        EddaStreamingClient.AUTO_SCALING_GROUPS, AutoScalingGroup, cacheLiveAsg as Consumer<AutoScalingGroup>
+      )
+      start = amazonClientProvider.lastModified ?: 0
+    } else {
+      while (true) {
+        def resp = clients.autoScaling.describeAutoScalingGroups(request)
+        if (account.eddaEnabled) {
+          start = amazonClientProvider.lastModified ?: 0
+        }
+        resp.autoScalingGroups.each(cacheLiveAsg)
+        if (resp.nextToken) {
+          request.withNextToken(resp.nextToken)
+        } else {
+          break
+        }
       }
     }
 
     if (!start) {
-      if (account.eddaEnabled && asgs) {
+      if (account.eddaEnabled && asgCount) {
         log.warn("${agentType} did not receive lastModified value in response metadata")
       }
       start = System.currentTimeMillis()
     }
 
-    // A non-null status indicates that the ASG is in the process of being destroyed (no sense indexing)
-    asgs = asgs.findAll { it.status == null }
-
-    new AutoScalingGroupsResults(start: start, asgs: asgs)
+    start
   }
 
   private Map<String, List<Map>> loadScalingPolicies(AmazonClients clients) {
@@ -396,44 +413,58 @@ class ClusterCachingAgent implements CachingAgent, OnDemandAgent, AccountAware,
 
     def clients = new AmazonClients(amazonClientProvider, account, region, false)
 
-    def autoScalingGroupsResult = loadAutoScalingGroups(clients)
     def scalingPolicies = loadScalingPolicies(clients)
     def scheduledActions = loadScheduledActions(clients)
-
-    Long start = autoScalingGroupsResult.start
-    List<AutoScalingGroup> asgs = autoScalingGroupsResult.asgs
+    def subnetMap = getSubnetToVpcIdMap(clients)
+
+    def pendingOnDemandRequests = providerCache.getAll(
+      ON_DEMAND.ns,
+      providerCache.filterIdentifiers(ON_DEMAND.ns, Keys.getServerGroupKey("*", "*", account.name, region))
+    ).collectEntries { [(it.id): it] }
+
+    // ASGs with a pending onDemand value are set aside until their read time is known; every other ASG is
+    // cached as it is read
+    ClusterCacheData cacheData = new ClusterCacheData()
+    List<AutoScalingGroup> asgsWithOnDemandData = []
+    Long start = loadAutoScalingGroups(clients, { AutoScalingGroup asg ->
+      if (pendingOnDemandRequests.containsKey(Keys.getServerGroupKey(asg.autoScalingGroupName, account.name, region))) {
+        asgsWithOnDemandData << asg
+      } else {
+        cacheAutoScalingGroup(cacheData, asg, scalingPolicies, scheduledActions, subnetMap)
+      }
+    } as Consumer<AutoScalingGroup>)
 
     def evictableOnDemandCacheDatas = []
     def usableOnDemandCacheDatas = []
 
-    def serverGroupKeys = asgs.collect { Keys.getServerGroupKey(it.autoScalingGroupName, account.name, region) } as Set<String>
-    def pendingOnDemandRequestKeys = providerCache
-      .filterIdentifiers(ON_DEMAND.ns, Keys.getServerGroupKey("*", "*", account.name, region))
-      .findAll { serverGroupKeys.contains(it) }
-
-    def pendingOnDemandRequestsForServerGroups = providerCache.getAll(ON_DEMAND.ns, pendingOnDemandRequestKeys)
-    pendingOnDemandRequestsForServerGroups.each {
-      if (it.attributes.cacheTime < start && it.attributes.processedCount > 0) {
+    asgsWithOnDemandData.each { asg ->
+      CacheData onDemandCacheData = pendingOnDemandRequests[Keys.getServerGroupKey(asg.autoScalingGroupName, account.name, region)]
+      boolean evict = false
+      if (onDemandCacheData.attributes.cacheTime < start && onDemandCacheData.attributes.processedCount > 0) {
         if (account.eddaEnabled && !eddaTimeoutConfig.disabledRegions.contains(region)) {
-          def asgFromEdda = asgs.find { asg -> it.id.endsWith(":${asg.autoScalingGroupName}") }
-          def asgFromAws = loadAutoScalingGroup(asgFromEdda.autoScalingGroupName, true)
+          def asgFromAws = loadAutoScalingGroup(asg.autoScalingGroupName, true)
 
-          if (areSimilarAutoScalingGroups(asgFromEdda, asgFromAws)) {
-            log.info("Evicting previous onDemand value for ${asgFromEdda.autoScalingGroupName} (processedCount: ${it.attributes.processedCount} ... ${flattenAutoScalingGroup(asgFromEdda)} vs ${flattenAutoScalingGroup(asgFromAws)}")
-            evictableOnDemandCacheDatas << it
+          if (areSimilarAutoScalingGroups(asg, asgFromAws)) {
+            log.info("Evicting previous onDemand value for ${asg.autoScalingGroupName} (processedCount: ${onDemandCacheData.attributes.processedCount} ... ${flattenAutoScalingGroup(asg)} vs ${flattenAutoScalingGroup(asgFromAws)}")
+            evict = true
           } else {
-            log.info("Preserving previous onDemand value for ${asgFromEdda.autoScalingGroupName} (${flattenAutoScalingGroup(asgFromEdda)} vs ${flattenAutoScalingGroup(asgFromAws)}")
-            usableOnDemandCacheDatas << it
+            log.info("Preserving previous onDemand value for ${asg.autoScalingGroupName} (${flattenAutoScalingGroup(asg)} vs ${flattenAutoScalingGroup(asgFromAws)}")
           }
         } else {
-          evictableOnDemandCacheDatas << it
+          evict = true
         }
+      }
+
+      if (evict) {
+        evictableOnDemandCacheDatas << onDemandCacheData
+        cacheAutoScalingGroup(cacheData, asg, scalingPolicies, scheduledActions, subnetMap)
       } else {
-        usableOnDemandCacheDatas << it
+        usableOnDemandCacheDatas << onDemandCacheData
+        cacheOnDemandData(cacheData, onDemandCacheData)
       }
     }
 
-    CacheResult result = buildCacheResult(asgs, scalingPolicies, scheduledActions, getSubnetToVpcIdMap(clients), usableOnDemandCacheDatas.collectEntries { [it.id, it] }, evictableOnDemandCacheDatas*.id)
+    CacheResult result = cacheData.toCacheResult(usableOnDemandCacheDatas, evictableOnDemandCacheDatas*.id)
     recordDrift(start)
     def cacheResults = result.cacheResults
     log.debug("Caching ${cacheResults[APPLICATIONS.ns]?.size()} applications in ${agentType}")
@@ -486,59 +517,45 @@ class ClusterCachingAgent implements CachingAgent, OnDemandAgent, AccountAware,
   private CacheResult buildCacheResult(Collection<AutoScalingGroup> asgs,
                                        Map<String, List<Map>> scalingPolicies,
                                        Map<String, List<Map>> scheduledActions,
-                                       Map<String, String> subnetMap,
-                                       Map<String, CacheData> onDemandCacheDataByAsg,
-                                       Collection<String> evictableOnDemandCacheDataIdentifiers) {
-    Map<String, CacheData> applications = cache()
-    Map<String, CacheData> clusters = cache()
-    Map<String, CacheData> serverGroups = cache()
-    Map<String, CacheData> loadBalancers = cache()
-    Map<String, CacheData> targetGroups = cache()
-    Map<String, CacheData> launchConfigs = cache()
-    Map<String, CacheData> instances = cache()
-
+                                       Map<String, String> subnetMap) {
+    ClusterCacheData cacheData = new ClusterCacheData()
     for (AutoScalingGroup asg : asgs) {
-      def onDemandCacheData = onDemandCacheDataByAsg ? onDemandCacheDataByAsg[Keys.getServerGroupKey(asg.autoScalingGroupName, account.name, region)] : null
-      if (onDemandCacheData) {
-        log.info("Using onDemand cache value (id: ${onDemandCacheData.id}, json: ${onDemandCacheData.attributes.cacheResults})")
-
-        Map<String, List<CacheData>> cacheResults = objectMapper.readValue(onDemandCacheData.attributes.cacheResults as String, new TypeReference<Map<String, List<MutableCacheData>>>() {
-        })
-        cache(cacheResults["applications"], applications)
-        cache(cacheResults["clusters"], clusters)
-        cache(cacheResults["serverGroups"], serverGroups)
-        cache(cacheResults["loadBalancers"], loadBalancers)
-        cache(cacheResults["targetGroups"], targetGroups)
-        cache(cacheResults["launchConfigs"], launchConfigs)
-        cache(cacheResults["instances"], instances)
-      } else {
-        try {
-          AsgData data = new AsgData(asg, scalingPolicies[asg.autoScalingGroupName], scheduledActions[asg.autoScalingGroupName], account.name, region, subnetMap)
-          cacheApplication(data, applications)
-          cacheCluster(data, clusters)
-          cacheServerGroup(data, serverGroups)
-          cacheLaunchConfig(data, launchConfigs)
-          cacheInstances(data, instances)
-          cacheLoadBalancers(data, loadBalancers)
-          cacheTargetGroups(data, targetGroups)
-        } catch (Exception ex) {
-          log.warn("Failed to cache ${asg.autoScalingGroupName} in ${account.name}/${region}", ex)
-        }
-      }
+      cacheAutoScalingGroup(cacheData, asg, scalingPolicies, scheduledActions, subnetMap)
+    }
+    cacheData.toCacheResult([], [])
+  }
+
+  private void cacheAutoScalingGroup(ClusterCacheData cacheData,
+                                     AutoScalingGroup asg,
+                                     Map<String, List<Map>> scalingPolicies,
+                                     Map<String, List<Map>> scheduledActions,
+                                     Map<String, String> subnetMap) {
+    try {
+      AsgData data = new AsgData(asg, scalingPolicies[asg.autoScalingGroupName], scheduledActions[asg.autoScalingGroupName], account.name, region, subnetMap)
+      cacheApplication(data, cacheData.applications)
+      cacheCluster(data, cacheData.clusters)
+      cacheServerGroup(data, cacheData.serverGroups)
+      cacheLaunchConfig(data, cacheData.launchConfigs)
+      cacheInstances(data, cacheData.instances)
+      cacheLoadBalancers(data, cacheData.loadBalancers)
+      cacheTargetGroups(data, cacheData.targetGroups)
+    } catch (Exception ex) {
+      log.warn("Failed to cache ${asg.autoScalingGroupName} in ${account.name}/${region}", ex)
     }
+  }
 
-    new DefaultCacheResult([
-      (APPLICATIONS.ns)  : applications.values(),
-      (CLUSTERS.ns)      : clusters.values(),
-      (SERVER_GROUPS.ns) : serverGroups.values(),
-      (LOAD_BALANCERS.ns): loadBalancers.values(),
-      (TARGET_GROUPS.ns): targetGroups.values(),
-      (LAUNCH_CONFIGS.ns): launchConfigs.values(),
-      (INSTANCES.ns)     : instances.values(),
-      (ON_DEMAND.ns)     : onDemandCacheDataByAsg.values()
-    ], [
-      (ON_DEMAND.ns)     : evictableOnDemandCacheDataIdentifiers
-    ])
+  private void cacheOnDemandData(ClusterCacheData cacheData, CacheData onDemandCacheData) {
+    log.info("Using onDemand cache value (id: ${onDemandCacheData.id}, json: ${onDemandCacheData.attributes.cacheResults})")
+
+    Map<String, List<CacheData>> cacheResults = objectMapper.readValue(onDemandCacheData.attributes.cacheResults as String, new TypeReference<Map<String, List<MutableCacheData>>>() {
+    })
+    cache(cacheResults["applications"], cacheData.applications)
+    cache(cacheResults["clusters"], cacheData.clusters)
+    cache(cacheResults["serverGroups"], cacheData.serverGroups)
+    cache(cacheResults["loadBalancers"], cacheData.loadBalancers)
+    cache(cacheResults["targetGroups"], cacheData.targetGroups)
+    cache(cacheResults["launchConfigs"], cacheData.launchConfigs)
+    cache(cacheResults["instances"], cacheData.instances)
   }
 
   private void cache(List<CacheData> data, Map<String, CacheData> cacheDataById) {
@@ -690,9 +707,35 @@ class ClusterCachingAgent implements CachingAgent, OnDemandAgent, AccountAware,
     return flattenAutoScalingGroup(asg1) == flattenAutoScalingGroup(asg2)
   }
 
-  private static class AutoScalingGroupsResults {
-    Long start
-    List<AutoScalingGroup> asgs
+  /** The cache data built up for a region, one ASG at a time. */
+  private static class ClusterCacheData {
+    final Map<String, CacheData> applications = newCache()
+    final Map<String, CacheData> clusters = newCache()
+    final Map<String, CacheData> serverGroups = newCache()
+    final Map<String, CacheData> loadBalancers = newCache()
+    final Map<String, CacheData> targetGroups = newCache()
+    final Map<String, CacheData> launchConfigs = newCache()
+    final Map<String, CacheData> instances = newCache()
+
+    CacheResult toCacheResult(Collection<CacheData> onDemandCacheDatas,
+                              Collection<String> evictableOnDemandCacheDataIdentifiers) {
+      new DefaultCacheResult([
+        (APPLICATIONS.ns)  : applications.values(),
+        (CLUSTERS.ns)      : clusters.values(),
+        (SERVER_GROUPS.ns) : serverGroups.values(),
+        (LOAD_BALANCERS.ns): loadBalancers.values(),
+        (TARGET_GROUPS.ns): targetGroups.values(),
+        (LAUNCH_CONFIGS.ns): launchConfigs.values(),
+        (INSTANCES.ns)     : instances.values(),
+        (ON_DEMAND.ns)     : onDemandCacheDatas
+      ], [
+        (ON_DEMAND.ns)     : evictableOnDemandCacheDataIdentifiers
+      ])
+    }
+
+    private static Map<String, CacheData> newCache() {
+      [:].withDefault { String id -> new MutableCacheData(id) }
+    }
   }
 
   private static class AsgData {
@@ -24,7 +24,6 @@ import com.amazonaws.services.ec2.model.StateReason
 import com.fasterxml.jackson.core.type.TypeReference
 import com.fasterxml.jackson.databind.ObjectMapper
 import com.fasterxml.jackson.databind.SerializationFeature
-import com.google.common.collect.Lists
 import com.netflix.spectator.api.Registry
 import com.netflix.spinnaker.cats.agent.AccountAware
 import com.netflix.spinnaker.cats.agent.AgentDataType
@@ -35,12 +34,15 @@ import com.netflix.spinnaker.cats.cache.CacheData
 import com.netflix.spinnaker.cats.provider.ProviderCache
 import com.netflix.spinnaker.clouddriver.aws.security.AmazonClientProvider
 import com.netflix.spinnaker.clouddriver.aws.security.NetflixAmazonCredentials
+import com.netflix.spinnaker.clouddriver.aws.security.sdkclient.EddaStreamingClient
 import com.netflix.spinnaker.clouddriver.model.HealthState
 import com.netflix.spinnaker.clouddriver.aws.data.Keys
 import com.netflix.spinnaker.clouddriver.aws.provider.AwsProvider
 import org.slf4j.Logger
 import org.slf4j.LoggerFactory
 
+import java.util.function.Consumer
+
 import static com.netflix.spinnaker.cats.agent.AgentDataType.Authority.AUTHORITATIVE
 import static com.netflix.spinnaker.cats.agent.AgentDataType.Authority.INFORMATIVE
 import static com.netflix.spinnaker.clouddriver.core.provider.agent.Namespace.HEALTH
@@ -92,6 +94,8 @@ class InstanceCachingAgent implements CachingAgent, AccountAware, DriftMetric {
     types
   }
 
+  private static final TypeReference<Map<String, Object>> ATTRIBUTES = new TypeReference<Map<String, Object>>() {}
+
   static class MutableCacheData implements CacheData {
     final String id
     int ttlSeconds = -1
@@ -108,22 +112,6 @@ class InstanceCachingAgent implements CachingAgent, AccountAware, DriftMetric {
 
     def amazonEC2 = amazonClientProvider.getAmazonEC2(account, region)
 
-    Long start = null
-    def request = new DescribeInstancesRequest().withMaxResults(500)
-    List<Instance> awsInstances = []
-    while (true) {
-      def resp = amazonEC2.describeInstances(request)
-      if (account.eddaEnabled) {
-        start = amazonClientProvider.lastModified ?: 0
-      }
-      awsInstances.addAll(resp.reservations.collectMany { it.instances })
-      if (resp.nextToken) {
-        request.withNextToken(resp.nextToken)
-      } else {
-        break
-      }
-    }
-
     Closure<Map<String, CacheData>> cache = {
       [:].withDefault { String id -> new MutableCacheData(id) }
     }
@@ -134,25 +122,37 @@ class InstanceCachingAgent implements CachingAgent, AccountAware, DriftMetric {
 
     List<String> skipIds =  []
 
-    Lists.partition(awsInstances, 1000).each { List<Instance> partition ->
-      Map<String, Map<String, Object>> convertedInstancesById = ((List<Map>) objectMapper.convertValue(
-        partition,
-        new TypeReference<List<Map<String, Object>>>() {}
-      )).collectEntries {
-        [it.instanceId, it]
+    Closure cacheAwsInstance = { Instance instance ->
+      def data = new InstanceData(instance, account.name, region)
+      if (instances.containsKey(data.instanceId)) {
+        log.warn("Duplicate instance for ${data.instanceId}")
+      }
+      if (data.cache) {
+        cacheImage(data, images)
+        cacheServerGroup(data, serverGroups)
+        cacheInstance(data, objectMapper.convertValue(instance, ATTRIBUTES), instances)
+      } else {
+        skipIds.add(data.instance.instanceId)
       }
+    }
 
-      partition.each { Instance instance ->
-        def data = new InstanceData(instance, account.name, region)
-        if (instances.containsKey(data.instanceId)) {
-          log.warn("Duplicate instance for ${data.instanceId}")
+    Long start = null
+    if (account.eddaEnabled && amazonEC2 instanceof EddaStreamingClient) {
+      // cache each instance as it is parsed rather than holding the whole region's response
+      ((EddaStreamingClient) amazonEC2).forEach(EddaStreamingClient.INSTANCES, Instance, cacheAwsInstance as Consumer<Instance>)
+      start = amazonClientProvider.lastModified ?: 0
+    } else {
+      def request = new DescribeInstancesRequest().withMaxResults(500)
+      while (true) {
+        def resp = amazonEC2.describeInstances(request)
+        if (account.eddaEnabled) {
+          start = amazonClientProvider.lastModified ?: 0
         }
-        if (data.cache) {
-          cacheImage(data, images)
-          cacheServerGroup(data, serverGroups)
-          cacheInstance(data, convertedInstancesById.get(data.instance.instanceId), instances)
+        resp.reservations.each { it.instances.each(cacheAwsInstance) }
+        if (resp.nextToken) {
+          request.withNextToken(resp.nextToken)
         } else {
-          skipIds.add(data.instance.instanceId)
+          break
         }
       }
     }
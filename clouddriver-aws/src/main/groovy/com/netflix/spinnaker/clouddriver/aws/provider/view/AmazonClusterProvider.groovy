@@ -40,6 +40,8 @@ import static com.netflix.spinnaker.clouddriver.core.provider.agent.Namespace.*
 @Component
 class AmazonClusterProvider implements ClusterProvider<AmazonCluster>, ServerGroupProvider {
 
+  private static final int CLUSTER_PAGE_SIZE = 500
+
   private final AmazonCloudProvider amazonCloudProvider
   private final Cache cacheView
   private final AwsProvider awsProvider
@@ -62,8 +64,18 @@ class AmazonClusterProvider implements ClusterProvider<AmazonCluster>, ServerGro
 
   @Override
   Map<String, Set<AmazonCluster>> getClusters() {
-    Collection<CacheData> clusterData = cacheView.getAll(CLUSTERS.ns)
-    Collection<AmazonCluster> clusters = translateClusters(clusterData, false)
+    Collection<AmazonCluster> clusters = []
+
+    // translate one page at a time so raw cluster and server group data for every account isn't held at once
+    Iterator<CacheData> clusterData = cacheView.streamAll(CLUSTERS.ns, null, CLUSTER_PAGE_SIZE).iterator()
+    while (clusterData.hasNext()) {
+      List<CacheData> page = []
+      while (clusterData.hasNext() && page.size() < CLUSTER_PAGE_SIZE) {
+        page << clusterData.next()
+      }
+      clusters.addAll(translateClusters(page, false))
+    }
+
     mapResponse(clusters)
   }
 
@@ -30,6 +30,8 @@ public class EddaTimeoutConfig {
   private static final int EDDA_CONNECT_TIMEOUT_MILLIS = 1000;
   private static final int EDDA_CONNECT_REQUEST_TIMEOUT_MILLIS = 10000;
   private static final int EDDA_SOCKET_TIMEOUT_MILLIS = 5000;
+  private static final int EDDA_MAX_CONCURRENT_REQUESTS = 8;
+  private static final long EDDA_CONDITIONAL_REQUESTS_CACHE_BYTES = 256L * 1024 * 1024;
 
   private final long retryBase;
   private final int backoffMillis;
@@ -39,6 +41,9 @@ public class EddaTimeoutConfig {
   private final int socketTimeout;
   private final Set<String> disabledRegions;
   private boolean albEnabled;
+  private final int maxConcurrentRequests;
+  private final boolean conditionalRequests;
+  private final long conditionalRequestsCacheBytes;
 
   public EddaTimeoutConfig(
       long retryBase,
@@ -49,6 +54,32 @@ public class EddaTimeoutConfig {
       int socketTimeout,
       Collection<String> disabledRegions,
       boolean albEnabled) {
+    this(
+        retryBase,
+        backoffMillis,
+        maxAttempts,
+        connectTimeout,
+        connectionRequestTimeout,
+        socketTimeout,
+        disabledRegions,
+        albEnabled,
+        EDDA_MAX_CONCURRENT_REQUESTS,
+        true,
+        EDDA_CONDITIONAL_REQUESTS_CACHE_BYTES);
+  }
+
+  public EddaTimeoutConfig(
+      long retryBase,
+      int backoffMillis,
+      int maxAttempts,
+      int connectTimeout,
+      int connectionRequestTimeout,
+      int socketTimeout,
+      Collection<String> disabledRegions,
+      boolean albEnabled,
+      int maxConcurrentRequests,
+      boolean conditionalRequests,
+      long conditionalRequestsCacheBytes) {
     this.retryBase = retryBase;
     this.backoffMillis = backoffMillis;
     this.maxAttempts = maxAttempts;
@@ -60,6 +91,9 @@ public class EddaTimeoutConfig {
             ? Collections.emptySet()
             : Collections.unmodifiableSet(new LinkedHashSet<>(disabledRegions));
     this.albEnabled = albEnabled;
+    this.maxConcurrentRequests = Math.max(1, maxConcurrentRequests);
+    this.conditionalRequests = conditionalRequests;
+    this.conditionalRequestsCacheBytes = Math.max(0, conditionalRequestsCacheBytes);
   }
 
   public long getRetryBase() {
@@ -94,6 +128,28 @@ public class EddaTimeoutConfig {
     return albEnabled;
   }
 
+  /** The most by-id requests a single describe call sends to Edda at once. */
+  public int getMaxConcurrentRequests() {
+    return maxConcurrentRequests;
+  }
+
+  /**
+   * Whether full collection requests revalidate the previous response instead of downloading it
+   * again.
+   */
+  public boolean getConditionalRequests() {
+    return conditionalRequests;
+  }
+
+  /**
+   * The most response body bytes kept, across all accounts and regions, to revalidate collections
+   * with. Bodies are held uncompressed, and a 304 parses the kept body again, so this saves the
+   * transfer from Edda but not the deserialization.
+   */
+  public long getConditionalRequestsCacheBytes() {
+    return conditionalRequestsCacheBytes;
+  }
+
   public static class Builder {
     private long retryBase;
     private int backoffMillis;
@@ -103,6 +159,9 @@ public class EddaTimeoutConfig {
     private int socketTimeout;
     private List<String> disabledRegions;
     private boolean albEnabled;
+    private int maxConcurrentRequests;
+    private boolean conditionalRequests;
+    private long conditionalRequestsCacheBytes;
 
     public Builder() {
       this.retryBase = EDDA_RETRY_BASE_MILLIS;
@@ -113,6 +172,9 @@ public class EddaTimeoutConfig {
       this.socketTimeout = EDDA_SOCKET_TIMEOUT_MILLIS;
       this.disabledRegions = null;
       this.albEnabled = false;
+      this.maxConcurrentRequests = EDDA_MAX_CONCURRENT_REQUESTS;
+      this.conditionalRequests = true;
+      this.conditionalRequestsCacheBytes = EDDA_CONDITIONAL_REQUESTS_CACHE_BYTES;
     }
 
     public EddaTimeoutConfig build() {
@@ -124,7 +186,10 @@ public class EddaTimeoutConfig {
           connectionRequestTimeout,
           socketTimeout,
           disabledRegions,
-          albEnabled);
+          albEnabled,
+          maxConcurrentRequests,
+          conditionalRequests,
+          conditionalRequestsCacheBytes);
     }
 
     public long getRetryBase() {
@@ -190,5 +255,29 @@ public class EddaTimeoutConfig {
     public void setAlbEnabled(boolean albEnabled) {
       this.albEnabled = albEnabled;
     }
+
+    public int getMaxConcurrentRequests() {
+      return maxConcurrentRequests;
+    }
+
+    public void setMaxConcurrentRequests(int maxConcurrentRequests) {
+      this.maxConcurrentRequests = maxConcurrentRequests;
+    }
+
+    public boolean getConditionalRequests() {
+      return conditionalRequests;
+    }
+
+    public void setConditionalRequests(boolean conditionalRequests) {
+      this.conditionalRequests = conditionalRequests;
+    }
+
+    public long getConditionalRequestsCacheBytes() {
+      return conditionalRequestsCacheBytes;
+    }
+
+    public void setConditionalRequestsCacheBytes(long conditionalRequestsCacheBytes) {
+      this.conditionalRequestsCacheBytes = conditionalRequestsCacheBytes;
+    }
   }
 }
@@ -0,0 +1,195 @@
+/*
+ * Copyright 2019 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.spinnaker.clouddriver.aws.security.sdkclient;
+
+import static java.util.Objects.requireNonNull;
+
+import com.google.common.base.Ticker;
+import com.google.common.util.concurrent.RateLimiter;
+import com.netflix.spectator.api.Counter;
+import com.netflix.spinnaker.clouddriver.core.limits.ApiRequestPriority;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A rate limiter that adjusts its rate to the responses it sees (additive increase, multiplicative
+ * decrease). The rate is halved when AWS throttles a request, at most once per second so that a
+ * burst of throttled requests counts once. It then climbs back by a fixed step per second, up to
+ * its maximum, for as long as latencies stay close to their baseline.
+ *
+ * <p>Interactive requests are admitted ahead of background ones. Interactive requests reserve the
+ * next free permit, as with a plain limiter. Background requests pass through a gate first, one at
+ * a time and only while no interactive request is waiting, and then block for their permit. So at
+ * most one background reservation is ever queued ahead of an interactive request, and background
+ * requests otherwise use only the capacity interactive requests leave.
+ */
+public class AdaptiveRateLimiter {
+  private static final long ADJUSTMENT_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+  private static final double DECREASE_FACTOR = 0.5;
+  private static final double INCREASE_FRACTION = 0.05;
+  private static final double LATENCY_TOLERANCE = 2.0;
+  private static final double LATENCY_SMOOTHING = 0.2;
+  private static final double BASELINE_DRIFT = 0.01;
+
+  private final RateLimiter rateLimiter;
+  private final double minRate;
+  private final double maxRate;
+  private final double increaseStep;
+  private final boolean adaptive;
+  private final Counter throttleCounter;
+  private final Ticker ticker;
+
+  private final ReentrantLock gate = new ReentrantLock();
+  private final Condition gateOpen = gate.newCondition();
+  private int interactiveWaiting;
+  private boolean backgroundWaiting;
+
+  private volatile double rate;
+  private long lastAdjustment;
+  private long lastDecrease;
+  private double latency = -1;
+  private double baselineLatency = Double.MAX_VALUE;
+
+  /**
+   * @param rate the initial rate, in permits per second
+   * @param adaptive whether the rate adjusts at all; if not, this behaves like a plain limiter
+   */
+  public AdaptiveRateLimiter(
+      double rate, double minRate, double maxRate, boolean adaptive, Counter throttleCounter) {
+    this(rate, minRate, maxRate, adaptive, throttleCounter, Ticker.systemTicker());
+  }
+
+  /**
+   * @param ticker the time source for rate adjustments and reported waits; the underlying limiter
+   *     always paces permits in real time
+   */
+  public AdaptiveRateLimiter(
+      double rate,
+      double minRate,
+      double maxRate,
+      boolean adaptive,
+      Counter throttleCounter,
+      Ticker ticker) {
+    this.minRate = Math.min(minRate, rate);
+    this.maxRate = Math.max(maxRate, rate);
+    this.rate = rate;
+    this.increaseStep = Math.max(0.1, rate * INCREASE_FRACTION);
+    this.adaptive = adaptive;
+    this.throttleCounter = requireNonNull(throttleCounter);
+    this.ticker = requireNonNull(ticker);
+    this.rateLimiter = RateLimiter.create(rate);
+    this.lastAdjustment = ticker.read();
+    this.lastDecrease = lastAdjustment - ADJUSTMENT_INTERVAL_NANOS;
+  }
+
+  /** @return the time spent waiting for a permit, in seconds */
+  public double acquire(ApiRequestPriority priority) {
+    if (priority == ApiRequestPriority.INTERACTIVE) {
+      gate.lock();
+      try {
+        interactiveWaiting++;
+      } finally {
+        gate.unlock();
+      }
+      try {
+        return rateLimiter.acquire();
+      } finally {
+        leaveGate(true);
+      }
+    }
+
+    long start = ticker.read();
+    gate.lock();
+    try {
+      while (backgroundWaiting || interactiveWaiting > 0) {
+        gateOpen.awaitUninterruptibly();
+      }
+      backgroundWaiting = true;
+    } finally {
+      gate.unlock();
+    }
+    try {
+      rateLimiter.acquire();
+    } finally {
+      leaveGate(false);
+    }
+    return (ticker.read() - start) / 1e9;
+  }
+
+  public synchronized void onThrottled() {
+    throttleCounter.increment();
+    if (!adaptive) {
+      return;
+    }
+
+    long now = ticker.read();
+    if (now - lastDecrease < ADJUSTMENT_INTERVAL_NANOS) {
+      return;
+    }
+    lastDecrease = now;
+    lastAdjustment = now;
+    setRate(Math.max(minRate, rate * DECREASE_FACTOR));
+  }
+
+  /** @param latencyNanos how long the successful request took, retries included */
+  public synchronized void onSuccess(long latencyNanos) {
+    if (!adaptive) {
+      return;
+    }
+
+    latency =
+        latency < 0
+            ? latencyNanos
+            : latency + (latencyNanos - latency) * LATENCY_SMOOTHING;
+    // The baseline follows the smoothed latency down immediately and up only slowly.
+    baselineLatency =
+        Math.min(latency, baselineLatency + (latency - baselineLatency) * BASELINE_DRIFT);
+
+    long now = ticker.read();
+    if (now - lastAdjustment < ADJUSTMENT_INTERVAL_NANOS) {
+      return;
+    }
+    lastAdjustment = now;
+    if (rate < maxRate && latency <= baselineLatency * LATENCY_TOLERANCE) {
+      setRate(Math.min(maxRate, rate + increaseStep));
+    }
+  }
+
+  public double getRate() {
+    return rate;
+  }
+
+  private void leaveGate(boolean interactive) {
+    gate.lock();
+    try {
+      if (interactive) {
+        interactiveWaiting--;
+      } else {
+        backgroundWaiting = false;
+      }
+      gateOpen.signalAll();
+    } finally {
+      gate.unlock();
+    }
+  }
+
+  private void setRate(double rate) {
+    this.rate = rate;
+    rateLimiter.setRate(rate);
+  }
+}
@@ -32,19 +32,36 @@ import com.amazonaws.services.elasticloadbalancingv2.model.*;
 import com.amazonaws.services.elasticloadbalancingv2.model.TargetGroup;
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.JavaType;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.ImmutableMap;
 import com.netflix.spectator.api.Id;
 import com.netflix.spectator.api.Registry;
 import com.netflix.spinnaker.clouddriver.aws.security.EddaTimeoutConfig;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Field;
 import java.lang.reflect.InvocationHandler;
-import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import org.apache.http.Header;
 import org.apache.http.HttpEntity;
+import org.apache.http.HttpHeaders;
 import org.apache.http.HttpResponse;
 import org.apache.http.HttpStatus;
 import org.apache.http.client.HttpClient;
@@ -55,12 +72,25 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.web.client.HttpClientErrorException;
 
-public class AmazonClientInvocationHandler implements InvocationHandler {
+public class AmazonClientInvocationHandler implements InvocationHandler, EddaStreamingClient {
 
   private static final Logger log = LoggerFactory.getLogger(AmazonClientInvocationHandler.class);
 
   public static final ThreadLocal<Long> lastModified = new ThreadLocal<>();
 
+  private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+  private static final Object[] NO_ARGS = new Object[0];
+  private static final Map<Method, Dispatch> DISPATCH_TABLE = new ConcurrentHashMap<>();
+
+  /** Getters for the id fields of request classes, by request class and field name. */
+  private static final ClassValue<Map<String, MethodHandle>> REQUEST_ID_GETTERS =
+      new ClassValue<Map<String, MethodHandle>>() {
+        @Override
+        protected Map<String, MethodHandle> computeValue(Class<?> type) {
+          return new ConcurrentHashMap<>();
+        }
+      };
+
   private final String edda;
   private final HttpClient httpClient;
   private final Object delegate;
@@ -69,6 +99,8 @@ public class AmazonClientInvocationHandler implements InvocationHandler {
   private final EddaTimeoutConfig eddaTimeoutConfig;
   private final Registry registry;
   private final Map<String, String> metricTags;
+  private final ExecutorService requestExecutor;
+  private final EddaResponseCache responseCache;
 
   public AmazonClientInvocationHandler(
       Object delegate,
@@ -79,6 +111,34 @@ public class AmazonClientInvocationHandler implements InvocationHandler {
       EddaTimeoutConfig eddaTimeoutConfig,
       Registry registry,
       Map<String, String> metricTags) {
+    this(
+        delegate,
+        serviceName,
+        edda,
+        httpClient,
+        objectMapper,
+        eddaTimeoutConfig,
+        registry,
+        metricTags,
+        null,
+        null);
+  }
+
+  /**
+   * @param requestExecutor runs by-id requests concurrently, or null to send them one at a time
+   * @param responseCache holds collection responses to revalidate, or null to always fetch them
+   */
+  AmazonClientInvocationHandler(
+      Object delegate,
+      String serviceName,
+      String edda,
+      HttpClient httpClient,
+      ObjectMapper objectMapper,
+      EddaTimeoutConfig eddaTimeoutConfig,
+      Registry registry,
+      Map<String, String> metricTags,
+      ExecutorService requestExecutor,
+      EddaResponseCache responseCache) {
     this.edda = edda;
     this.httpClient = httpClient;
     this.objectMapper = objectMapper;
@@ -88,6 +148,9 @@ public class AmazonClientInvocationHandler implements InvocationHandler {
         eddaTimeoutConfig == null ? EddaTimeoutConfig.DEFAULT : eddaTimeoutConfig;
     this.registry = registry;
     this.metricTags = ImmutableMap.copyOf(metricTags);
+    this.requestExecutor = requestExecutor;
+    this.responseCache =
+        this.eddaTimeoutConfig.getConditionalRequests() ? responseCache : null;
   }
 
   @Override
@@ -95,26 +158,17 @@ public class AmazonClientInvocationHandler implements InvocationHandler {
     final Id id =
         registry.createId("awsClientProxy.invoke", metricTags).withTag("method", method.getName());
     final long startTime = System.nanoTime();
-    boolean wasDelegated = false;
+    final Dispatch dispatch = DISPATCH_TABLE.computeIfAbsent(method, Dispatch::resolve);
+    final boolean wasDelegated =
+        dispatch.eddaMethod == null
+            || (!eddaTimeoutConfig.getAlbEnabled()
+                && method.getDeclaringClass().equals(AmazonElasticLoadBalancing.class));
 
     try {
-      if (!eddaTimeoutConfig.getAlbEnabled()
-          && method.getDeclaringClass().equals(AmazonElasticLoadBalancing.class)) {
-        throw new NoSuchMethodException();
-      }
-      Method thisMethod =
-          this.getClass()
-              .getMethod(
-                  method.getName(),
-                  args != null && args.length > 0 ? getClassArgs(args) : new Class[0]);
-      return thisMethod.invoke(this, args);
-    } catch (NoSuchMethodException e) {
-      wasDelegated = true;
-      try {
-        return method.invoke(delegate, args);
-      } catch (InvocationTargetException ite) {
-        throw ite.getCause();
-      }
+      final Object[] arguments = args == null ? NO_ARGS : args;
+      return wasDelegated
+          ? dispatch.delegateMethod.invokeExact(delegate, arguments)
+          : dispatch.eddaMethod.invokeExact((Object) this, arguments);
     } finally {
       registry
           .timer(id.withTag("requestMode", wasDelegated ? "sdkClient" : "edda"))
@@ -122,12 +176,49 @@ public class AmazonClientInvocationHandler implements InvocationHandler {
     }
   }
 
-  static Class[] getClassArgs(Object[] args) {
-    List<Class> classes = new ArrayList<>();
-    for (Object object : args) {
-      classes.add(object.getClass());
+  /**
+   * How calls to one method of a proxied interface are served: by the method of this class with
+   * the same signature, if there is one, and by the SDK client otherwise. Both are resolved once
+   * per method, as method handles taking the target and the argument array.
+   */
+  private static class Dispatch {
+    final MethodHandle eddaMethod;
+    final MethodHandle delegateMethod;
+
+    private Dispatch(MethodHandle eddaMethod, MethodHandle delegateMethod) {
+      this.eddaMethod = eddaMethod;
+      this.delegateMethod = delegateMethod;
+    }
+
+    static Dispatch resolve(Method method) {
+      try {
+        return new Dispatch(
+            findEddaMethod(method).map(Dispatch::spread).orElse(null),
+            spread(LOOKUP.unreflect(method)));
+      } catch (IllegalAccessException e) {
+        throw new IllegalStateException("Unable to dispatch " + method, e);
+      }
+    }
+
+    private static Optional<MethodHandle> findEddaMethod(Method method) {
+      try {
+        Method eddaMethod =
+            AmazonClientInvocationHandler.class.getMethod(
+                method.getName(), method.getParameterTypes());
+        if (!method.getReturnType().isAssignableFrom(eddaMethod.getReturnType())) {
+          return Optional.empty();
+        }
+        return Optional.of(LOOKUP.unreflect(eddaMethod));
+      } catch (NoSuchMethodException | IllegalAccessException e) {
+        return Optional.empty();
+      }
+    }
+
+    private static MethodHandle spread(MethodHandle handle) {
+      return handle
+          .asSpreader(Object[].class, handle.type().parameterCount() - 1)
+          .asType(MethodType.methodType(Object.class, Object.class, Object[].class));
     }
-    return classes.toArray(new Class[classes.size()]);
   }
 
   ////////////////////////////////////
@@ -353,78 +444,305 @@ public class AmazonClientInvocationHandler implements InvocationHandler {
       final Id deserializeJsonTimer = registry.createId("edda.deserializeJson", metricTags);
       final Id resultSizeCounter = registry.createId("edda.resultSize", metricTags);
       if (ids.isEmpty()) {
-        HttpEntity entity = getHttpEntity(metricTags, object, null);
-        try {
-          final JavaType listMeta =
-              objectMapper
-                  .getTypeFactory()
-                  .constructParametrizedType(List.class, List.class, singleMeta);
-          final List<Metadata<T>> metadataResults =
-              registry
-                  .timer(deserializeJsonTimer)
-                  .record(() -> objectMapper.readValue(entity.getContent(), listMeta));
-          for (Metadata<T> meta : metadataResults) {
-            mtime = mtime == null ? meta.mtime : Math.min(mtime, meta.mtime);
-            results.add(meta.data);
-          }
-        } finally {
-          EntityUtils.consume(entity);
-        }
+        mtime = describeCollection(metricTags, object, singleMeta, deserializeJsonTimer, results);
       } else {
-        for (String id : ids) {
-          HttpEntity entity = getHttpEntity(metricTags, object, id);
-          try {
-            final Metadata<T> result =
-                registry
-                    .timer(deserializeJsonTimer)
-                    .record(() -> objectMapper.readValue(entity.getContent(), singleMeta));
-            mtime = mtime == null ? result.mtime : Math.min(mtime, result.mtime);
-            results.add(result.data);
-          } finally {
-            EntityUtils.consume(entity);
-          }
+        for (Metadata<T> result :
+            this.<T>describeByIds(
+                metricTags, object, new ArrayList<>(ids), singleMeta, deserializeJsonTimer)) {
+          mtime = mtime == null ? result.mtime : Math.min(mtime, result.mtime);
+          results.add(result.data);
         }
       }
       registry.counter(resultSizeCounter).increment(results.size());
       lastModified.set(mtime);
       return results;
     } catch (Exception e) {
-      log.error(e.getMessage() + " (retries exhausted)");
+      throw toAmazonServiceException(e, metricTags);
+    }
+  }
 
-      registry.counter(registry.createId("edda.failures", metricTags)).increment();
-      final AmazonServiceException ex =
-          new AmazonServiceException("Edda failed locating the managed objects requested.", e);
-      if (e.getCause() instanceof HttpClientErrorException) {
-        ex.setStatusCode(((HttpClientErrorException) e.getCause()).getRawStatusCode());
-      } else {
-        ex.setStatusCode(400);
+  @Override
+  public <T> void forEach(String collection, Class<T> type, Consumer<? super T> consumer) {
+    lastModified.set(null);
+    final Map<String, String> metricTags = new HashMap<>(this.metricTags);
+    metricTags.put("collection", collection);
+    metricTags.put("collectionMode", "stream");
+    try {
+      final JavaType singleMeta =
+          objectMapper
+              .getTypeFactory()
+              .constructParametrizedType(Metadata.class, Metadata.class, type);
+      final HttpEntity entity =
+          getHttpResponse(metricTags, getUrl(collection, null), null).getEntity();
+      final AtomicInteger count = new AtomicInteger();
+      try {
+        lastModified.set(
+            registry
+                .timer(registry.createId("edda.deserializeJson", metricTags))
+                .record(
+                    () ->
+                        this.<T>readCollection(
+                            entity.getContent(),
+                            singleMeta,
+                            item -> {
+                              count.incrementAndGet();
+                              try {
+                                consumer.accept(item);
+                              } catch (RuntimeException e) {
+                                throw new ConsumerException(e);
+                              }
+                            })));
+      } finally {
+        EntityUtils.consume(entity);
+      }
+      registry.counter(registry.createId("edda.resultSize", metricTags)).increment(count.get());
+    } catch (ConsumerException e) {
+      throw (RuntimeException) e.getCause();
+    } catch (Exception e) {
+      throw toAmazonServiceException(e, metricTags);
+    }
+  }
+
+  private AmazonServiceException toAmazonServiceException(
+      Exception e, Map<String, String> metricTags) {
+    log.error(e.getMessage() + " (retries exhausted)");
+
+    registry.counter(registry.createId("edda.failures", metricTags)).increment();
+    final AmazonServiceException ex =
+        new AmazonServiceException("Edda failed locating the managed objects requested.", e);
+    if (e.getCause() instanceof HttpClientErrorException) {
+      ex.setStatusCode(((HttpClientErrorException) e.getCause()).getRawStatusCode());
+    } else {
+      ex.setStatusCode(400);
+    }
+    ex.setServiceName(serviceName);
+    ex.setErrorType(AmazonServiceException.ErrorType.Unknown);
+    return ex;
+  }
+
+  /**
+   * Reads an array of Edda records one element at a time, so only the record being parsed is held
+   * in memory besides what the consumer keeps.
+   *
+   * @return the oldest mtime in the collection
+   */
+  private <T> Long readCollection(InputStream content, JavaType singleMeta, Consumer<T> consumer)
+      throws IOException {
+    Long mtime = null;
+    try (JsonParser parser = objectMapper.getFactory().createParser(content)) {
+      if (parser.nextToken() != JsonToken.START_ARRAY) {
+        throw new JsonParseException(parser, "Expected an array of Edda records");
       }
-      ex.setServiceName(serviceName);
-      ex.setErrorType(AmazonServiceException.ErrorType.Unknown);
-      throw ex;
+      while (parser.nextToken() == JsonToken.START_OBJECT) {
+        final Metadata<T> meta = objectMapper.readValue(parser, singleMeta);
+        mtime = mtime == null ? meta.mtime : Math.min(mtime, meta.mtime);
+        consumer.accept(meta.data);
+      }
+    }
+    return mtime;
+  }
+
+  /**
+   * Fetches a full collection into results. If the previous response for it carried an ETag or
+   * Last-Modified header the request is made conditional, and a 304 parses the previous response's
+   * body again rather than transferring it.
+   *
+   * @return the oldest mtime in the collection
+   */
+  private <T> Long describeCollection(
+      Map<String, String> metricTags,
+      String object,
+      JavaType singleMeta,
+      Id deserializeJsonTimer,
+      List<T> results)
+      throws Exception {
+    final String url = getUrl(object, null);
+    final EddaResponseCache.Entry previous = responseCache == null ? null : responseCache.get(url);
+    final HttpResponse response = getHttpResponse(metricTags, url, previous);
+    final Id conditionalRequests =
+        registry.createId("edda.conditionalRequests", metricTags).withTag("hit", false);
+
+    if (response.getStatusLine().getStatusCode() == HttpStatus.SC_NOT_MODIFIED) {
+      EntityUtils.consumeQuietly(response.getEntity());
+      if (previous != null) {
+        registry.counter(conditionalRequests.withTag("hit", true)).increment();
+        return registry
+            .timer(deserializeJsonTimer)
+            .record(
+                () ->
+                    this.<T>readCollection(
+                        new ByteArrayInputStream(previous.getBody()), singleMeta, results::add));
+      }
+      throw new EddaException("Edda request " + url + " was not modified but nothing was cached");
+    }
+    if (previous != null) {
+      registry.counter(conditionalRequests).increment();
+    }
+
+    final HttpEntity entity = response.getEntity();
+    try {
+      if (responseCache == null) {
+        return registry
+            .timer(deserializeJsonTimer)
+            .record(() -> this.<T>readCollection(entity.getContent(), singleMeta, results::add));
+      }
+
+      final byte[] body = EntityUtils.toByteArray(entity);
+      final Long mtime =
+          registry
+              .timer(deserializeJsonTimer)
+              .record(
+                  () ->
+                      this.<T>readCollection(
+                          new ByteArrayInputStream(body), singleMeta, results::add));
+      responseCache.put(
+          url,
+          new EddaResponseCache.Entry(
+              headerValue(response, HttpHeaders.ETAG),
+              headerValue(response, HttpHeaders.LAST_MODIFIED),
+              body));
+      return mtime;
+    } finally {
+      EntityUtils.consume(entity);
     }
   }
 
-  private static Collection<String> getRequestIds(
+  /**
+   * Fetches each id with its own request, up to {@link EddaTimeoutConfig#getMaxConcurrentRequests}
+   * at a time. Results are in the same order as the ids, and the first failure fails the call.
+   */
+  private <T> List<Metadata<T>> describeByIds(
+      Map<String, String> metricTags,
+      String object,
+      List<String> ids,
+      JavaType singleMeta,
+      Id deserializeJsonTimer)
+      throws Exception {
+    final int concurrency = Math.min(ids.size(), eddaTimeoutConfig.getMaxConcurrentRequests());
+    final Metadata<T>[] results = new Metadata[ids.size()];
+    if (requestExecutor == null || concurrency <= 1) {
+      for (int i = 0; i < ids.size(); i++) {
+        results[i] = describeById(metricTags, object, ids.get(i), singleMeta, deserializeJsonTimer);
+      }
+      return Arrays.asList(results);
+    }
+
+    final AtomicInteger next = new AtomicInteger();
+    final List<Future<?>> workers = new ArrayList<>(concurrency);
+    for (int worker = 0; worker < concurrency; worker++) {
+      workers.add(
+          requestExecutor.submit(
+              () -> {
+                int i;
+                while ((i = next.getAndIncrement()) < ids.size()) {
+                  try {
+                    results[i] =
+                        describeById(
+                            metricTags, object, ids.get(i), singleMeta, deserializeJsonTimer);
+                  } catch (Exception e) {
+                    next.set(ids.size());
+                    throw e;
+                  }
+                }
+                return null;
+              }));
+    }
+
+    try {
+      for (Future<?> worker : workers) {
+        worker.get();
+      }
+    } catch (ExecutionException e) {
+      workers.forEach(w -> w.cancel(true));
+      throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+    } catch (InterruptedException e) {
+      workers.forEach(w -> w.cancel(true));
+      Thread.currentThread().interrupt();
+      throw e;
+    }
+    return Arrays.asList(results);
+  }
+
+  private <T> Metadata<T> describeById(
+      Map<String, String> metricTags,
+      String object,
+      String id,
+      JavaType singleMeta,
+      Id deserializeJsonTimer)
+      throws Exception {
+    HttpEntity entity = getHttpEntity(metricTags, object, id);
+    try {
+      return registry
+          .timer(deserializeJsonTimer)
+          .record(() -> objectMapper.readValue(entity.getContent(), singleMeta));
+    } finally {
+      EntityUtils.consume(entity);
+    }
+  }
+
+  private static String headerValue(HttpResponse response, String name) {
+    Header header = response.getFirstHeader(name);
+    return header == null ? null : header.getValue();
+  }
+
+  @VisibleForTesting
+  static Collection<String> getRequestIds(
       AmazonWebServiceRequest request, String idFieldName) {
     if (request == null) {
       return Collections.emptySet();
     }
     try {
-      Field field = request.getClass().getDeclaredField(idFieldName);
-      field.setAccessible(true);
-      Collection<String> collection = (Collection<String>) field.get(request);
+      MethodHandle getter =
+          REQUEST_ID_GETTERS
+              .get(request.getClass())
+              .computeIfAbsent(idFieldName, name -> requestIdGetter(request.getClass(), name));
+      Object ids = getter.invokeExact((Object) request);
+      Collection<String> collection = (Collection<String>) ids;
       return collection == null ? Collections.emptySet() : collection;
+    } catch (RuntimeException | Error e) {
+      throw e;
+    } catch (Throwable t) {
+      throw new RuntimeException(t);
+    }
+  }
+
+  private static MethodHandle requestIdGetter(Class<?> requestClass, String idFieldName) {
+    try {
+      Field field = requestClass.getDeclaredField(idFieldName);
+      field.setAccessible(true);
+      return LOOKUP
+          .unreflectGetter(field)
+          .asType(MethodType.methodType(Object.class, Object.class));
     } catch (NoSuchFieldException | IllegalAccessException e) {
       throw new RuntimeException(e);
     }
   }
 
+  private String getUrl(String objectName, String key) {
+    return edda + "/REST/v2/aws/" + objectName + (key == null ? ";_expand" : "/" + key) + ";_meta";
+  }
+
   private HttpEntity getHttpEntity(Map<String, String> metricTags, String objectName, String key)
       throws EddaException {
-    final String url =
-        edda + "/REST/v2/aws/" + objectName + (key == null ? ";_expand" : "/" + key) + ";_meta";
+    return getHttpResponse(metricTags, getUrl(objectName, key), null).getEntity();
+  }
+
+  /**
+   * @param previous the previous response to revalidate, if any, in which case the response may be
+   *     a 304 without an entity
+   */
+  private HttpResponse getHttpResponse(
+      Map<String, String> metricTags, String url, EddaResponseCache.Entry previous)
+      throws EddaException {
     final HttpGet get = new HttpGet(url);
+    if (previous != null) {
+      if (previous.getETag() != null) {
+        get.setHeader(HttpHeaders.IF_NONE_MATCH, previous.getETag());
+      }
+      if (previous.getLastModified() != null) {
+        get.setHeader(HttpHeaders.IF_MODIFIED_SINCE, previous.getLastModified());
+      }
+    }
     get.setConfig(
         RequestConfig.custom()
             .setConnectTimeout(eddaTimeoutConfig.getConnectTimeout())
@@ -453,7 +771,8 @@ public class AmazonClientInvocationHandler implements InvocationHandler {
             registry.timer(httpExecuteTime).record(() -> httpClient.execute(get));
         final int statusCode = response.getStatusLine().getStatusCode();
         entity = response.getEntity();
-        if (statusCode != HttpStatus.SC_OK) {
+        if (statusCode != HttpStatus.SC_OK
+            && !(previous != null && statusCode == HttpStatus.SC_NOT_MODIFIED)) {
           lastExceptionMessage =
               response.getProtocolVersion().toString()
                   + " "
@@ -468,7 +787,7 @@ public class AmazonClientInvocationHandler implements InvocationHandler {
           throw new HttpClientErrorException(
               org.springframework.http.HttpStatus.valueOf(statusCode), lastExceptionMessage);
         } else {
-          return entity;
+          return response;
         }
       } catch (Exception e) {
         lastExceptionMessage = e.getClass().getSimpleName() + ": " + e.getMessage();
@@ -499,6 +818,13 @@ public class AmazonClientInvocationHandler implements InvocationHandler {
     throw new EddaException("Edda request " + lastUrl + " failed with " + lastExceptionMessage, ex);
   }
 
+  /** Carries an exception thrown by a streaming consumer past the Edda error handling. */
+  private static class ConsumerException extends RuntimeException {
+    ConsumerException(RuntimeException cause) {
+      super(cause);
+    }
+  }
+
   private static class Metadata<T> {
     final Long mtime;
     final T data;
@@ -17,6 +17,10 @@
 package com.netflix.spinnaker.clouddriver.aws.security.sdkclient;
 
 class EddaException extends Exception {
+  EddaException(String message) {
+    super(message);
+  }
+
   EddaException(String message, Throwable cause) {
     super(message, cause);
   }
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2019 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.spinnaker.clouddriver.aws.security.sdkclient;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The last response body for each full Edda collection, along with the validators Edda (or a cache
+ * in front of it) returned for it, so the next request for the collection can be made conditional.
+ *
+ * <p>Only the raw body is kept, and it is parsed again for every caller that gets a 304, so callers
+ * never share the (mutable) SDK objects they are handed. A 304 saves the transfer from Edda, not the
+ * deserialization. Entries are bounded by their total body size and expire when a collection
+ * hasn't been requested for a while, e.g. after an account is removed.
+ */
+class EddaResponseCache {
+  static final long DEFAULT_EXPIRE_AFTER_ACCESS_MILLIS = TimeUnit.MINUTES.toMillis(30);
+
+  private final Cache<String, Entry> entries;
+
+  EddaResponseCache(long maximumBytes) {
+    this(maximumBytes, DEFAULT_EXPIRE_AFTER_ACCESS_MILLIS);
+  }
+
+  EddaResponseCache(long maximumBytes, long expireAfterAccessMillis) {
+    this.entries =
+        Caffeine.newBuilder()
+            .maximumWeight(maximumBytes)
+            .weigher((String url, Entry entry) -> entry.getBody().length)
+            .expireAfterAccess(expireAfterAccessMillis, TimeUnit.MILLISECONDS)
+            .build();
+  }
+
+  Entry get(String url) {
+    return entries.getIfPresent(url);
+  }
+
+  void put(String url, Entry entry) {
+    if (entry.getETag() == null && entry.getLastModified() == null) {
+      // Nothing to revalidate with.
+      entries.invalidate(url);
+    } else {
+      entries.put(url, entry);
+    }
+  }
+
+  static class Entry {
+    private final String eTag;
+    private final String lastModified;
+    private final byte[] body;
+
+    Entry(String eTag, String lastModified, byte[] body) {
+      this.eTag = eTag;
+      this.lastModified = lastModified;
+      this.body = body;
+    }
+
+    String getETag() {
+      return eTag;
+    }
+
+    String getLastModified() {
+      return lastModified;
+    }
+
+    byte[] getBody() {
+      return body;
+    }
+  }
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright 2019 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.spinnaker.clouddriver.aws.security.sdkclient;
+
+import java.util.function.Consumer;
+
+/**
+ * Implemented by the client proxies of Edda enabled accounts, in addition to the AWS service
+ * interface, so callers that can process a full collection one item at a time don't need to hold
+ * the whole response in memory.
+ *
+ * <p>Callers check for it with {@code instanceof}: clients of accounts without Edda don't
+ * implement it.
+ */
+public interface EddaStreamingClient {
+  String INSTANCES = "../view/instances";
+  String AUTO_SCALING_GROUPS = "autoScalingGroups";
+
+  /**
+   * Reads a full Edda collection, passing each item to the consumer as soon as it has been parsed.
+   * As with the describe calls, the collection's last-modified time is then available from {@link
+   * AmazonClientInvocationHandler#lastModified}.
+   *
+   * <p>Streamed collections are always fetched in full, never revalidated against a previous
+   * response, since that would mean holding on to it.
+   *
+   * @param collection the Edda collection, such as {@link #INSTANCES}
+   */
+  <T> void forEach(String collection, Class<T> type, Consumer<? super T> consumer);
+}
@@ -21,12 +21,17 @@ import static java.util.Objects.requireNonNull;
 import com.amazonaws.client.builder.AwsClientBuilder;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.netflix.spectator.api.Registry;
 import com.netflix.spinnaker.clouddriver.aws.security.EddaTemplater;
 import com.netflix.spinnaker.clouddriver.aws.security.EddaTimeoutConfig;
 import com.netflix.spinnaker.clouddriver.aws.security.NetflixAmazonCredentials;
 import java.lang.reflect.Proxy;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import org.apache.http.client.HttpClient;
 
 /**
@@ -34,12 +39,20 @@ import org.apache.http.client.HttpClient;
  * delegate read requests to Edda and otherwise fallback to the underlying SDK client.
  */
 public class ProxyHandlerBuilder {
+  /**
+   * Threads shared by all accounts for concurrent by-id Edda requests. When they are all busy, a
+   * caller makes its requests on its own thread instead.
+   */
+  private static final int EDDA_REQUEST_THREADS = 64;
+
   private final AwsSdkClientSupplier awsSdkClientSupplier;
   private final HttpClient httpClient;
   private final ObjectMapper objectMapper;
   private final EddaTemplater eddaTemplater;
   private final EddaTimeoutConfig eddaTimeoutConfig;
   private final Registry registry;
+  private final ExecutorService eddaRequestExecutor;
+  private final EddaResponseCache eddaResponseCache;
 
   public ProxyHandlerBuilder(
       AwsSdkClientSupplier awsSdkClientSupplier,
@@ -53,7 +66,20 @@ public class ProxyHandlerBuilder {
     this.objectMapper = requireNonNull(objectMapper);
     this.eddaTemplater = requireNonNull(eddaTemplater);
     this.eddaTimeoutConfig = eddaTimeoutConfig;
+    this.eddaResponseCache =
+        new EddaResponseCache(eddaTimeoutConfig.getConditionalRequestsCacheBytes());
     this.registry = requireNonNull(registry);
+    ThreadPoolExecutor eddaRequestExecutor =
+        new ThreadPoolExecutor(
+            EDDA_REQUEST_THREADS,
+            EDDA_REQUEST_THREADS,
+            1,
+            TimeUnit.MINUTES,
+            new SynchronousQueue<>(),
+            new ThreadFactoryBuilder().setNameFormat("edda-request-%d").setDaemon(true).build(),
+            new ThreadPoolExecutor.CallerRunsPolicy());
+    eddaRequestExecutor.allowCoreThreadTimeOut(true);
+    this.eddaRequestExecutor = eddaRequestExecutor;
   }
 
   public <T extends AwsClientBuilder<T, U>, U> U getProxyHandler(
@@ -87,7 +113,7 @@ public class ProxyHandlerBuilder {
       return interfaceKlazz.cast(
           Proxy.newProxyInstance(
               getClass().getClassLoader(),
-              new Class[] {interfaceKlazz},
+              new Class[] {interfaceKlazz, EddaStreamingClient.class},
               getInvocationHandler(
                   delegate, interfaceKlazz.getSimpleName(), region, amazonCredentials)));
     } catch (RuntimeException re) {
@@ -115,6 +141,8 @@ public class ProxyHandlerBuilder {
         objectMapper,
         eddaTimeoutConfig,
         registry,
-        baseTags);
+        baseTags,
+        eddaRequestExecutor,
+        eddaResponseCache);
   }
 }
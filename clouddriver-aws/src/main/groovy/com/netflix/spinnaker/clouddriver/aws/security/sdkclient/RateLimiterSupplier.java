@@ -19,28 +19,32 @@ package com.netflix.spinnaker.clouddriver.aws.security.sdkclient;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
-import com.google.common.util.concurrent.RateLimiter;
+import com.netflix.spectator.api.Id;
 import com.netflix.spectator.api.Registry;
 import com.netflix.spinnaker.clouddriver.aws.AmazonCloudProvider;
 import com.netflix.spinnaker.clouddriver.core.limits.ServiceLimitConfiguration;
 import java.util.Objects;
 import java.util.concurrent.ExecutionException;
 
-/** Factory for shared RateLimiters by SDK client interface/account/region. */
+/**
+ * Factory for shared rate limiters by SDK client interface/account/region. Their current rates and
+ * the number of throttled requests they have seen are reported as metrics, tagged the same way.
+ */
 public class RateLimiterSupplier {
 
-  private final LoadingCache<RateLimitKey, RateLimiter> rateLimiters;
+  private final LoadingCache<RateLimitKey, AdaptiveRateLimiter> rateLimiters;
 
   public RateLimiterSupplier(
       ServiceLimitConfiguration serviceLimitConfiguration, Registry registry) {
     rateLimiters =
         CacheBuilder.newBuilder()
             .recordStats()
-            .build(new RateLimitCacheLoader(serviceLimitConfiguration));
+            .build(new RateLimitCacheLoader(serviceLimitConfiguration, registry));
     LoadingCacheMetrics.instrument("rateLimiterSupplier", registry, rateLimiters);
   }
 
-  public RateLimiter getRateLimiter(Class<?> implementation, String account, String region) {
+  public AdaptiveRateLimiter getRateLimiter(
+      Class<?> implementation, String account, String region) {
     try {
       return rateLimiters.get(new RateLimitKey(implementation, account, region));
     } catch (ExecutionException executionException) {
@@ -51,33 +55,69 @@ public class RateLimiterSupplier {
     }
   }
 
-  private static class RateLimitCacheLoader extends CacheLoader<RateLimitKey, RateLimiter> {
+  private static class RateLimitCacheLoader
+      extends CacheLoader<RateLimitKey, AdaptiveRateLimiter> {
     private static final double DEFAULT_LIMIT = 10.0d;
+    private static final double DEFAULT_MIN_LIMIT_FRACTION = 0.1d;
 
     private final ServiceLimitConfiguration serviceLimitConfiguration;
+    private final Registry registry;
     private final double defaultLimit;
 
-    public RateLimitCacheLoader(ServiceLimitConfiguration serviceLimitConfiguration) {
-      this(serviceLimitConfiguration, DEFAULT_LIMIT);
+    public RateLimitCacheLoader(
+        ServiceLimitConfiguration serviceLimitConfiguration, Registry registry) {
+      this(serviceLimitConfiguration, registry, DEFAULT_LIMIT);
     }
 
     public RateLimitCacheLoader(
-        ServiceLimitConfiguration serviceLimitConfiguration, double defaultLimit) {
+        ServiceLimitConfiguration serviceLimitConfiguration,
+        Registry registry,
+        double defaultLimit) {
       this.serviceLimitConfiguration = Objects.requireNonNull(serviceLimitConfiguration);
+      this.registry = Objects.requireNonNull(registry);
       this.defaultLimit = defaultLimit;
     }
 
     @Override
-    public RateLimiter load(RateLimitKey key) throws Exception {
-      double rateLimit =
-          serviceLimitConfiguration.getLimit(
-              ServiceLimitConfiguration.API_RATE_LIMIT,
-              key.implementationClass.getSimpleName(),
-              key.account,
-              AmazonCloudProvider.ID,
-              defaultLimit);
-
-      return RateLimiter.create(rateLimit);
+    public AdaptiveRateLimiter load(RateLimitKey key) throws Exception {
+      double rateLimit = getLimit(key, ServiceLimitConfiguration.API_RATE_LIMIT, defaultLimit);
+      // By default the rate only backs off from the configured limit and recovers up to it.
+      double maxRateLimit = getLimit(key, ServiceLimitConfiguration.API_RATE_LIMIT_MAX, rateLimit);
+      double minRateLimit =
+          getLimit(
+              key,
+              ServiceLimitConfiguration.API_RATE_LIMIT_MIN,
+              rateLimit * DEFAULT_MIN_LIMIT_FRACTION);
+      boolean adaptive =
+          getLimit(key, ServiceLimitConfiguration.ADAPTIVE_API_RATE_LIMIT, 1.0d) != 0.0d;
+
+      AdaptiveRateLimiter rateLimiter =
+          new AdaptiveRateLimiter(
+              rateLimit,
+              minRateLimit,
+              maxRateLimit,
+              adaptive,
+              registry.counter(metricId("amazonClientProvider.throttledRequests", key)));
+      registry.gauge(
+          metricId("amazonClientProvider.rateLimit", key), rateLimiter, AdaptiveRateLimiter::getRate);
+      return rateLimiter;
+    }
+
+    private Id metricId(String name, RateLimitKey key) {
+      return registry
+          .createId(name)
+          .withTag("clientType", key.implementationClass.getSimpleName())
+          .withTag("account", key.account)
+          .withTag("region", key.region == null ? "UNSPECIFIED" : key.region);
+    }
+
+    private double getLimit(RateLimitKey key, String limit, double defaultValue) {
+      return serviceLimitConfiguration.getLimit(
+          limit,
+          key.implementationClass.getSimpleName(),
+          key.account,
+          AmazonCloudProvider.ID,
+          defaultValue);
     }
   }
 
@@ -19,29 +19,61 @@ package com.netflix.spinnaker.clouddriver.aws.security.sdkclient;
 import static java.util.Objects.requireNonNull;
 
 import com.amazonaws.Request;
+import com.amazonaws.Response;
+import com.amazonaws.SdkBaseException;
+import com.amazonaws.handlers.HandlerAfterAttemptContext;
+import com.amazonaws.handlers.HandlerContextKey;
 import com.amazonaws.handlers.RequestHandler2;
-import com.google.common.util.concurrent.RateLimiter;
+import com.amazonaws.retry.RetryUtils;
 import com.netflix.spectator.api.Counter;
+import com.netflix.spinnaker.clouddriver.core.limits.ApiRequestPriority;
 import java.util.Objects;
 
-/** A RequestHandler that will throttle requests via the supplied RateLimiter. */
+/**
+ * A RequestHandler that will throttle requests via the supplied rate limiter, at the priority of
+ * the calling thread, and report back to it which requests AWS throttled and how long successful
+ * ones took.
+ */
 public class RateLimitingRequestHandler extends RequestHandler2 {
+  private static final HandlerContextKey<Long> START_TIME =
+      new HandlerContextKey<>("RateLimitingRequestHandler.startTime");
+
   private final Counter counter;
-  private final RateLimiter rateLimiter;
+  private final AdaptiveRateLimiter rateLimiter;
 
-  public RateLimitingRequestHandler(Counter counter, RateLimiter rateLimiter) {
+  public RateLimitingRequestHandler(Counter counter, AdaptiveRateLimiter rateLimiter) {
     this.counter = requireNonNull(counter);
     this.rateLimiter = requireNonNull(rateLimiter);
   }
 
   @Override
   public void beforeRequest(Request<?> request) {
-    double rateLimitedSeconds = rateLimiter.acquire();
+    double rateLimitedSeconds = rateLimiter.acquire(ApiRequestPriority.current());
     long rateLimitedMillis = Double.valueOf(rateLimitedSeconds * 1000).longValue();
     counter.increment(rateLimitedMillis);
+    request.addHandlerContext(START_TIME, System.nanoTime());
     super.beforeRequest(request);
   }
 
+  @Override
+  public void afterAttempt(HandlerAfterAttemptContext context) {
+    Exception exception = context.getException();
+    if (exception instanceof SdkBaseException
+        && RetryUtils.isThrottlingException((SdkBaseException) exception)) {
+      rateLimiter.onThrottled();
+    }
+    super.afterAttempt(context);
+  }
+
+  @Override
+  public void afterResponse(Request<?> request, Response<?> response) {
+    Long startTime = request.getHandlerContext(START_TIME);
+    if (startTime != null) {
+      rateLimiter.onSuccess(System.nanoTime() - startTime);
+    }
+    super.afterResponse(request, response);
+  }
+
   @Override
   public boolean equals(Object o) {
     if (this == o) return true;
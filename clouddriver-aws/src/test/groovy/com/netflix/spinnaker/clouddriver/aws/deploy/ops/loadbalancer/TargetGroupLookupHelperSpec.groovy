@@ -0,0 +1,73 @@
+/*
+ * Copyright 2019 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.spinnaker.clouddriver.aws.deploy.ops.loadbalancer
+
+import com.amazonaws.AmazonServiceException
+import com.amazonaws.services.elasticloadbalancingv2.AmazonElasticLoadBalancing
+import com.amazonaws.services.elasticloadbalancingv2.model.DescribeTargetGroupsRequest
+import com.amazonaws.services.elasticloadbalancingv2.model.DescribeTargetGroupsResult
+import com.amazonaws.services.elasticloadbalancingv2.model.TargetGroup
+import com.amazonaws.services.elasticloadbalancingv2.model.TargetGroupNotFoundException
+import com.netflix.spinnaker.clouddriver.aws.services.RegionScopedProviderFactory
+import spock.lang.Specification
+import spock.lang.Subject
+
+class TargetGroupLookupHelperSpec extends Specification {
+  def loadBalancing = Mock(AmazonElasticLoadBalancing)
+  def regionScopedProvider = Stub(RegionScopedProviderFactory.RegionScopedProvider) {
+    getAmazonElasticLoadBalancingV2(false) >> loadBalancing
+  }
+
+  @Subject
+  def helper = new TargetGroupLookupHelper()
+
+  void "target groups Edda doesn't know about are reported as unknown"() {
+    when:
+    def result = helper.getTargetGroupsByName(regionScopedProvider, ["known", "missing", "deleted"])
+
+    then:
+    1 * loadBalancing.describeTargetGroups({ it.names == ["known"] } as DescribeTargetGroupsRequest) >>
+      new DescribeTargetGroupsResult().withTargetGroups(new TargetGroup().withTargetGroupArn("arn:known"))
+    1 * loadBalancing.describeTargetGroups({ it.names == ["missing"] } as DescribeTargetGroupsRequest) >> {
+      throw amazonServiceException(404)
+    }
+    1 * loadBalancing.describeTargetGroups({ it.names == ["deleted"] } as DescribeTargetGroupsRequest) >> {
+      throw new TargetGroupNotFoundException("deleted")
+    }
+    result.targetGroupARNs == ["arn:known"] as Set
+    result.unknownTargetGroups == ["missing", "deleted"] as Set
+  }
+
+  void "other Edda failures are rethrown"() {
+    given:
+    def failure = amazonServiceException(500)
+
+    when:
+    helper.getTargetGroupsByName(regionScopedProvider, ["known"])
+
+    then:
+    1 * loadBalancing.describeTargetGroups(_) >> { throw failure }
+    def e = thrown(AmazonServiceException)
+    e.is(failure)
+  }
+
+  private static AmazonServiceException amazonServiceException(int statusCode) {
+    def e = new AmazonServiceException("Edda failed locating the managed objects requested.")
+    e.statusCode = statusCode
+    return e
+  }
+}
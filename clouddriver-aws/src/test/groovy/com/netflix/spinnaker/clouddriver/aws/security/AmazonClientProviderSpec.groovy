@@ -19,9 +19,11 @@ package com.netflix.spinnaker.clouddriver.aws.security
 import com.amazonaws.auth.AWSCredentialsProvider
 import com.amazonaws.auth.BasicAWSCredentials
 import com.amazonaws.services.autoscaling.AmazonAutoScaling
+import com.amazonaws.services.autoscaling.model.AutoScalingGroup
 import com.amazonaws.services.autoscaling.model.DescribeAutoScalingGroupsRequest
 import com.amazonaws.services.ec2.AmazonEC2
 import com.netflix.spinnaker.clouddriver.aws.TestCredential
+import com.netflix.spinnaker.clouddriver.aws.security.sdkclient.EddaStreamingClient
 import org.apache.http.Header
 import org.apache.http.HttpEntity
 import org.apache.http.HttpResponse
@@ -148,14 +150,96 @@ class AmazonClientProviderSpec extends Specification {
     1 * ec2.describeSecurityGroups()
   }
 
+  void "full collection requests revalidate the previous response"() {
+    setup:
+    def mockHttp = Mock(HttpClient)
+    def provider = new AmazonClientProvider(mockHttp)
+    def client = provider.getAutoScaling(credentialsWithEdda, "us-east-1")
+
+    when:
+    def first = client.describeAutoScalingGroups()
+
+    then:
+    1 * mockHttp.execute(_) >> { HttpGet get ->
+      assert get.getFirstHeader("If-None-Match") == null
+      getMockResponse(ARRAY_ASG_CONTENT, 200, '"v1"')
+    }
+
+    when:
+    def second = client.describeAutoScalingGroups()
+
+    then:
+    1 * mockHttp.execute(_) >> { HttpGet get ->
+      assert get.getFirstHeader("If-None-Match").value == '"v1"'
+      getMockResponse("", 304)
+    }
+    second.autoScalingGroups*.autoScalingGroupName == first.autoScalingGroups*.autoScalingGroupName
+    provider.lastModified == MTIME
+  }
+
+  void "by-id requests are sent concurrently and returned in request order"() {
+    setup:
+    def names = (0..<20).collect { "my-app-v${String.format('%03d', it)}".toString() }
+    def mockHttp = Mock(HttpClient)
+    def provider = new AmazonClientProvider(mockHttp)
+    def client = provider.getAutoScaling(credentialsWithEdda, "us-east-1")
+
+    when:
+    def result = client.describeAutoScalingGroups(new DescribeAutoScalingGroupsRequest().withAutoScalingGroupNames(names))
+
+    then:
+    20 * mockHttp.execute(_) >> { HttpGet get ->
+      def name = get.URI.rawPath.tokenize("/").last() - ";_meta"
+      Thread.sleep(new Random().nextInt(10))
+      getMockResponse('{"mtime": ' + MTIME + ', "data": { "autoScalingGroupName": "' + name + '" }}')
+    }
+    result.autoScalingGroups*.autoScalingGroupName == names
+  }
+
+  void "edda clients stream full collections one item at a time"() {
+    setup:
+    def mockHttp = Mock(HttpClient)
+    def provider = new AmazonClientProvider(mockHttp)
+    def client = provider.getAutoScaling(credentialsWithEdda, "us-east-1")
+    def names = []
+
+    when:
+    ((EddaStreamingClient) client).forEach(EddaStreamingClient.AUTO_SCALING_GROUPS, AutoScalingGroup) {
+      names << it.autoScalingGroupName
+    }
+
+    then:
+    client instanceof EddaStreamingClient
+    1 * mockHttp.execute(_) >> { HttpGet get ->
+      assert get.URI.rawPath.endsWith("autoScalingGroups;_expand;_meta")
+      getMockResponse("[$OBJECT_ASG_CONTENT, ${OBJECT_ASG_CONTENT.replace('v000', 'v001')}]")
+    }
+    names == ["my-app-v000", "my-app-v001"]
+    provider.lastModified == MTIME
+
+    when:
+    ((EddaStreamingClient) client).forEach(EddaStreamingClient.AUTO_SCALING_GROUPS, AutoScalingGroup) {
+      throw new IllegalStateException("from consumer")
+    }
+
+    then:
+    1 * mockHttp.execute(_) >> { getMockResponse() }
+    thrown(IllegalStateException)
+  }
+
   static def MTIME = 1446701217475L
   static def OBJECT_ASG_CONTENT = '{"mtime": ' + MTIME + ', "data": { "autoScalingGroupName": "my-app-v000" }}'
   static def ARRAY_ASG_CONTENT = "[$OBJECT_ASG_CONTENT]"
 
-  def getMockResponse(String content = ARRAY_ASG_CONTENT) {
+  def getMockResponse(String content = ARRAY_ASG_CONTENT, int statusCode = 200, String eTag = null) {
     def mock = Mock(HttpResponse)
     def statusLine = Mock(StatusLine)
-    statusLine.getStatusCode() >> 200
+    statusLine.getStatusCode() >> statusCode
+    if (eTag) {
+      def eTagHeader = Mock(Header)
+      eTagHeader.getValue() >> eTag
+      mock.getFirstHeader("ETag") >> eTagHeader
+    }
     mock.getStatusLine() >> statusLine
     def entity = Mock(HttpEntity)
     entity.getContent() >> { new ByteArrayInputStream(content.bytes) }
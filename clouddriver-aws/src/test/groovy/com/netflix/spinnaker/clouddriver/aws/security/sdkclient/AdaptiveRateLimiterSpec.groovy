@@ -0,0 +1,130 @@
+/*
+ * Copyright 2019 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.spinnaker.clouddriver.aws.security.sdkclient
+
+import com.google.common.base.Ticker
+import com.netflix.spectator.api.DefaultRegistry
+import com.netflix.spinnaker.clouddriver.core.limits.ApiRequestPriority
+import spock.lang.Specification
+
+import java.util.concurrent.ConcurrentLinkedQueue
+import java.util.concurrent.TimeUnit
+
+class AdaptiveRateLimiterSpec extends Specification {
+  def registry = new DefaultRegistry()
+  def throttles = registry.counter("throttles")
+
+  long nanos = 0
+  def ticker = new Ticker() {
+    @Override
+    long read() {
+      return nanos
+    }
+  }
+
+  void "backs off once per burst of throttled requests, down to its minimum"() {
+    given:
+    def limiter = new AdaptiveRateLimiter(10, 4, 10, true, throttles, ticker)
+
+    when:
+    3.times { limiter.onThrottled() }
+
+    then:
+    limiter.rate == 5
+    throttles.count() == 3
+
+    when:
+    advance(1100)
+    limiter.onThrottled()
+
+    then:
+    limiter.rate == 4
+  }
+
+  void "recovers while requests succeed at their usual latency, up to its maximum"() {
+    given:
+    def limiter = new AdaptiveRateLimiter(10, 1, 10.5, true, throttles, ticker)
+    limiter.onThrottled()
+
+    when:
+    advance(1100)
+    limiter.onSuccess(1_000_000)
+
+    then:
+    limiter.rate == 5.5
+
+    when:
+    limiter.onSuccess(1_000_000)
+
+    then: "no more than one step per second"
+    limiter.rate == 5.5
+  }
+
+  void "holds its rate while latencies are well above their baseline"() {
+    given:
+    def limiter = new AdaptiveRateLimiter(10, 1, 20, true, throttles, ticker)
+    limiter.onSuccess(1_000_000)
+
+    when:
+    advance(1100)
+    limiter.onSuccess(100_000_000)
+
+    then:
+    limiter.rate == 10
+  }
+
+  void "keeps a fixed rate when not adaptive"() {
+    given:
+    def limiter = new AdaptiveRateLimiter(10, 1, 20, false, throttles, ticker)
+
+    when:
+    limiter.onThrottled()
+    advance(1100)
+    limiter.onSuccess(1_000_000)
+
+    then:
+    limiter.rate == 10
+    throttles.count() == 1
+  }
+
+  void "interactive requests go ahead of background requests that are already waiting"() {
+    given:
+    def limiter = new AdaptiveRateLimiter(5, 5, 5, false, throttles)
+    limiter.acquire(ApiRequestPriority.INTERACTIVE)
+    def admitted = new ConcurrentLinkedQueue<String>()
+
+    when: "two background requests start waiting for permits before an interactive one"
+    def background = (1..2).collect {
+      def thread = Thread.start {
+        limiter.acquire(ApiRequestPriority.BACKGROUND)
+        admitted << "background"
+      }
+      sleep(50)
+      thread
+    }
+    limiter.acquire(ApiRequestPriority.INTERACTIVE)
+    admitted << "interactive"
+    background*.join()
+
+    then: "only the background request already holding a reservation is ahead of it"
+    admitted as List == ["background", "interactive", "background"]
+  }
+
+  private void advance(long millis) {
+    nanos += TimeUnit.MILLISECONDS.toNanos(millis)
+  }
+}
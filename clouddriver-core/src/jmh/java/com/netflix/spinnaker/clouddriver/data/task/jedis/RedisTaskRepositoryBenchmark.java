@@ -0,0 +1,145 @@
+/*
+ * Copyright 2019 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.spinnaker.clouddriver.data.task.jedis;
+
+import com.netflix.spinnaker.clouddriver.data.task.Task;
+import com.netflix.spinnaker.kork.jedis.EmbeddedRedis;
+import com.netflix.spinnaker.kork.jedis.JedisClientDelegate;
+import com.netflix.spinnaker.kork.jedis.RedisClientDelegate;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+
+/**
+ * Measures listing running tasks and reading a single task the way the task endpoints render them
+ * (status, history and results), against an embedded redis.
+ *
+ * <p>The unpipelined benchmarks use the same repository behind a client that reports no pipeline
+ * support, which is how every read used to be issued: one round trip per task and per property.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RedisTaskRepositoryBenchmark {
+
+  @Param({"100", "1000"})
+  public int runningTasks;
+
+  private EmbeddedRedis embeddedRedis;
+  private RedisTaskRepository pipelined;
+  private RedisTaskRepository unpipelined;
+  private String taskId;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    embeddedRedis = EmbeddedRedis.embed();
+    JedisPool jedisPool = (JedisPool) embeddedRedis.getPool();
+    try (Jedis jedis = jedisPool.getResource()) {
+      jedis.flushDB();
+    }
+
+    RedisClientDelegate delegate = new JedisClientDelegate(jedisPool);
+    pipelined = new RedisTaskRepository(delegate, Optional.empty());
+    unpipelined = new RedisTaskRepository(withoutPipelining(delegate), Optional.empty());
+
+    List<Object> results = new ArrayList<>();
+    results.add(Collections.singletonMap("serverGroupNames", "us-west-2:app-v001"));
+    for (int i = 0; i < runningTasks; i++) {
+      Task task = pipelined.create("INIT", "Creating task " + i);
+      task.updateStatus("DEPLOY", "Deploying");
+      task.updateStatus("DEPLOY", "Waiting for instances");
+      task.addResultObjects(results);
+      taskId = task.getId();
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    embeddedRedis.destroy();
+  }
+
+  @Benchmark
+  public void listPipelined(Blackhole blackhole) {
+    render(pipelined.list(), blackhole);
+  }
+
+  @Benchmark
+  public void listUnpipelined(Blackhole blackhole) {
+    render(unpipelined.list(), blackhole);
+  }
+
+  @Benchmark
+  public void getPipelined(Blackhole blackhole) {
+    render(pipelined.get(taskId), blackhole);
+  }
+
+  @Benchmark
+  public void getUnpipelined(Blackhole blackhole) {
+    render(unpipelined.get(taskId), blackhole);
+  }
+
+  private static void render(List<Task> tasks, Blackhole blackhole) {
+    for (Task task : tasks) {
+      render(task, blackhole);
+    }
+  }
+
+  private static void render(Task task, Blackhole blackhole) {
+    blackhole.consume(task.getStatus());
+    blackhole.consume(task.getHistory());
+    blackhole.consume(task.getResultObjects());
+  }
+
+  private static RedisClientDelegate withoutPipelining(RedisClientDelegate delegate) {
+    return (RedisClientDelegate)
+        Proxy.newProxyInstance(
+            RedisClientDelegate.class.getClassLoader(),
+            new Class<?>[] {RedisClientDelegate.class},
+            (proxy, method, args) -> {
+              if (method.getName().equals("supportsMultiKeyPipelines")) {
+                return false;
+              }
+              try {
+                return method.invoke(delegate, args);
+              } catch (InvocationTargetException e) {
+                throw e.getCause();
+              }
+            });
+  }
+}
@@ -17,14 +17,20 @@ package com.netflix.spinnaker.clouddriver.cache;
 
 import com.netflix.spinnaker.cats.agent.AgentScheduler;
 import com.netflix.spinnaker.cats.cluster.AgentIntervalProvider;
+import com.netflix.spinnaker.cats.cluster.ConsistentHashAgentSharding;
 import com.netflix.spinnaker.cats.cluster.DefaultNodeIdentity;
 import com.netflix.spinnaker.cats.cluster.NodeStatusProvider;
 import com.netflix.spinnaker.cats.redis.cluster.ClusteredAgentScheduler;
 import com.netflix.spinnaker.cats.redis.cluster.ClusteredSortAgentScheduler;
+import com.netflix.spinnaker.cats.redis.cluster.RedisNodeMembership;
+import com.netflix.spinnaker.cats.thread.AgentExecutors;
+import com.netflix.spinnaker.cats.thread.NamedThreadFactory;
 import com.netflix.spinnaker.clouddriver.core.RedisConfigurationProperties;
 import com.netflix.spinnaker.kork.dynamicconfig.DynamicConfigService;
 import com.netflix.spinnaker.kork.jedis.RedisClientDelegate;
 import java.net.URI;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
@@ -51,14 +57,34 @@ public class AgentSchedulerConfig {
       if (redisPort == -1) {
         redisPort = 6379;
       }
+      DefaultNodeIdentity nodeIdentity = new DefaultNodeIdentity(redisHost, redisPort);
+
+      RedisConfigurationProperties.ShardingConfiguration shardingConfig =
+          redisConfigurationProperties.getAgent().getSharding();
+      ConsistentHashAgentSharding sharding = null;
+      if (shardingConfig.isEnabled()) {
+        sharding =
+            new ConsistentHashAgentSharding(
+                nodeIdentity,
+                new RedisNodeMembership(
+                    redisClientDelegate,
+                    TimeUnit.SECONDS.toMillis(shardingConfig.getNodeTtlSeconds())),
+                TimeUnit.SECONDS.toMillis(shardingConfig.getHeartbeatIntervalSeconds()));
+      }
+
       return new ClusteredAgentScheduler(
           redisClientDelegate,
-          new DefaultNodeIdentity(redisHost, redisPort),
+          nodeIdentity,
           agentIntervalProvider,
           nodeStatusProvider,
+          Executors.newSingleThreadScheduledExecutor(
+              new NamedThreadFactory(ClusteredAgentScheduler.class.getSimpleName())),
+          AgentExecutors.newAgentExecutionPool(
+              "AgentExecutionAction", redisConfigurationProperties.getAgent().isVirtualThreads()),
           redisConfigurationProperties.getAgent().getEnabledPattern(),
           redisConfigurationProperties.getAgent().getAgentLockAcquisitionIntervalSeconds(),
-          dynamicConfigService);
+          dynamicConfigService,
+          sharding);
     } else if (redisConfigurationProperties.getScheduler().equalsIgnoreCase("sort")) {
       return new ClusteredSortAgentScheduler(
           jedisPool,
@@ -43,7 +43,7 @@ import java.util.concurrent.TimeUnit
 @ComponentScan([
   'com.netflix.spinnaker.clouddriver.cache',
 ])
-@EnableConfigurationProperties(CatsInMemorySearchProperties)
+@EnableConfigurationProperties([CatsInMemorySearchProperties, NearCacheProperties])
 class CacheConfig {
   @Bean
   @ConditionalOnMissingBean(NamedCacheFactory)
@@ -72,8 +72,19 @@ class CacheConfig {
 
   @Bean
   @ConditionalOnMissingBean(CatsModule)
-  CatsModule catsModule(List<Provider> providers, List<ExecutionInstrumentation> executionInstrumentation, NamedCacheFactory cacheFactory, AgentScheduler agentScheduler) {
-    new CatsModule.Builder().cacheFactory(cacheFactory).scheduler(agentScheduler).instrumentation(executionInstrumentation).build(providers)
+  CatsModule catsModule(List<Provider> providers,
+                        List<ExecutionInstrumentation> executionInstrumentation,
+                        NamedCacheFactory cacheFactory,
+                        AgentScheduler agentScheduler,
+                        NearCacheProperties nearCacheProperties,
+                        Registry registry) {
+    def builder = new CatsModule.Builder().cacheFactory(cacheFactory).scheduler(agentScheduler).instrumentation(executionInstrumentation)
+    if (nearCacheProperties.enabled) {
+      builder.nearCache(nearCacheProperties.toOptions())
+    }
+    def catsModule = builder.build(providers)
+    NearCacheMetrics.register(registry, catsModule.providerRegistry)
+    catsModule
   }
 
   @Bean
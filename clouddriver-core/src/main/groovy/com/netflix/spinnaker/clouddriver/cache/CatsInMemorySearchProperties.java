@@ -16,6 +16,9 @@
 
 package com.netflix.spinnaker.clouddriver.cache;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
 @ConfigurationProperties("caching.search.in-memory")
@@ -23,6 +26,12 @@ public class CatsInMemorySearchProperties {
   private boolean enabled = false;
   private int refreshIntervalSeconds = 30;
 
+  /**
+   * Types whose keys are indexed for in-memory search. Every refresh lists all keys of each type
+   * from the cache, so only add types that are searched often enough to be worth that.
+   */
+  private List<String> types = new ArrayList<>(Collections.singletonList("instances"));
+
   public boolean isEnabled() {
     return enabled;
   }
@@ -38,4 +47,12 @@ public class CatsInMemorySearchProperties {
   public void setRefreshIntervalSeconds(int refreshIntervalSeconds) {
     this.refreshIntervalSeconds = refreshIntervalSeconds;
   }
+
+  public List<String> getTypes() {
+    return types;
+  }
+
+  public void setTypes(List<String> types) {
+    this.types = types;
+  }
 }
@@ -16,23 +16,42 @@
 
 package com.netflix.spinnaker.clouddriver.cache
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder
 import com.netflix.spinnaker.cats.agent.Agent
 import com.netflix.spinnaker.cats.agent.AgentLock
 import com.netflix.spinnaker.cats.agent.AgentScheduler
 import com.netflix.spinnaker.cats.module.CatsModule
 import com.netflix.spinnaker.cats.provider.Provider
+import com.netflix.spinnaker.clouddriver.core.limits.ApiRequestPriority
 import groovy.util.logging.Slf4j
 import org.springframework.beans.factory.annotation.Autowired
 import org.springframework.stereotype.Component
 
+import java.util.concurrent.Callable
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Future
+import java.util.concurrent.SynchronousQueue
+import java.util.concurrent.ThreadPoolExecutor
 import java.util.concurrent.TimeUnit
 
+import static com.netflix.spinnaker.security.AuthenticatedRequest.propagate
+
 @Component
 @Slf4j
 class CatsOnDemandCacheUpdater implements OnDemandCacheUpdater {
 
+  private static final int MAX_CONCURRENT_AGENTS = 16
+
+  /**
+   * The request key that on-demand agents read the account from. Requests without it are offered to every agent; see
+   * {@link OnDemandAgentIndex#get(OnDemandAgent.OnDemandType, String, String)}.
+   */
+  private static final String ACCOUNT_KEY = "account"
+
   private final List<Provider> providers
   private final CatsModule catsModule
+  private final OnDemandAgentIndex onDemandAgentIndex
+  private final ExecutorService onDemandExecutor
 
   @Autowired
   AgentScheduler agentScheduler
@@ -41,22 +60,30 @@ class CatsOnDemandCacheUpdater implements OnDemandCacheUpdater {
   public CatsOnDemandCacheUpdater(List<Provider> providers, CatsModule catsModule) {
     this.providers = providers
     this.catsModule = catsModule
-  }
-
-  private Collection<OnDemandAgent> getOnDemandAgents() {
-    providers.collect {
-      it.agents.findAll { it instanceof OnDemandAgent } as Collection<OnDemandAgent>
-    }.flatten()
+    this.onDemandAgentIndex = new OnDemandAgentIndex(providers)
+    // when every thread is busy, the request thread handles the agent itself
+    this.onDemandExecutor = new ThreadPoolExecutor(
+      0,
+      MAX_CONCURRENT_AGENTS,
+      60L,
+      TimeUnit.SECONDS,
+      new SynchronousQueue<Runnable>(),
+      new ThreadFactoryBuilder().setNameFormat("onDemand-%d").setDaemon(true).build(),
+      new ThreadPoolExecutor.CallerRunsPolicy()
+    )
   }
 
   @Override
   boolean handles(OnDemandAgent.OnDemandType type, String cloudProvider) {
-    onDemandAgents.any { it.handles(type, cloudProvider) }
+    onDemandAgentIndex.handles(type, cloudProvider)
   }
 
   @Override
   OnDemandCacheResult handle(OnDemandAgent.OnDemandType type, String cloudProvider, Map<String, ?> data) {
-    Collection<OnDemandAgent> onDemandAgents = onDemandAgents.findAll { it.handles(type, cloudProvider) }
+    def account = data?.get(ACCOUNT_KEY)
+    Collection<OnDemandAgent> onDemandAgents = onDemandAgentIndex.get(
+      type, cloudProvider, account instanceof String ? (String) account : null
+    )
     return handle(type, onDemandAgents, data)
   }
 
@@ -65,64 +92,10 @@ class CatsOnDemandCacheUpdater implements OnDemandCacheUpdater {
     boolean hasOnDemandResults = false
     Map<String, List<String>> cachedIdentifiersByType = [:].withDefault { [] }
 
-    for (OnDemandAgent agent : onDemandAgents) {
-      try {
-        AgentLock lock = null;
-        if (agentScheduler.atomic && !(lock = agentScheduler.tryLock((Agent) agent))) {
-          hasOnDemandResults = true // force Orca to retry
-          continue;
-        }
-        final long startTime = System.nanoTime()
-        def providerCache = catsModule.getProviderRegistry().getProviderCache(agent.providerName)
-        if (agent.metricsSupport) {
-          agent.metricsSupport.countOnDemand()
-        }
-        OnDemandAgent.OnDemandResult result = agent.handle(providerCache, data)
-        if (result) {
-          if (agentScheduler.atomic && !(agentScheduler.lockValid(lock))) {
-            hasOnDemandResults = true // force Orca to retry
-            continue;
-          }
-          if (!agent.metricsSupport) {
-            continue;
-          }
-          if (result.cacheResult) {
-            boolean agentHasOnDemandResults = !(result.cacheResult.cacheResults ?: [:]).values().flatten().isEmpty() && !agentScheduler.atomic
-            if (agentHasOnDemandResults) {
-              hasOnDemandResults = true;
-              result.cacheResult.cacheResults.each { k, v ->
-                if (v) {
-                  cachedIdentifiersByType[k].addAll(v*.id)
-                }
-              }
-            }
-            agent.metricsSupport.cacheWrite {
-              if (result.cacheResult.isPartialResult()) {
-                providerCache.addCacheResult(result.sourceAgentType, result.authoritativeTypes, result.cacheResult)
-              } else {
-                providerCache.putCacheResult(result.sourceAgentType, result.authoritativeTypes, result.cacheResult)
-              }
-            }
-          }
-          if (result.evictions) {
-            agent.metricsSupport.cacheEvict {
-              result.evictions.each { String evictType, Collection<String> ids ->
-                providerCache.evictDeletedItems(evictType, ids)
-              }
-            }
-          }
-          if (agentScheduler.atomic && !(agentScheduler.tryRelease(lock))) {
-            throw new IllegalStateException("We likely just wrote stale data. If you're seeing this, file a github issue: https://github.com/spinnaker/spinnaker/issues")
-          }
-          final long elapsed = System.nanoTime() - startTime
-          agent.metricsSupport.recordTotalRunTimeNanos(elapsed)
-          log.info("$agent.providerName/$agent?.onDemandAgentType handled $type in ${TimeUnit.NANOSECONDS.toMillis(elapsed)} millis. Payload: $data")
-        }
-      } catch (e) {
-        if (agent.metricsSupport != null) {
-          agent.metricsSupport.countError()
-        }
-        log.warn("$agent.providerName/$agent.onDemandAgentType failed to handle on demand update for $type", e)
+    for (AgentOutcome outcome : handleConcurrently(type, onDemandAgents, data)) {
+      hasOnDemandResults |= outcome.hasOnDemandResults
+      outcome.cachedIdentifiersByType.each { k, v ->
+        cachedIdentifiersByType[k].addAll(v)
       }
     }
 
@@ -138,13 +111,93 @@ class CatsOnDemandCacheUpdater implements OnDemandCacheUpdater {
     )
   }
 
+  /**
+   * Each agent handles the request on its own thread, so one slow agent doesn't hold up the others. A single agent is
+   * handled on the calling thread.
+   */
+  private List<AgentOutcome> handleConcurrently(OnDemandAgent.OnDemandType type, Collection<OnDemandAgent> onDemandAgents, Map<String, ? extends Object> data) {
+    if (onDemandAgents.size() <= 1) {
+      return onDemandAgents.collect { handle(type, it, data) }
+    }
+
+    List<Future<AgentOutcome>> futures = onDemandAgents.collect { OnDemandAgent agent ->
+      onDemandExecutor.submit(propagate({ handle(type, agent, data) } as Callable<AgentOutcome>, true))
+    }
+    return futures.collect { it.get() }
+  }
+
+  private AgentOutcome handle(OnDemandAgent.OnDemandType type, OnDemandAgent agent, Map<String, ? extends Object> data) {
+    AgentOutcome outcome = new AgentOutcome()
+    try {
+      AgentLock lock = null;
+      if (agentScheduler.atomic && !(lock = agentScheduler.tryLock((Agent) agent))) {
+        outcome.hasOnDemandResults = true // force Orca to retry
+        return outcome
+      }
+      final long startTime = System.nanoTime()
+      def providerCache = catsModule.getProviderRegistry().getProviderCache(agent.providerName)
+      if (agent.metricsSupport) {
+        agent.metricsSupport.countOnDemand()
+      }
+      OnDemandAgent.OnDemandResult result = ApiRequestPriority.callWith(ApiRequestPriority.INTERACTIVE) {
+        agent.handle(providerCache, data)
+      }
+      if (result) {
+        if (agentScheduler.atomic && !(agentScheduler.lockValid(lock))) {
+          outcome.hasOnDemandResults = true // force Orca to retry
+          return outcome
+        }
+        if (!agent.metricsSupport) {
+          return outcome
+        }
+        if (result.cacheResult) {
+          boolean agentHasOnDemandResults = !(result.cacheResult.cacheResults ?: [:]).values().flatten().isEmpty() && !agentScheduler.atomic
+          if (agentHasOnDemandResults) {
+            outcome.hasOnDemandResults = true;
+            result.cacheResult.cacheResults.each { k, v ->
+              if (v) {
+                outcome.cachedIdentifiersByType[k].addAll(v*.id)
+              }
+            }
+          }
+          agent.metricsSupport.cacheWrite {
+            if (result.cacheResult.isPartialResult()) {
+              providerCache.addCacheResult(result.sourceAgentType, result.authoritativeTypes, result.cacheResult)
+            } else {
+              providerCache.putCacheResult(result.sourceAgentType, result.authoritativeTypes, result.cacheResult)
+            }
+          }
+        }
+        if (result.evictions) {
+          agent.metricsSupport.cacheEvict {
+            result.evictions.each { String evictType, Collection<String> ids ->
+              providerCache.evictDeletedItems(evictType, ids)
+            }
+          }
+        }
+        if (agentScheduler.atomic && !(agentScheduler.tryRelease(lock))) {
+          throw new IllegalStateException("We likely just wrote stale data. If you're seeing this, file a github issue: https://github.com/spinnaker/spinnaker/issues")
+        }
+        final long elapsed = System.nanoTime() - startTime
+        agent.metricsSupport.recordTotalRunTimeNanos(elapsed)
+        log.info("$agent.providerName/$agent?.onDemandAgentType handled $type in ${TimeUnit.NANOSECONDS.toMillis(elapsed)} millis. Payload: $data")
+      }
+    } catch (e) {
+      if (agent.metricsSupport != null) {
+        agent.metricsSupport.countError()
+      }
+      log.warn("$agent.providerName/$agent.onDemandAgentType failed to handle on demand update for $type", e)
+    }
+    return outcome
+  }
+
   @Override
   Collection<Map> pendingOnDemandRequests(OnDemandAgent.OnDemandType type, String cloudProvider) {
     if (agentScheduler.atomic) {
       return []
     }
 
-    Collection<OnDemandAgent> onDemandAgents = onDemandAgents.findAll { it.handles(type, cloudProvider) }
+    Collection<OnDemandAgent> onDemandAgents = onDemandAgentIndex.get(type, cloudProvider)
     return onDemandAgents.collect {
       def providerCache = catsModule.getProviderRegistry().getProviderCache(it.providerName)
       it.pendingOnDemandRequests(providerCache)
@@ -157,10 +210,15 @@ class CatsOnDemandCacheUpdater implements OnDemandCacheUpdater {
       return null
     }
 
-    Collection<OnDemandAgent> onDemandAgents = onDemandAgents.findAll { it.handles(type, cloudProvider) }
+    Collection<OnDemandAgent> onDemandAgents = onDemandAgentIndex.get(type, cloudProvider)
     return onDemandAgents.findResults {
       def providerCache = catsModule.getProviderRegistry().getProviderCache(it.providerName)
       it.pendingOnDemandRequest(providerCache, id)
     }?.getAt(0)
   }
+
+  private static class AgentOutcome {
+    boolean hasOnDemandResults = false
+    Map<String, List<String>> cachedIdentifiersByType = [:].withDefault { [] }
+  }
 }
@@ -29,10 +29,10 @@ import org.springframework.security.core.Authentication
 import org.springframework.security.core.context.SecurityContextHolder
 
 import javax.annotation.PostConstruct
+import java.util.concurrent.ConcurrentHashMap
 import java.util.concurrent.Executors
 import java.util.concurrent.ScheduledExecutorService
 import java.util.concurrent.TimeUnit
-import java.util.concurrent.atomic.AtomicReference
 
 import static com.netflix.spinnaker.clouddriver.cache.SearchableProvider.SearchableResource
 
@@ -51,9 +51,7 @@ class CatsSearchProvider implements SearchProvider, Runnable {
 
 
 
-  private final AtomicReference<Map<String, Collection<String>>> cachedIdentifiersByType = new AtomicReference(
-    [:]
-  )
+  private final Map<String, TrigramSearchIndex> searchIndexesByType = new ConcurrentHashMap<>()
 
   private final FiatPermissionEvaluator permissionEvaluator
   private final List<KeyParser> keyParsers
@@ -109,30 +107,39 @@ class CatsSearchProvider implements SearchProvider, Runnable {
   /**
    * Periodically refresh cache identifiers that can then be searched over in-memory vs. in-redis.
    *
-   * This is beneficial for sets (like instances) that may have hundreds of thousands of keys.
+   * This is beneficial for sets (like instances) that may have hundreds of thousands of keys. Each refresh still
+   * lists every key of each type from the cache, but only re-indexes keys that were added or removed since the
+   * previous one.
    */
   @Override
   void run() {
+    catsInMemorySearchProperties.types.each { refresh(it) }
+  }
+
+  private void refresh(String type) {
     try {
-      log.info("Refreshing Cached Identifiers (instances)")
-      def instanceIdentifiers = providers.findAll { provider ->
-        provider.supportsSearch('instances', Collections.emptyMap())
+      log.info("Refreshing Cached Identifiers (${type})")
+      def identifiers = providers.findAll { provider ->
+        provider.supportsSearch(type, Collections.emptyMap())
       }.collect { provider ->
         def cache = providerRegistry.getProviderCache(provider.getProviderName())
-        return cache.getIdentifiers("instances").findResults { key ->
+        return cache.getIdentifiers(type).findResults { key ->
           // Even though we don't need the parsed Map, we should still allow the provider to reject invalid keys
           if (provider.parseKey(key))
             return key?.toLowerCase()
         }
       }.flatten()
 
-      if (instanceIdentifiers) {
-        cachedIdentifiersByType.set(["instances": instanceIdentifiers])
+      if (identifiers) {
+        searchIndexesByType.computeIfAbsent(type) { new TrigramSearchIndex() }.update(identifiers)
+      } else {
+        // Don't keep serving keys of a type that no longer has any
+        searchIndexesByType.get(type)?.update([])
       }
 
-      log.info("Refreshed Cached Identifiers (found ${instanceIdentifiers.size()} instances)")
+      log.info("Refreshed Cached Identifiers (found ${identifiers.size()} ${type})")
     } catch (Exception e) {
-      log.error("Unable to refresh cached identifiers (instances)", e)
+      log.error("Unable to refresh cached identifiers (${type})", e)
     }
   }
 
@@ -278,16 +285,15 @@ class CatsSearchProvider implements SearchProvider, Runnable {
       }
 
       def identifiers
-      def cached = cachedIdentifiersByType.get()
-      if (cached.containsKey(cache)) {
+      def index = searchIndexesByType.get(cache)
+      if (index != null) {
         /**
          * Attempt an exact match of the query against any attribute of an instance key (account, region, etc.).
          *
          * This is not 100% consistent with doing `*:${cache}:*${normalizedWord}*` in redis _but_ for instances it
          * should be sufficient.
          */
-        def identifiersForCache = cached.get(cache)
-        identifiers = identifiersForCache.findAll { it.contains(normalizedWord) }
+        identifiers = index.search(normalizedWord)
       } else {
         List<SearchableProvider> validProviders = providers.findAll { it.supportsSearch(cache, filters) }
         identifiers = new HashSet<>()
@@ -0,0 +1,50 @@
+/*
+ * Copyright 2019 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.spinnaker.clouddriver.cache;
+
+import com.netflix.spectator.api.Id;
+import com.netflix.spectator.api.Registry;
+import com.netflix.spinnaker.cats.provider.NearCache;
+import com.netflix.spinnaker.cats.provider.NearCachingProviderRegistry;
+import com.netflix.spinnaker.cats.provider.ProviderRegistry;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+
+public class NearCacheMetrics {
+  public static void register(Registry registry, ProviderRegistry providerRegistry) {
+    if (!(providerRegistry instanceof NearCachingProviderRegistry)) {
+      return;
+    }
+
+    Set<NearCache> registered = Collections.newSetFromMap(new IdentityHashMap<>());
+    for (Map.Entry<String, NearCache> entry :
+        ((NearCachingProviderRegistry) providerRegistry).getNearCaches().entrySet()) {
+      NearCache nearCache = entry.getValue();
+      if (!registered.add(nearCache)) {
+        continue;
+      }
+
+      Id id = registry.createId("cats.nearCache").withTag("provider", entry.getKey());
+      registry.gauge(id.withTag("stat", "hitCount"), nearCache, NearCache::hitCount);
+      registry.gauge(id.withTag("stat", "missCount"), nearCache, NearCache::missCount);
+      registry.gauge(id.withTag("stat", "evictionCount"), nearCache, NearCache::evictionCount);
+      registry.gauge(id.withTag("stat", "size"), nearCache, NearCache::estimatedSize);
+    }
+  }
+}
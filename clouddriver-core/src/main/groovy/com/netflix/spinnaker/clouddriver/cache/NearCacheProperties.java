@@ -0,0 +1,62 @@
+/*
+ * Copyright 2019 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.spinnaker.clouddriver.cache;
+
+import com.netflix.spinnaker.cats.provider.NearCache;
+import java.util.concurrent.TimeUnit;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Configures an in-process near cache in front of provider caches. Reads served from the near
+ * cache may be up to expireAfterWriteSeconds behind writes made by other clouddriver instances.
+ */
+@ConfigurationProperties("caching.near-cache")
+public class NearCacheProperties {
+  private boolean enabled = false;
+  private long maximumItems = 100_000;
+  private long expireAfterWriteSeconds = 10;
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  public void setEnabled(boolean enabled) {
+    this.enabled = enabled;
+  }
+
+  public long getMaximumItems() {
+    return maximumItems;
+  }
+
+  public void setMaximumItems(long maximumItems) {
+    this.maximumItems = maximumItems;
+  }
+
+  public long getExpireAfterWriteSeconds() {
+    return expireAfterWriteSeconds;
+  }
+
+  public void setExpireAfterWriteSeconds(long expireAfterWriteSeconds) {
+    this.expireAfterWriteSeconds = expireAfterWriteSeconds;
+  }
+
+  public NearCache.Options toOptions() {
+    return new NearCache.Options()
+        .maximumItems(maximumItems)
+        .expireAfterWrite(expireAfterWriteSeconds, TimeUnit.SECONDS);
+  }
+}
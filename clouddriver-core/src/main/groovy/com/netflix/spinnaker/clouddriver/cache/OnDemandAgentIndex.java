@@ -0,0 +1,199 @@
+/*
+ * Copyright 2019 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.spinnaker.clouddriver.cache;
+
+import com.netflix.spinnaker.cats.agent.AccountAware;
+import com.netflix.spinnaker.cats.agent.Agent;
+import com.netflix.spinnaker.cats.provider.Provider;
+import com.netflix.spinnaker.clouddriver.security.ProviderUtils;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Finds the on-demand agents that handle a given type, cloud provider and account without asking
+ * every agent.
+ *
+ * <p>Which agents handle a type and cloud provider is worked out the first time it's asked for,
+ * then remembered. Agents that are {@link AccountAware} are further indexed by account. Everything
+ * is rebuilt when agents are rescheduled or deregistered through {@link ProviderUtils}, or when the
+ * number of agents a provider has changes.
+ */
+class OnDemandAgentIndex {
+  private final List<Provider> providers;
+  private volatile Snapshot snapshot;
+
+  OnDemandAgentIndex(List<Provider> providers) {
+    this.providers = providers;
+  }
+
+  /** Every on-demand agent that handles the type and cloud provider. */
+  Collection<OnDemandAgent> get(OnDemandAgent.OnDemandType type, String cloudProvider) {
+    return current().routes(type, cloudProvider).all;
+  }
+
+  /**
+   * The on-demand agents that handle the type and cloud provider and could handle the account: the
+   * ones for that account, and any that aren't tied to an account. A null account matches every
+   * agent.
+   *
+   * <p>Callers must only pass an account when they know the agents would filter on it themselves,
+   * since an agent left out here never sees the request. {@link CatsOnDemandCacheUpdater} uses the
+   * request's {@code account} value, which is what on-demand agents match against; a request that
+   * names its account under any other key (e.g. {@code credentials}, as CloudFormation refreshes
+   * do) has no account here and goes to every agent.
+   */
+  Collection<OnDemandAgent> get(
+      OnDemandAgent.OnDemandType type, String cloudProvider, String account) {
+    Routes routes = current().routes(type, cloudProvider);
+    if (account == null) {
+      return routes.all;
+    }
+
+    List<OnDemandAgent> forAccount =
+        routes.byAccount.getOrDefault(account, Collections.emptyList());
+    if (routes.anyAccount.isEmpty()) {
+      return forAccount;
+    }
+    if (forAccount.isEmpty()) {
+      return routes.anyAccount;
+    }
+
+    List<OnDemandAgent> result = new ArrayList<>(forAccount.size() + routes.anyAccount.size());
+    result.addAll(forAccount);
+    result.addAll(routes.anyAccount);
+    return result;
+  }
+
+  boolean handles(OnDemandAgent.OnDemandType type, String cloudProvider) {
+    return !get(type, cloudProvider).isEmpty();
+  }
+
+  private Snapshot current() {
+    long generation = ProviderUtils.getAgentsGeneration();
+    int[] sizes = agentCounts();
+
+    Snapshot current = snapshot;
+    if (current == null
+        || current.generation != generation
+        || !Arrays.equals(current.sizes, sizes)) {
+      current = new Snapshot(generation, sizes, onDemandAgents());
+      snapshot = current;
+    }
+    return current;
+  }
+
+  private int[] agentCounts() {
+    int[] sizes = new int[providers.size()];
+    for (int i = 0; i < sizes.length; i++) {
+      Collection<Agent> agents = providers.get(i).getAgents();
+      sizes[i] = agents == null ? 0 : agents.size();
+    }
+    return sizes;
+  }
+
+  private List<OnDemandAgent> onDemandAgents() {
+    List<OnDemandAgent> result = new ArrayList<>();
+    for (Provider provider : providers) {
+      Collection<Agent> agents = provider.getAgents();
+      if (agents == null) {
+        continue;
+      }
+      for (Agent agent : agents) {
+        if (agent instanceof OnDemandAgent) {
+          result.add((OnDemandAgent) agent);
+        }
+      }
+    }
+    return result;
+  }
+
+  private static class Snapshot {
+    private final long generation;
+    private final int[] sizes;
+    private final List<OnDemandAgent> agents;
+    private final Map<RouteKey, Routes> routes = new ConcurrentHashMap<>();
+
+    private Snapshot(long generation, int[] sizes, List<OnDemandAgent> agents) {
+      this.generation = generation;
+      this.sizes = sizes;
+      this.agents = agents;
+    }
+
+    private Routes routes(OnDemandAgent.OnDemandType type, String cloudProvider) {
+      return routes.computeIfAbsent(
+          new RouteKey(type, cloudProvider), k -> new Routes(agents, type, cloudProvider));
+    }
+  }
+
+  private static class Routes {
+    private final List<OnDemandAgent> all = new ArrayList<>();
+    private final Map<String, List<OnDemandAgent>> byAccount = new HashMap<>();
+    private final List<OnDemandAgent> anyAccount = new ArrayList<>();
+
+    private Routes(
+        List<OnDemandAgent> agents, OnDemandAgent.OnDemandType type, String cloudProvider) {
+      for (OnDemandAgent agent : agents) {
+        if (!agent.handles(type, cloudProvider)) {
+          continue;
+        }
+
+        all.add(agent);
+        String account =
+            agent instanceof AccountAware ? ((AccountAware) agent).getAccountName() : null;
+        if (account == null) {
+          anyAccount.add(agent);
+        } else {
+          byAccount.computeIfAbsent(account, a -> new ArrayList<>()).add(agent);
+        }
+      }
+    }
+  }
+
+  private static class RouteKey {
+    private final OnDemandAgent.OnDemandType type;
+    private final String cloudProvider;
+
+    private RouteKey(OnDemandAgent.OnDemandType type, String cloudProvider) {
+      this.type = type;
+      this.cloudProvider = cloudProvider;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      RouteKey routeKey = (RouteKey) o;
+      return type == routeKey.type && Objects.equals(cloudProvider, routeKey.cloudProvider);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(type, cloudProvider);
+    }
+  }
+}
@@ -0,0 +1,184 @@
+/*
+ * Copyright 2019 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.spinnaker.clouddriver.cache;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * An in-memory substring index over cache keys.
+ *
+ * <p>Every key is assigned an increasing id and added to the posting list of each of its
+ * trigrams, so posting lists stay sorted without ever being re-sorted. A query intersects the
+ * posting lists of its own trigrams, then confirms each candidate with {@link String#contains}.
+ * Queries shorter than a trigram fall back to a scan.
+ *
+ * <p>{@link #update} applies only the difference from the previous set of keys. Removed keys are
+ * tombstoned and left in their posting lists until they outnumber live keys, at which point the
+ * index is rebuilt.
+ */
+public class TrigramSearchIndex {
+  private static final int MIN_REBUILD_TOMBSTONES = 1024;
+
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+  private final List<String> keys = new ArrayList<>();
+  private final Map<String, Integer> ids = new HashMap<>();
+  private final Map<Long, IntList> postings = new HashMap<>();
+  private int tombstones = 0;
+
+  /** Replaces the indexed keys with the given keys, indexing only those that changed. */
+  public void update(Collection<String> current) {
+    Set<String> next = new HashSet<>(current);
+
+    lock.writeLock().lock();
+    try {
+      Iterator<Map.Entry<String, Integer>> it = ids.entrySet().iterator();
+      while (it.hasNext()) {
+        Map.Entry<String, Integer> entry = it.next();
+        if (!next.contains(entry.getKey())) {
+          keys.set(entry.getValue(), null);
+          tombstones++;
+          it.remove();
+        }
+      }
+
+      for (String key : next) {
+        if (!ids.containsKey(key)) {
+          add(key);
+        }
+      }
+
+      if (tombstones > MIN_REBUILD_TOMBSTONES && tombstones > ids.size()) {
+        rebuild();
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /** @return every indexed key containing the given term, in no particular order */
+  public List<String> search(String term) {
+    lock.readLock().lock();
+    try {
+      if (term.length() < 3) {
+        List<String> matches = new ArrayList<>();
+        for (String key : ids.keySet()) {
+          if (key.contains(term)) {
+            matches.add(key);
+          }
+        }
+        return matches;
+      }
+
+      long[] trigrams = trigrams(term);
+      IntList[] lists = new IntList[trigrams.length];
+      for (int i = 0; i < trigrams.length; i++) {
+        lists[i] = postings.get(trigrams[i]);
+        if (lists[i] == null) {
+          return Collections.emptyList();
+        }
+      }
+      Arrays.sort(lists, (a, b) -> Integer.compare(a.size, b.size));
+
+      List<String> matches = new ArrayList<>();
+      IntList smallest = lists[0];
+      candidates:
+      for (int i = 0; i < smallest.size; i++) {
+        int id = smallest.values[i];
+        for (int j = 1; j < lists.length; j++) {
+          if (!lists[j].contains(id)) {
+            continue candidates;
+          }
+        }
+        String key = keys.get(id);
+        if (key != null && key.contains(term)) {
+          matches.add(key);
+        }
+      }
+      return matches;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  public int size() {
+    lock.readLock().lock();
+    try {
+      return ids.size();
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  private void add(String key) {
+    int id = keys.size();
+    keys.add(key);
+    ids.put(key, id);
+    for (long trigram : trigrams(key)) {
+      postings.computeIfAbsent(trigram, t -> new IntList()).add(id);
+    }
+  }
+
+  private void rebuild() {
+    List<String> live = new ArrayList<>(ids.keySet());
+    keys.clear();
+    ids.clear();
+    postings.clear();
+    tombstones = 0;
+    live.forEach(this::add);
+  }
+
+  private static long[] trigrams(String value) {
+    if (value.length() < 3) {
+      return new long[0];
+    }
+    long[] trigrams = new long[value.length() - 2];
+    for (int i = 0; i < trigrams.length; i++) {
+      trigrams[i] =
+          ((long) value.charAt(i) << 32) | ((long) value.charAt(i + 1) << 16) | value.charAt(i + 2);
+    }
+    return Arrays.stream(trigrams).distinct().toArray();
+  }
+
+  /** A growable list of ids, which are only ever appended in increasing order. */
+  private static class IntList {
+    private int[] values = new int[4];
+    private int size = 0;
+
+    void add(int value) {
+      if (size == values.length) {
+        values = Arrays.copyOf(values, size * 2);
+      }
+      values[size++] = value;
+    }
+
+    boolean contains(int value) {
+      return Arrays.binarySearch(values, 0, size, value) >= 0;
+    }
+  }
+}
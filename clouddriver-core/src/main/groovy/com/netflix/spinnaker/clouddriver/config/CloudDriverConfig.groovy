@@ -291,8 +291,16 @@ class CloudDriverConfig {
   @Bean
   ProjectClustersService projectClustersService(Front50Service front50Service,
                                                 ObjectMapper objectMapper,
-                                                Provider<List<ClusterProvider>> clusterProviders) {
-    return new ProjectClustersService(front50Service, objectMapper, clusterProviders)
+                                                Provider<List<ClusterProvider>> clusterProviders,
+                                                Registry registry,
+                                                ProjectClustersCachingAgentProperties projectClustersCachingAgentProperties) {
+    return new ProjectClustersService(
+      front50Service,
+      objectMapper,
+      clusterProviders,
+      registry,
+      projectClustersCachingAgentProperties.maxConcurrencyPerProvider
+    )
   }
 
   @Bean
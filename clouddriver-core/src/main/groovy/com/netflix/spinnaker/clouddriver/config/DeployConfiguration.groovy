@@ -16,6 +16,7 @@
 
 package com.netflix.spinnaker.clouddriver.config
 
+import com.netflix.spectator.api.Registry
 import com.netflix.spinnaker.clouddriver.data.task.InMemoryTaskRepository
 import com.netflix.spinnaker.clouddriver.data.task.TaskRepository
 import com.netflix.spinnaker.clouddriver.deploy.DefaultDeployHandlerRegistry
@@ -25,12 +26,15 @@ import com.netflix.spinnaker.clouddriver.deploy.NullOpDeployHandler
 import com.netflix.spinnaker.clouddriver.orchestration.AnnotationsBasedAtomicOperationsRegistry
 import com.netflix.spinnaker.clouddriver.orchestration.AtomicOperationsRegistry
 import com.netflix.spinnaker.clouddriver.orchestration.DefaultOrchestrationProcessor
+import com.netflix.spinnaker.clouddriver.orchestration.OrchestrationExecutor
 import com.netflix.spinnaker.clouddriver.orchestration.OrchestrationProcessor
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean
+import org.springframework.boot.context.properties.EnableConfigurationProperties
 import org.springframework.context.annotation.Bean
 import org.springframework.context.annotation.Configuration
 
 @Configuration
+@EnableConfigurationProperties(OrchestrationExecutorProperties)
 class DeployConfiguration {
   @Bean
   @ConditionalOnMissingBean(TaskRepository)
@@ -46,8 +50,8 @@ class DeployConfiguration {
 
   @Bean
   @ConditionalOnMissingBean(OrchestrationProcessor)
-  OrchestrationProcessor orchestrationProcessor() {
-    new DefaultOrchestrationProcessor()
+  OrchestrationProcessor orchestrationProcessor(Registry registry, OrchestrationExecutorProperties properties) {
+    new DefaultOrchestrationProcessor(new OrchestrationExecutor(registry, properties))
   }
 
   @Bean
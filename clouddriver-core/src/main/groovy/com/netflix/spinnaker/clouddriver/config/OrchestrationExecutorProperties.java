@@ -0,0 +1,132 @@
+/*
+ * Copyright 2019 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.spinnaker.clouddriver.config;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Bounds how many orchestrations run at once and how many may wait for a thread.
+ *
+ * <p>Limits of 0 are unlimited, and every limit defaults to 0, so orchestrations start as soon as
+ * they're submitted unless a limit is configured. Per cloud provider and per account limits apply
+ * on top of {@code maxConcurrentOrchestrations}, and can be overridden for individual providers or
+ * accounts.
+ */
+@ConfigurationProperties("orchestration.executor")
+public class OrchestrationExecutorProperties {
+
+  /** Orchestrations running at once, across all providers and accounts. */
+  private int maxConcurrentOrchestrations = 0;
+
+  /** Orchestrations waiting for a thread before new ones are rejected. */
+  private int queueCapacity = 1000;
+
+  private int maxConcurrentPerCloudProvider = 0;
+  private Map<String, Integer> cloudProviderLimits = new HashMap<>();
+
+  private int maxConcurrentPerAccount = 0;
+  private Map<String, Integer> accountLimits = new HashMap<>();
+
+  /**
+   * Run each orchestration on its own virtual thread if the runtime supports them; otherwise they
+   * run on a cached pool of platform threads.
+   */
+  private boolean virtualThreads = true;
+
+  /**
+   * Orchestrations containing an operation whose class name starts with one of these are run ahead
+   * of anything else waiting, so that e.g. a rollback doesn't queue up behind deploys.
+   */
+  private List<String> priorityOperations =
+      new ArrayList<>(Arrays.asList("Rollback", "Enable", "Disable", "Resize"));
+
+  public int getMaxConcurrentOrchestrations() {
+    return maxConcurrentOrchestrations;
+  }
+
+  public void setMaxConcurrentOrchestrations(int maxConcurrentOrchestrations) {
+    this.maxConcurrentOrchestrations = maxConcurrentOrchestrations;
+  }
+
+  public int getQueueCapacity() {
+    return queueCapacity;
+  }
+
+  public void setQueueCapacity(int queueCapacity) {
+    this.queueCapacity = queueCapacity;
+  }
+
+  public boolean isVirtualThreads() {
+    return virtualThreads;
+  }
+
+  public void setVirtualThreads(boolean virtualThreads) {
+    this.virtualThreads = virtualThreads;
+  }
+
+  public int getMaxConcurrentPerCloudProvider() {
+    return maxConcurrentPerCloudProvider;
+  }
+
+  public void setMaxConcurrentPerCloudProvider(int maxConcurrentPerCloudProvider) {
+    this.maxConcurrentPerCloudProvider = maxConcurrentPerCloudProvider;
+  }
+
+  public Map<String, Integer> getCloudProviderLimits() {
+    return cloudProviderLimits;
+  }
+
+  public void setCloudProviderLimits(Map<String, Integer> cloudProviderLimits) {
+    this.cloudProviderLimits = cloudProviderLimits;
+  }
+
+  public int getMaxConcurrentPerAccount() {
+    return maxConcurrentPerAccount;
+  }
+
+  public void setMaxConcurrentPerAccount(int maxConcurrentPerAccount) {
+    this.maxConcurrentPerAccount = maxConcurrentPerAccount;
+  }
+
+  public Map<String, Integer> getAccountLimits() {
+    return accountLimits;
+  }
+
+  public void setAccountLimits(Map<String, Integer> accountLimits) {
+    this.accountLimits = accountLimits;
+  }
+
+  public List<String> getPriorityOperations() {
+    return priorityOperations;
+  }
+
+  public void setPriorityOperations(List<String> priorityOperations) {
+    this.priorityOperations = priorityOperations;
+  }
+
+  public int getCloudProviderLimit(String cloudProvider) {
+    return cloudProviderLimits.getOrDefault(cloudProvider, maxConcurrentPerCloudProvider);
+  }
+
+  public int getAccountLimit(String account) {
+    return accountLimits.getOrDefault(account, maxConcurrentPerAccount);
+  }
+}
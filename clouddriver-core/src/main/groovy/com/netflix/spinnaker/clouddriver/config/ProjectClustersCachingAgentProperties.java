@@ -27,6 +27,9 @@ public class ProjectClustersCachingAgentProperties {
   /** A list of allowed project names that will be cached. */
   List<String> allowList = new ArrayList<>();
 
+  /** How many applications are read from each cluster provider at the same time. */
+  int maxConcurrencyPerProvider = 4;
+
   public List<String> getAllowList() {
     return allowList;
   }
@@ -35,6 +38,14 @@ public class ProjectClustersCachingAgentProperties {
     this.allowList = allowList;
   }
 
+  public int getMaxConcurrencyPerProvider() {
+    return maxConcurrencyPerProvider;
+  }
+
+  public void setMaxConcurrencyPerProvider(int maxConcurrencyPerProvider) {
+    this.maxConcurrencyPerProvider = maxConcurrencyPerProvider;
+  }
+
   public List<String> getNormalizedAllowList() {
     return allowList.stream()
         .filter(p -> !Strings.isNullOrEmpty(p))
@@ -18,12 +18,25 @@ package com.netflix.spinnaker.clouddriver.core;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.base.Throwables;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.netflix.frigga.Names;
+import com.netflix.spectator.api.Id;
+import com.netflix.spectator.api.NoopRegistry;
+import com.netflix.spectator.api.Registry;
 import com.netflix.spinnaker.clouddriver.core.services.Front50Service;
+import com.netflix.spinnaker.clouddriver.model.BatchingClusterProvider;
 import com.netflix.spinnaker.clouddriver.model.Cluster;
 import com.netflix.spinnaker.clouddriver.model.ClusterProvider;
 import com.netflix.spinnaker.clouddriver.model.ServerGroup;
+import com.netflix.spinnaker.security.AuthenticatedRequest;
 import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
 import javax.annotation.Nonnull;
@@ -38,15 +51,36 @@ public class ProjectClustersService {
   private final Front50Service front50Service;
   private final ObjectMapper objectMapper;
   private final Provider<List<ClusterProvider>> clusterProviders;
+  private final Registry registry;
+  private final int maxConcurrencyPerProvider;
+  private final ExecutorService executor;
 
   public ProjectClustersService(
       Front50Service front50Service,
       ObjectMapper objectMapper,
       Provider<List<ClusterProvider>> clusterProviders) {
+    this(front50Service, objectMapper, clusterProviders, new NoopRegistry(), 4);
+  }
+
+  /**
+   * @param maxConcurrencyPerProvider how many applications are read from each cluster provider at
+   *     the same time. Providers are always read in parallel with each other.
+   */
+  public ProjectClustersService(
+      Front50Service front50Service,
+      ObjectMapper objectMapper,
+      Provider<List<ClusterProvider>> clusterProviders,
+      Registry registry,
+      int maxConcurrencyPerProvider) {
     this.front50Service = front50Service;
     this.objectMapper =
         objectMapper.copy().disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
     this.clusterProviders = clusterProviders;
+    this.registry = registry;
+    this.maxConcurrencyPerProvider = Math.max(1, maxConcurrencyPerProvider);
+    this.executor =
+        Executors.newCachedThreadPool(
+            new ThreadFactoryBuilder().setNameFormat("projectClusters-%d").setDaemon(true).build());
   }
 
   public Map<String, List<ClusterModel>> getProjectClusters(List<String> projectNames) {
@@ -128,20 +162,75 @@ public class ProjectClustersService {
         .collect(Collectors.toList());
   }
 
+  /**
+   * Reads the clusters of every application from every provider. Each provider gets its own
+   * workers, at most {@code maxConcurrencyPerProvider} of them, which take applications off a
+   * shared queue; so a slow provider doesn't hold up the others, and a project takes about as long
+   * as its slowest provider.
+   */
   private Map<String, Set<Cluster>> retrieveClusters(List<String> applications, Project project) {
-    Map<String, Set<Cluster>> allClusters = new HashMap<>();
+    List<Future<List<RetrievedClusters>>> futures = new ArrayList<>();
+    for (ClusterProvider clusterProvider : clusterProviders.get()) {
+      Queue<String> pending = new ConcurrentLinkedQueue<>(applications);
+      int workers = Math.min(maxConcurrencyPerProvider, applications.size());
+      for (int i = 0; i < workers; i++) {
+        futures.add(
+            executor.submit(
+                AuthenticatedRequest.propagate(
+                    () -> retrieveClusters(clusterProvider, pending, project), true)));
+      }
+    }
 
-    for (String application : applications) {
-      for (RetrievedClusters clusters : retrieveClusters(application, project)) {
-        allClusters
-            .computeIfAbsent(clusters.application, s -> new HashSet<>())
-            .addAll(clusters.clusters);
+    Map<String, Set<Cluster>> allClusters = new HashMap<>();
+    try {
+      for (Future<List<RetrievedClusters>> future : futures) {
+        for (RetrievedClusters clusters : future.get()) {
+          allClusters
+              .computeIfAbsent(clusters.application, s -> new HashSet<>())
+              .addAll(clusters.clusters);
+        }
       }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException(
+          "Interrupted while retrieving clusters for project " + project.name, e);
+    } catch (ExecutionException e) {
+      Throwables.throwIfUnchecked(e.getCause());
+      throw new IllegalStateException(
+          "Unable to retrieve clusters for project " + project.name, e.getCause());
+    } finally {
+      // Only does anything if a provider failed; there's no use finishing the others.
+      futures.forEach(f -> f.cancel(true));
     }
 
     return allClusters;
   }
 
+  private List<RetrievedClusters> retrieveClusters(
+      ClusterProvider clusterProvider, Queue<String> applications, Project project) {
+    Id timerId =
+        registry
+            .createId("projectClusters.retrieveClusters")
+            .withTag("provider", clusterProvider.getClass().getSimpleName());
+
+    List<RetrievedClusters> result = new ArrayList<>();
+    String application;
+    while ((application = applications.poll()) != null) {
+      long start = registry.clock().monotonicTime();
+      try {
+        RetrievedClusters clusters = retrieveClusters(clusterProvider, application, project);
+        if (clusters != null) {
+          result.add(clusters);
+        }
+      } finally {
+        registry
+            .timer(timerId)
+            .record(registry.clock().monotonicTime() - start, TimeUnit.NANOSECONDS);
+      }
+    }
+    return result;
+  }
+
   private Set<Cluster> findClustersForProject(
       Set<Cluster> appClusters, ProjectCluster projectCluster) {
     if (appClusters == null || appClusters.isEmpty()) {
@@ -159,39 +248,58 @@ public class ProjectClustersService {
         .collect(Collectors.toSet());
   }
 
-  private List<RetrievedClusters> retrieveClusters(String application, Project project) {
-    return clusterProviders.get().stream()
-        .map(
-            clusterProvider -> {
-              Map<String, Set<Cluster>> clusterSummariesByAccount =
-                  clusterProvider.getClusterSummaries(application);
-              if (clusterSummariesByAccount == null) {
-                return null;
-              }
-
-              Set<Cluster> allClusterSummaries =
-                  clusterSummariesByAccount.values().stream()
-                      .flatMap(Collection::stream)
-                      .collect(Collectors.toSet());
-
-              Set<Cluster> matchingClusterSummaries = new HashSet<>();
-              for (ProjectCluster projectCluster : project.config.clusters) {
-                matchingClusterSummaries.addAll(
-                    findClustersForProject(allClusterSummaries, projectCluster));
-              }
-
-              Set<Cluster> expandedClusters =
-                  matchingClusterSummaries.stream()
-                      .map(
-                          c ->
-                              clusterProvider.getCluster(
-                                  c.getMoniker().getApp(), c.getAccountName(), c.getName()))
-                      .collect(Collectors.toSet());
+  private RetrievedClusters retrieveClusters(
+      ClusterProvider clusterProvider, String application, Project project) {
+    Map<String, Set<Cluster>> clusterSummariesByAccount =
+        clusterProvider.getClusterSummaries(application);
+    if (clusterSummariesByAccount == null) {
+      return null;
+    }
 
-              return new RetrievedClusters(application, expandedClusters);
-            })
-        .filter(Objects::nonNull)
-        .collect(Collectors.toList());
+    Set<Cluster> allClusterSummaries =
+        clusterSummariesByAccount.values().stream()
+            .flatMap(Collection::stream)
+            .collect(Collectors.toSet());
+
+    Set<Cluster> matchingClusterSummaries = new HashSet<>();
+    for (ProjectCluster projectCluster : project.config.clusters) {
+      matchingClusterSummaries.addAll(findClustersForProject(allClusterSummaries, projectCluster));
+    }
+
+    return new RetrievedClusters(
+        application, expandClusters(clusterProvider, matchingClusterSummaries));
+  }
+
+  private static Set<Cluster> expandClusters(
+      ClusterProvider clusterProvider, Set<Cluster> clusterSummaries) {
+    if (!(clusterProvider instanceof BatchingClusterProvider)) {
+      return clusterSummaries.stream()
+          .map(
+              c ->
+                  clusterProvider.getCluster(
+                      c.getMoniker().getApp(), c.getAccountName(), c.getName()))
+          .collect(Collectors.toSet());
+    }
+
+    // One lookup per application and account, rather than one per cluster.
+    Map<String, Map<String, List<String>>> namesByAccountByApplication = new HashMap<>();
+    for (Cluster c : clusterSummaries) {
+      namesByAccountByApplication
+          .computeIfAbsent(c.getMoniker().getApp(), a -> new HashMap<>())
+          .computeIfAbsent(c.getAccountName(), a -> new ArrayList<>())
+          .add(c.getName());
+    }
+
+    BatchingClusterProvider<?> batchingClusterProvider =
+        (BatchingClusterProvider<?>) clusterProvider;
+    Set<Cluster> expandedClusters = new HashSet<>();
+    namesByAccountByApplication.forEach(
+        (application, namesByAccount) ->
+            namesByAccount.forEach(
+                (account, names) ->
+                    expandedClusters.addAll(
+                        batchingClusterProvider.getClustersByName(application, account, names))));
+    return expandedClusters;
   }
 
   static boolean nameMatches(String clusterNameValue, String projectClusterValue) {
@@ -36,6 +36,15 @@ class RedisConfigurationProperties {
     String enabledPattern = ".*"
     Integer maxConcurrentAgents
     Integer agentLockAcquisitionIntervalSeconds
+    boolean virtualThreads = false
+    ShardingConfiguration sharding = new ShardingConfiguration()
+  }
+
+  @Canonical
+  static class ShardingConfiguration {
+    boolean enabled = false
+    long heartbeatIntervalSeconds = 10
+    long nodeTtlSeconds = 60
   }
 
   @NestedConfigurationProperty
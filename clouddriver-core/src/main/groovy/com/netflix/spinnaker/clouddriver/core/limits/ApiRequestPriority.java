@@ -0,0 +1,50 @@
+/*
+ * Copyright 2019 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.spinnaker.clouddriver.core.limits;
+
+import java.util.concurrent.Callable;
+
+/**
+ * The priority of the cloud provider API requests made by the current thread, for rate limiters
+ * that share a budget between background and interactive work.
+ */
+public enum ApiRequestPriority {
+  /** Requests made on behalf of a user, by operations and on demand cache refreshes. */
+  INTERACTIVE,
+
+  /** Everything else, most notably caching agents. */
+  BACKGROUND;
+
+  private static final ThreadLocal<ApiRequestPriority> CURRENT =
+      ThreadLocal.withInitial(() -> BACKGROUND);
+
+  public static ApiRequestPriority current() {
+    return CURRENT.get();
+  }
+
+  /** Runs the callable with the given priority, restoring the previous priority afterwards. */
+  public static <T> T callWith(ApiRequestPriority priority, Callable<T> callable)
+      throws Exception {
+    ApiRequestPriority previous = CURRENT.get();
+    CURRENT.set(priority);
+    try {
+      return callable.call();
+    } finally {
+      CURRENT.set(previous);
+    }
+  }
+}
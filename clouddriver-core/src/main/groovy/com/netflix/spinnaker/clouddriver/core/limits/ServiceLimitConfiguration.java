@@ -25,6 +25,9 @@ public class ServiceLimitConfiguration {
   public static final String POLL_INTERVAL_MILLIS = "agentPollIntervalMs";
   public static final String POLL_TIMEOUT_MILLIS = "agentPollTimeoutMs";
   public static final String API_RATE_LIMIT = "rateLimit";
+  public static final String API_RATE_LIMIT_MIN = "rateLimitMin";
+  public static final String API_RATE_LIMIT_MAX = "rateLimitMax";
+  public static final String ADAPTIVE_API_RATE_LIMIT = "adaptiveRateLimit";
 
   private final ServiceLimits defaults;
   private final Map<String, ServiceLimits> cloudProviderOverrides;
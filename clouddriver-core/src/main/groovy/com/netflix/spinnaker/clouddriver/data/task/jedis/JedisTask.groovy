@@ -17,8 +17,10 @@
 package com.netflix.spinnaker.clouddriver.data.task.jedis
 
 import com.fasterxml.jackson.annotation.JsonIgnore
+import com.netflix.spinnaker.clouddriver.data.task.DefaultTaskStatus
 import com.netflix.spinnaker.clouddriver.data.task.Status
 import com.netflix.spinnaker.clouddriver.data.task.Task
+import com.netflix.spinnaker.clouddriver.data.task.TaskDisplayStatus
 import com.netflix.spinnaker.clouddriver.data.task.TaskState
 import groovy.util.logging.Slf4j
 
@@ -35,6 +37,12 @@ class JedisTask implements Task {
   @JsonIgnore
   final boolean previousRedis
 
+  /**
+   * Status history and results read along with the task, served until this instance modifies the
+   * task. Tasks that weren't read through a pipelined lookup always read through to redis.
+   */
+  private volatile Hydrated hydrated
+
   JedisTask(String id, long startTimeMs, RedisTaskRepository repository, String ownerId, boolean previousRedis) {
     this.id = id
     this.startTimeMs = startTimeMs
@@ -46,6 +54,7 @@ class JedisTask implements Task {
   @Override
   void updateStatus(String phase, String status) {
     checkMutable()
+    hydrated = null
     repository.addToHistory(repository.currentState(this).update(phase, status), this)
     log.info("[$phase] $status")
   }
@@ -53,18 +62,21 @@ class JedisTask implements Task {
   @Override
   void complete() {
     checkMutable()
+    hydrated = null
     repository.addToHistory(repository.currentState(this).update(TaskState.COMPLETED), this)
   }
 
   @Override
   void fail() {
     checkMutable()
+    hydrated = null
     repository.addToHistory(repository.currentState(this).update(TaskState.FAILED), this)
   }
 
   @Override
   public void addResultObjects(List<Object> results) {
     checkMutable()
+    hydrated = null
     if (results) {
       repository.currentState(this).ensureUpdateable()
       repository.addResultObjects(results, this)
@@ -72,11 +84,15 @@ class JedisTask implements Task {
   }
 
   public List<Object> getResultObjects() {
-    repository.getResultObjects(this)
+    Hydrated snapshot = hydrated
+    snapshot ? snapshot.resultObjects : repository.getResultObjects(this)
   }
 
   public List<? extends Status> getHistory() {
-    def status = repository.getHistory(this)
+    Hydrated snapshot = hydrated
+    def status = snapshot ?
+      snapshot.history.collect { TaskDisplayStatus.create(it) } :
+      repository.getHistory(this)
     if (status && status.last().isCompleted()) {
       status.subList(0, status.size()  - 1)
     } else {
@@ -91,7 +107,12 @@ class JedisTask implements Task {
 
   @Override
   Status getStatus() {
-    repository.currentState(this)
+    Hydrated snapshot = hydrated
+    snapshot ? snapshot.history.last() : repository.currentState(this)
+  }
+
+  void hydrate(List<DefaultTaskStatus> history, List<Object> resultObjects) {
+    hydrated = new Hydrated(history, resultObjects)
   }
 
   private void checkMutable() {
@@ -99,4 +120,14 @@ class JedisTask implements Task {
       throw new IllegalStateException("Read-only task")
     }
   }
+
+  private static class Hydrated {
+    final List<DefaultTaskStatus> history
+    final List<Object> resultObjects
+
+    Hydrated(List<DefaultTaskStatus> history, List<Object> resultObjects) {
+      this.history = history
+      this.resultObjects = resultObjects
+    }
+  }
 }
@@ -20,6 +20,7 @@ import static java.lang.String.format;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.Iterables;
 import com.netflix.spinnaker.clouddriver.core.ClouddriverHostname;
 import com.netflix.spinnaker.clouddriver.data.task.DefaultTaskStatus;
 import com.netflix.spinnaker.clouddriver.data.task.Status;
@@ -29,11 +30,15 @@ import com.netflix.spinnaker.clouddriver.data.task.TaskRepository;
 import com.netflix.spinnaker.clouddriver.data.task.TaskState;
 import com.netflix.spinnaker.kork.jedis.RedisClientDelegate;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Supplier;
@@ -43,6 +48,8 @@ import net.jodah.failsafe.RetryPolicy;
 import net.jodah.failsafe.function.CheckedConsumer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
 import redis.clients.jedis.exceptions.JedisException;
 
 public class RedisTaskRepository implements TaskRepository {
@@ -55,6 +62,9 @@ public class RedisTaskRepository implements TaskRepository {
 
   private static final int TASK_TTL = (int) TimeUnit.HOURS.toSeconds(12);
 
+  /** Maximum number of tasks read per pipeline sync when listing. */
+  private static final int MAX_PIPELINED_TASKS = 500;
+
   private static final RetryPolicy REDIS_RETRY_POLICY =
       new RetryPolicy()
           .retryOn(Collections.singletonList(JedisException.class))
@@ -106,8 +116,21 @@ public class RedisTaskRepository implements TaskRepository {
     return getByClientRequestId(clientRequestId);
   }
 
+  /**
+   * Reads the task along with its status history and result objects in a single round trip when
+   * the client supports pipelining, so that rendering it doesn't take one more call per property.
+   */
   @Override
   public Task get(String id) {
+    if (!redisClientDelegate.supportsMultiKeyPipelines()) {
+      return getUnpipelined(id);
+    }
+
+    JedisTask task = readTasks(Collections.singletonList(id), true).get(id);
+    return task != null ? task : getFromPrevious(id);
+  }
+
+  private Task getUnpipelined(String id) {
     Map<String, String> taskMap =
         retry(
             () ->
@@ -116,22 +139,34 @@ public class RedisTaskRepository implements TaskRepository {
                       return client.hgetAll("task:" + id);
                     }),
             format("Getting task ID %s", id));
-    boolean oldTask =
-        redisClientDelegatePrevious.isPresent() && (taskMap == null || taskMap.isEmpty());
-    if (oldTask) {
-      try {
-        taskMap =
-            redisClientDelegatePrevious
-                .get()
-                .withCommandsClient(
-                    client -> {
-                      return client.hgetAll("task:" + id);
-                    });
-      } catch (Exception e) {
-        // Failed to hit old redis, let's not blow up on that
-        return null;
-      }
+    if (redisClientDelegatePrevious.isPresent() && (taskMap == null || taskMap.isEmpty())) {
+      return getFromPrevious(id);
     }
+    return toTask(taskMap, false);
+  }
+
+  private Task getFromPrevious(String id) {
+    if (!redisClientDelegatePrevious.isPresent()) {
+      return null;
+    }
+
+    Map<String, String> taskMap;
+    try {
+      taskMap =
+          redisClientDelegatePrevious
+              .get()
+              .withCommandsClient(
+                  client -> {
+                    return client.hgetAll("task:" + id);
+                  });
+    } catch (Exception e) {
+      // Failed to hit old redis, let's not blow up on that
+      return null;
+    }
+    return toTask(taskMap, true);
+  }
+
+  private JedisTask toTask(Map<String, String> taskMap, boolean oldTask) {
     if (taskMap.containsKey("id") && taskMap.containsKey("startTimeMs")) {
       return new JedisTask(
           taskMap.get("id"),
@@ -143,6 +178,47 @@ public class RedisTaskRepository implements TaskRepository {
     return null;
   }
 
+  /**
+   * Pipelines the task hashes, and optionally their history and results, for the given ids.
+   *
+   * @return tasks found in the current redis by id; missing tasks are absent
+   */
+  private Map<String, JedisTask> readTasks(Collection<String> ids, boolean hydrate) {
+    Map<String, TaskResponses> responses = new LinkedHashMap<>();
+    retry(
+        () ->
+            redisClientDelegate.withMultiKeyPipeline(
+                pipeline -> {
+                  responses.clear();
+                  for (String id : ids) {
+                    responses.put(id, new TaskResponses(pipeline, id, hydrate));
+                  }
+                  pipeline.sync();
+                }),
+        format("Getting %d tasks", ids.size()));
+
+    Map<String, JedisTask> tasks = new LinkedHashMap<>();
+    responses.forEach(
+        (id, response) -> {
+          JedisTask task = toTask(response.task.get(), false);
+          if (task == null) {
+            return;
+          }
+          if (hydrate) {
+            List<String> history = response.history.get();
+            if (!history.isEmpty()) {
+              task.hydrate(
+                  history.stream().map(this::readStatus).collect(Collectors.toList()),
+                  response.results.get().stream()
+                      .map(this::readResultObject)
+                      .collect(Collectors.toList()));
+            }
+          }
+          tasks.put(id, task);
+        });
+    return tasks;
+  }
+
   @Override
   public Task getByClientRequestId(String clientRequestId) {
     final String clientRequestKey = getClientRequestKey(clientRequestId);
@@ -178,24 +254,42 @@ public class RedisTaskRepository implements TaskRepository {
 
   @Override
   public List<Task> list() {
-    return retry(
-        () ->
-            redisClientDelegate.withCommandsClient(
-                client -> {
-                  return client.smembers(RUNNING_TASK_KEY).stream()
-                      .map(this::get)
-                      .collect(Collectors.toList());
-                }),
-        "Getting all running tasks");
+    return list(true);
   }
 
+  /** Only needs each task's owner, so skips reading history and results. */
   @Override
   public List<Task> listByThisInstance() {
-    return list().stream()
-        .filter(t -> ClouddriverHostname.ID.equals(t.getOwnerId()))
+    return list(false).stream()
+        .filter(t -> t != null && ClouddriverHostname.ID.equals(t.getOwnerId()))
         .collect(Collectors.toList());
   }
 
+  private List<Task> list(boolean hydrate) {
+    Set<String> ids =
+        retry(
+            () ->
+                redisClientDelegate.withCommandsClient(
+                    client -> {
+                      return client.smembers(RUNNING_TASK_KEY);
+                    }),
+            "Getting all running tasks");
+
+    if (!redisClientDelegate.supportsMultiKeyPipelines()) {
+      return ids.stream().map(this::getUnpipelined).collect(Collectors.toList());
+    }
+
+    List<Task> tasks = new ArrayList<>(ids.size());
+    for (List<String> partition : Iterables.partition(ids, MAX_PIPELINED_TASKS)) {
+      Map<String, JedisTask> found = readTasks(partition, hydrate);
+      for (String id : partition) {
+        Task task = found.get(id);
+        tasks.add(task != null ? task : getFromPrevious(id));
+      }
+    }
+    return tasks;
+  }
+
   public void set(String id, JedisTask task) {
     String taskId = "task:" + task.getId();
     Map<String, String> data = new HashMap<>();
@@ -203,13 +297,24 @@ public class RedisTaskRepository implements TaskRepository {
     data.put("startTimeMs", Long.toString(task.getStartTimeMs()));
     data.put("ownerId", task.getOwnerId());
     retry(
-        () ->
+        () -> {
+          if (redisClientDelegate.supportsMultiKeyPipelines()) {
+            redisClientDelegate.withMultiKeyPipeline(
+                pipeline -> {
+                  pipeline.hmset(taskId, data);
+                  pipeline.expire(taskId, TASK_TTL);
+                  pipeline.sadd(RUNNING_TASK_KEY, id);
+                  pipeline.sync();
+                });
+          } else {
             redisClientDelegate.withCommandsClient(
                 client -> {
                   client.hmset(taskId, data);
                   client.expire(taskId, TASK_TTL);
                   client.sadd(RUNNING_TASK_KEY, id);
-                }),
+                });
+          }
+        },
         format("Writing task %s", id));
   }
 
@@ -229,7 +334,18 @@ public class RedisTaskRepository implements TaskRepository {
     }
 
     retry(
-        () ->
+        () -> {
+          if (redisClientDelegate.supportsMultiKeyPipelines()) {
+            redisClientDelegate.withMultiKeyPipeline(
+                pipeline -> {
+                  pipeline.rpush(historyId, hist);
+                  pipeline.expire(historyId, TASK_TTL);
+                  if (status.isCompleted()) {
+                    pipeline.srem(RUNNING_TASK_KEY, task.getId());
+                  }
+                  pipeline.sync();
+                });
+          } else {
             redisClientDelegate.withCommandsClient(
                 client -> {
                   client.rpush(historyId, hist);
@@ -237,7 +353,9 @@ public class RedisTaskRepository implements TaskRepository {
                   if (status.isCompleted()) {
                     client.srem(RUNNING_TASK_KEY, task.getId());
                   }
-                }),
+                });
+          }
+        },
         format("Adding status history to task %s: %s", task.getId(), status));
   }
 
@@ -253,20 +371,7 @@ public class RedisTaskRepository implements TaskRepository {
                     }),
             format("Getting history for task %s", task.getId()))
         .stream()
-        .map(
-            h -> {
-              Map<String, String> history;
-              try {
-                history = mapper.readValue(h, HISTORY_TYPE);
-              } catch (IOException e) {
-                throw new RuntimeException("Could not convert history json to type", e);
-              }
-              return TaskDisplayStatus.create(
-                  DefaultTaskStatus.create(
-                      history.get("phase"),
-                      history.get("status"),
-                      TaskState.valueOf(history.get("state"))));
-            })
+        .map(h -> TaskDisplayStatus.create(readStatus(h)))
         .collect(Collectors.toList());
   }
 
@@ -283,14 +388,7 @@ public class RedisTaskRepository implements TaskRepository {
                     }),
             format("Getting current state for task %s", task.getId()));
 
-    Map<String, String> history;
-    try {
-      history = mapper.readValue(state, HISTORY_TYPE);
-    } catch (IOException e) {
-      throw new RuntimeException("Failed converting task history json to object", e);
-    }
-    return DefaultTaskStatus.create(
-        history.get("phase"), history.get("status"), TaskState.valueOf(history.get("state")));
+    return readStatus(state);
   }
 
   public void addResultObjects(List<Object> objects, JedisTask task) {
@@ -310,12 +408,22 @@ public class RedisTaskRepository implements TaskRepository {
 
     log.debug("Adding results to task {} (results: {})", task.getId(), values);
     retry(
-        () ->
+        () -> {
+          if (redisClientDelegate.supportsMultiKeyPipelines()) {
+            redisClientDelegate.withMultiKeyPipeline(
+                pipeline -> {
+                  pipeline.rpush(resultId, values);
+                  pipeline.expire(resultId, TASK_TTL);
+                  pipeline.sync();
+                });
+          } else {
             redisClientDelegate.withCommandsClient(
                 client -> {
                   client.rpush(resultId, values);
                   client.expire(resultId, TASK_TTL);
-                }),
+                });
+          }
+        },
         format("Adding results to task %s", task.getId()));
   }
 
@@ -331,17 +439,29 @@ public class RedisTaskRepository implements TaskRepository {
                         }),
             format("Getting results for task %s", task.getId()))
         .stream()
-        .map(
-            o -> {
-              try {
-                return mapper.readValue(o, Map.class);
-              } catch (IOException e) {
-                throw new RuntimeException("Failed to convert result object to map", e);
-              }
-            })
+        .map(this::readResultObject)
         .collect(Collectors.toList());
   }
 
+  private DefaultTaskStatus readStatus(String json) {
+    Map<String, String> history;
+    try {
+      history = mapper.readValue(json, HISTORY_TYPE);
+    } catch (IOException e) {
+      throw new RuntimeException("Failed converting task history json to object", e);
+    }
+    return DefaultTaskStatus.create(
+        history.get("phase"), history.get("status"), TaskState.valueOf(history.get("state")));
+  }
+
+  private Object readResultObject(String json) {
+    try {
+      return mapper.readValue(json, Map.class);
+    } catch (IOException e) {
+      throw new RuntimeException("Failed to convert result object to map", e);
+    }
+  }
+
   private String getClientRequestKey(String clientRequestId) {
     return TASK_KEY_MAP + ":" + clientRequestId;
   }
@@ -377,6 +497,18 @@ public class RedisTaskRepository implements TaskRepository {
     Failsafe.with(REDIS_RETRY_POLICY).onRetriesExceeded(retryExceededListener).run(f::run);
   }
 
+  private static class TaskResponses {
+    final Response<Map<String, String>> task;
+    final Response<List<String>> history;
+    final Response<List<String>> results;
+
+    TaskResponses(Pipeline pipeline, String id, boolean hydrate) {
+      this.task = pipeline.hgetAll("task:" + id);
+      this.history = hydrate ? pipeline.lrange("taskHistory:" + id, 0, -1) : null;
+      this.results = hydrate ? pipeline.lrange("taskResult:" + id, 0, -1) : null;
+    }
+  }
+
   private static class ExcessiveRedisFailureRetries extends RuntimeException {
     ExcessiveRedisFailureRetries(String message, Throwable cause) {
       super(message, cause);
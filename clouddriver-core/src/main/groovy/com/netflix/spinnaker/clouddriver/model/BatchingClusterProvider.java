@@ -0,0 +1,39 @@
+/*
+ * Copyright 2019 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.spinnaker.clouddriver.model;
+
+import com.netflix.spinnaker.clouddriver.documentation.Empty;
+import java.util.Collection;
+import java.util.Set;
+
+/**
+ * A {@link ClusterProvider} that can look up several clusters of an application at once, cheaper
+ * than calling {@link ClusterProvider#getCluster(String, String, String)} for each of them.
+ */
+public interface BatchingClusterProvider<T extends Cluster> extends ClusterProvider<T> {
+  /**
+   * Looks up the named clusters of an application within one account.
+   *
+   * @param application
+   * @param account name
+   * @param names cluster names
+   * @return the clusters that exist, with load balancers and server groups populated, or an empty
+   *     set if none do
+   */
+  @Empty
+  Set<T> getClustersByName(String application, String account, Collection<String> names);
+}
@@ -16,22 +16,25 @@
 
 package com.netflix.spinnaker.clouddriver.orchestration
 
+import com.netflix.spectator.api.NoopRegistry
 import com.netflix.spectator.api.Registry
+import com.netflix.spinnaker.clouddriver.config.OrchestrationExecutorProperties
+import com.netflix.spinnaker.clouddriver.core.limits.ApiRequestPriority
 import com.netflix.spinnaker.clouddriver.data.task.Task
 import com.netflix.spinnaker.clouddriver.data.task.TaskRepository
 import com.netflix.spinnaker.clouddriver.metrics.TimedCallable
 import com.netflix.spinnaker.clouddriver.orchestration.events.OperationEvent
 import com.netflix.spinnaker.clouddriver.orchestration.events.OperationEventHandler
+import com.netflix.spinnaker.clouddriver.security.AccountCredentialsRepository
+import com.netflix.spinnaker.clouddriver.security.resources.AccountNameable
 import com.netflix.spinnaker.security.AuthenticatedRequest
 import groovy.util.logging.Slf4j
 import org.slf4j.MDC
 import org.springframework.beans.factory.annotation.Autowired
 import org.springframework.context.ApplicationContext
 
-import java.util.concurrent.ExecutorService
-import java.util.concurrent.SynchronousQueue
-import java.util.concurrent.ThreadPoolExecutor
-import java.util.concurrent.TimeUnit
+import java.util.concurrent.Callable
+import java.util.concurrent.RejectedExecutionException
 import java.util.concurrent.TimeoutException
 
 import static com.netflix.spinnaker.security.AuthenticatedRequest.propagate
@@ -40,14 +43,14 @@ import static com.netflix.spinnaker.security.AuthenticatedRequest.propagate
 class DefaultOrchestrationProcessor implements OrchestrationProcessor {
   private static final String TASK_PHASE = "ORCHESTRATION"
 
-  protected ExecutorService executorService = new ThreadPoolExecutor(0, Integer.MAX_VALUE,
-    60L, TimeUnit.SECONDS,
-    new SynchronousQueue<Runnable>()) {
-    @Override
-    protected void afterExecute(Runnable r, Throwable t) {
-      resetMDC()
-      super.afterExecute(r, t)
-    }
+  protected OrchestrationExecutor executorService
+
+  DefaultOrchestrationProcessor() {
+    this(new OrchestrationExecutor(new NoopRegistry(), new OrchestrationExecutorProperties()))
+  }
+
+  DefaultOrchestrationProcessor(OrchestrationExecutor executorService) {
+    this.executorService = executorService
   }
 
   @Autowired
@@ -62,6 +65,9 @@ class DefaultOrchestrationProcessor implements OrchestrationProcessor {
   @Autowired(required = false)
   Collection<OperationEventHandler> operationEventHandlers = []
 
+  @Autowired(required = false)
+  AccountCredentialsRepository accountCredentialsRepository
+
   @Override
   Task process(List<AtomicOperation> atomicOperations, String clientRequestId) {
 
@@ -146,12 +152,56 @@ class DefaultOrchestrationProcessor implements OrchestrationProcessor {
       }
     }
 
-    def timedCallable = TimedCallable.forCallable(registry, orchestrationsId, propagate(operationClosure, true))
-    executorService.submit(timedCallable)
+    def interactiveOperationClosure = {
+      ApiRequestPriority.callWith(ApiRequestPriority.INTERACTIVE, operationClosure)
+    }
+    def timedCallable = TimedCallable.forCallable(registry, orchestrationsId, propagate(interactiveOperationClosure, true))
+    def mdcResettingCallable = {
+      try {
+        timedCallable.call()
+      } finally {
+        resetMDC()
+      }
+    } as Callable
+
+    try {
+      executorService.submit(mdcResettingCallable, orchestrationRequest(atomicOperations))
+    } catch (RejectedExecutionException e) {
+      registry.counter(tasksId.withTag("success", "false").withTag("cause", e.class.simpleName)).increment()
+      task.updateStatus TASK_PHASE, "Orchestration rejected: ${e.message}"
+      task.addResultObjects([[type: "EXCEPTION", cause: e.class.simpleName, message: "Too many orchestrations in progress, try again later."]])
+      task.fail()
+    }
 
     task
   }
 
+  /**
+   * Describes the account and cloud provider the operations run against, so they can be limited per account and
+   * per provider. Operations that don't expose an {@link AccountNameable} description aren't limited.
+   */
+  protected OrchestrationExecutor.Request orchestrationRequest(List<AtomicOperation> atomicOperations) {
+    String account = atomicOperations.findResult { accountOf(it) }
+    String cloudProvider = null
+    if (account && accountCredentialsRepository) {
+      try {
+        cloudProvider = accountCredentialsRepository.getOne(account)?.cloudProvider
+      } catch (Exception e) {
+        log.warn("Unable to determine cloud provider for account {}", account, e)
+      }
+    }
+    return new OrchestrationExecutor.Request(cloudProvider, account, atomicOperations*.class*.simpleName)
+  }
+
+  private static String accountOf(AtomicOperation atomicOperation) {
+    try {
+      def description = atomicOperation.hasProperty("description") ? atomicOperation.description : null
+      return description instanceof AccountNameable ? description.account : null
+    } catch (Exception ignored) {
+      return null
+    }
+  }
+
   void autowire(obj) {
     applicationContext.autowireCapableBeanFactory.autowireBean obj
   }
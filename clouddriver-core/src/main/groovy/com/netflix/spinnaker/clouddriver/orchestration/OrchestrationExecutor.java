@@ -0,0 +1,381 @@
+/*
+ * Copyright 2019 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.spinnaker.clouddriver.orchestration;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.netflix.spectator.api.Id;
+import com.netflix.spectator.api.Registry;
+import com.netflix.spectator.api.histogram.PercentileTimer;
+import com.netflix.spinnaker.cats.thread.VirtualThreads;
+import com.netflix.spinnaker.clouddriver.config.OrchestrationExecutorProperties;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeSet;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RunnableFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Runs orchestrations, optionally bounding how many run at once.
+ *
+ * <p>Orchestrations that can't start straight away wait in a bounded queue, ordered by {@link
+ * Priority} and then by arrival. Whenever one finishes, the queue is scanned for the first
+ * orchestration whose cloud provider and account are both under their limits, so an account at its
+ * limit doesn't hold up work against other accounts. Once the queue is full, new orchestrations
+ * are rejected with a {@link RejectedExecutionException}.
+ *
+ * <p>Each orchestration gets its own virtual thread where the runtime supports them and {@link
+ * OrchestrationExecutorProperties#isVirtualThreads()} is set. Otherwise threads come from the
+ * supplied {@link ThreadFactory} and are only kept while there is work for them.
+ */
+public class OrchestrationExecutor extends AbstractExecutorService {
+
+  public enum Priority {
+    HIGH,
+    NORMAL
+  }
+
+  /** What an orchestration runs against; a null cloud provider or account isn't limited. */
+  public static class Request {
+    static final Request UNKNOWN = new Request(null, null, Collections.emptyList());
+
+    private final String cloudProvider;
+    private final String account;
+    private final List<String> operations;
+
+    /** @param operations the class names of the operations in this orchestration */
+    public Request(String cloudProvider, String account, List<String> operations) {
+      this.cloudProvider = cloudProvider;
+      this.account = account;
+      this.operations = operations;
+    }
+
+    public String getCloudProvider() {
+      return cloudProvider;
+    }
+
+    public String getAccount() {
+      return account;
+    }
+
+    public List<String> getOperations() {
+      return operations;
+    }
+  }
+
+  private final OrchestrationExecutorProperties properties;
+  private final ExecutorService workers;
+
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Condition terminated = lock.newCondition();
+  private final TreeSet<Pending> pending = new TreeSet<>();
+  private final Map<String, Integer> runningByCloudProvider = new HashMap<>();
+  private final Map<String, Integer> runningByAccount = new HashMap<>();
+  private volatile int running = 0;
+  private long sequence = 0;
+  private boolean shutdown = false;
+
+  private final Registry registry;
+  private final Id waitTimeId;
+  private final Id rejectedId;
+  private final AtomicIntegerArray queued = new AtomicIntegerArray(Priority.values().length);
+
+  public OrchestrationExecutor(Registry registry, OrchestrationExecutorProperties properties) {
+    this(
+        registry,
+        properties,
+        (properties.isVirtualThreads()
+                ? VirtualThreads.newThreadPerTaskExecutor("orchestration")
+                : Optional.<ExecutorService>empty())
+            .orElseGet(
+                () ->
+                    Executors.newCachedThreadPool(
+                        new ThreadFactoryBuilder().setNameFormat("orchestration-%d").build())));
+  }
+
+  public OrchestrationExecutor(
+      Registry registry, OrchestrationExecutorProperties properties, ThreadFactory threadFactory) {
+    this(registry, properties, Executors.newCachedThreadPool(threadFactory));
+  }
+
+  private OrchestrationExecutor(
+      Registry registry, OrchestrationExecutorProperties properties, ExecutorService workers) {
+    this.registry = registry;
+    this.properties = properties;
+    this.workers = workers;
+
+    this.waitTimeId = registry.createId("orchestrations.waitTime");
+    this.rejectedId = registry.createId("orchestrations.rejected");
+
+    Id queuedId = registry.createId("orchestrations.queued");
+    for (Priority priority : Priority.values()) {
+      registry.gauge(
+          queuedId.withTag("priority", priority.name()),
+          queued,
+          q -> q.get(priority.ordinal()));
+    }
+    registry.gauge(registry.createId("orchestrations.running"), this, e -> e.running);
+  }
+
+  public <T> Future<T> submit(Callable<T> task, Request request) {
+    RunnableFuture<T> future = newTaskFor(task);
+    enqueue(future, request);
+    return future;
+  }
+
+  @Override
+  public void execute(Runnable command) {
+    enqueue(command, Request.UNKNOWN);
+  }
+
+  Priority priorityOf(Request request) {
+    for (String operation : request.operations) {
+      for (String prefix : properties.getPriorityOperations()) {
+        if (operation.startsWith(prefix)) {
+          return Priority.HIGH;
+        }
+      }
+    }
+    return Priority.NORMAL;
+  }
+
+  private void enqueue(Runnable command, Request request) {
+    Pending entry = new Pending(command, request, priorityOf(request));
+    lock.lock();
+    try {
+      if (shutdown) {
+        reject(entry, "shutdown");
+      }
+
+      entry.sequence = sequence++;
+      pending.add(entry);
+      queued.incrementAndGet(entry.priority.ordinal());
+      dispatch();
+
+      if (pending.size() > properties.getQueueCapacity() && pending.remove(entry)) {
+        queued.decrementAndGet(entry.priority.ordinal());
+        reject(entry, "queueFull");
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void reject(Pending entry, String reason) {
+    registry
+        .counter(
+            rejectedId.withTag("priority", entry.priority.name()).withTag("reason", reason))
+        .increment();
+    throw new RejectedExecutionException(
+        "Orchestration rejected ("
+            + reason
+            + ", running: "
+            + running
+            + ", queued: "
+            + pending.size()
+            + ")");
+  }
+
+  /** Starts as many pending orchestrations as the limits allow. Callers must hold the lock. */
+  private void dispatch() {
+    int maxConcurrent = properties.getMaxConcurrentOrchestrations();
+    Iterator<Pending> iterator = pending.iterator();
+    while (iterator.hasNext() && (maxConcurrent <= 0 || running < maxConcurrent)) {
+      Pending entry = iterator.next();
+      if (!withinLimits(entry.request)) {
+        continue;
+      }
+
+      iterator.remove();
+      queued.decrementAndGet(entry.priority.ordinal());
+      acquire(entry.request);
+      try {
+        workers.execute(() -> run(entry));
+      } catch (RejectedExecutionException e) {
+        // only after shutdownNow(), which has already handed back whatever was pending
+        release(entry.request);
+      }
+    }
+  }
+
+  private void run(Pending entry) {
+    PercentileTimer.get(registry, waitTimeId.withTag("priority", entry.priority.name()))
+        .record(System.nanoTime() - entry.queuedAt, TimeUnit.NANOSECONDS);
+    try {
+      entry.command.run();
+    } finally {
+      lock.lock();
+      try {
+        release(entry.request);
+        dispatch();
+        signalIfTerminated();
+      } finally {
+        lock.unlock();
+      }
+    }
+  }
+
+  private boolean withinLimits(Request request) {
+    if (request.cloudProvider != null) {
+      int limit = properties.getCloudProviderLimit(request.cloudProvider);
+      if (limit > 0 && runningByCloudProvider.getOrDefault(request.cloudProvider, 0) >= limit) {
+        return false;
+      }
+    }
+    if (request.account != null) {
+      int limit = properties.getAccountLimit(request.account);
+      if (limit > 0 && runningByAccount.getOrDefault(request.account, 0) >= limit) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private void acquire(Request request) {
+    running++;
+    if (request.cloudProvider != null) {
+      runningByCloudProvider.merge(request.cloudProvider, 1, Integer::sum);
+    }
+    if (request.account != null) {
+      runningByAccount.merge(request.account, 1, Integer::sum);
+    }
+  }
+
+  private void release(Request request) {
+    running--;
+    if (request.cloudProvider != null) {
+      runningByCloudProvider.computeIfPresent(
+          request.cloudProvider, (k, count) -> count > 1 ? count - 1 : null);
+    }
+    if (request.account != null) {
+      runningByAccount.computeIfPresent(
+          request.account, (k, count) -> count > 1 ? count - 1 : null);
+    }
+  }
+
+  private boolean isTerminatedLocked() {
+    return shutdown && pending.isEmpty() && running == 0;
+  }
+
+  private void signalIfTerminated() {
+    if (isTerminatedLocked()) {
+      workers.shutdown();
+      terminated.signalAll();
+    }
+  }
+
+  /** Stops accepting orchestrations; anything already queued still runs. */
+  @Override
+  public void shutdown() {
+    lock.lock();
+    try {
+      shutdown = true;
+      signalIfTerminated();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public List<Runnable> shutdownNow() {
+    lock.lock();
+    try {
+      shutdown = true;
+      List<Runnable> notStarted = new ArrayList<>(pending.size());
+      for (Pending entry : pending) {
+        notStarted.add(entry.command);
+        queued.decrementAndGet(entry.priority.ordinal());
+      }
+      pending.clear();
+      workers.shutdownNow();
+      signalIfTerminated();
+      return notStarted;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public boolean isShutdown() {
+    lock.lock();
+    try {
+      return shutdown;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public boolean isTerminated() {
+    lock.lock();
+    try {
+      return isTerminatedLocked();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+    long remaining = unit.toNanos(timeout);
+    lock.lock();
+    try {
+      while (!isTerminatedLocked()) {
+        if (remaining <= 0) {
+          return false;
+        }
+        remaining = terminated.awaitNanos(remaining);
+      }
+      return true;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private static class Pending implements Comparable<Pending> {
+    private final Runnable command;
+    private final Request request;
+    private final Priority priority;
+    private final long queuedAt = System.nanoTime();
+    private long sequence;
+
+    private Pending(Runnable command, Request request, Priority priority) {
+      this.command = command;
+      this.request = request;
+      this.priority = priority;
+    }
+
+    @Override
+    public int compareTo(Pending other) {
+      int byPriority = priority.compareTo(other.priority);
+      return byPriority != 0 ? byPriority : Long.compare(sequence, other.sequence);
+    }
+  }
+}
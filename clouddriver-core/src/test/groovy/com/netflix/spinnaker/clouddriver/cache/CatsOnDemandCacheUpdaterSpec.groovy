@@ -0,0 +1,188 @@
+/*
+ * Copyright 2019 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.spinnaker.clouddriver.cache
+
+import com.netflix.spectator.api.DefaultRegistry
+import com.netflix.spinnaker.cats.agent.AccountAware
+import com.netflix.spinnaker.cats.agent.Agent
+import com.netflix.spinnaker.cats.agent.AgentLock
+import com.netflix.spinnaker.cats.agent.AgentScheduler
+import com.netflix.spinnaker.cats.agent.DefaultCacheResult
+import com.netflix.spinnaker.cats.cache.DefaultCacheData
+import com.netflix.spinnaker.cats.module.CatsModule
+import com.netflix.spinnaker.cats.provider.Provider
+import com.netflix.spinnaker.cats.provider.ProviderCache
+import com.netflix.spinnaker.cats.provider.ProviderRegistry
+import spock.lang.Specification
+
+import java.util.concurrent.ConcurrentLinkedQueue
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+
+import static com.netflix.spinnaker.clouddriver.cache.OnDemandAgent.OnDemandType.ServerGroup
+
+class CatsOnDemandCacheUpdaterSpec extends Specification {
+
+  def registry = new DefaultRegistry()
+  def providerCache = Mock(ProviderCache)
+  List<Agent> agents = []
+  def handled = new ConcurrentLinkedQueue<String>()
+
+  def updater = new CatsOnDemandCacheUpdater(
+    [Stub(Provider) { getAgents() >> { agents } }],
+    Stub(CatsModule) {
+      getProviderRegistry() >> Stub(ProviderRegistry) {
+        getProviderCache(_) >> providerCache
+      }
+    }
+  )
+
+  def setup() {
+    updater.agentScheduler = Stub(AgentScheduler)
+  }
+
+  void 'merges the results of agents handled concurrently'() {
+    given:
+    // neither agent can finish until both have started
+    def bothStarted = new CountDownLatch(2)
+    agents << agent("test") {
+      bothStarted.countDown()
+      bothStarted.await(5, TimeUnit.SECONDS)
+      result("test", [serverGroups: ["sg-test"], instances: ["i-1"]])
+    }
+    agents << agent("prod") {
+      bothStarted.countDown()
+      bothStarted.await(5, TimeUnit.SECONDS)
+      result("prod", [serverGroups: ["sg-prod"]])
+    }
+
+    when:
+    def result = updater.handle(ServerGroup, "aws", [:])
+
+    then:
+    2 * providerCache.putCacheResult(_, _, _)
+    bothStarted.count == 0
+    result.status == OnDemandCacheUpdater.OnDemandCacheStatus.PENDING
+    result.cachedIdentifiersByType.serverGroups as Set == ["sg-test", "sg-prod"] as Set
+    result.cachedIdentifiersByType.instances == ["i-1"]
+  }
+
+  void 'an agent that fails is counted without losing the results of the others'() {
+    given:
+    agents << agent("test") { result("test", [serverGroups: ["sg-test"]]) }
+    agents << agent("prod") { throw new IllegalStateException("boom") }
+
+    when:
+    def result = updater.handle(ServerGroup, "aws", [:])
+
+    then:
+    1 * providerCache.putCacheResult("test/ServerGroup", _, _)
+    result.status == OnDemandCacheUpdater.OnDemandCacheStatus.PENDING
+    result.cachedIdentifiersByType.serverGroups == ["sg-test"]
+    errors("prod") == 1
+    errors("test") == 0
+  }
+
+  void 'an agent that cannot be locked asks for a retry while the others are written'() {
+    given:
+    def lock = Stub(AgentLock)
+    def locked = agent("test") { result("test", [serverGroups: ["sg-test"]]) }
+    def contended = agent("prod") { result("prod", [serverGroups: ["sg-prod"]]) }
+    agents.addAll([locked, contended])
+
+    def scheduler = Mock(AgentScheduler)
+    updater.agentScheduler = scheduler
+
+    when:
+    def result = updater.handle(ServerGroup, "aws", [:])
+
+    then:
+    _ * scheduler.isAtomic() >> true
+    1 * scheduler.tryLock(locked) >> lock
+    1 * scheduler.tryLock(contended) >> null
+    1 * scheduler.lockValid(lock) >> true
+    1 * scheduler.tryRelease(lock) >> true
+    1 * providerCache.putCacheResult("test/ServerGroup", _, _)
+    0 * providerCache.putCacheResult("prod/ServerGroup", _, _)
+
+    handled as List == ["test"]
+    result.status == OnDemandCacheUpdater.OnDemandCacheStatus.PENDING
+    result.cachedIdentifiersByType.isEmpty()
+  }
+
+  void 'routes a request to the agents for its account, or to every agent if it names none'() {
+    given:
+    agents << agent("test") { null }
+    agents << agent("prod") { null }
+    agents << agent(null) { null }
+
+    when:
+    def result = updater.handle(ServerGroup, "aws", data)
+
+    then:
+    handled as Set == expected as Set
+    result.status == OnDemandCacheUpdater.OnDemandCacheStatus.SUCCESSFUL
+
+    where:
+    data                     || expected
+    [account: "prod"]        || ["prod", "any"]
+    [account: "staging"]     || ["any"]
+    [credentials: "prod"]    || ["test", "prod", "any"]
+    [:]                      || ["test", "prod", "any"]
+  }
+
+  private OnDemandAgent agent(String account, Closure<OnDemandAgent.OnDemandResult> handler) {
+    String agentType = "${account ?: 'any'}/ServerGroup"
+    def metrics = new OnDemandMetricsSupport(registry, Stub(OnDemandAgent) {
+      getProviderName() >> "aws"
+      getOnDemandAgentType() >> agentType
+    }, "aws:ServerGroup")
+
+    return Stub(AccountAwareOnDemandAgent) {
+      getProviderName() >> "aws"
+      getOnDemandAgentType() >> agentType
+      getAccountName() >> account
+      getMetricsSupport() >> metrics
+      handles(ServerGroup, "aws") >> true
+      handle(_, _) >> {
+        handled << (account ?: "any")
+        handler.call()
+      }
+    }
+  }
+
+  private static OnDemandAgent.OnDemandResult result(String account, Map<String, List<String>> idsByType) {
+    return new OnDemandAgent.OnDemandResult(
+      "${account}/ServerGroup",
+      new DefaultCacheResult(idsByType.collectEntries { type, ids ->
+        [(type): ids.collect { new DefaultCacheData(it, [:], [:]) }]
+      }),
+      [:]
+    )
+  }
+
+  private long errors(String account) {
+    return registry.counter(
+      OnDemandMetricsSupport.ON_DEMAND_ERROR,
+      "providerName", "aws",
+      "agentType", "${account}/ServerGroup".toString(),
+      "onDemandType", "aws:ServerGroup"
+    ).count()
+  }
+
+  interface AccountAwareOnDemandAgent extends Agent, OnDemandAgent, AccountAware {}
+}
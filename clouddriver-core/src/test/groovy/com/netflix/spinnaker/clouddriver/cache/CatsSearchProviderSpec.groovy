@@ -34,11 +34,13 @@ class CatsSearchProviderSpec extends Specification {
   def providers = [
     Stub(SearchableProvider) {
       supportsSearch('instances', _) >> true
+      getDefaultCaches() >> (['instances'] as Set)
       getAgents() >> [ instanceAgent ]
       parseKey(_) >> { String k -> return null }
     },
     Stub(SearchableProvider) {
       supportsSearch('instances', _) >> true
+      getDefaultCaches() >> (['instances'] as Set)
       getAgents() >> [ instanceAgent ]
       parseKey(_) >> { String k -> return ["originalKey": k] }
     }
@@ -70,9 +72,8 @@ class CatsSearchProviderSpec extends Specification {
     catsSearchProvider.run()
 
     then:
-    catsSearchProvider.cachedIdentifiersByType.get() == [
-      "instances": instanceIdentifiers.collect { it.toLowerCase() }
-    ]
+    catsSearchProvider.searchIndexesByType.keySet() == ["instances"] as Set
+    catsSearchProvider.searchIndexesByType.instances.search("") as Set == instanceIdentifiers.collect { it.toLowerCase() } as Set
   }
 
   def "should handle unparseable instance identifiers"() {
@@ -83,7 +84,7 @@ class CatsSearchProviderSpec extends Specification {
     catsSearchProvider.run()
 
     then:
-    catsSearchProvider.cachedIdentifiersByType.get() == [:]
+    catsSearchProvider.searchIndexesByType.isEmpty()
 
     when:
     providers.add(
@@ -93,6 +94,34 @@ class CatsSearchProviderSpec extends Specification {
     )
 
     then:
-    catsSearchProvider.cachedIdentifiersByType.get() == [:]
+    catsSearchProvider.searchIndexesByType.isEmpty()
+  }
+
+  def "should search refreshed instance identifiers in memory"() {
+    given:
+    cache.getIdentifiers("instances") >> { return instanceIdentifiers }
+    catsSearchProvider.run()
+
+    when:
+    def results = catsSearchProvider.search("i-56", ["instances"], 1, 10)
+
+    then:
+    0 * cache.filterIdentifiers(_, _)
+    results.totalMatches == 1
+    results.results*.originalKey == ["aws:instances:prod:us-west-2:i-5678"]
+  }
+
+  def "should stop returning identifiers of a type once it has none"() {
+    given:
+    def identifiers = instanceIdentifiers
+    cache.getIdentifiers("instances") >> { return identifiers }
+    catsSearchProvider.run()
+
+    when:
+    identifiers = []
+    catsSearchProvider.run()
+
+    then:
+    catsSearchProvider.searchIndexesByType.instances.search("") == []
   }
 }
@@ -0,0 +1,94 @@
+/*
+ * Copyright 2019 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.spinnaker.clouddriver.cache
+
+import com.netflix.spinnaker.cats.agent.AccountAware
+import com.netflix.spinnaker.cats.agent.Agent
+import com.netflix.spinnaker.cats.provider.Provider
+import spock.lang.Specification
+
+import static com.netflix.spinnaker.clouddriver.cache.OnDemandAgent.OnDemandType.LoadBalancer
+import static com.netflix.spinnaker.clouddriver.cache.OnDemandAgent.OnDemandType.ServerGroup
+
+class OnDemandAgentIndexSpec extends Specification {
+
+  List<Agent> agents = []
+  Provider provider = Stub(Provider) {
+    getAgents() >> { agents }
+  }
+
+  def index = new OnDemandAgentIndex([provider])
+
+  void 'finds the agents that handle a type and cloud provider'() {
+    given:
+    def test = agent("aws", "test")
+    def prod = agent("aws", "prod")
+    def global = agent("aws", null)
+    agents.addAll([test, prod, global, agent("gce", "test"), Stub(Agent)])
+
+    expect:
+    index.handles(ServerGroup, "aws")
+    !index.handles(LoadBalancer, "aws")
+    !index.handles(ServerGroup, "titus")
+
+    index.get(ServerGroup, "aws") as Set == [test, prod, global] as Set
+    index.get(ServerGroup, "aws", "test") as Set == [test, global] as Set
+    index.get(ServerGroup, "aws", "staging") as List == [global]
+    index.get(ServerGroup, "aws", null) as Set == [test, prod, global] as Set
+  }
+
+  void 'asks each agent whether it handles a type and cloud provider only once'() {
+    given:
+    def test = Mock(AccountAwareOnDemandAgent)
+    agents << test
+
+    when:
+    index.get(ServerGroup, "aws")
+    index.get(ServerGroup, "aws", "test")
+    index.handles(ServerGroup, "aws")
+
+    then:
+    1 * test.handles(ServerGroup, "aws") >> true
+    _ * test.accountName >> "test"
+  }
+
+  void 'picks up agents added after the index was built'() {
+    given:
+    agents << agent("aws", "test")
+
+    expect:
+    index.get(ServerGroup, "aws", "prod").isEmpty()
+
+    when:
+    def prod = agent("aws", "prod")
+    agents << prod
+
+    then:
+    index.get(ServerGroup, "aws", "prod") as List == [prod]
+  }
+
+  private OnDemandAgent agent(String cloudProvider, String account) {
+    return Stub(AccountAwareOnDemandAgent) {
+      handles(_, _) >> { OnDemandAgent.OnDemandType type, String provider ->
+        type == ServerGroup && provider == cloudProvider
+      }
+      getAccountName() >> account
+    }
+  }
+
+  interface AccountAwareOnDemandAgent extends Agent, OnDemandAgent, AccountAware {}
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2019 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.spinnaker.clouddriver.cache
+
+import spock.lang.Specification
+import spock.lang.Unroll
+
+class TrigramSearchIndexSpec extends Specification {
+
+  def index = new TrigramSearchIndex()
+
+  def keys = [
+    "aws:instances:prod:us-west-2:i-1234",
+    "aws:instances:prod:us-east-1:i-5678",
+    "aws:instances:test:us-west-2:i-9012",
+  ]
+
+  @Unroll
+  def "finds keys containing '#term'"() {
+    given:
+    index.update(keys)
+
+    expect:
+    index.search(term).sort() == expected.sort()
+
+    where:
+    term           || expected
+    "i-1234"       || ["aws:instances:prod:us-west-2:i-1234"]
+    "us-west-2"    || ["aws:instances:prod:us-west-2:i-1234", "aws:instances:test:us-west-2:i-9012"]
+    "prod"         || ["aws:instances:prod:us-west-2:i-1234", "aws:instances:prod:us-east-1:i-5678"]
+    "i-"           || keys
+    "eu-west-1"    || []
+    "1234:us"      || []
+  }
+
+  def "applies only the difference between updates"() {
+    given:
+    index.update(keys)
+
+    when:
+    index.update(keys.drop(1) + ["aws:instances:prod:eu-west-1:i-3456"])
+
+    then:
+    index.size() == 3
+    index.search("i-1234") == []
+    index.search("eu-west-1") == ["aws:instances:prod:eu-west-1:i-3456"]
+  }
+
+  def "rebuilds once removed keys outnumber live ones"() {
+    given:
+    def many = (1..3000).collect { "aws:instances:prod:us-west-2:i-$it".toString() }
+    index.update(many)
+
+    when:
+    index.update(many.take(10))
+
+    then:
+    index.size() == 10
+    index.search("us-west-2").sort() == many.take(10).sort()
+    index.search("i-2999") == []
+  }
+}
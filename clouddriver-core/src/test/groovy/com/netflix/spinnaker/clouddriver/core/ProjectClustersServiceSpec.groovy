@@ -17,6 +17,7 @@ package com.netflix.spinnaker.clouddriver.core
 
 import com.fasterxml.jackson.databind.ObjectMapper
 import com.netflix.spinnaker.clouddriver.core.services.Front50Service
+import com.netflix.spinnaker.clouddriver.model.BatchingClusterProvider
 import com.netflix.spinnaker.clouddriver.model.Cluster
 import com.netflix.spinnaker.clouddriver.model.ClusterProvider
 import com.netflix.spinnaker.clouddriver.model.LoadBalancer
@@ -444,6 +445,69 @@ class ProjectClustersServiceSpec extends Specification {
       ])
   }
 
+  void "expands clusters with one lookup per account when the provider can look up several at once"() {
+    given:
+    projectConfig.config.clusters = [
+      [account: "prod", stack: "*", applications: ["orca"]],
+      [account: "test", stack: "*", applications: ["orca"]]
+    ]
+    BatchingClusterProvider batchingClusterProvider = Mock()
+    subject = new ProjectClustersService(
+      front50Service,
+      new ObjectMapper(),
+      new Provider<List<ClusterProvider>>() {
+        @Override
+        List<ClusterProvider> get() {
+          return [batchingClusterProvider]
+        }
+      }
+    )
+
+    when:
+    def result = subject.getProjectClusters(allowList)
+
+    then:
+    result["Spinnaker"]*.instanceCounts.total == [2, 1]
+
+    1 * front50Service.getProject(_) >> { projectConfig }
+    1 * batchingClusterProvider.getClusterSummaries("deck") >> [:]
+    1 * batchingClusterProvider.getClusterSummaries("orca") >> [
+      prod: [
+        new TestCluster(name: "orca-main", accountName: "prod", serverGroups: []),
+        new TestCluster(name: "orca-test", accountName: "prod", serverGroups: [])
+      ] as Set,
+      test: [
+        new TestCluster(name: "orca-main", accountName: "test", serverGroups: [])
+      ] as Set
+    ]
+    1 * batchingClusterProvider.getClustersByName("orca", "prod", { it as Set == ["orca-main", "orca-test"] as Set }) >> [
+      new TestCluster(
+        name: "orca-main",
+        accountName: "prod",
+        serverGroups: [
+          makeServerGroup("prod", "orca-main-v001", "us-east-1", 3, 1L, new ServerGroup.InstanceCounts(total: 1, up: 1))
+        ]
+      ),
+      new TestCluster(
+        name: "orca-test",
+        accountName: "prod",
+        serverGroups: [
+          makeServerGroup("prod", "orca-test-v001", "us-east-1", 4, 2L, new ServerGroup.InstanceCounts(total: 1, up: 1))
+        ]
+      )
+    ] as Set
+    1 * batchingClusterProvider.getClustersByName("orca", "test", ["orca-main"]) >> [
+      new TestCluster(
+        name: "orca-main",
+        accountName: "test",
+        serverGroups: [
+          makeServerGroup("test", "orca-main-v002", "us-east-1", 5, 3L, new ServerGroup.InstanceCounts(total: 1, up: 1))
+        ]
+      )
+    ] as Set
+    0 * batchingClusterProvider._
+  }
+
   private static List<ClusterModel> cachedClusters(Map<String, List<ClusterModel>> result, String projectName) {
     return result[projectName]
   }
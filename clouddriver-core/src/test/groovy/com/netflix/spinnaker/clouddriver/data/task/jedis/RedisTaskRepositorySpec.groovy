@@ -76,4 +76,48 @@ class RedisTaskRepositorySpec extends Specification {
     embeddedRedis1.destroy()
     embeddedRedis2.destroy()
   }
+
+  void "get reads status, history and results together"() {
+    given:
+    def task = taskRepository.create("starting", "foo")
+    task.updateStatus("deploying", "bar")
+    task.addResultObjects([[name: "result"]])
+
+    when:
+    def fetched = taskRepository.get(task.id)
+    jedisPool.resource.withCloseable {
+      ((Jedis) it).del("taskHistory:${task.id}", "taskResult:${task.id}")
+    }
+
+    then:
+    fetched.status.status == "bar"
+    fetched.history*.status == ["foo", "bar"]
+    fetched.resultObjects == [[name: "result"]]
+  }
+
+  void "a fetched task reads through to redis once it has been updated"() {
+    given:
+    def fetched = taskRepository.get(taskRepository.create("starting", "foo").id)
+
+    when:
+    fetched.updateStatus("deploying", "bar")
+
+    then:
+    fetched.status.status == "bar"
+    fetched.history*.status == ["foo", "bar"]
+  }
+
+  void "list reads every running task in one pass"() {
+    given:
+    def running = (1..3).collect { taskRepository.create("starting", "task ${it}") }
+    taskRepository.create("starting", "done").complete()
+
+    when:
+    def tasks = taskRepository.list()
+
+    then:
+    tasks*.id as Set == running*.id as Set
+    tasks*.status*.status as Set == ["task 1", "task 2", "task 3"] as Set
+    taskRepository.listByThisInstance()*.id as Set == running*.id as Set
+  }
 }
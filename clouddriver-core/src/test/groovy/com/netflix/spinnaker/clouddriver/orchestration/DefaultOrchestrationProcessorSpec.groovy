@@ -112,6 +112,22 @@ class DefaultOrchestrationProcessorSpec extends Specification {
     !task.status.isFailed()
   }
 
+  void "fail the task when the orchestration is rejected"() {
+    setup:
+    def task = new DefaultTask("1")
+    def atomicOperation = Mock(AtomicOperation)
+    processor.executorService.shutdown()
+
+    when:
+    processor.process([atomicOperation], taskKey)
+
+    then:
+    1 * taskRepository.create(_, _, taskKey) >> task
+    0 * atomicOperation.operate(_)
+    task.status.isFailed()
+    task.resultObjects.find { it.type == "EXCEPTION" }.cause == "RejectedExecutionException"
+  }
+
   void "should clear MDC thread local"() {
     given:
     MDC.put("myKey", "myValue")
@@ -0,0 +1,133 @@
+/*
+ * Copyright 2019 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.spinnaker.clouddriver.orchestration
+
+import com.netflix.spectator.api.DefaultRegistry
+import com.netflix.spinnaker.clouddriver.config.OrchestrationExecutorProperties
+import spock.lang.Specification
+
+import java.util.concurrent.Callable
+import java.util.concurrent.ConcurrentLinkedQueue
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.RejectedExecutionException
+import java.util.concurrent.TimeUnit
+
+class OrchestrationExecutorSpec extends Specification {
+
+  def registry = new DefaultRegistry()
+  def properties = new OrchestrationExecutorProperties()
+  def started = new ConcurrentLinkedQueue<String>()
+  def release = new CountDownLatch(1)
+
+  void 'starts every orchestration straight away unless a limit is configured'() {
+    given:
+    def executor = new OrchestrationExecutor(registry, properties)
+    def allStarted = new CountDownLatch(3)
+
+    when:
+    3.times { i ->
+      executor.submit({ allStarted.countDown(); release.await(5, TimeUnit.SECONDS) } as Callable,
+        request("aws", "test", "DeployAtomicOperation"))
+    }
+
+    then:
+    allStarted.await(5, TimeUnit.SECONDS)
+
+    cleanup:
+    release.countDown()
+    executor.shutdown()
+  }
+
+  void 'runs priority operations ahead of earlier queued ones'() {
+    given:
+    properties.maxConcurrentOrchestrations = 1
+    def executor = new OrchestrationExecutor(registry, properties)
+
+    when:
+    executor.submit(blocking("first"), request("aws", "test", "DeployAtomicOperation"))
+    executor.submit(recording("deploy"), request("aws", "test", "DeployAtomicOperation"))
+    executor.submit(recording("rollback"), request("aws", "test", "RollbackServerGroupAtomicOperation"))
+    release.countDown()
+    executor.shutdown()
+
+    then:
+    executor.awaitTermination(5, TimeUnit.SECONDS)
+    started as List == ["first", "rollback", "deploy"]
+  }
+
+  void 'an account at its limit does not hold up other accounts'() {
+    given:
+    properties.maxConcurrentOrchestrations = 2
+    properties.maxConcurrentPerAccount = 1
+    def executor = new OrchestrationExecutor(registry, properties)
+    def otherAccountStarted = new CountDownLatch(1)
+
+    when:
+    executor.submit(blocking("first"), request("aws", "test", "DeployAtomicOperation"))
+    executor.submit(recording("second"), request("aws", "test", "DeployAtomicOperation"))
+    executor.submit({ started << "other"; otherAccountStarted.countDown() } as Callable,
+      request("aws", "prod", "DeployAtomicOperation"))
+
+    then:
+    otherAccountStarted.await(5, TimeUnit.SECONDS)
+    !started.contains("second")
+
+    when:
+    release.countDown()
+    executor.shutdown()
+
+    then:
+    executor.awaitTermination(5, TimeUnit.SECONDS)
+    started.contains("second")
+  }
+
+  void 'rejects orchestrations once the queue is full'() {
+    given:
+    properties.maxConcurrentOrchestrations = 1
+    properties.queueCapacity = 1
+    def executor = new OrchestrationExecutor(registry, properties)
+
+    when:
+    executor.submit(blocking("first"), request("aws", "test", "DeployAtomicOperation"))
+    executor.submit(recording("queued"), request("aws", "test", "DeployAtomicOperation"))
+    executor.submit(recording("rejected"), request("aws", "test", "DeployAtomicOperation"))
+
+    then:
+    thrown(RejectedExecutionException)
+    registry.counter("orchestrations.rejected", "priority", "NORMAL", "reason", "queueFull").count() == 1
+
+    when:
+    release.countDown()
+    executor.shutdown()
+
+    then:
+    executor.awaitTermination(5, TimeUnit.SECONDS)
+    started as List == ["first", "queued"]
+  }
+
+  private Callable blocking(String name) {
+    return { started << name; release.await(5, TimeUnit.SECONDS) } as Callable
+  }
+
+  private Callable recording(String name) {
+    return { started << name } as Callable
+  }
+
+  private static OrchestrationExecutor.Request request(String cloudProvider, String account, String operation) {
+    return new OrchestrationExecutor.Request(cloudProvider, account, [operation])
+  }
+}
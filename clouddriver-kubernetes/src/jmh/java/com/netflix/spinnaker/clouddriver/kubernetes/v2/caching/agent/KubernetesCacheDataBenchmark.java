@@ -0,0 +1,114 @@
+/*
+ * Copyright 2019 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.spinnaker.clouddriver.kubernetes.v2.caching.agent;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.netflix.spinnaker.cats.cache.CacheData;
+import com.netflix.spinnaker.clouddriver.kubernetes.v2.caching.Keys;
+import com.netflix.spinnaker.clouddriver.kubernetes.v2.description.manifest.KubernetesKind;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures building the cache result of a large caching agent: pods owned by replica sets, each
+ * related to its application, cluster and artifact, the way convertAsResource relates them.
+ *
+ * <p>This is mostly about allocation, so run it with the GC profiler:
+ *
+ * <pre>
+ *   ./gradlew :clouddriver-kubernetes:jmh -PjmhArgs="KubernetesCacheDataBenchmark -prof gc"
+ * </pre>
+ *
+ * <p>and compare {@code gc.alloc.rate.norm}, the bytes allocated per build.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class KubernetesCacheDataBenchmark {
+  private static final String ACCOUNT = "my-account";
+  private static final String NAMESPACE = "my-namespace";
+  private static final int PODS_PER_REPLICA_SET = 50;
+  private static final int REPLICA_SETS_PER_APPLICATION = 20;
+
+  @Param({"10000", "80000"})
+  public int pods;
+
+  @Benchmark
+  public KubernetesCacheData build() {
+    return populate();
+  }
+
+  @Benchmark
+  public Map<String, Collection<CacheData>> buildAndConvert() {
+    return populate().toStratifiedCacheData();
+  }
+
+  private KubernetesCacheData populate() {
+    KubernetesCacheData kubernetesCacheData = new KubernetesCacheData();
+    for (int i = 0; i < pods; i++) {
+      int replicaSet = i / PODS_PER_REPLICA_SET;
+      String application = "app-" + (replicaSet / REPLICA_SETS_PER_APPLICATION);
+      String replicaSetName = application + "-v" + replicaSet;
+      String podName = replicaSetName + "-" + i;
+
+      Keys.CacheKey replicaSetKey =
+          new Keys.InfrastructureCacheKey(
+              KubernetesKind.REPLICA_SET, ACCOUNT, NAMESPACE, replicaSetName);
+      Keys.CacheKey podKey =
+          new Keys.InfrastructureCacheKey(KubernetesKind.POD, ACCOUNT, NAMESPACE, podName);
+      Keys.CacheKey applicationKey = new Keys.ApplicationCacheKey(application);
+      Keys.CacheKey clusterKey =
+          new Keys.ClusterCacheKey(ACCOUNT, application, "replicaSet " + application);
+      Keys.CacheKey artifactKey =
+          new Keys.ArtifactCacheKey(
+              "kubernetes/replicaSet", application, NAMESPACE, "v" + replicaSet);
+
+      if (i % PODS_PER_REPLICA_SET == 0) {
+        kubernetesCacheData.addItem(replicaSetKey, attributes(replicaSetName));
+        kubernetesCacheData.addRelationship(replicaSetKey, applicationKey);
+        kubernetesCacheData.addRelationship(replicaSetKey, clusterKey);
+        kubernetesCacheData.addRelationship(applicationKey, clusterKey);
+        kubernetesCacheData.addRelationship(replicaSetKey, artifactKey);
+      }
+
+      kubernetesCacheData.addItem(podKey, attributes(podName));
+      kubernetesCacheData.addRelationship(podKey, applicationKey);
+      kubernetesCacheData.addRelationships(podKey, ImmutableSet.of(replicaSetKey));
+      kubernetesCacheData.addRelationship(podKey, artifactKey);
+    }
+    return kubernetesCacheData;
+  }
+
+  private static Map<String, Object> attributes(String name) {
+    return ImmutableMap.of("name", name, "namespace", NAMESPACE, "application", "app");
+  }
+}
@@ -0,0 +1,239 @@
+/*
+ * Copyright 2019 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.spinnaker.clouddriver.kubernetes.v2.caching.view.model;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.ImmutableMap;
+import com.netflix.spinnaker.cats.cache.CacheData;
+import com.netflix.spinnaker.cats.cache.DefaultCacheData;
+import com.netflix.spinnaker.clouddriver.kubernetes.v2.caching.Keys;
+import com.netflix.spinnaker.clouddriver.kubernetes.v2.caching.agent.KubernetesCacheDataConverter;
+import com.netflix.spinnaker.clouddriver.kubernetes.v2.description.manifest.KubernetesKind;
+import com.netflix.spinnaker.clouddriver.kubernetes.v2.description.manifest.KubernetesManifest;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures reading cached pods back into manifests and instances, the way a cluster view does.
+ *
+ * <p>Each pod is serialized and decoded again during setup, so the attributes have the same shape
+ * they have when read out of redis or sql. The {@code convertValue} benchmarks are how manifests
+ * used to be read: a full Jackson round trip per pod, even when only the kind was needed.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class KubernetesManifestReadBenchmark {
+  private static final ObjectMapper mapper = new ObjectMapper();
+
+  @Param({"10000"})
+  public int pods;
+
+  private List<CacheData> cacheData;
+
+  @Setup(Level.Trial)
+  public void setup() throws IOException {
+    cacheData = new ArrayList<>(pods);
+    for (int i = 0; i < pods; i++) {
+      String replicaSet = "frontend-v" + (i / 100);
+      String name = replicaSet + "-" + Integer.toHexString(0x10000 + i);
+      Map<String, Object> manifest = pod(replicaSet, name, i);
+      String key =
+          Keys.InfrastructureCacheKey.createKey(
+              KubernetesKind.POD, "my-account", "my-namespace", name);
+      Map<String, Object> attributes =
+          mapper.readValue(
+              mapper.writeValueAsBytes(Collections.singletonMap("manifest", manifest)),
+              new TypeReference<Map<String, Object>>() {});
+      cacheData.add(new DefaultCacheData(key, attributes, Collections.emptyMap()));
+    }
+  }
+
+  @Benchmark
+  public void manifestsWithConvertValue(Blackhole blackhole) {
+    for (CacheData cd : cacheData) {
+      blackhole.consume(
+          mapper.convertValue(cd.getAttributes().get("manifest"), KubernetesManifest.class));
+    }
+  }
+
+  @Benchmark
+  public void manifestsWithView(Blackhole blackhole) {
+    for (CacheData cd : cacheData) {
+      blackhole.consume(KubernetesCacheDataConverter.getManifest(cd));
+    }
+  }
+
+  @Benchmark
+  public void kindWithConvertValue(Blackhole blackhole) {
+    for (CacheData cd : cacheData) {
+      blackhole.consume(
+          mapper
+              .convertValue(cd.getAttributes().get("manifest"), KubernetesManifest.class)
+              .getKind());
+    }
+  }
+
+  @Benchmark
+  public void kindWithView(Blackhole blackhole) {
+    for (CacheData cd : cacheData) {
+      blackhole.consume(KubernetesCacheDataConverter.getManifestView(cd).getKind());
+    }
+  }
+
+  @Benchmark
+  public void instances(Blackhole blackhole) {
+    for (CacheData cd : cacheData) {
+      blackhole.consume(KubernetesV2Instance.summaryFromCacheData(cd));
+    }
+  }
+
+  /** A pod owned by a replica set, with two containers, roughly as the API server returns it. */
+  private static Map<String, Object> pod(String replicaSet, String name, int i) {
+    Map<String, Object> metadata = new HashMap<>();
+    metadata.put("name", name);
+    metadata.put("namespace", "my-namespace");
+    metadata.put("uid", "6f3a1c2e-" + i);
+    metadata.put("resourceVersion", String.valueOf(100000 + i));
+    metadata.put("creationTimestamp", "2019-05-01T12:00:00Z");
+    metadata.put(
+        "labels",
+        ImmutableMap.of(
+            "app", "frontend",
+            "app.kubernetes.io/name", "frontend",
+            "app.kubernetes.io/managed-by", "spinnaker",
+            "pod-template-hash", "5d9c8f7b6"));
+    metadata.put(
+        "annotations",
+        ImmutableMap.of(
+            "artifact.spinnaker.io/name", "frontend",
+            "artifact.spinnaker.io/type", "kubernetes/replicaSet",
+            "artifact.spinnaker.io/location", "my-namespace",
+            "moniker.spinnaker.io/application", "frontend",
+            "moniker.spinnaker.io/cluster", "replicaSet frontend"));
+    metadata.put(
+        "ownerReferences",
+        Collections.singletonList(
+            ImmutableMap.builder()
+                .put("apiVersion", "apps/v1")
+                .put("kind", "ReplicaSet")
+                .put("name", replicaSet)
+                .put("uid", "0b1d2e3f-" + replicaSet)
+                .put("controller", true)
+                .put("blockOwnerDeletion", true)
+                .build()));
+
+    Map<String, Object> spec = new HashMap<>();
+    spec.put("containers", Arrays.asList(container("frontend", 8080), container("sidecar", 9090)));
+    spec.put("nodeName", "node-" + (i % 50));
+    spec.put("restartPolicy", "Always");
+    spec.put("serviceAccountName", "default");
+    spec.put("terminationGracePeriodSeconds", 30);
+
+    Map<String, Object> status = new HashMap<>();
+    status.put("phase", "Running");
+    status.put("hostIP", "10.0.0." + (i % 250));
+    status.put("podIP", "10.1." + (i / 250 % 250) + "." + (i % 250));
+    status.put("startTime", "2019-05-01T12:00:01Z");
+    status.put(
+        "conditions",
+        Arrays.asList(
+            condition("Initialized"),
+            condition("Ready"),
+            condition("ContainersReady"),
+            condition("PodScheduled")));
+    status.put(
+        "containerStatuses",
+        Arrays.asList(containerStatus("frontend", i), containerStatus("sidecar", i)));
+
+    Map<String, Object> pod = new HashMap<>();
+    pod.put("apiVersion", "v1");
+    pod.put("kind", "Pod");
+    pod.put("metadata", metadata);
+    pod.put("spec", spec);
+    pod.put("status", status);
+    return pod;
+  }
+
+  private static Map<String, Object> container(String name, int port) {
+    Map<String, Object> container = new HashMap<>();
+    container.put("name", name);
+    container.put("image", "registry.example.com/" + name + ":1.2.3");
+    container.put("imagePullPolicy", "IfNotPresent");
+    container.put(
+        "ports",
+        Collections.singletonList(ImmutableMap.of("containerPort", port, "protocol", "TCP")));
+    container.put(
+        "env",
+        Arrays.asList(
+            ImmutableMap.of("name", "PORT", "value", String.valueOf(port)),
+            ImmutableMap.of("name", "ENVIRONMENT", "value", "production")));
+    container.put(
+        "resources",
+        ImmutableMap.of(
+            "limits", ImmutableMap.of("cpu", "1", "memory", "1Gi"),
+            "requests", ImmutableMap.of("cpu", "500m", "memory", "512Mi")));
+    container.put(
+        "readinessProbe",
+        ImmutableMap.of(
+            "httpGet", ImmutableMap.of("path", "/health", "port", port),
+            "periodSeconds", 10));
+    return container;
+  }
+
+  private static Map<String, Object> condition(String type) {
+    return ImmutableMap.of(
+        "type", type, "status", "True", "lastTransitionTime", "2019-05-01T12:00:05Z");
+  }
+
+  private static Map<String, Object> containerStatus(String name, int i) {
+    return ImmutableMap.<String, Object>builder()
+        .put("name", name)
+        .put("ready", true)
+        .put("restartCount", i % 3)
+        .put("image", "registry.example.com/" + name + ":1.2.3")
+        .put("imageID", "docker-pullable://registry.example.com/" + name + "@sha256:abc" + i)
+        .put("containerID", "docker://" + Integer.toHexString(i))
+        .put(
+            "state",
+            ImmutableMap.of("running", ImmutableMap.of("startedAt", "2019-05-01T12:00:03Z")))
+        .build();
+  }
+}
@@ -60,6 +60,7 @@ class KubernetesConfigurationProperties {
     List<String> omitKinds = new ArrayList<>()
     boolean onlySpinnakerManaged = false
     boolean liveManifestCalls = false
+    boolean watchCaching = false
     Long cacheIntervalSeconds
   }
 
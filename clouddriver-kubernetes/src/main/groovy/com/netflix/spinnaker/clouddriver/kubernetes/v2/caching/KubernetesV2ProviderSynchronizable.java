@@ -104,7 +104,11 @@ public class KubernetesV2ProviderSynchronizable implements CredentialsInitialize
     List<String> changedAccounts = new ArrayList<>();
     Set<String> newAndChangedAccounts = new HashSet<>();
 
-    deletedAccounts.forEach(accountCredentialsRepository::delete);
+    deletedAccounts.forEach(
+        name -> {
+          closeWatches(accountCredentialsRepository.getOne(name));
+          accountCredentialsRepository.delete(name);
+        });
 
     kubernetesConfigurationProperties.getAccounts().stream()
         .filter(a -> ProviderVersion.v2.equals(a.getProviderVersion()))
@@ -124,6 +128,7 @@ public class KubernetesV2ProviderSynchronizable implements CredentialsInitialize
                 // account exists but has changed
                 changedAccounts.add(managedAccount.getName());
                 newAndChangedAccounts.add(managedAccount.getName());
+                closeWatches(existingCredentials);
               }
 
               accountCredentialsRepository.save(managedAccount.getName(), credentials);
@@ -135,6 +140,20 @@ public class KubernetesV2ProviderSynchronizable implements CredentialsInitialize
     return newAndChangedAccounts;
   }
 
+  /**
+   * Caching agents of unchanged accounts keep the credentials they were built with, so only the
+   * credentials of removed and changed accounts, whose agents are unscheduled, stop watching.
+   */
+  private static void closeWatches(AccountCredentials credentials) {
+    if (credentials instanceof KubernetesNamedAccountCredentials
+        && ((KubernetesNamedAccountCredentials) credentials).getCredentials()
+            instanceof KubernetesV2Credentials) {
+      ((KubernetesV2Credentials)
+              ((KubernetesNamedAccountCredentials) credentials).getCredentials())
+          .closeWatches();
+    }
+  }
+
   private List<String> getDeletedAccountNames() {
     List<String> existingNames =
         accountCredentialsRepository.getAll().stream()
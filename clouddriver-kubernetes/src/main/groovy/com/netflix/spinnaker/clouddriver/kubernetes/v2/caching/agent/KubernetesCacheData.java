@@ -21,8 +21,6 @@ import com.netflix.spinnaker.cats.cache.DefaultCacheData;
 import com.netflix.spinnaker.clouddriver.kubernetes.v2.caching.Keys;
 import com.netflix.spinnaker.clouddriver.kubernetes.v2.description.manifest.KubernetesKind;
 import java.util.*;
-import java.util.stream.Collectors;
-import lombok.Value;
 
 /**
  * A collection of CacheItem entries used when building up the items being cached by the Kubernetes
@@ -33,18 +31,43 @@ import lombok.Value;
  * operations supported on the class guarantee that the resulting Collection&lt;CacheData&gt; has
  * the following properties: (1) Each CacheData has a unique cache key, (2) all relationships
  * between CacheData items are bidirectional
+ *
+ * <p>Large agents add hundreds of thousands of items, so the items are stored compactly: each
+ * distinct key is assigned an int id the first time it's seen, relationships are stored as arrays
+ * of those ids, and attributes are kept as the map that was added rather than copied. Cache keys
+ * are only serialized while converting to CacheData, once per key, and every relationship to a key
+ * shares that one string.
  */
 public class KubernetesCacheData {
-  private final Map<Keys.CacheKey, CacheItem> items = new HashMap<>();
+  private final Map<Keys.CacheKey, Integer> ids = new HashMap<>();
+  private final List<Keys.CacheKey> keys = new ArrayList<>();
+  private final List<Map<String, Object>> attributes = new ArrayList<>();
+  // ids whose attributes were merged into a map we own, rather than the map the caller added
+  private final BitSet mergedAttributes = new BitSet();
+  private int[][] relationships = new int[16][];
+  private int[] relationshipCounts = new int[16];
 
   /**
    * Add an item to the cache with specified key and attributes. If there is already an item with
    * the given key, the attributes are merged into the existing item's attributes (with the input
    * attributes taking priority).
+   *
+   * <p>The attributes aren't copied unless they need to be merged, so they must not be modified
+   * after they've been added.
    */
   public void addItem(Keys.CacheKey key, Map<String, Object> attributes) {
-    CacheItem item = items.computeIfAbsent(key, CacheItem::new);
-    item.getAttributes().putAll(attributes);
+    int id = idOf(key);
+    Map<String, Object> existing = this.attributes.get(id);
+    if (existing == null) {
+      this.attributes.set(id, attributes);
+    } else {
+      if (!mergedAttributes.get(id)) {
+        existing = new HashMap<>(existing);
+        this.attributes.set(id, existing);
+        mergedAttributes.set(id);
+      }
+      existing.putAll(attributes);
+    }
   }
 
   /**
@@ -52,8 +75,10 @@ public class KubernetesCacheData {
    * cache, an entry is created for that item with an empty map of attributes.
    */
   public void addRelationship(Keys.CacheKey a, Keys.CacheKey b) {
-    items.computeIfAbsent(a, CacheItem::new).getRelationships().add(b);
-    items.computeIfAbsent(b, CacheItem::new).getRelationships().add(a);
+    int idA = idOf(a);
+    int idB = idOf(b);
+    addRelationship(idA, idB);
+    addRelationship(idB, idA);
   }
 
   /**
@@ -62,16 +87,24 @@ public class KubernetesCacheData {
    * of attributes
    */
   public void addRelationships(Keys.CacheKey a, Set<Keys.CacheKey> b) {
-    items.computeIfAbsent(a, CacheItem::new).getRelationships().addAll(b);
-    b.forEach(k -> items.computeIfAbsent(k, CacheItem::new).getRelationships().add(a));
+    int idA = idOf(a);
+    for (Keys.CacheKey key : b) {
+      int idB = idOf(key);
+      addRelationship(idA, idB);
+      addRelationship(idB, idA);
+    }
   }
 
   /** Return a List of CacheData entries representing the current items in the cache. */
   public List<CacheData> toCacheData() {
-    return items.values().stream()
-        .filter(item -> !item.omitItem())
-        .map(CacheItem::toCacheData)
-        .collect(Collectors.toList());
+    Converter converter = new Converter();
+    List<CacheData> result = new ArrayList<>();
+    for (int id = 0; id < keys.size(); id++) {
+      if (!omitItem(id)) {
+        result.add(converter.toCacheData(id));
+      }
+    }
+    return result;
   }
 
   /**
@@ -79,67 +112,139 @@ public class KubernetesCacheData {
    * item's group.
    */
   public Map<String, Collection<CacheData>> toStratifiedCacheData() {
-    return items.values().stream()
-        .filter(item -> !item.omitItem())
-        .collect(
-            Collectors.groupingBy(
-                item -> item.key.getGroup(),
-                Collectors.mapping(
-                    CacheItem::toCacheData, Collectors.toCollection(ArrayList::new))));
+    Converter converter = new Converter();
+    Map<String, Collection<CacheData>> result = new HashMap<>();
+    for (int id = 0; id < keys.size(); id++) {
+      if (!omitItem(id)) {
+        result
+            .computeIfAbsent(converter.group(id), k -> new ArrayList<>())
+            .add(converter.toCacheData(id));
+      }
+    }
+    return result;
+  }
+
+  private int idOf(Keys.CacheKey key) {
+    Integer id = ids.get(key);
+    if (id == null) {
+      id = keys.size();
+      ids.put(key, id);
+      keys.add(key);
+      attributes.add(null);
+      if (id == relationships.length) {
+        relationships = Arrays.copyOf(relationships, id * 2);
+        relationshipCounts = Arrays.copyOf(relationshipCounts, id * 2);
+      }
+    }
+    return id;
+  }
+
+  private void addRelationship(int from, int to) {
+    int[] related = relationships[from];
+    int count = relationshipCounts[from];
+    if (related == null) {
+      related = new int[4];
+      relationships[from] = related;
+    } else if (count == related.length) {
+      // the same relationship is often added from both ends, so drop duplicates before growing
+      count = distinct(related, count);
+      if (count > related.length / 2) {
+        related = Arrays.copyOf(related, related.length * 2);
+        relationships[from] = related;
+      }
+    }
+    related[count] = to;
+    relationshipCounts[from] = count + 1;
+  }
+
+  /** Sorts the first {@code count} ids and moves the distinct ones to the front. */
+  private static int distinct(int[] ids, int count) {
+    if (count < 2) {
+      return count;
+    }
+    Arrays.sort(ids, 0, count);
+    int distinct = 1;
+    for (int i = 1; i < count; i++) {
+      if (ids[i] != ids[distinct - 1]) {
+        ids[distinct++] = ids[i];
+      }
+    }
+    return distinct;
   }
 
   /**
-   * An item being cached by the Kubernetes V2 provider. This corresponds to a CacheData entry, but
-   * stores the information in a format that is more efficient to manipulate as we build up the
-   * cache data.
-   *
-   * <p>In particular:the cache key is stored as a Keys.CacheKey object (rather than serialized) so
-   * we can access properties of the key without re-parsing it and the relationships are stored as a
-   * flat Set&lt;Keys.CacheKey&gt; instead of as a Map&lt;String, Collection&lt;String&gt;&gt; so
-   * that we can efficiently add relationships.
-   *
-   * <p>A CacheItem can be converted to its corresponding CacheData by calling toCacheData()
+   * given that we now have large caching agents that are authoritative for huge chunks of the
+   * cache, it's possible that some resources (like events) still point to deleted resources. These
+   * won't have any attributes, but if we add a cache entry here, the deleted item will still be
+   * cached
    */
-  @Value
-  private static class CacheItem {
-    private final Keys.CacheKey key;
-    private final Map<String, Object> attributes = new HashMap<>();
-    private final Set<Keys.CacheKey> relationships = new HashSet<>();
-
-    private Map<String, Collection<String>> groupedRelationships() {
-      Map<String, Collection<String>> groups = new HashMap<>();
-      for (KubernetesKind kind : KubernetesCacheDataConverter.getStickyKinds()) {
-        groups.put(kind.toString(), new HashSet<>());
-      }
-      for (Keys.CacheKey key : relationships) {
-        groups.computeIfAbsent(key.getGroup(), k -> new HashSet<>()).add(key.toString());
+  private boolean omitItem(int id) {
+    Map<String, Object> itemAttributes = attributes.get(id);
+    return keys.get(id) instanceof Keys.InfrastructureCacheKey
+        && (itemAttributes == null || itemAttributes.isEmpty());
+  }
+
+  /**
+   * Converts items to CacheData, serializing each key and computing each group at most once for
+   * the whole conversion.
+   */
+  private class Converter {
+    private final String[] keyStrings = new String[keys.size()];
+    private final String[] groups = new String[keys.size()];
+
+    String key(int id) {
+      if (keyStrings[id] == null) {
+        keyStrings[id] = keys.get(id).toString();
       }
-      return groups;
+      return keyStrings[id];
     }
 
-    /**
-     * given that we now have large caching agents that are authoritative for huge chunks of the
-     * cache, it's possible that some resources (like events) still point to deleted resources.
-     * These won't have any attributes, but if we add a cache entry here, the deleted item will
-     * still be cached
-     */
-    public boolean omitItem() {
-      return key instanceof Keys.InfrastructureCacheKey && attributes.isEmpty();
+    String group(int id) {
+      if (groups[id] == null) {
+        groups[id] = keys.get(id).getGroup();
+      }
+      return groups[id];
     }
 
-    /** Convert this CacheItem to its corresponding CacheData object */
-    public CacheData toCacheData() {
+    CacheData toCacheData(int id) {
+      Keys.CacheKey key = keys.get(id);
+      Map<String, Object> itemAttributes = attributes.get(id);
+      if (itemAttributes == null) {
+        itemAttributes = Collections.emptyMap();
+      }
+
       int ttlSeconds;
-      if (Keys.LogicalKind.isLogicalGroup(key.getGroup())) {
+      if (Keys.LogicalKind.isLogicalGroup(group(id))) {
         // If we are inverting a relationship to create a cache data for either a cluster or an
-        // application we
-        // need to insert attributes to ensure the cache data gets entered into the cache.
-        attributes.putIfAbsent("name", key.getName());
+        // application we need to insert attributes to ensure the cache data gets entered into the
+        // cache.
+        if (!itemAttributes.containsKey("name")) {
+          itemAttributes = new HashMap<>(itemAttributes);
+          itemAttributes.put("name", key.getName());
+        }
         ttlSeconds = KubernetesCacheDataConverter.getLogicalTtlSeconds();
       } else {
         ttlSeconds = KubernetesCacheDataConverter.getInfrastructureTtlSeconds();
       }
-      return new DefaultCacheData(key.toString(), ttlSeconds, attributes, groupedRelationships());
+      // DefaultCacheData copies the attributes, so the map that was added is never modified
+      return new DefaultCacheData(key(id), ttlSeconds, itemAttributes, groupedRelationships(id));
+    }
+
+    private Map<String, Collection<String>> groupedRelationships(int id) {
+      Map<String, Collection<String>> grouped = new HashMap<>();
+      for (KubernetesKind kind : KubernetesCacheDataConverter.getStickyKinds()) {
+        grouped.put(kind.toString(), new ArrayList<>());
+      }
+
+      int[] related = relationships[id];
+      if (related != null) {
+        int count = distinct(related, relationshipCounts[id]);
+        relationshipCounts[id] = count;
+        for (int i = 0; i < count; i++) {
+          grouped.computeIfAbsent(group(related[i]), k -> new ArrayList<>()).add(key(related[i]));
+        }
+      }
+      return grouped;
     }
   }
 }
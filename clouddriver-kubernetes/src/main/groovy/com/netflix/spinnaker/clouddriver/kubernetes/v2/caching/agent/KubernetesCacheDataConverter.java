@@ -34,6 +34,7 @@ import com.netflix.spinnaker.clouddriver.kubernetes.v2.description.manifest.Kube
 import com.netflix.spinnaker.clouddriver.kubernetes.v2.description.manifest.KubernetesKind;
 import com.netflix.spinnaker.clouddriver.kubernetes.v2.description.manifest.KubernetesManifest;
 import com.netflix.spinnaker.clouddriver.kubernetes.v2.description.manifest.KubernetesManifestAnnotater;
+import com.netflix.spinnaker.clouddriver.kubernetes.v2.description.manifest.KubernetesManifestView;
 import com.netflix.spinnaker.clouddriver.kubernetes.v2.names.KubernetesManifestNamer;
 import com.netflix.spinnaker.clouddriver.names.NamerRegistry;
 import com.netflix.spinnaker.kork.artifacts.model.Artifact;
@@ -227,7 +228,16 @@ public class KubernetesCacheDataConverter {
   }
 
   public static KubernetesManifest getManifest(CacheData cacheData) {
-    return mapper.convertValue(cacheData.getAttributes().get("manifest"), KubernetesManifest.class);
+    KubernetesManifestView view = getManifestView(cacheData);
+    return view == null ? null : view.toManifest();
+  }
+
+  /**
+   * A read-only view of the cached manifest, for readers that only need its metadata, status or
+   * replicas and don't need to pay for a copy of the whole manifest.
+   */
+  public static KubernetesManifestView getManifestView(CacheData cacheData) {
+    return KubernetesManifestView.of(cacheData.getAttributes().get("manifest"));
   }
 
   public static KubernetesManifest convertToManifest(Object o) {
@@ -24,6 +24,7 @@ import com.netflix.spinnaker.cats.agent.CacheResult;
 import com.netflix.spinnaker.cats.agent.DefaultCacheResult;
 import com.netflix.spinnaker.cats.cache.CacheData;
 import com.netflix.spinnaker.cats.provider.ProviderCache;
+import com.netflix.spinnaker.cats.thread.AgentExecutors;
 import com.netflix.spinnaker.clouddriver.kubernetes.KubernetesCloudProvider;
 import com.netflix.spinnaker.clouddriver.kubernetes.caching.KubernetesCachingAgent;
 import com.netflix.spinnaker.clouddriver.kubernetes.config.KubernetesCachingPolicy;
@@ -80,12 +81,11 @@ public abstract class KubernetesV2CachingAgent
 
   protected Map<KubernetesKind, List<KubernetesManifest>> loadPrimaryResourceList() {
     Map<KubernetesKind, List<KubernetesManifest>> result =
-        namespaces
-            .parallelStream()
-            .map(
+        AgentExecutors.fanOut(
+                namespaces,
                 n -> {
                   try {
-                    return credentials.list(primaryKinds(), n);
+                    return credentials.listForCaching(primaryKinds(), n);
                   } catch (KubectlException e) {
                     log.warn(
                         "{}: Failed to read kind {} from namespace {}: {}",
@@ -96,6 +96,7 @@ public abstract class KubernetesV2CachingAgent
                     throw e;
                   }
                 })
+            .stream()
             .filter(Objects::nonNull)
             .flatMap(Collection::stream)
             .collect(Collectors.groupingBy(KubernetesManifest::getKind));
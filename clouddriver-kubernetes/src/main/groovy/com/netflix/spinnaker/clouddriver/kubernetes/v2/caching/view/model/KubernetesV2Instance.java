@@ -17,11 +17,13 @@
 
 package com.netflix.spinnaker.clouddriver.kubernetes.v2.caching.view.model;
 
+import com.google.common.collect.ImmutableSet;
 import com.netflix.spinnaker.cats.cache.CacheData;
 import com.netflix.spinnaker.clouddriver.kubernetes.provider.KubernetesModelUtil;
 import com.netflix.spinnaker.clouddriver.kubernetes.v2.caching.Keys;
 import com.netflix.spinnaker.clouddriver.kubernetes.v2.caching.agent.KubernetesCacheDataConverter;
 import com.netflix.spinnaker.clouddriver.kubernetes.v2.description.manifest.KubernetesManifest;
+import com.netflix.spinnaker.clouddriver.kubernetes.v2.description.manifest.KubernetesManifestView;
 import com.netflix.spinnaker.clouddriver.model.HealthState;
 import com.netflix.spinnaker.clouddriver.model.Instance;
 import com.netflix.spinnaker.clouddriver.model.LoadBalancerInstance;
@@ -41,17 +43,22 @@ import lombok.extern.slf4j.Slf4j;
 @NoArgsConstructor
 @Slf4j
 public class KubernetesV2Instance extends ManifestBasedModel implements Instance {
+  // A pod's spec is most of its manifest, and server groups don't need it for their instances.
+  private static final ImmutableSet<String> SUMMARY_MANIFEST_FIELDS =
+      ImmutableSet.of("apiVersion", "kind", "metadata", "status");
+
   Long launchTime;
   List<Map<String, Object>> health = new ArrayList<>();
   KubernetesManifest manifest;
   Keys.InfrastructureCacheKey key;
 
-  private KubernetesV2Instance(KubernetesManifest manifest, String key) {
-    this.manifest = manifest;
+  private KubernetesV2Instance(
+      KubernetesManifestView manifest, KubernetesManifest copy, String key) {
+    this.manifest = copy;
     this.key = (Keys.InfrastructureCacheKey) Keys.parseKey(key).get();
 
     V1PodStatus status =
-        KubernetesCacheDataConverter.getResource(this.manifest.getStatus(), V1PodStatus.class);
+        KubernetesCacheDataConverter.getResource(manifest.getStatus(), V1PodStatus.class);
     if (status != null) {
       health.add(new KubernetesV2Health(status).toMap());
       if (status.getContainerStatuses() != null) {
@@ -65,18 +72,32 @@ public class KubernetesV2Instance extends ManifestBasedModel implements Instance
   }
 
   public static KubernetesV2Instance fromCacheData(CacheData cd) {
+    return fromCacheData(cd, false);
+  }
+
+  /**
+   * An instance whose manifest has only the pod's apiVersion, kind, metadata and status, for views
+   * that list many instances, such as server groups.
+   */
+  public static KubernetesV2Instance summaryFromCacheData(CacheData cd) {
+    return fromCacheData(cd, true);
+  }
+
+  private static KubernetesV2Instance fromCacheData(CacheData cd, boolean summary) {
     if (cd == null) {
       return null;
     }
 
-    KubernetesManifest manifest = KubernetesCacheDataConverter.getManifest(cd);
+    KubernetesManifestView manifest = KubernetesCacheDataConverter.getManifestView(cd);
 
     if (manifest == null) {
       log.warn("Cache data {} inserted without a manifest", cd.getId());
       return null;
     }
 
-    return new KubernetesV2Instance(manifest, cd.getId());
+    KubernetesManifest copy =
+        summary ? manifest.toManifest(SUMMARY_MANIFEST_FIELDS) : manifest.toManifest();
+    return new KubernetesV2Instance(manifest, copy, cd.getId());
   }
 
   public LoadBalancerInstance toLoadBalancerInstance() {
@@ -186,7 +186,7 @@ public class KubernetesV2ServerGroup extends ManifestBasedModel implements Serve
 
     List<KubernetesV2Instance> instances =
         instanceData.stream()
-            .map(KubernetesV2Instance::fromCacheData)
+            .map(KubernetesV2Instance::summaryFromCacheData)
             .filter(Objects::nonNull)
             .collect(Collectors.toList());
 
@@ -28,17 +28,21 @@ import com.netflix.spinnaker.clouddriver.kubernetes.v2.description.KubernetesRes
 import com.netflix.spinnaker.clouddriver.kubernetes.v2.description.KubernetesResourcePropertyRegistry;
 import com.netflix.spinnaker.clouddriver.kubernetes.v2.description.KubernetesSpinnakerKindMap;
 import com.netflix.spinnaker.clouddriver.kubernetes.v2.description.KubernetesSpinnakerKindMap.SpinnakerKind;
-import com.netflix.spinnaker.clouddriver.kubernetes.v2.description.manifest.KubernetesManifest;
+import com.netflix.spinnaker.clouddriver.kubernetes.v2.description.manifest.KubernetesKind;
 import com.netflix.spinnaker.clouddriver.kubernetes.v2.op.handler.KubernetesHandler;
 import com.netflix.spinnaker.clouddriver.kubernetes.v2.op.handler.ModelHandler;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -73,6 +77,10 @@ public class KubernetesCacheUtils {
     return cleanupCollection(cache.getAll(type, getAllKeysMatchingPattern(type, key)));
   }
 
+  public Collection<CacheData> getAllEntries(String type, Collection<String> keys) {
+    return cleanupCollection(cache.getAll(type, keys));
+  }
+
   public Optional<CacheData> getSingleEntry(String type, String key) {
     CacheData result = cache.get(type, key);
     return result == null ? Optional.empty() : Optional.of(result);
@@ -96,28 +104,77 @@ public class KubernetesCacheUtils {
 
   public Collection<CacheData> getTransitiveRelationship(
       String from, List<String> sourceKeys, String to) {
+    return getTransitiveRelationships(from, sourceKeys, Collections.singletonList(to));
+  }
+
+  /**
+   * Loads the entries of every type in {@code to} related to {@code sourceKeys}, with one read of
+   * the sources and one multi-type read of what they're related to.
+   */
+  public Collection<CacheData> getTransitiveRelationships(
+      String from, List<String> sourceKeys, Collection<String> to) {
     Collection<CacheData> sourceData =
-        cleanupCollection(cache.getAll(from, sourceKeys, RelationshipCacheFilter.include(to)));
-    return cleanupCollection(
-        cache.getAll(
-            to,
-            sourceData.stream()
-                .map(CacheData::getRelationships)
-                .filter(Objects::nonNull)
-                .map(r -> r.get(to))
-                .filter(Objects::nonNull)
-                .flatMap(Collection::stream)
-                .collect(Collectors.toList())));
+        cleanupCollection(
+            cache.getAll(
+                from, sourceKeys, RelationshipCacheFilter.include(to.toArray(new String[0]))));
+    return loadRelationshipGraph(sourceData, Collections.singletonList(to)).get(to);
   }
 
   public Collection<CacheData> getAllRelationshipsOfSpinnakerKind(
       Collection<CacheData> cacheData, SpinnakerKind spinnakerKind) {
-    return kindMap.translateSpinnakerKind(spinnakerKind).stream()
-        .map(kind -> loadRelationshipsFromCache(cacheData, kind.toString()))
+    List<String> types = typesOf(spinnakerKind);
+    return loadRelationshipGraph(cacheData, Collections.singletonList(types)).get(types);
+  }
+
+  /** The cache types of every Kubernetes kind belonging to the given Spinnaker kinds. */
+  public List<String> typesOf(SpinnakerKind... spinnakerKinds) {
+    return Arrays.stream(spinnakerKinds)
+        .map(kindMap::translateSpinnakerKind)
         .flatMap(Collection::stream)
+        .map(KubernetesKind::toString)
+        .distinct()
         .collect(Collectors.toList());
   }
 
+  /**
+   * Loads everything reachable from {@code sources} by following each hop's relationship types in
+   * turn: the first hop from {@code sources}, the second from the entries the first hop reached,
+   * and so on.
+   *
+   * <p>Each hop is a single multi-type cache read regardless of how many types it follows, and an
+   * entry reached more than once, within or across hops, is only read once. Entries are loaded with
+   * all of their relationships.
+   */
+  public RelationshipGraph loadRelationshipGraph(
+      Collection<CacheData> sources, List<? extends Collection<String>> hops) {
+    RelationshipGraph graph = new RelationshipGraph();
+    Collection<CacheData> reached = cleanupCollection(sources);
+    for (Collection<String> types : hops) {
+      Map<String, Collection<String>> keys = relatedKeys(reached, types);
+      graph.addAll(cache.getAll(graph.missing(keys), Collections.emptyMap()));
+      reached = graph.get(keys);
+    }
+    return graph;
+  }
+
+  private Map<String, Collection<String>> relatedKeys(
+      Collection<CacheData> sources, Collection<String> types) {
+    Map<String, Collection<String>> keys = new HashMap<>();
+    for (CacheData source : sources) {
+      Map<String, Collection<String>> relationships = source.getRelationships();
+      if (relationships == null) {
+        continue;
+      }
+      for (String type : types) {
+        Collection<String> related = relationships.get(type);
+        if (related != null && !related.isEmpty()) {
+          keys.computeIfAbsent(type, t -> new LinkedHashSet<>()).addAll(related);
+        }
+      }
+    }
+    return keys;
+  }
+
   public Collection<CacheData> loadRelationshipsFromCache(
       CacheData source, String relationshipType) {
     return loadRelationshipsFromCache(Collections.singleton(source), relationshipType);
@@ -137,7 +194,7 @@ public class KubernetesCacheUtils {
     return cleanupCollection(cache.getAll(relationshipType, keys));
   }
 
-  private <T> Collection<T> cleanupCollection(Collection<T> items) {
+  private static <T> Collection<T> cleanupCollection(Collection<T> items) {
     if (items == null) {
       return new ArrayList<>();
     }
@@ -170,9 +227,10 @@ public class KubernetesCacheUtils {
       KubernetesV2CacheData cacheData) {
     Keys.InfrastructureCacheKey key =
         (Keys.InfrastructureCacheKey) Keys.parseKey(cacheData.primaryData().getId()).get();
-    KubernetesManifest manifest = KubernetesCacheDataConverter.getManifest(cacheData.primaryData());
+    KubernetesKind kind =
+        KubernetesCacheDataConverter.getManifestView(cacheData.primaryData()).getKind();
 
-    KubernetesResourceProperties properties = registry.get(key.getAccount(), manifest.getKind());
+    KubernetesResourceProperties properties = registry.get(key.getAccount(), kind);
     KubernetesHandler handler = properties.getHandler();
     if (handler instanceof ModelHandler) {
       return (T) ((ModelHandler) handler).fromCacheData(cacheData);
@@ -180,4 +238,51 @@ public class KubernetesCacheUtils {
       return null;
     }
   }
+
+  /** Cache data loaded by {@link #loadRelationshipGraph}, indexed by type and key. */
+  public static class RelationshipGraph {
+    private final Map<String, Map<String, CacheData>> data = new HashMap<>();
+    private final Map<String, Set<String>> requested = new HashMap<>();
+
+    /** Everything loaded of the given types. */
+    public List<CacheData> get(Collection<String> types) {
+      return types.stream()
+          .distinct()
+          .map(type -> data.getOrDefault(type, Collections.emptyMap()).values())
+          .flatMap(Collection::stream)
+          .collect(Collectors.toList());
+    }
+
+    private Collection<CacheData> get(Map<String, Collection<String>> keys) {
+      List<CacheData> result = new ArrayList<>();
+      keys.forEach(
+          (type, ids) -> {
+            Map<String, CacheData> loaded = data.getOrDefault(type, Collections.emptyMap());
+            ids.stream().map(loaded::get).filter(Objects::nonNull).forEach(result::add);
+          });
+      return result;
+    }
+
+    /** Keys that haven't been read yet; they're assumed to be read once this returns. */
+    private Map<String, Collection<String>> missing(Map<String, Collection<String>> keys) {
+      Map<String, Collection<String>> missing = new HashMap<>();
+      keys.forEach(
+          (type, ids) -> {
+            Set<String> read = requested.computeIfAbsent(type, t -> new HashSet<>());
+            List<String> notRead = ids.stream().filter(read::add).collect(Collectors.toList());
+            if (!notRead.isEmpty()) {
+              missing.put(type, notRead);
+            }
+          });
+      return missing;
+    }
+
+    private void addAll(Map<String, Collection<CacheData>> loaded) {
+      loaded.forEach(
+          (type, items) -> {
+            Map<String, CacheData> byId = data.computeIfAbsent(type, t -> new HashMap<>());
+            cleanupCollection(items).forEach(item -> byId.put(item.getId(), item));
+          });
+    }
+  }
 }
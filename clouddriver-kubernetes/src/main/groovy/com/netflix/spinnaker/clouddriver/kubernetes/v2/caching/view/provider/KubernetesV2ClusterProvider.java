@@ -35,8 +35,9 @@ import com.netflix.spinnaker.clouddriver.kubernetes.v2.caching.view.provider.dat
 import com.netflix.spinnaker.clouddriver.kubernetes.v2.description.KubernetesSpinnakerKindMap;
 import com.netflix.spinnaker.clouddriver.kubernetes.v2.description.manifest.KubernetesKind;
 import com.netflix.spinnaker.clouddriver.kubernetes.v2.description.manifest.KubernetesManifest;
-import com.netflix.spinnaker.clouddriver.model.ClusterProvider;
+import com.netflix.spinnaker.clouddriver.model.BatchingClusterProvider;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
@@ -54,7 +55,7 @@ import org.springframework.stereotype.Component;
 
 @Component
 @Slf4j
-public class KubernetesV2ClusterProvider implements ClusterProvider<KubernetesV2Cluster> {
+public class KubernetesV2ClusterProvider implements BatchingClusterProvider<KubernetesV2Cluster> {
   private final KubernetesCacheUtils cacheUtils;
   private final KubernetesSpinnakerKindMap kindMap;
 
@@ -119,6 +120,16 @@ public class KubernetesV2ClusterProvider implements ClusterProvider<KubernetesV2
         .orElse(null);
   }
 
+  @Override
+  public Set<KubernetesV2Cluster> getClustersByName(
+      String application, String account, Collection<String> names) {
+    List<String> keys =
+        names.stream()
+            .map(name -> Keys.ClusterCacheKey.createKey(account, application, name))
+            .collect(Collectors.toList());
+    return translateClustersWithRelationships(cacheUtils.getAllEntries(CLUSTERS.toString(), keys));
+  }
+
   @Override
   public KubernetesV2ServerGroup getServerGroup(
       String account, String namespace, String name, boolean includeDetails) {
@@ -132,15 +143,10 @@ public class KubernetesV2ClusterProvider implements ClusterProvider<KubernetesV2
     KubernetesKind kind = parsedName.getLeft();
     String shortName = parsedName.getRight();
     String key = InfrastructureCacheKey.createKey(kind, account, namespace, shortName);
-    List<String> relatedTypes =
-        kindMap.translateSpinnakerKind(INSTANCES).stream()
-            .map(KubernetesKind::toString)
-            .collect(Collectors.toList());
-
-    relatedTypes.addAll(
-        kindMap.translateSpinnakerKind(LOAD_BALANCERS).stream()
-            .map(KubernetesKind::toString)
-            .collect(Collectors.toList()));
+    List<String> instanceTypes = cacheUtils.typesOf(INSTANCES);
+    List<String> loadBalancerTypes = cacheUtils.typesOf(LOAD_BALANCERS);
+    List<String> relatedTypes = new ArrayList<>(instanceTypes);
+    relatedTypes.addAll(loadBalancerTypes);
 
     Optional<CacheData> serverGroupData =
         cacheUtils.getSingleEntryWithRelationships(
@@ -149,29 +155,15 @@ public class KubernetesV2ClusterProvider implements ClusterProvider<KubernetesV2
     return serverGroupData
         .map(
             cd -> {
-              List<CacheData> instanceData =
-                  kindMap.translateSpinnakerKind(INSTANCES).stream()
-                      .map(
-                          k ->
-                              cacheUtils.loadRelationshipsFromCache(
-                                  Collections.singletonList(cd), k.toString()))
-                      .flatMap(Collection::stream)
-                      .collect(Collectors.toList());
-
-              List<CacheData> loadBalancerData =
-                  kindMap.translateSpinnakerKind(LOAD_BALANCERS).stream()
-                      .map(
-                          k ->
-                              cacheUtils.loadRelationshipsFromCache(
-                                  Collections.singletonList(cd), k.toString()))
-                      .flatMap(Collection::stream)
-                      .collect(Collectors.toList());
+              KubernetesCacheUtils.RelationshipGraph related =
+                  cacheUtils.loadRelationshipGraph(
+                      Collections.singletonList(cd), Collections.singletonList(relatedTypes));
 
               return cacheUtils.<KubernetesV2ServerGroup>resourceModelFromCacheData(
                   KubernetesV2ServerGroupCacheData.builder()
                       .serverGroupData(cd)
-                      .instanceData(instanceData)
-                      .loadBalancerData(loadBalancerData)
+                      .instanceData(related.get(instanceTypes))
+                      .loadBalancerData(related.get(loadBalancerTypes))
                       .build());
             })
         .orElse(null);
@@ -218,25 +210,21 @@ public class KubernetesV2ClusterProvider implements ClusterProvider<KubernetesV2
 
   private Set<KubernetesV2Cluster> translateClustersWithRelationships(
       Collection<CacheData> clusterData) {
-    // TODO(lwander) possible optimization: store lb relationships in cluster object to cut down on
-    // number of loads here.
-    List<CacheData> serverGroupData =
-        kindMap.translateSpinnakerKind(SERVER_GROUPS).stream()
-            .map(kind -> cacheUtils.loadRelationshipsFromCache(clusterData, kind.toString()))
-            .flatMap(Collection::stream)
-            .collect(Collectors.toList());
-
-    List<CacheData> loadBalancerData =
-        kindMap.translateSpinnakerKind(LOAD_BALANCERS).stream()
-            .map(kind -> cacheUtils.loadRelationshipsFromCache(serverGroupData, kind.toString()))
-            .flatMap(Collection::stream)
-            .collect(Collectors.toList());
-
-    List<CacheData> instanceData =
-        kindMap.translateSpinnakerKind(INSTANCES).stream()
-            .map(kind -> cacheUtils.loadRelationshipsFromCache(serverGroupData, kind.toString()))
-            .flatMap(Collection::stream)
-            .collect(Collectors.toList());
+    // Two cache reads regardless of how many kinds there are: server groups of every kind, then
+    // their load balancers and instances of every kind.
+    List<String> serverGroupTypes = cacheUtils.typesOf(SERVER_GROUPS);
+    List<String> loadBalancerTypes = cacheUtils.typesOf(LOAD_BALANCERS);
+    List<String> instanceTypes = cacheUtils.typesOf(INSTANCES);
+    List<String> serverGroupRelatedTypes = new ArrayList<>(loadBalancerTypes);
+    serverGroupRelatedTypes.addAll(instanceTypes);
+
+    KubernetesCacheUtils.RelationshipGraph related =
+        cacheUtils.loadRelationshipGraph(
+            clusterData, Arrays.asList(serverGroupTypes, serverGroupRelatedTypes));
+
+    List<CacheData> serverGroupData = related.get(serverGroupTypes);
+    List<CacheData> loadBalancerData = related.get(loadBalancerTypes);
+    List<CacheData> instanceData = related.get(instanceTypes);
 
     Map<String, List<CacheData>> clusterToServerGroups = new HashMap<>();
     for (CacheData serverGroupDatum : serverGroupData) {
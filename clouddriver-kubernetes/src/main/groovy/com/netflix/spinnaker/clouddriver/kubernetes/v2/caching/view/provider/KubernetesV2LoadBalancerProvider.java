@@ -26,12 +26,11 @@ import com.netflix.spinnaker.cats.cache.CacheData;
 import com.netflix.spinnaker.clouddriver.kubernetes.KubernetesCloudProvider;
 import com.netflix.spinnaker.clouddriver.kubernetes.v2.caching.Keys;
 import com.netflix.spinnaker.clouddriver.kubernetes.v2.caching.view.model.KubernetesV2LoadBalancer;
-import com.netflix.spinnaker.clouddriver.kubernetes.v2.description.KubernetesSpinnakerKindMap;
 import com.netflix.spinnaker.clouddriver.kubernetes.v2.description.manifest.KubernetesKind;
 import com.netflix.spinnaker.clouddriver.kubernetes.v2.description.manifest.KubernetesManifest;
 import com.netflix.spinnaker.clouddriver.model.LoadBalancerProvider;
 import java.util.ArrayList;
-import java.util.Collection;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
@@ -51,13 +50,10 @@ import org.springframework.stereotype.Component;
 public class KubernetesV2LoadBalancerProvider
     implements LoadBalancerProvider<KubernetesV2LoadBalancer> {
   private final KubernetesCacheUtils cacheUtils;
-  private final KubernetesSpinnakerKindMap kindMap;
 
   @Autowired
-  KubernetesV2LoadBalancerProvider(
-      KubernetesCacheUtils cacheUtils, KubernetesSpinnakerKindMap kindMap) {
+  KubernetesV2LoadBalancerProvider(KubernetesCacheUtils cacheUtils) {
     this.cacheUtils = cacheUtils;
-    this.kindMap = kindMap;
   }
 
   @Override
@@ -102,32 +98,25 @@ public class KubernetesV2LoadBalancerProvider
   @Override
   public Set<KubernetesV2LoadBalancer> getApplicationLoadBalancers(String application) {
     List<CacheData> loadBalancerData =
-        kindMap.translateSpinnakerKind(LOAD_BALANCERS).stream()
-            .map(
-                kind ->
-                    cacheUtils.getTransitiveRelationship(
-                        APPLICATIONS.toString(),
-                        Collections.singletonList(Keys.ApplicationCacheKey.createKey(application)),
-                        kind.toString()))
-            .flatMap(Collection::stream)
-            .collect(Collectors.toList());
+        new ArrayList<>(
+            cacheUtils.getTransitiveRelationships(
+                APPLICATIONS.toString(),
+                Collections.singletonList(Keys.ApplicationCacheKey.createKey(application)),
+                cacheUtils.typesOf(LOAD_BALANCERS)));
 
     return fromLoadBalancerCacheData(loadBalancerData);
   }
 
   private Set<KubernetesV2LoadBalancer> fromLoadBalancerCacheData(
       List<CacheData> loadBalancerData) {
-    List<CacheData> serverGroupData =
-        kindMap.translateSpinnakerKind(SERVER_GROUPS).stream()
-            .map(kind -> cacheUtils.loadRelationshipsFromCache(loadBalancerData, kind.toString()))
-            .flatMap(Collection::stream)
-            .collect(Collectors.toList());
-
-    List<CacheData> instanceData =
-        kindMap.translateSpinnakerKind(INSTANCES).stream()
-            .map(kind -> cacheUtils.loadRelationshipsFromCache(serverGroupData, kind.toString()))
-            .flatMap(Collection::stream)
-            .collect(Collectors.toList());
+    List<String> serverGroupTypes = cacheUtils.typesOf(SERVER_GROUPS);
+    List<String> instanceTypes = cacheUtils.typesOf(INSTANCES);
+    KubernetesCacheUtils.RelationshipGraph related =
+        cacheUtils.loadRelationshipGraph(
+            loadBalancerData, Arrays.asList(serverGroupTypes, instanceTypes));
+
+    List<CacheData> serverGroupData = related.get(serverGroupTypes);
+    List<CacheData> instanceData = related.get(instanceTypes);
 
     Map<String, List<CacheData>> loadBalancerToServerGroups =
         cacheUtils.mapByRelationship(serverGroupData, LOAD_BALANCERS);
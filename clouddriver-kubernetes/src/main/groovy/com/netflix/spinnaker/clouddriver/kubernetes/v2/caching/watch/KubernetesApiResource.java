@@ -0,0 +1,46 @@
+/*
+ * Copyright 2019 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.spinnaker.clouddriver.kubernetes.v2.caching.watch;
+
+import lombok.Value;
+import okhttp3.HttpUrl;
+
+/** A listable and watchable resource type, as reported by the API server's discovery endpoints. */
+@Value
+public class KubernetesApiResource {
+  /** Such as "v1" or "apps/v1". */
+  String groupVersion;
+  /** The plural resource name used in request paths, such as "deployments". */
+  String name;
+  /** The kind name, such as "Deployment". */
+  String kind;
+
+  boolean namespaced;
+
+  HttpUrl url(HttpUrl baseUrl, String namespace) {
+    HttpUrl.Builder builder = baseUrl.newBuilder();
+    if (groupVersion.contains("/")) {
+      builder.addPathSegment("apis").addPathSegments(groupVersion);
+    } else {
+      builder.addPathSegment("api").addPathSegment(groupVersion);
+    }
+    if (namespaced && namespace != null && !namespace.isEmpty()) {
+      builder.addPathSegment("namespaces").addPathSegment(namespace);
+    }
+    return builder.addPathSegment(name).build();
+  }
+}
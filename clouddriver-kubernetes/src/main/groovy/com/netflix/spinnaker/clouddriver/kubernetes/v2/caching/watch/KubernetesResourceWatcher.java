@@ -0,0 +1,263 @@
+/*
+ * Copyright 2019 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.spinnaker.clouddriver.kubernetes.v2.caching.watch;
+
+import com.netflix.spectator.api.Id;
+import com.netflix.spectator.api.Registry;
+import com.netflix.spinnaker.clouddriver.kubernetes.v2.caching.watch.KubernetesWatchClient.ListResult;
+import com.netflix.spinnaker.clouddriver.kubernetes.v2.caching.watch.KubernetesWatchClient.ResourceVersionExpiredException;
+import com.netflix.spinnaker.clouddriver.kubernetes.v2.caching.watch.KubernetesWatchClient.WatchEvent;
+import com.netflix.spinnaker.clouddriver.kubernetes.v2.caching.watch.KubernetesWatchClient.WatchUnavailableException;
+import com.netflix.spinnaker.clouddriver.kubernetes.v2.description.manifest.KubernetesManifest;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Keeps an in-memory copy of one resource type, in one namespace or across all of them, up to date
+ * with a list followed by a watch from the list's resource version. Resources are indexed by
+ * namespace, so listing one namespace of a cluster-wide watch only copies that namespace.
+ *
+ * <p>The watch resumes from the last resource version it saw whenever the server ends it, and
+ * only relists after an error or when that version has expired. Consecutive errors back off
+ * exponentially up to {@link #MAX_RETRY_BACKOFF_MILLIS}. If the server refuses the watch outright,
+ * e.g. because the account isn't allowed to watch the resource, the watcher stops and is marked
+ * unavailable so that callers fall back to kubectl. A watcher that hasn't been read from for
+ * {@link #IDLE_TIMEOUT_MILLIS} stops, so watchers of unused kinds don't linger.
+ */
+@Slf4j
+class KubernetesResourceWatcher implements Runnable {
+  static final long IDLE_TIMEOUT_MILLIS = TimeUnit.MINUTES.toMillis(10);
+  private static final long RETRY_BACKOFF_MILLIS = TimeUnit.SECONDS.toMillis(5);
+  private static final long MAX_RETRY_BACKOFF_MILLIS = TimeUnit.MINUTES.toMillis(5);
+
+  private final KubernetesWatchClient client;
+  private final KubernetesApiResource resource;
+  private final String namespace;
+  private final Registry registry;
+  private final Id eventsId;
+  private final Id relistsId;
+
+  /** Resources by namespace, then name. Cluster-scoped resources are under the empty namespace. */
+  private final Map<String, Map<String, KubernetesManifest>> store = new ConcurrentHashMap<>();
+
+  private volatile String resourceVersion;
+  private volatile boolean synced = false;
+  private volatile boolean closed = false;
+  private volatile boolean unavailable = false;
+  private volatile long unavailableSince = 0;
+  private volatile long lastRead = System.currentTimeMillis();
+  private int consecutiveFailures = 0;
+
+  KubernetesResourceWatcher(
+      String accountName,
+      KubernetesWatchClient client,
+      KubernetesApiResource resource,
+      String namespace,
+      Registry registry) {
+    this.client = client;
+    this.resource = resource;
+    this.namespace = namespace;
+    this.registry = registry;
+    this.eventsId =
+        registry
+            .createId("kubernetes.watch.events")
+            .withTag("account", accountName)
+            .withTag("kind", resource.getKind());
+    this.relistsId =
+        registry
+            .createId("kubernetes.watch.relists")
+            .withTag("account", accountName)
+            .withTag("kind", resource.getKind());
+  }
+
+  boolean isSynced() {
+    return synced;
+  }
+
+  boolean isClosed() {
+    return closed;
+  }
+
+  /** @return whether the server refused to list or watch this resource */
+  boolean isUnavailable() {
+    return unavailable;
+  }
+
+  long getUnavailableSince() {
+    return unavailableSince;
+  }
+
+  synchronized void close() {
+    closed = true;
+    notifyAll();
+  }
+
+  /** Keeps the watcher from stopping as idle while it is wanted but not yet synced. */
+  void touch() {
+    lastRead = System.currentTimeMillis();
+  }
+
+  /**
+   * @return copies of every stored resource, or only those in the given namespace if not empty
+   */
+  List<KubernetesManifest> list(String namespace) {
+    touch();
+    if (namespace != null && !namespace.isEmpty()) {
+      return copies(store.getOrDefault(namespace, Collections.emptyMap()));
+    }
+
+    List<KubernetesManifest> result = new ArrayList<>();
+    for (Map<String, KubernetesManifest> manifests : store.values()) {
+      result.addAll(copies(manifests));
+    }
+    return result;
+  }
+
+  @Override
+  public void run() {
+    while (!closed) {
+      if (System.currentTimeMillis() - lastRead > IDLE_TIMEOUT_MILLIS) {
+        log.info("Stopping idle watch of {} in '{}'", resource.getName(), namespace);
+        closed = true;
+        break;
+      }
+
+      try {
+        if (resourceVersion == null) {
+          relist();
+        }
+        client.watch(resource, namespace, resourceVersion, this::apply);
+        consecutiveFailures = 0;
+      } catch (ResourceVersionExpiredException e) {
+        resourceVersion = null;
+      } catch (WatchUnavailableException e) {
+        log.warn(
+            "Unable to watch {} in '{}', caching will use kubectl: {}",
+            resource.getName(),
+            namespace,
+            e.getMessage());
+        unavailableSince = System.currentTimeMillis();
+        unavailable = true;
+        synced = false;
+        closed = true;
+      } catch (Exception e) {
+        if (closed) {
+          break;
+        }
+        consecutiveFailures++;
+        long backoff = backoffMillis(consecutiveFailures);
+        log.warn(
+            "Watch of {} in '{}' failed, will relist in {}ms: {}",
+            resource.getName(),
+            namespace,
+            backoff,
+            e.getMessage());
+        synced = false;
+        resourceVersion = null;
+        sleep(backoff);
+      }
+    }
+    synced = false;
+    store.clear();
+  }
+
+  static long backoffMillis(int consecutiveFailures) {
+    int exponent = Math.min(consecutiveFailures - 1, 16);
+    return Math.min(RETRY_BACKOFF_MILLIS << exponent, MAX_RETRY_BACKOFF_MILLIS);
+  }
+
+  private void relist() throws IOException {
+    ListResult result = client.list(resource, namespace);
+
+    Map<String, Map<String, KubernetesManifest>> listed = new HashMap<>();
+    for (KubernetesManifest manifest : result.getItems()) {
+      listed
+          .computeIfAbsent(namespaceOf(manifest), n -> new ConcurrentHashMap<>())
+          .put(manifest.getName(), manifest);
+    }
+    store.keySet().retainAll(listed.keySet());
+    store.putAll(listed);
+
+    resourceVersion = result.getResourceVersion();
+    synced = true;
+    registry.counter(relistsId).increment();
+  }
+
+  void apply(WatchEvent event) {
+    KubernetesManifest manifest = event.getObject();
+    if (manifest == null) {
+      return;
+    }
+
+    switch (event.getType()) {
+      case "ADDED":
+      case "MODIFIED":
+        store
+            .computeIfAbsent(namespaceOf(manifest), n -> new ConcurrentHashMap<>())
+            .put(manifest.getName(), manifest);
+        break;
+      case "DELETED":
+        store.computeIfPresent(
+            namespaceOf(manifest),
+            (n, manifests) -> {
+              manifests.remove(manifest.getName());
+              return manifests.isEmpty() ? null : manifests;
+            });
+        break;
+      default:
+        break;
+    }
+
+    Object version = ((Map<String, Object>) manifest.get("metadata")).get("resourceVersion");
+    if (version != null) {
+      resourceVersion = version.toString();
+    }
+    registry.counter(eventsId.withTag("type", event.getType().toLowerCase())).increment();
+  }
+
+  private static String namespaceOf(KubernetesManifest manifest) {
+    String namespace = manifest.getNamespace();
+    return namespace == null ? "" : namespace;
+  }
+
+  private static List<KubernetesManifest> copies(Map<String, KubernetesManifest> manifests) {
+    List<KubernetesManifest> result = new ArrayList<>(manifests.size());
+    for (KubernetesManifest manifest : manifests.values()) {
+      result.add(ManifestCopier.copy(manifest));
+    }
+    return result;
+  }
+
+  /** Waits out a retry backoff, returning early if the watcher is closed. */
+  private synchronized void sleep(long millis) {
+    try {
+      if (!closed) {
+        wait(millis);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      closed = true;
+    }
+  }
+}
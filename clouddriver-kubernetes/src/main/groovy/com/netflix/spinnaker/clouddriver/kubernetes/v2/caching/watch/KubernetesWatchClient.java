@@ -0,0 +1,326 @@
+/*
+ * Copyright 2019 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.spinnaker.clouddriver.kubernetes.v2.caching.watch;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.netflix.spinnaker.clouddriver.kubernetes.v1.security.KubernetesConfigParser;
+import com.netflix.spinnaker.clouddriver.kubernetes.v2.description.manifest.KubernetesApiVersion;
+import com.netflix.spinnaker.clouddriver.kubernetes.v2.description.manifest.KubernetesKind;
+import com.netflix.spinnaker.clouddriver.kubernetes.v2.description.manifest.KubernetesManifest;
+import io.fabric8.kubernetes.client.Config;
+import io.fabric8.kubernetes.client.utils.HttpClientUtils;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import lombok.Data;
+import lombok.Value;
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+/**
+ * Lists and watches resources directly against the Kubernetes API, in place of forking kubectl.
+ *
+ * <p>List responses are read with a streaming parser, one item at a time, and watch streams are
+ * read event by event as the server sends them.
+ */
+public class KubernetesWatchClient {
+  private static final int LIST_PAGE_SIZE = 500;
+  private static final int WATCH_TIMEOUT_SECONDS = 300;
+
+  /** Statuses that retrying the same request won't change, such as a missing RBAC permission. */
+  private static final Set<Integer> UNAVAILABLE_STATUSES =
+      new HashSet<>(Arrays.asList(400, 403, 404, 405, 422));
+
+  private final OkHttpClient client;
+  private final OkHttpClient watchClient;
+  private final HttpUrl baseUrl;
+  private final ObjectMapper mapper;
+
+  public KubernetesWatchClient(OkHttpClient client, String baseUrl, ObjectMapper mapper) {
+    this.client = client;
+    this.watchClient = client.newBuilder().readTimeout(0, TimeUnit.MILLISECONDS).build();
+    this.baseUrl = HttpUrl.parse(baseUrl);
+    this.mapper = mapper;
+    if (this.baseUrl == null) {
+      throw new IllegalArgumentException("Invalid Kubernetes API server url: " + baseUrl);
+    }
+  }
+
+  /**
+   * Builds a client from the same kubeconfig context kubectl would use. Only credentials that can
+   * be read from the kubeconfig itself are supported, not exec or auth-provider plugins.
+   */
+  public static KubernetesWatchClient fromKubeconfig(
+      String kubeconfigFile,
+      String context,
+      List<String> namespaces,
+      boolean serviceAccount,
+      ObjectMapper mapper) {
+    Config config =
+        KubernetesConfigParser.parse(
+            kubeconfigFile, context, null, null, namespaces, serviceAccount);
+    return new KubernetesWatchClient(
+        HttpClientUtils.createHttpClient(config), config.getMasterUrl(), mapper);
+  }
+
+  /**
+   * @return every listable and watchable resource type the API server serves, keyed by kind. A
+   *     kind served by several groups or versions maps to the first one discovered, which is the
+   *     server's preferred one.
+   */
+  public Map<KubernetesKind, KubernetesApiResource> discover() throws IOException {
+    Map<KubernetesKind, KubernetesApiResource> resources = new LinkedHashMap<>();
+
+    for (String version : (List<String>) get(baseUrl.newBuilder().addPathSegment("api").build())
+        .getOrDefault("versions", Collections.emptyList())) {
+      discover(version, resources);
+    }
+
+    List<Map<String, Object>> groups =
+        (List<Map<String, Object>>)
+            get(baseUrl.newBuilder().addPathSegment("apis").build())
+                .getOrDefault("groups", Collections.emptyList());
+    for (Map<String, Object> group : groups) {
+      Map<String, Object> preferred = (Map<String, Object>) group.get("preferredVersion");
+      if (preferred != null) {
+        discover((String) preferred.get("groupVersion"), resources);
+      }
+    }
+
+    return resources;
+  }
+
+  private void discover(String groupVersion, Map<KubernetesKind, KubernetesApiResource> resources)
+      throws IOException {
+    HttpUrl.Builder url = baseUrl.newBuilder();
+    url = groupVersion.contains("/") ? url.addPathSegment("apis") : url.addPathSegment("api");
+
+    List<Map<String, Object>> apiResources =
+        (List<Map<String, Object>>)
+            get(url.addPathSegments(groupVersion).build())
+                .getOrDefault("resources", Collections.emptyList());
+    for (Map<String, Object> resource : apiResources) {
+      String name = (String) resource.get("name");
+      List<String> verbs = (List<String>) resource.getOrDefault("verbs", Collections.emptyList());
+      if (name.contains("/") || !verbs.contains("list") || !verbs.contains("watch")) {
+        continue;
+      }
+
+      String kindName = (String) resource.get("kind");
+      KubernetesKind kind =
+          KubernetesKind.fromString(
+              kindName, KubernetesApiVersion.fromString(groupVersion).getApiGroup());
+      resources.putIfAbsent(
+          kind,
+          new KubernetesApiResource(
+              groupVersion, name, kindName, Boolean.TRUE.equals(resource.get("namespaced"))));
+    }
+  }
+
+  /**
+   * Lists every resource of the given type, following continue tokens.
+   *
+   * @param namespace the namespace to list, or null or empty for all namespaces
+   */
+  public ListResult list(KubernetesApiResource resource, String namespace) throws IOException {
+    List<KubernetesManifest> items = new ArrayList<>();
+    String continueToken = null;
+    String resourceVersion;
+
+    do {
+      HttpUrl.Builder url =
+          resource
+              .url(baseUrl, namespace)
+              .newBuilder()
+              .addQueryParameter("limit", Integer.toString(LIST_PAGE_SIZE));
+      if (continueToken != null) {
+        url.addQueryParameter("continue", continueToken);
+      }
+
+      try (Response response = execute(client, url.build())) {
+        ListPage page = readListPage(response.body().byteStream(), resource);
+        items.addAll(page.items);
+        continueToken = page.continueToken;
+        resourceVersion = page.resourceVersion;
+      }
+    } while (continueToken != null && !continueToken.isEmpty());
+
+    return new ListResult(items, resourceVersion);
+  }
+
+  /**
+   * Watches the given resource type from a resource version, passing each event to the listener as
+   * it arrives. Returns when the server ends the watch, which it does after a timeout.
+   *
+   * @throws ResourceVersionExpiredException if the resource version is too old to watch from
+   * @throws WatchUnavailableException if the resource can't be watched with these credentials
+   */
+  public void watch(
+      KubernetesApiResource resource,
+      String namespace,
+      String resourceVersion,
+      Consumer<WatchEvent> listener)
+      throws IOException {
+    HttpUrl url =
+        resource
+            .url(baseUrl, namespace)
+            .newBuilder()
+            .addQueryParameter("watch", "true")
+            .addQueryParameter("resourceVersion", resourceVersion)
+            .addQueryParameter("allowWatchBookmarks", "true")
+            .addQueryParameter("timeoutSeconds", Integer.toString(WATCH_TIMEOUT_SECONDS))
+            .build();
+
+    try (Response response = execute(watchClient, url);
+        MappingIterator<WatchEvent> events =
+            mapper.readerFor(WatchEvent.class).readValues(response.body().byteStream())) {
+      while (events.hasNextValue()) {
+        WatchEvent event = events.nextValue();
+        if ("ERROR".equals(event.getType())) {
+          Object code = event.getObject() == null ? null : event.getObject().get("code");
+          if (code instanceof Number && ((Number) code).intValue() == 410) {
+            throw new ResourceVersionExpiredException(resourceVersion);
+          }
+          if (code instanceof Number && UNAVAILABLE_STATUSES.contains(((Number) code).intValue())) {
+            throw new WatchUnavailableException(
+                "Watch of " + url + " failed: " + event.getObject());
+          }
+          throw new IOException("Watch of " + url + " failed: " + event.getObject());
+        }
+        if (event.getObject() != null) {
+          withTypeMeta(event.getObject(), resource);
+        }
+        listener.accept(event);
+      }
+    }
+  }
+
+  /** Cancels every in-flight list and watch, which then fail with an IOException. */
+  public void close() {
+    client.dispatcher().cancelAll();
+    client.connectionPool().evictAll();
+  }
+
+  private ListPage readListPage(InputStream body, KubernetesApiResource resource)
+      throws IOException {
+    ListPage page = new ListPage();
+    try (JsonParser parser = mapper.getFactory().createParser(body)) {
+      if (parser.nextToken() != JsonToken.START_OBJECT) {
+        throw new IOException("Expected a list of " + resource.getName());
+      }
+      while (parser.nextToken() == JsonToken.FIELD_NAME) {
+        String field = parser.getCurrentName();
+        parser.nextToken();
+        if ("metadata".equals(field)) {
+          Map<String, Object> metadata = parser.readValueAs(Map.class);
+          page.resourceVersion = (String) metadata.get("resourceVersion");
+          page.continueToken = (String) metadata.get("continue");
+        } else if ("items".equals(field) && parser.currentToken() == JsonToken.START_ARRAY) {
+          while (parser.nextToken() == JsonToken.START_OBJECT) {
+            page.items.add(withTypeMeta(parser.readValueAs(KubernetesManifest.class), resource));
+          }
+        } else {
+          parser.skipChildren();
+        }
+      }
+    }
+    return page;
+  }
+
+  /** Items of a list response don't carry their own kind and apiVersion, unlike kubectl output. */
+  private static KubernetesManifest withTypeMeta(
+      KubernetesManifest manifest, KubernetesApiResource resource) {
+    manifest.putIfAbsent("kind", resource.getKind());
+    manifest.putIfAbsent("apiVersion", resource.getGroupVersion());
+    return manifest;
+  }
+
+  private Map<String, Object> get(HttpUrl url) throws IOException {
+    try (Response response = execute(client, url)) {
+      return mapper.readValue(response.body().byteStream(), Map.class);
+    }
+  }
+
+  private static Response execute(OkHttpClient client, HttpUrl url) throws IOException {
+    Response response = client.newCall(new Request.Builder().url(url).get().build()).execute();
+    if (!response.isSuccessful()) {
+      ResponseBody body = response.body();
+      String message = body == null ? "" : body.string();
+      response.close();
+      if (response.code() == 410) {
+        throw new ResourceVersionExpiredException(url.queryParameter("resourceVersion"));
+      }
+      if (UNAVAILABLE_STATUSES.contains(response.code())) {
+        throw new WatchUnavailableException(
+            "Request to " + url + " failed (" + response.code() + "): " + message);
+      }
+      throw new IOException("Request to " + url + " failed (" + response.code() + "): " + message);
+    }
+    return response;
+  }
+
+  private static class ListPage {
+    final List<KubernetesManifest> items = new ArrayList<>();
+    String resourceVersion;
+    String continueToken;
+  }
+
+  @Value
+  public static class ListResult {
+    List<KubernetesManifest> items;
+    String resourceVersion;
+  }
+
+  @Data
+  public static class WatchEvent {
+    /** ADDED, MODIFIED, DELETED, BOOKMARK or ERROR. */
+    private String type;
+
+    private KubernetesManifest object;
+  }
+
+  /**
+   * The API server refused to list or watch a resource in a way retrying won't fix, e.g. because
+   * the account isn't allowed to watch it.
+   */
+  public static class WatchUnavailableException extends IOException {
+    public WatchUnavailableException(String message) {
+      super(message);
+    }
+  }
+
+  public static class ResourceVersionExpiredException extends RuntimeException {
+    public ResourceVersionExpiredException(String resourceVersion) {
+      super("Resource version " + resourceVersion + " is too old to watch from");
+    }
+  }
+}
@@ -0,0 +1,216 @@
+/*
+ * Copyright 2019 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.spinnaker.clouddriver.kubernetes.v2.caching.watch;
+
+import com.netflix.spectator.api.Registry;
+import com.netflix.spinnaker.cats.thread.ConcurrencyLimitedExecutorService;
+import com.netflix.spinnaker.cats.thread.NamedThreadFactory;
+import com.netflix.spinnaker.cats.thread.VirtualThreads;
+import com.netflix.spinnaker.clouddriver.kubernetes.v2.description.manifest.KubernetesKind;
+import com.netflix.spinnaker.clouddriver.kubernetes.v2.description.manifest.KubernetesManifest;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Serves an account's resource lists from in-process watches instead of kubectl.
+ *
+ * <p>A watch is started per kind the first time that kind is listed: across all namespaces, or per
+ * namespace when the account is restricted to declared namespaces. Until a watch has completed its
+ * initial list, and for any kind the API server doesn't serve or won't let the account watch, {@link
+ * #list} returns empty and the caller should fall back to kubectl.
+ *
+ * <p>Every watch blocks a thread while it streams, so watchers of all accounts share one pool of at
+ * most {@link #MAX_CONCURRENT_WATCHES} threads; watchers beyond that wait for a thread and are
+ * served by kubectl in the meantime. Engines must be {@link #close() closed} when their account's
+ * credentials are replaced or removed.
+ */
+@Slf4j
+public class KubernetesWatchEngine {
+  static final int MAX_CONCURRENT_WATCHES = 256;
+  private static final long DISCOVERY_RETRY_MILLIS = TimeUnit.MINUTES.toMillis(1);
+  private static final long UNAVAILABLE_RETRY_MILLIS = TimeUnit.MINUTES.toMillis(30);
+
+  private static volatile ExecutorService sharedExecutor;
+
+  private final String accountName;
+  private final KubernetesWatchClient client;
+  private final List<String> declaredNamespaces;
+  private final ExecutorService executor;
+  private final Registry registry;
+
+  private final Map<String, KubernetesResourceWatcher> watchers = new ConcurrentHashMap<>();
+  private volatile Map<KubernetesKind, KubernetesApiResource> resources;
+  private volatile long lastDiscoveryAttempt = 0;
+  private volatile boolean closed = false;
+
+  public KubernetesWatchEngine(
+      String accountName,
+      KubernetesWatchClient client,
+      List<String> declaredNamespaces,
+      Registry registry) {
+    this(accountName, client, declaredNamespaces, sharedExecutor(), registry);
+  }
+
+  KubernetesWatchEngine(
+      String accountName,
+      KubernetesWatchClient client,
+      List<String> declaredNamespaces,
+      ExecutorService executor,
+      Registry registry) {
+    this.accountName = accountName;
+    this.client = client;
+    this.declaredNamespaces =
+        declaredNamespaces == null ? Collections.emptyList() : declaredNamespaces;
+    this.executor = executor;
+    this.registry = registry;
+  }
+
+  /**
+   * @return every resource of the given kinds in the given namespace, or empty if any of them
+   *     can't be served from a synced watch yet
+   */
+  public Optional<List<KubernetesManifest>> list(List<KubernetesKind> kinds, String namespace) {
+    if (closed) {
+      return Optional.empty();
+    }
+
+    Map<KubernetesKind, KubernetesApiResource> resources = discover();
+    if (resources == null) {
+      return Optional.empty();
+    }
+
+    List<KubernetesResourceWatcher> toRead = new ArrayList<>(kinds.size());
+    boolean synced = true;
+    for (KubernetesKind kind : kinds) {
+      KubernetesApiResource resource = resources.get(kind);
+      if (resource == null) {
+        return Optional.empty();
+      }
+      KubernetesResourceWatcher watcher = watcher(resource, namespace);
+      if (watcher == null) {
+        return Optional.empty();
+      }
+      toRead.add(watcher);
+      synced &= watcher.isSynced();
+    }
+
+    if (!synced) {
+      return Optional.empty();
+    }
+
+    List<KubernetesManifest> result = new ArrayList<>();
+    for (KubernetesResourceWatcher watcher : toRead) {
+      result.addAll(watcher.list(namespace));
+    }
+    return Optional.of(result);
+  }
+
+  /** Stops every watch of this account. The shared pool's threads are released as they end. */
+  public void close() {
+    closed = true;
+    watchers.values().forEach(KubernetesResourceWatcher::close);
+    client.close();
+  }
+
+  private KubernetesResourceWatcher watcher(KubernetesApiResource resource, String namespace) {
+    String watchNamespace =
+        resource.isNamespaced() && !declaredNamespaces.isEmpty() ? namespace : "";
+    String key = resource.getGroupVersion() + "/" + resource.getName() + "/" + watchNamespace;
+
+    KubernetesResourceWatcher watcher =
+        watchers.compute(
+            key,
+            (k, existing) -> {
+              if (existing != null && !existing.isClosed()) {
+                return existing;
+              }
+              if (existing != null
+                  && existing.isUnavailable()
+                  && System.currentTimeMillis() - existing.getUnavailableSince()
+                      < UNAVAILABLE_RETRY_MILLIS) {
+                return existing;
+              }
+              if (closed) {
+                return null;
+              }
+              KubernetesResourceWatcher created =
+                  new KubernetesResourceWatcher(
+                      accountName, client, resource, watchNamespace, registry);
+              executor.execute(created);
+              return created;
+            });
+
+    if (watcher != null && !watcher.isClosed()) {
+      watcher.touch();
+    }
+    return watcher;
+  }
+
+  private static ExecutorService sharedExecutor() {
+    if (sharedExecutor == null) {
+      synchronized (KubernetesWatchEngine.class) {
+        if (sharedExecutor == null) {
+          sharedExecutor =
+              VirtualThreads.newThreadPerTaskExecutor("KubernetesWatch")
+                  .<ExecutorService>map(
+                      e -> new ConcurrencyLimitedExecutorService(e, MAX_CONCURRENT_WATCHES))
+                  .orElseGet(
+                      () -> {
+                        ThreadPoolExecutor executor =
+                            new ThreadPoolExecutor(
+                                MAX_CONCURRENT_WATCHES,
+                                MAX_CONCURRENT_WATCHES,
+                                1,
+                                TimeUnit.MINUTES,
+                                new LinkedBlockingQueue<>(),
+                                new NamedThreadFactory("KubernetesWatch"));
+                        executor.allowCoreThreadTimeOut(true);
+                        return executor;
+                      });
+        }
+      }
+    }
+    return sharedExecutor;
+  }
+
+  private Map<KubernetesKind, KubernetesApiResource> discover() {
+    if (resources == null
+        && System.currentTimeMillis() - lastDiscoveryAttempt > DISCOVERY_RETRY_MILLIS) {
+      synchronized (this) {
+        if (resources == null
+            && System.currentTimeMillis() - lastDiscoveryAttempt > DISCOVERY_RETRY_MILLIS) {
+          lastDiscoveryAttempt = System.currentTimeMillis();
+          try {
+            resources = client.discover();
+          } catch (Exception e) {
+            log.warn("Unable to discover API resources for account {}", accountName, e);
+          }
+        }
+      }
+    }
+    return resources;
+  }
+}
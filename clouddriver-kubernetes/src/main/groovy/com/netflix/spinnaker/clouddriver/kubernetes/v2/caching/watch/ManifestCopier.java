@@ -0,0 +1,53 @@
+/*
+ * Copyright 2019 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.spinnaker.clouddriver.kubernetes.v2.caching.watch;
+
+import com.netflix.spinnaker.clouddriver.kubernetes.v2.description.manifest.KubernetesManifest;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Deep copies manifests held by a watcher before handing them to callers, which are free to modify
+ * them (caching agents strip sensitive keys, for example).
+ */
+final class ManifestCopier {
+  private ManifestCopier() {}
+
+  static KubernetesManifest copy(KubernetesManifest manifest) {
+    KubernetesManifest copy = new KubernetesManifest();
+    manifest.forEach((k, v) -> copy.put(k, copyValue(v)));
+    return copy;
+  }
+
+  private static Object copyValue(Object value) {
+    if (value instanceof Map) {
+      Map<Object, Object> copy = new LinkedHashMap<>();
+      ((Map<?, ?>) value).forEach((k, v) -> copy.put(k, copyValue(v)));
+      return copy;
+    }
+    if (value instanceof List) {
+      List<Object> copy = new ArrayList<>(((List<?>) value).size());
+      for (Object v : (List<?>) value) {
+        copy.add(copyValue(v));
+      }
+      return copy;
+    }
+    return value;
+  }
+}
@@ -0,0 +1,214 @@
+/*
+ * Copyright 2019 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.spinnaker.clouddriver.kubernetes.v2.description.manifest;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.Maps;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * A read-only view of a manifest as it was read back from the cache.
+ *
+ * <p>The fields the view models need (kind, metadata, owner references, status and replicas) are
+ * read straight out of the decoded attributes without copying them. Anything that needs the whole
+ * manifest calls {@link #toManifest()}, which copies it once per view.
+ */
+public class KubernetesManifestView {
+  private static final ObjectMapper mapper = new ObjectMapper();
+
+  private final Map<String, Object> manifest;
+
+  @Nullable private KubernetesKind kind;
+  @Nullable private List<KubernetesManifest.OwnerReference> ownerReferences;
+  @Nullable private KubernetesManifest converted;
+
+  public KubernetesManifestView(@Nonnull Map<String, Object> manifest) {
+    this.manifest = manifest;
+  }
+
+  @Nullable
+  @SuppressWarnings("unchecked")
+  public static KubernetesManifestView of(@Nullable Object manifest) {
+    if (manifest == null) {
+      return null;
+    }
+    if (!(manifest instanceof Map)) {
+      throw new IllegalArgumentException(
+          "Expected a manifest to be a Map but was actually a " + manifest.getClass());
+    }
+    return new KubernetesManifestView((Map<String, Object>) manifest);
+  }
+
+  @Nonnull
+  public KubernetesKind getKind() {
+    if (kind == null) {
+      // mirrors KubernetesManifest#getKind, so custom resources resolve to the same kind
+      KubernetesApiGroup apiGroup =
+          manifest.containsKey("apiVersion") ? getApiVersion().getApiGroup() : null;
+      kind = KubernetesKind.fromString(getKindName(), apiGroup);
+    }
+    return kind;
+  }
+
+  public String getKindName() {
+    return getRequiredField(manifest, "kind");
+  }
+
+  public KubernetesApiVersion getApiVersion() {
+    return KubernetesApiVersion.fromString(getRequiredField(manifest, "apiVersion"));
+  }
+
+  public String getName() {
+    return (String) getMetadata().get("name");
+  }
+
+  public String getUid() {
+    return (String) getMetadata().get("uid");
+  }
+
+  public String getNamespace() {
+    String namespace = (String) getMetadata().get("namespace");
+    return StringUtils.isEmpty(namespace) ? "" : namespace;
+  }
+
+  public String getCreationTimestamp() {
+    Object timestamp = getMetadata().get("creationTimestamp");
+    return timestamp != null ? timestamp.toString() : "";
+  }
+
+  public String getFullResourceName() {
+    return KubernetesManifest.getFullResourceName(getKind(), getName());
+  }
+
+  @SuppressWarnings("unchecked")
+  public Map<String, String> getLabels() {
+    Map<String, String> labels = (Map<String, String>) getMetadata().get("labels");
+    return labels == null ? Collections.emptyMap() : Collections.unmodifiableMap(labels);
+  }
+
+  @SuppressWarnings("unchecked")
+  public Map<String, String> getAnnotations() {
+    Map<String, String> annotations = (Map<String, String>) getMetadata().get("annotations");
+    return annotations == null ? Collections.emptyMap() : Collections.unmodifiableMap(annotations);
+  }
+
+  public List<KubernetesManifest.OwnerReference> getOwnerReferences() {
+    if (ownerReferences == null) {
+      Object references = getMetadata().get("ownerReferences");
+      ownerReferences =
+          references == null
+              ? Collections.emptyList()
+              : Collections.unmodifiableList(
+                  mapper.convertValue(
+                      references, new TypeReference<List<KubernetesManifest.OwnerReference>>() {}));
+    }
+    return ownerReferences;
+  }
+
+  /** The manifest's status as it was decoded; callers must not modify it. */
+  public Object getStatus() {
+    return manifest.get("status");
+  }
+
+  @SuppressWarnings("unchecked")
+  public Double getReplicas() {
+    Object spec = manifest.get("spec");
+    if (!(spec instanceof Map)) {
+      return null;
+    }
+
+    Object replicas = ((Map<String, Object>) spec).get("replicas");
+    return replicas instanceof Number ? ((Number) replicas).doubleValue() : null;
+  }
+
+  /**
+   * The full manifest. It's copied the first time it's asked for, so the returned manifest can be
+   * modified without affecting the cache, and later calls return the same copy.
+   */
+  public KubernetesManifest toManifest() {
+    if (converted == null) {
+      KubernetesManifest result = new KubernetesManifest();
+      manifest.forEach((k, v) -> result.put(k, copy(v)));
+      converted = result;
+    }
+    return converted;
+  }
+
+  /**
+   * A copy of just the given top-level fields of the manifest, for callers that only keep part of
+   * it. Unlike {@link #toManifest()}, every call makes a new copy.
+   */
+  public KubernetesManifest toManifest(Collection<String> fields) {
+    KubernetesManifest result = new KubernetesManifest();
+    for (String field : fields) {
+      if (manifest.containsKey(field)) {
+        result.put(field, copy(manifest.get(field)));
+      }
+    }
+    return result;
+  }
+
+  private Map<String, Object> getMetadata() {
+    return getRequiredField(manifest, "metadata");
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <T> T getRequiredField(Map<String, Object> manifest, String field) {
+    T res = (T) manifest.get(field);
+    if (res == null) {
+      throw MalformedManifestException.missingField(manifest, field);
+    }
+
+    return res;
+  }
+
+  /**
+   * Copies a decoded JSON tree. This gives the same result as {@code mapper.convertValue(value,
+   * Object.class)} for maps, lists and scalars without serializing the tree first.
+   */
+  @SuppressWarnings("unchecked")
+  private static Object copy(Object value) {
+    if (value == null
+        || value instanceof String
+        || value instanceof Number
+        || value instanceof Boolean) {
+      return value;
+    } else if (value instanceof Map) {
+      Map<String, Object> map = (Map<String, Object>) value;
+      Map<String, Object> result = Maps.newLinkedHashMapWithExpectedSize(map.size());
+      map.forEach((k, v) -> result.put(k, copy(v)));
+      return result;
+    } else if (value instanceof List) {
+      List<Object> list = (List<Object>) value;
+      List<Object> result = new ArrayList<>(list.size());
+      for (Object item : list) {
+        result.add(copy(item));
+      }
+      return result;
+    } else {
+      return mapper.convertValue(value, Object.class);
+    }
+  }
+}
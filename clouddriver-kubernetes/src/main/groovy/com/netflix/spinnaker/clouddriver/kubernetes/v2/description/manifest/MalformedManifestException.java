@@ -17,13 +17,15 @@
 
 package com.netflix.spinnaker.clouddriver.kubernetes.v2.description.manifest;
 
+import java.util.Map;
+
 public class MalformedManifestException extends IllegalStateException {
   private MalformedManifestException(String msg) {
     super(msg);
   }
 
   public static MalformedManifestException missingField(
-      KubernetesManifest manifest, String fieldName) {
+      Map<String, Object> manifest, String fieldName) {
     return new MalformedManifestException(
         String.format("Missing required field '%s' on manifest:\n%s", fieldName, manifest));
   }
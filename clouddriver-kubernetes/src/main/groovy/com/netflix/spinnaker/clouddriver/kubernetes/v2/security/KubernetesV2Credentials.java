@@ -20,6 +20,7 @@ package com.netflix.spinnaker.clouddriver.kubernetes.v2.security;
 import static lombok.EqualsAndHashCode.Include;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.github.benmanes.caffeine.cache.Caffeine;
 import com.github.benmanes.caffeine.cache.LoadingCache;
 import com.netflix.spectator.api.Clock;
@@ -29,6 +30,8 @@ import com.netflix.spinnaker.clouddriver.kubernetes.config.KubernetesCachingPoli
 import com.netflix.spinnaker.clouddriver.kubernetes.config.KubernetesConfigurationProperties;
 import com.netflix.spinnaker.clouddriver.kubernetes.security.KubeconfigFileHasher;
 import com.netflix.spinnaker.clouddriver.kubernetes.security.KubernetesCredentials;
+import com.netflix.spinnaker.clouddriver.kubernetes.v2.caching.watch.KubernetesWatchClient;
+import com.netflix.spinnaker.clouddriver.kubernetes.v2.caching.watch.KubernetesWatchEngine;
 import com.netflix.spinnaker.clouddriver.kubernetes.v2.description.JsonPatch;
 import com.netflix.spinnaker.clouddriver.kubernetes.v2.description.KubernetesPatchOptions;
 import com.netflix.spinnaker.clouddriver.kubernetes.v2.description.KubernetesPodMetric;
@@ -96,6 +99,8 @@ public class KubernetesV2Credentials implements KubernetesCredentials {
 
   @Include @Getter private final boolean liveManifestCalls;
 
+  @Include @Getter private final boolean watchCaching;
+
   @Include private final boolean checkPermissionsOnStartup;
 
   @Include @Getter private final List<KubernetesCachingPolicy> cachingPolicies;
@@ -113,6 +118,9 @@ public class KubernetesV2Credentials implements KubernetesCredentials {
   private String cachedDefaultNamespace;
   private final Supplier<List<String>> liveNamespaceSupplier;
   private final Supplier<List<KubernetesKind>> liveCrdSupplier;
+  private volatile KubernetesWatchEngine watchEngine;
+  private volatile boolean watchEngineFailed;
+  private volatile boolean watchEngineClosed;
 
   public KubernetesV2Credentials(
       Registry registry,
@@ -149,6 +157,7 @@ public class KubernetesV2Credentials implements KubernetesCredentials {
 
     this.onlySpinnakerManaged = managedAccount.getOnlySpinnakerManaged();
     this.liveManifestCalls = managedAccount.getLiveManifestCalls();
+    this.watchCaching = managedAccount.getWatchCaching();
     this.checkPermissionsOnStartup = managedAccount.getCheckPermissionsOnStartup();
     this.cachingPolicies = managedAccount.getCachingPolicies();
 
@@ -465,6 +474,64 @@ public class KubernetesV2Credentials implements KubernetesCredentials {
     }
   }
 
+  /**
+   * Lists resources for a caching agent. When watch caching is enabled these are served from
+   * in-process watches of the API server once they have synced, and from kubectl otherwise.
+   */
+  public List<KubernetesManifest> listForCaching(List<KubernetesKind> kinds, String namespace) {
+    KubernetesWatchEngine engine = watchEngine();
+    if (engine != null && !kinds.isEmpty()) {
+      Optional<List<KubernetesManifest>> watched = engine.list(kinds, namespace);
+      if (watched.isPresent()) {
+        return watched.get();
+      }
+    }
+    return list(kinds, namespace);
+  }
+
+  /**
+   * Stops this account's watches once these credentials have been replaced or removed; caching
+   * through them falls back to kubectl afterwards.
+   */
+  public void closeWatches() {
+    KubernetesWatchEngine engine;
+    synchronized (this) {
+      watchEngineClosed = true;
+      engine = watchEngine;
+      watchEngine = null;
+    }
+    if (engine != null) {
+      engine.close();
+    }
+  }
+
+  private KubernetesWatchEngine watchEngine() {
+    if (!watchCaching || watchEngineFailed || watchEngineClosed || watchEngine != null) {
+      return watchEngine;
+    }
+
+    synchronized (this) {
+      if (watchEngine == null && !watchEngineFailed && !watchEngineClosed) {
+        try {
+          watchEngine =
+              new KubernetesWatchEngine(
+                  accountName,
+                  KubernetesWatchClient.fromKubeconfig(
+                      kubeconfigFile, context, namespaces, serviceAccount, new ObjectMapper()),
+                  namespaces,
+                  registry);
+        } catch (Exception e) {
+          log.warn(
+              "Unable to watch resources for account {}, caching will use kubectl: {}",
+              accountName,
+              e.getMessage());
+          watchEngineFailed = true;
+        }
+      }
+    }
+    return watchEngine;
+  }
+
   public List<KubernetesManifest> eventsFor(KubernetesKind kind, String namespace, String name) {
     return runAndRecordMetrics(
         "list",
@@ -119,6 +119,36 @@ class KubernetesCacheDataSpec extends Specification {
     applicationRelationships.contains(REPLICA_SET_KEY.toString())
   }
 
+  def "relationships added more than once are only returned once"() {
+    given:
+    KubernetesCacheData kubernetesCacheData = new KubernetesCacheData()
+    Map<String, Object> attributes = new ImmutableMap.Builder<String, Object>().put("key", "value").build();
+    def podKeys = (1..20).collect { new Keys.InfrastructureCacheKey(KubernetesKind.POD, ACCOUNT, NAMESPACE, "pod-$it") }
+
+    when:
+    kubernetesCacheData.addItem(REPLICA_SET_KEY, attributes)
+    podKeys.each { podKey ->
+      kubernetesCacheData.addItem(podKey, attributes)
+      kubernetesCacheData.addRelationship(REPLICA_SET_KEY, podKey)
+      kubernetesCacheData.addRelationships(podKey, [REPLICA_SET_KEY, APPLICATION_KEY] as Set)
+      kubernetesCacheData.addRelationship(new Keys.ApplicationCacheKey("app"), podKey)
+    }
+    Collection<CacheData> cacheData = kubernetesCacheData.toCacheData()
+
+    then:
+    cacheData.size() == 22
+
+    def replicaSet = cacheData.find { it.id == REPLICA_SET_KEY.toString() }
+    replicaSet.relationships.get("pod").sort() == podKeys*.toString().sort()
+
+    def application = cacheData.find { it.id == APPLICATION_KEY.toString() }
+    application.relationships.get("pod").sort() == podKeys*.toString().sort()
+
+    def pod = cacheData.find { it.id == podKeys[0].toString() }
+    pod.relationships.get("replicaSet") == [REPLICA_SET_KEY.toString()]
+    pod.relationships.get("applications") == [APPLICATION_KEY.toString()]
+  }
+
   def "correctly groups cache data items"() {
     given:
     KubernetesCacheData kubernetesCacheData = new KubernetesCacheData()
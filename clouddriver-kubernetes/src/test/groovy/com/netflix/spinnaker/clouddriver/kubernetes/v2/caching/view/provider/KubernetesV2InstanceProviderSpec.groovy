@@ -0,0 +1,59 @@
+/*
+ * Copyright 2019 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.spinnaker.clouddriver.kubernetes.v2.caching.view.provider
+
+import com.netflix.spinnaker.cats.cache.DefaultCacheData
+import com.netflix.spinnaker.clouddriver.kubernetes.v2.caching.Keys
+import com.netflix.spinnaker.clouddriver.kubernetes.v2.caching.view.model.KubernetesV2Instance
+import com.netflix.spinnaker.clouddriver.kubernetes.v2.description.manifest.KubernetesKind
+import spock.lang.Specification
+
+class KubernetesV2InstanceProviderSpec extends Specification {
+  def key = Keys.InfrastructureCacheKey.createKey(KubernetesKind.POD, "my-account", "my-namespace", "my-pod")
+  def pod = new DefaultCacheData(key, [
+    manifest: [
+      apiVersion: "v1",
+      kind: "Pod",
+      metadata: [name: "my-pod", namespace: "my-namespace", uid: "abc"],
+      spec: [containers: [[name: "main", image: "my-image:1.0"]]],
+      status: [phase: "Running"]
+    ]
+  ], [:])
+
+  def cacheUtils = Mock(KubernetesCacheUtils)
+  def provider = new KubernetesV2InstanceProvider(cacheUtils, null, null, null)
+
+  void "an instance looked up on its own keeps the pod's full manifest"() {
+    when:
+    def instance = provider.getInstance("my-account", "my-namespace", "pod my-pod")
+
+    then:
+    1 * cacheUtils.getSingleEntry(KubernetesKind.POD.toString(), key) >> Optional.of(pod)
+    instance.manifest.spec == [containers: [[name: "main", image: "my-image:1.0"]]]
+    instance.manifest.status == [phase: "Running"]
+    instance.humanReadableName == "my-pod"
+  }
+
+  void "an instance listed in a server group leaves out the pod's spec"() {
+    when:
+    def instance = KubernetesV2Instance.summaryFromCacheData(pod)
+
+    then:
+    instance.manifest.keySet() == ["apiVersion", "kind", "metadata", "status"] as Set
+    instance.humanReadableName == "my-pod"
+  }
+}
@@ -0,0 +1,191 @@
+/*
+ * Copyright 2019 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.spinnaker.clouddriver.kubernetes.v2.caching.watch
+
+import com.fasterxml.jackson.databind.ObjectMapper
+import com.netflix.spectator.api.NoopRegistry
+import com.netflix.spinnaker.clouddriver.kubernetes.v2.description.manifest.KubernetesKind
+import com.sun.net.httpserver.HttpServer
+import okhttp3.OkHttpClient
+import spock.lang.AutoCleanup
+import spock.lang.Specification
+
+import java.nio.charset.StandardCharsets
+
+class KubernetesWatchClientSpec extends Specification {
+  def mapper = new ObjectMapper()
+  Map<String, List<String>> responses = [:]
+  List<String> requests = []
+
+  @AutoCleanup("stop")
+  HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0)
+
+  KubernetesWatchClient client
+
+  def setup() {
+    server.createContext("/") { exchange ->
+      def uri = exchange.requestURI.toString()
+      requests << uri
+      def key = responses.keySet().findAll { uri.startsWith(it) }.max { it.length() }
+      def body = key ? responses[key].remove(0) : '{"kind":"Status","code":404}'
+      def bytes = body.getBytes(StandardCharsets.UTF_8)
+      exchange.sendResponseHeaders(key ? 200 : 404, bytes.length)
+      exchange.responseBody.withCloseable { it.write(bytes) }
+    }
+    server.start()
+    client = new KubernetesWatchClient(new OkHttpClient(), "http://localhost:${server.address.port}", mapper)
+  }
+
+  def "discovers listable and watchable resources, skipping subresources"() {
+    given:
+    responses["/api/v1"] = ['''{"resources": [
+      {"name": "pods", "kind": "Pod", "namespaced": true, "verbs": ["get", "list", "watch"]},
+      {"name": "pods/log", "kind": "Pod", "namespaced": true, "verbs": ["get"]},
+      {"name": "bindings", "kind": "Binding", "namespaced": true, "verbs": ["create"]}
+    ]}''']
+    responses["/api"] = ['{"versions": ["v1"]}']
+    responses["/apis/apps/v1"] = ['''{"resources": [
+      {"name": "deployments", "kind": "Deployment", "namespaced": true, "verbs": ["list", "watch"]}
+    ]}''']
+    responses["/apis"] = ['{"groups": [{"name": "apps", "preferredVersion": {"groupVersion": "apps/v1"}}]}']
+
+    when:
+    def resources = client.discover()
+
+    then:
+    resources.size() == 2
+    resources[KubernetesKind.POD] == new KubernetesApiResource("v1", "pods", "Pod", true)
+    resources[KubernetesKind.DEPLOYMENT] == new KubernetesApiResource("apps/v1", "deployments", "Deployment", true)
+  }
+
+  def "lists every page and fills in each item's kind and apiVersion"() {
+    given:
+    def resource = new KubernetesApiResource("apps/v1", "deployments", "Deployment", true)
+    responses["/apis/apps/v1/namespaces/default/deployments"] = [
+      '{"metadata": {"resourceVersion": "10", "continue": "next"}, "items": [{"metadata": {"name": "a", "namespace": "default"}}]}',
+      '{"metadata": {"resourceVersion": "11"}, "items": [{"metadata": {"name": "b", "namespace": "default"}}]}'
+    ]
+
+    when:
+    def result = client.list(resource, "default")
+
+    then:
+    result.resourceVersion == "11"
+    result.items*.name == ["a", "b"]
+    result.items.every { it.kind == KubernetesKind.DEPLOYMENT && it.apiVersion.toString() == "apps/v1" }
+    requests[1].contains("continue=next")
+  }
+
+  def "watcher applies events on top of the initial list"() {
+    given:
+    def resource = new KubernetesApiResource("v1", "pods", "Pod", true)
+    def watcher = new KubernetesResourceWatcher("account", client, resource, "", new NoopRegistry())
+    responses["/api/v1/pods?limit"] = [
+      '{"metadata": {"resourceVersion": "1"}, "items": [{"metadata": {"name": "a", "namespace": "ns"}}, {"metadata": {"name": "b", "namespace": "ns"}}]}'
+    ]
+    responses["/api/v1/pods?watch"] = [
+      '{"type": "MODIFIED", "object": {"metadata": {"name": "a", "namespace": "ns", "resourceVersion": "2", "labels": {"x": "y"}}}}\n' +
+        '{"type": "DELETED", "object": {"metadata": {"name": "b", "namespace": "ns", "resourceVersion": "3"}}}\n' +
+        '{"type": "ADDED", "object": {"metadata": {"name": "c", "namespace": "other", "resourceVersion": "4"}}}\n'
+    ]
+
+    when:
+    client.list(resource, "").items.each { watcher.apply(new KubernetesWatchClient.WatchEvent(type: "ADDED", object: it)) }
+    client.watch(resource, "", "1") { watcher.apply(it) }
+
+    then:
+    watcher.list("").collect { it.name }.sort() == ["a", "c"]
+    watcher.list("ns")*.labels == [[x: "y"]]
+    requests[1].contains("resourceVersion=1")
+  }
+
+  def "watch fails with an expired resource version on a 410 error event"() {
+    given:
+    def resource = new KubernetesApiResource("v1", "pods", "Pod", true)
+    responses["/api/v1/pods?watch"] = ['{"type": "ERROR", "object": {"kind": "Status", "code": 410}}\n']
+
+    when:
+    client.watch(resource, "", "1") {}
+
+    then:
+    thrown(KubernetesWatchClient.ResourceVersionExpiredException)
+  }
+
+  def "watcher hands out copies that callers can modify"() {
+    given:
+    def resource = new KubernetesApiResource("v1", "pods", "Pod", true)
+    def watcher = new KubernetesResourceWatcher("account", client, resource, "", new NoopRegistry())
+    def pod = mapper.readValue('{"metadata": {"name": "a", "namespace": "ns", "annotations": {"k": "v"}}}',
+      com.netflix.spinnaker.clouddriver.kubernetes.v2.description.manifest.KubernetesManifest)
+    watcher.apply(new KubernetesWatchClient.WatchEvent(type: "ADDED", object: pod))
+
+    when:
+    watcher.list("")[0].metadata.annotations.clear()
+
+    then:
+    watcher.list("")[0].metadata.annotations == [k: "v"]
+  }
+
+  def "watcher stops and is marked unavailable when the server refuses the watch"() {
+    given:
+    def resource = new KubernetesApiResource("v1", "secrets", "Secret", true)
+    def watcher = new KubernetesResourceWatcher("account", client, resource, "", new NoopRegistry())
+
+    when:
+    watcher.run()
+
+    then:
+    watcher.isUnavailable()
+    watcher.isClosed()
+    !watcher.isSynced()
+    requests == ["/api/v1/secrets?limit=500"]
+  }
+
+  def "watcher lists a single namespace from its index"() {
+    given:
+    def resource = new KubernetesApiResource("v1", "pods", "Pod", true)
+    def watcher = new KubernetesResourceWatcher("account", client, resource, "", new NoopRegistry())
+    [["a", "ns"], ["b", "ns"], ["c", "other"]].each { name, namespace ->
+      def pod = mapper.readValue("""{"metadata": {"name": "$name", "namespace": "$namespace"}}""",
+        com.netflix.spinnaker.clouddriver.kubernetes.v2.description.manifest.KubernetesManifest)
+      watcher.apply(new KubernetesWatchClient.WatchEvent(type: "ADDED", object: pod))
+    }
+
+    when:
+    watcher.apply(new KubernetesWatchClient.WatchEvent(type: "DELETED", object: mapper.readValue(
+      '{"metadata": {"name": "c", "namespace": "other"}}',
+      com.netflix.spinnaker.clouddriver.kubernetes.v2.description.manifest.KubernetesManifest)))
+
+    then:
+    watcher.list("ns")*.name.sort() == ["a", "b"]
+    watcher.list("other").isEmpty()
+    watcher.list("")*.name.sort() == ["a", "b"]
+  }
+
+  def "watch retries back off exponentially"() {
+    expect:
+    KubernetesResourceWatcher.backoffMillis(failures) == expected
+
+    where:
+    failures || expected
+    1        || 5_000
+    2        || 10_000
+    4        || 40_000
+    7        || 300_000
+    100      || 300_000
+  }
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright 2019 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.spinnaker.clouddriver.kubernetes.v2.description
+
+import com.fasterxml.jackson.databind.ObjectMapper
+import com.netflix.spinnaker.clouddriver.kubernetes.v2.description.manifest.KubernetesKind
+import com.netflix.spinnaker.clouddriver.kubernetes.v2.description.manifest.KubernetesManifest
+import com.netflix.spinnaker.clouddriver.kubernetes.v2.description.manifest.KubernetesManifestView
+import com.netflix.spinnaker.clouddriver.kubernetes.v2.description.manifest.MalformedManifestException
+import spock.lang.Specification
+
+class KubernetesManifestViewSpec extends Specification {
+  def objectMapper = new ObjectMapper()
+
+  def source = objectMapper.readValue('''
+    {
+      "apiVersion": "apps/v1",
+      "kind": "ReplicaSet",
+      "metadata": {
+        "name": "my-name-v001",
+        "namespace": "my-namespace",
+        "labels": { "app": "my-name" },
+        "ownerReferences": [
+          { "apiVersion": "apps/v1", "kind": "Deployment", "name": "my-name", "uid": "abc", "controller": true }
+        ]
+      },
+      "spec": { "replicas": 3.0 },
+      "status": { "replicas": 2.0 }
+    }
+  ''', Map)
+
+  void "reads the same fields as the full manifest"() {
+    given:
+    def view = new KubernetesManifestView(source)
+    def manifest = objectMapper.convertValue(source, KubernetesManifest)
+
+    expect:
+    view.kind == KubernetesKind.REPLICA_SET
+    view.kind == manifest.getKind()
+    view.apiVersion == manifest.getApiVersion()
+    view.name == manifest.getName()
+    view.namespace == manifest.getNamespace()
+    view.fullResourceName == manifest.getFullResourceName()
+    view.labels == manifest.getLabels()
+    view.annotations.isEmpty()
+    view.ownerReferences == manifest.getOwnerReferences()
+    view.replicas == manifest.getReplicas()
+    view.status == manifest.getStatus()
+  }
+
+  void "toManifest copies the manifest once and leaves the source untouched"() {
+    given:
+    def view = new KubernetesManifestView(source)
+
+    when:
+    def manifest = view.toManifest()
+
+    then:
+    manifest == objectMapper.convertValue(source, KubernetesManifest)
+    view.toManifest().is(manifest)
+
+    when:
+    manifest.getLabels().put("extra", "label")
+    manifest.setReplicas(5.0d)
+
+    then:
+    source.metadata.labels == [app: "my-name"]
+    source.spec.replicas == 3.0
+    view.replicas == 3.0
+  }
+
+  void "toManifest can copy only some of the manifest's fields"() {
+    given:
+    def view = new KubernetesManifestView(source)
+
+    when:
+    def manifest = view.toManifest(["apiVersion", "kind", "metadata", "missing"])
+
+    then:
+    manifest.keySet() == ["apiVersion", "kind", "metadata"] as Set
+    manifest.getFullResourceName() == view.fullResourceName
+
+    when:
+    manifest.getLabels().put("extra", "label")
+
+    then:
+    source.metadata.labels == [app: "my-name"]
+  }
+
+  void "the view can't be used to modify the source"() {
+    given:
+    def view = new KubernetesManifestView(source)
+
+    when:
+    view.labels.put("extra", "label")
+
+    then:
+    thrown(UnsupportedOperationException)
+    source.metadata.labels == [app: "my-name"]
+  }
+
+  void "a manifest without metadata is malformed"() {
+    when:
+    new KubernetesManifestView([kind: "Pod"]).name
+
+    then:
+    thrown(MalformedManifestException)
+  }
+
+  void "a missing manifest has no view"() {
+    expect:
+    KubernetesManifestView.of(null) == null
+  }
+}
@@ -17,12 +17,14 @@ package com.netflix.spinnaker.clouddriver.config
 
 import com.netflix.spinnaker.clouddriver.scattergather.ScatterGather
 import com.netflix.spinnaker.clouddriver.scattergather.client.ScatteredOkHttpCallFactory
-import com.netflix.spinnaker.clouddriver.scattergather.naive.NaiveScatterGather
+import com.netflix.spinnaker.clouddriver.scattergather.coroutines.CoroutinesScatterGather
 import com.netflix.spinnaker.config.OkHttp3ClientConfiguration
+import org.springframework.boot.context.properties.EnableConfigurationProperties
 import org.springframework.context.annotation.Bean
 import org.springframework.context.annotation.Configuration
 
 @Configuration
+@EnableConfigurationProperties(ScatterGatherProperties::class)
 open class ScatterGatherConfiguration {
 
   @Bean
@@ -31,7 +33,10 @@ open class ScatterGatherConfiguration {
   }
 
   @Bean
-  open fun scatterGather(callFactory: ScatteredOkHttpCallFactory): ScatterGather {
-    return NaiveScatterGather(callFactory)
+  open fun scatterGather(
+    callFactory: ScatteredOkHttpCallFactory,
+    properties: ScatterGatherProperties
+  ): ScatterGather {
+    return CoroutinesScatterGather(callFactory, properties)
   }
 }
@@ -0,0 +1,39 @@
+/*
+ * Copyright 2019 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.spinnaker.clouddriver.config
+
+import org.springframework.boot.context.properties.ConfigurationProperties
+
+@ConfigurationProperties("scatter-gather")
+data class ScatterGatherProperties(
+  /**
+   * How long to wait for any single target, including hedged requests. A target that doesn't
+   * respond in time is reported as a 504.
+   */
+  var targetTimeoutMs: Long = 30_000,
+
+  /**
+   * How long to wait on a target before sending the same request to it again and taking whichever
+   * responds first, 0 to disable. Only GET and HEAD requests are hedged.
+   */
+  var hedgeDelayMs: Long = 0,
+
+  /**
+   * Whether targets that time out or can't be reached are left out of the reduced response, as long
+   * as at least one target responded. Otherwise they fail the whole response.
+   */
+  var allowPartialFailures: Boolean = false
+)
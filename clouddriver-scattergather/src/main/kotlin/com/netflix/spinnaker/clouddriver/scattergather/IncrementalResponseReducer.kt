@@ -0,0 +1,49 @@
+/*
+ * Copyright 2019 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.spinnaker.clouddriver.scattergather
+
+import okhttp3.Response
+
+/**
+ * A [ResponseReducer] that can fold responses in one at a time, so a [ScatterGather] can start
+ * reducing while slower targets are still responding rather than after the last one.
+ *
+ * Responses are added in the order they arrive, so reducers that resolve conflicts by order should
+ * not rely on the order of the original targets.
+ */
+interface IncrementalResponseReducer : ResponseReducer {
+
+  /**
+   * Starts a new reduction. A [Reduction] is only ever used by a single thread at a time.
+   */
+  fun start(): Reduction
+
+  override fun reduce(responses: List<Response>): ReducedResponse =
+    start().let { reduction ->
+      responses.forEach { reduction.add(it) }
+      reduction.finish()
+    }
+
+  interface Reduction {
+
+    /**
+     * Folds a response into this reduction. The reduction is responsible for closing its body.
+     */
+    fun add(response: Response)
+
+    fun finish(): ReducedResponse
+  }
+}
@@ -0,0 +1,195 @@
+/*
+ * Copyright 2019 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.spinnaker.clouddriver.scattergather.coroutines
+
+import com.netflix.spinnaker.clouddriver.config.ScatterGatherProperties
+import com.netflix.spinnaker.clouddriver.scattergather.IncrementalResponseReducer
+import com.netflix.spinnaker.clouddriver.scattergather.ReducedResponse
+import com.netflix.spinnaker.clouddriver.scattergather.ResponseReducer
+import com.netflix.spinnaker.clouddriver.scattergather.ScatterGather
+import com.netflix.spinnaker.clouddriver.scattergather.ServletScatterGatherRequest
+import com.netflix.spinnaker.clouddriver.scattergather.client.ScatteredOkHttpCallFactory
+import kotlinx.coroutines.TimeoutCancellationException
+import kotlinx.coroutines.async
+import kotlinx.coroutines.awaitAll
+import kotlinx.coroutines.channels.Channel
+import kotlinx.coroutines.coroutineScope
+import kotlinx.coroutines.launch
+import kotlinx.coroutines.runBlocking
+import kotlinx.coroutines.selects.select
+import kotlinx.coroutines.suspendCancellableCoroutine
+import kotlinx.coroutines.withTimeout
+import kotlinx.coroutines.withTimeoutOrNull
+import okhttp3.Call
+import okhttp3.Callback
+import okhttp3.Protocol
+import okhttp3.Response
+import org.slf4j.LoggerFactory
+import java.io.IOException
+import java.util.UUID
+import kotlin.coroutines.resume
+import kotlin.coroutines.resumeWithException
+
+/**
+ * Performs a scatter/gather operation concurrently.
+ *
+ * Every target is called at once on OkHttp's dispatcher, and the calling thread only reduces
+ * responses as they come back. With an [IncrementalResponseReducer], each response is folded in
+ * as soon as it arrives; other reducers are handed every response, in target order, once the last
+ * one is in. Either way, the request takes as long as the slowest target rather than the sum of
+ * all of them.
+ *
+ * A target that doesn't respond within [ScatterGatherProperties.targetTimeoutMs] is reported as a
+ * 504, and one that can't be reached as a 502, unless partial failures are allowed. Slow GET and
+ * HEAD requests may be hedged, see [ScatterGatherProperties.hedgeDelayMs].
+ */
+class CoroutinesScatterGather(
+  private val callFactory: ScatteredOkHttpCallFactory,
+  private val properties: ScatterGatherProperties
+) : ScatterGather {
+
+  private val log = LoggerFactory.getLogger(javaClass)
+
+  override fun request(request: ServletScatterGatherRequest, reducer: ResponseReducer): ReducedResponse {
+    val calls = callFactory.createCalls(
+      UUID.randomUUID().toString(),
+      request.targets,
+      request.original
+    )
+
+    return runBlocking {
+      val results = Channel<TargetResponse>(calls.size)
+      calls.forEachIndexed { index, call ->
+        launch { results.send(callTarget(index, call)) }
+      }
+
+      val reduction = (reducer as? IncrementalResponseReducer)?.start()
+      val responses = arrayOfNulls<Response>(calls.size)
+      val failures = mutableListOf<TargetResponse>()
+      repeat(calls.size) {
+        val result = results.receive()
+        when {
+          result.failed -> failures.add(result)
+          reduction != null -> reduction.add(result.response)
+          else -> responses[result.index] = result.response
+        }
+      }
+
+      if (properties.allowPartialFailures && failures.size < calls.size) {
+        failures.forEach {
+          log.warn("Leaving {} out of scatter response: {}", it.response.request().tag(), it.response.message())
+        }
+      } else {
+        failures.forEach {
+          when (reduction) {
+            null -> responses[it.index] = it.response
+            else -> reduction.add(it.response)
+          }
+        }
+      }
+
+      reduction?.finish() ?: reducer.reduce(responses.filterNotNull())
+    }
+  }
+
+  private suspend fun callTarget(index: Int, call: Call): TargetResponse =
+    try {
+      withTimeout(properties.targetTimeoutMs) { hedged(call) }
+        ?.let { TargetResponse(index, it, false) }
+        ?: TargetResponse(index, failure(call, 502, "Target unreachable"), true)
+    } catch (e: TimeoutCancellationException) {
+      TargetResponse(index, failure(call, 504, "Target timed out"), true)
+    }
+
+  /**
+   * Executes [call], sending it again if it hasn't responded within the hedge delay and returning
+   * whichever response comes back first. Returns null if neither could reach the target.
+   */
+  private suspend fun hedged(call: Call): Response? = coroutineScope {
+    val primary = async { attempt(call) }
+    if (properties.hedgeDelayMs <= 0 || call.request().method() !in HEDGED_METHODS) {
+      return@coroutineScope primary.await()
+    }
+
+    withTimeoutOrNull(properties.hedgeDelayMs) { primary.join() }
+    if (primary.isCompleted) {
+      return@coroutineScope primary.await()
+    }
+
+    log.debug("Hedging slow scatter request to {}", call.request().tag())
+    val hedge = async { attempt(call.clone()) }
+    val response = select<Response?> {
+      primary.onAwait { it }
+      hedge.onAwait { it }
+    } ?: awaitAll(primary, hedge).firstOrNull { it != null }
+
+    listOf(primary, hedge).forEach {
+      it.cancel()
+      if (it.isCompleted && !it.isCancelled) {
+        it.await()?.takeIf { other -> other !== response }?.close()
+      }
+    }
+    response
+  }
+
+  private suspend fun attempt(call: Call): Response? =
+    try {
+      call.await()
+    } catch (e: IOException) {
+      log.warn("Scatter request to {} failed", call.request().tag(), e)
+      null
+    }
+
+  private fun failure(call: Call, code: Int, message: String): Response =
+    Response.Builder()
+      .request(call.request())
+      .protocol(Protocol.HTTP_1_1)
+      .code(code)
+      .message(message)
+      .build()
+
+  private class TargetResponse(
+    val index: Int,
+    val response: Response,
+    val failed: Boolean
+  )
+
+  companion object {
+    private val HEDGED_METHODS = setOf("GET", "HEAD")
+  }
+}
+
+/**
+ * Enqueues the call, cancelling it if the calling coroutine is cancelled.
+ */
+private suspend fun Call.await(): Response = suspendCancellableCoroutine { continuation ->
+  enqueue(object : Callback {
+    override fun onResponse(call: Call, response: Response) {
+      if (continuation.isActive) {
+        continuation.resume(response)
+      } else {
+        response.close()
+      }
+    }
+
+    override fun onFailure(call: Call, e: IOException) {
+      if (continuation.isActive) {
+        continuation.resumeWithException(e)
+      }
+    }
+  })
+  continuation.invokeOnCancellation { cancel() }
+}
@@ -26,9 +26,8 @@ import java.util.UUID
  * Performs a scatter/gather operation sequentially.
  *
  * This should be used only for development purposes, as it'll be crazy slow.
- * An async implementation should be used for non-development purposes.
- *
- * TODO(rz): Add CoroutinesScatterGather
+ * Use [com.netflix.spinnaker.clouddriver.scattergather.coroutines.CoroutinesScatterGather]
+ * for non-development purposes.
  */
 class NaiveScatterGather(
   private val callFactory: ScatteredOkHttpCallFactory
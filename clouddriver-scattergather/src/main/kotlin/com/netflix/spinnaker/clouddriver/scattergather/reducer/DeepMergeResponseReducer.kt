@@ -19,9 +19,10 @@ import com.fasterxml.jackson.databind.JsonNode
 import com.fasterxml.jackson.databind.ObjectMapper
 import com.fasterxml.jackson.databind.node.ArrayNode
 import com.fasterxml.jackson.databind.node.ObjectNode
+import com.netflix.spinnaker.clouddriver.scattergather.IncrementalResponseReducer
 import com.netflix.spinnaker.clouddriver.scattergather.ReducedResponse
-import com.netflix.spinnaker.clouddriver.scattergather.ResponseReducer
 import okhttp3.Response
+import okhttp3.ResponseBody
 import org.springframework.http.HttpStatus
 
 /**
@@ -32,61 +33,61 @@ import org.springframework.http.HttpStatus
  * removing any duplicate objects, but there will be no recursion of the array
  * elements themselves.
  *
- * Conflict resolution is last-one-wins, where responses are ordered by the client.
+ * Conflict resolution is last-one-wins, where responses are ordered by the client, or
+ * by arrival when reduced incrementally.
+ *
+ * Bodies are parsed straight from the response stream and merged as they're added, so
+ * only the merged tree and the body of the worst failure so far are held at any time.
  */
-class DeepMergeResponseReducer : ResponseReducer {
+class DeepMergeResponseReducer : IncrementalResponseReducer {
 
   private val objectMapper = ObjectMapper()
 
-  override fun reduce(responses: List<Response>): ReducedResponse {
-    val status = getResponseCode(responses)
-    val body = mergeResponseBodies(responses, status)
-
-    return ReducedResponse(
-      status,
-      mapOf(), // TODO(rz): There's no real benefit to propagate headers at this point.
-      "application/json",
-      "UTF-8",
-      body?.toString(),
-      hasErrors(responses)
-    )
-  }
+  override fun start(): IncrementalResponseReducer.Reduction = DeepMergeReduction()
 
-  /**
-   * Merges all response bodies into a single [JsonNode]. Uses the first response
-   * as a base, layering each subsequent non-null response on top.
-   */
-  private fun mergeResponseBodies(responses: List<Response>, responseStatus: Int): JsonNode? {
-    val bodies = responses
-      .asSequence()
-      .map { Pair(it.body()?.string(), it) }
-      .filter { it.first != null }
-      .toList()
-
-    if (bodies.isEmpty()) {
-      return null
-    }
+  private inner class DeepMergeReduction : IncrementalResponseReducer.Reduction {
+    private val codes = mutableListOf<Int>()
 
-    if (responseStatus !in (200..299)) {
-      // Find the highest response status and return that.
-      val highestResponseBody = bodies.sortedByDescending { it.second.code() }.first().first
-      if (highestResponseBody != null) {
-        return objectMapper.readTree(highestResponseBody)
-      }
-    }
+    /**
+     * The merge of every successful body. Used as the body when the reduced status is
+     * successful, or when it isn't but no failed response had a body.
+     */
+    private var merged: JsonNode? = null
 
-    val main = objectMapper.readTree(bodies.first().first)
-    if (bodies.size == 1) {
-      return main
-    }
+    /**
+     * The first body of the highest failed status seen so far.
+     */
+    private var failure: Pair<Int, JsonNode>? = null
+
+    override fun add(response: Response) {
+      codes.add(response.code())
 
-    bodies.subList(1, bodies.size).forEach {
-      mergeNodes(main, objectMapper.readTree(it.first))
+      val body = response.body()?.use { readBody(it) } ?: return
+      if (response.code() in (200..299)) {
+        merged = merged?.let { mergeNodes(it, body) } ?: body
+      } else if (failure.let { it == null || response.code() > it.first }) {
+        failure = Pair(response.code(), body)
+      }
     }
 
-    return main
+    override fun finish(): ReducedResponse {
+      val status = getResponseCode(codes)
+      val body = if (status in (200..299)) merged else failure?.second ?: merged
+
+      return ReducedResponse(
+        status,
+        mapOf(), // TODO(rz): There's no real benefit to propagate headers at this point.
+        "application/json",
+        "UTF-8",
+        body?.toString(),
+        hasErrors(codes)
+      )
+    }
   }
 
+  private fun readBody(body: ResponseBody): JsonNode? =
+    objectMapper.readTree(body.charStream())?.takeUnless { it.isMissingNode }
+
   private fun mergeNodes(mainNode: JsonNode, updateNode: JsonNode?): JsonNode {
     if (updateNode == null) {
       return mainNode
@@ -115,12 +116,12 @@ class DeepMergeResponseReducer : ResponseReducer {
     return mainNode
   }
 
-  private fun getResponseCode(responses: List<Response>): Int {
-    if (hasErrors(responses)) {
+  private fun getResponseCode(codes: List<Int>): Int {
+    if (hasErrors(codes)) {
       return HttpStatus.BAD_GATEWAY.value()
     }
 
-    val distinctCodes = responses.asSequence().map { it.code() }.distinct().toList()
+    val distinctCodes = codes.distinct()
     return when {
       distinctCodes.size == 1 -> distinctCodes[0]
       distinctCodes.any { it == 404 } -> HttpStatus.NOT_FOUND.value()
@@ -129,6 +130,6 @@ class DeepMergeResponseReducer : ResponseReducer {
     }
   }
 
-  private fun hasErrors(responses: List<Response>): Boolean =
-    responses.any { it.code() >= 500 }
+  private fun hasErrors(codes: List<Int>): Boolean =
+    codes.any { it >= 500 }
 }
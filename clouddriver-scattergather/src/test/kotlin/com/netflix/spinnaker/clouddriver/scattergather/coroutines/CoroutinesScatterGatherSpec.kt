@@ -0,0 +1,144 @@
+/*
+ * Copyright 2019 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.spinnaker.clouddriver.scattergather.coroutines
+
+import com.fasterxml.jackson.databind.ObjectMapper
+import com.netflix.spinnaker.clouddriver.config.ScatterGatherProperties
+import com.netflix.spinnaker.clouddriver.scattergather.ServletScatterGatherRequest
+import com.netflix.spinnaker.clouddriver.scattergather.client.ScatteredOkHttpCallFactory
+import com.netflix.spinnaker.clouddriver.scattergather.reducer.DeepMergeResponseReducer
+import okhttp3.MediaType
+import okhttp3.OkHttpClient
+import okhttp3.Protocol
+import okhttp3.Response
+import okhttp3.ResponseBody
+import org.jetbrains.spek.api.Spek
+import org.jetbrains.spek.api.dsl.describe
+import org.jetbrains.spek.api.dsl.given
+import org.jetbrains.spek.api.dsl.it
+import org.springframework.mock.web.MockHttpServletRequest
+import strikt.api.expectThat
+import strikt.assertions.isEqualTo
+import strikt.assertions.isFalse
+import strikt.assertions.isLessThan
+import strikt.assertions.isTrue
+import java.util.concurrent.atomic.AtomicInteger
+
+internal object CoroutinesScatterGatherSpec : Spek({
+
+  describe("a coroutines scatter gather") {
+    val targets = mapOf(
+      "one" to "http://clouddriver-one",
+      "two" to "http://clouddriver-two"
+    )
+    val request = ServletScatterGatherRequest(targets, MockHttpServletRequest("GET", "/hello"))
+
+    given("targets that respond slowly") {
+      val subject = subject(ScatterGatherProperties()) { host, _ ->
+        Thread.sleep(500)
+        """{"$host": true}"""
+      }
+
+      it("calls them concurrently") {
+        val started = System.currentTimeMillis()
+        val result = subject.request(request, DeepMergeResponseReducer())
+
+        expectThat(System.currentTimeMillis() - started).isLessThan(900L)
+        expectThat(result) {
+          get { status }.isEqualTo(200)
+          get { json(body) }.isEqualTo(json("""{"clouddriver-one":true,"clouddriver-two":true}"""))
+          get { isError }.isFalse()
+        }
+      }
+    }
+
+    given("a target that doesn't respond in time") {
+      val respond: (String, Int) -> String = { host, _ ->
+        if (host == "clouddriver-two") {
+          Thread.sleep(2_000)
+        }
+        """{"$host": true}"""
+      }
+
+      it("fails the response") {
+        val result = subject(ScatterGatherProperties(targetTimeoutMs = 200), respond)
+          .request(request, DeepMergeResponseReducer())
+
+        expectThat(result) {
+          get { status }.isEqualTo(502)
+          get { isError }.isTrue()
+        }
+      }
+
+      it("leaves it out when partial failures are allowed") {
+        val properties = ScatterGatherProperties(targetTimeoutMs = 200, allowPartialFailures = true)
+        val result = subject(properties, respond).request(request, DeepMergeResponseReducer())
+
+        expectThat(result) {
+          get { status }.isEqualTo(200)
+          get { json(body) }.isEqualTo(json("""{"clouddriver-one":true}"""))
+          get { isError }.isFalse()
+        }
+      }
+    }
+
+    given("a target whose first attempt is slow") {
+      val respond: (String, Int) -> String = { host, attempt ->
+        if (host == "clouddriver-two" && attempt == 1) {
+          Thread.sleep(2_000)
+        }
+        """{"$host": $attempt}"""
+      }
+
+      it("takes the hedged response") {
+        val properties = ScatterGatherProperties(targetTimeoutMs = 1_000, hedgeDelayMs = 100)
+        val result = subject(properties, respond).request(request, DeepMergeResponseReducer())
+
+        expectThat(result) {
+          get { status }.isEqualTo(200)
+          get { json(body) }.isEqualTo(json("""{"clouddriver-one":1,"clouddriver-two":2}"""))
+        }
+      }
+    }
+  }
+})
+
+private fun json(body: String?) = ObjectMapper().readTree(body.orEmpty())
+
+/**
+ * Builds a scatter gather whose targets are answered in-process by [respond], which is given the
+ * target host and the attempt number for that host.
+ */
+private fun subject(
+  properties: ScatterGatherProperties,
+  respond: (String, Int) -> String
+): CoroutinesScatterGather {
+  val attempts = mutableMapOf<String, AtomicInteger>()
+  val okClient = OkHttpClient.Builder()
+    .addInterceptor { chain ->
+      val host = chain.request().url().host()
+      val attempt = synchronized(attempts) { attempts.getOrPut(host) { AtomicInteger() } }.incrementAndGet()
+      Response.Builder()
+        .request(chain.request())
+        .protocol(Protocol.HTTP_1_1)
+        .code(200)
+        .message("OK")
+        .body(ResponseBody.create(MediaType.parse("application/json"), respond(host, attempt)))
+        .build()
+    }
+    .build()
+  return CoroutinesScatterGather(ScatteredOkHttpCallFactory(okClient), properties)
+}
@@ -27,6 +27,7 @@ import com.netflix.spinnaker.cats.provider.ProviderRegistry
 import groovy.util.logging.Slf4j
 
 import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.atomic.AtomicLong
 
 @Slf4j
 /**
@@ -34,6 +35,16 @@ import java.util.concurrent.ConcurrentHashMap
  */
 public class ProviderUtils {
 
+  private static final AtomicLong agentsGeneration = new AtomicLong()
+
+  /**
+   * Incremented whenever agents are rescheduled or deregistered here, so that anything derived from the providers'
+   * agents knows to rebuild.
+   */
+  public static long getAgentsGeneration() {
+    agentsGeneration.get()
+  }
+
   public static Set<String> getScheduledAccounts(Provider provider) {
     provider.agents.findAll { agent ->
       agent instanceof AccountAware
@@ -80,6 +91,7 @@ public class ProviderUtils {
         }
       }
     }
+    agentsGeneration.incrementAndGet()
   }
 
   /**
@@ -146,5 +158,6 @@ public class ProviderUtils {
         provider.agents.removeAll(agentsToDelete)
       }
     }
+    agentsGeneration.incrementAndGet()
   }
 }
@@ -100,6 +100,12 @@ class SqlTask(
     this.history = history
   }
 
+  internal fun copy(): SqlTask =
+    SqlTask(id, ownerId, requestId, startTimeMs, repository).also {
+      it.hydrateHistory(history.toMutableList())
+      it.hydrateResultObjects(resultObjects.toMutableList())
+    }
+
   internal fun refresh(force: Boolean = false) {
     if (this.dirty.getAndSet(false) || force) {
       val task = repository.retrieveInternal(this.id)
@@ -16,6 +16,8 @@
 package com.netflix.spinnaker.clouddriver.sql
 
 import com.fasterxml.jackson.databind.ObjectMapper
+import com.github.benmanes.caffeine.cache.Cache
+import com.github.benmanes.caffeine.cache.Caffeine
 import com.netflix.spinnaker.clouddriver.core.ClouddriverHostname
 import com.netflix.spinnaker.clouddriver.data.task.DefaultTaskStatus
 import com.netflix.spinnaker.clouddriver.data.task.Task
@@ -24,6 +26,7 @@ import com.netflix.spinnaker.clouddriver.data.task.TaskState
 import com.netflix.spinnaker.clouddriver.data.task.TaskState.FAILED
 import com.netflix.spinnaker.clouddriver.data.task.TaskState.STARTED
 import com.netflix.spinnaker.config.ConnectionPools
+import com.netflix.spinnaker.config.SqlTaskRepositoryProperties
 import com.netflix.spinnaker.kork.sql.config.SqlRetryProperties
 import com.netflix.spinnaker.kork.sql.routing.withPool
 import de.huxhorn.sulky.ulid.ULID
@@ -31,21 +34,36 @@ import org.jooq.Condition
 import org.jooq.DSLContext
 import org.jooq.Record
 import org.jooq.Select
-import org.jooq.impl.DSL
 import org.jooq.impl.DSL.field
 import org.jooq.impl.DSL.sql
 import org.slf4j.LoggerFactory
 import java.time.Clock
+import java.util.concurrent.TimeUnit
 
-class SqlTaskRepository(
+class SqlTaskRepository @JvmOverloads constructor(
   private val jooq: DSLContext,
   private val mapper: ObjectMapper,
   private val clock: Clock,
-  private val sqlRetryProperties: SqlRetryProperties
+  private val sqlRetryProperties: SqlRetryProperties,
+  properties: SqlTaskRepositoryProperties = SqlTaskRepositoryProperties()
 ) : TaskRepository {
 
   private val log = LoggerFactory.getLogger(javaClass)
 
+  /**
+   * Completed tasks by id. Entries are never handed out directly, callers get a copy so that the
+   * active record methods on [SqlTask] can't change what other callers see.
+   */
+  private val completedTasks: Cache<String, SqlTask>? =
+    if (properties.completedTaskCacheTtlMs > 0) {
+      Caffeine.newBuilder()
+        .expireAfterWrite(properties.completedTaskCacheTtlMs, TimeUnit.MILLISECONDS)
+        .maximumSize(properties.completedTaskCacheMaxSize)
+        .build()
+    } else {
+      null
+    }
+
   init {
     log.info("Using ${javaClass.simpleName}")
   }
@@ -84,7 +102,15 @@ class SqlTaskRepository(
   }
 
   override fun get(id: String): Task? {
-    return retrieveInternal(id)
+    completedTasks?.getIfPresent(id)?.let {
+      return it.copy()
+    }
+
+    val task = retrieveInternal(id)
+    if (completedTasks != null && task is SqlTask && task.status?.isCompleted == true) {
+      completedTasks.put(id, task.copy())
+    }
+    return task
   }
 
   override fun getByClientRequestId(clientRequestId: String): Task? {
@@ -102,28 +128,17 @@ class SqlTaskRepository(
   }
 
   override fun list(): MutableList<Task> {
-    return withPool(POOL_NAME) {
-      jooq.withRetry(sqlRetryProperties.reads) {
-        runningTaskIds(it, false).let { taskIds ->
-          retrieveInternal(field("id").`in`(*taskIds), field("task_id").`in`(*taskIds)).toMutableList()
-        }
-      }
-    }
+    return runningTasks(false)
   }
 
   override fun listByThisInstance(): MutableList<Task> {
-    return withPool(POOL_NAME) {
-      jooq.withRetry(sqlRetryProperties.reads) {
-        runningTaskIds(it, true).let { taskIds ->
-          retrieveInternal(field("id").`in`(*taskIds), field("task_id").`in`(*taskIds)).toMutableList()
-        }
-      }
-    }
+    return runningTasks(true)
   }
 
   internal fun addResultObjects(results: List<Any>, task: Task) {
     val resultIdPairs = results.map { ulid.nextULID() to it }.toMap()
 
+    completedTasks?.invalidate(task.id)
     withPool(POOL_NAME) {
       jooq.transactional(sqlRetryProperties.transactions) { ctx ->
         ctx.select(taskStatesFields)
@@ -159,7 +174,12 @@ class SqlTaskRepository(
     }
   }
 
+  /**
+   * Appends to the task's history and records [state] as the task's current state on the tasks
+   * table, which is what running tasks are listed by.
+   */
   private fun addToHistory(ctx: DSLContext, id: String, taskId: String, state: TaskState, phase: String, status: String) {
+    completedTasks?.invalidate(taskId)
     ctx
       .insertInto(
         taskStatesTable,
@@ -167,6 +187,12 @@ class SqlTaskRepository(
       )
       .values(listOf(id, taskId, clock.millis(), state.toString(), phase, status))
       .execute()
+
+    ctx
+      .update(tasksTable)
+      .set(field("state"), state.toString())
+      .where(field("id").eq(taskId))
+      .execute()
   }
 
   internal fun updateState(task: Task, state: TaskState) {
@@ -263,34 +289,57 @@ class SqlTaskRepository(
   }
 
   /**
-   * Since task statuses are insert-only, we first need to find the most
-   * recent status record for each task ID and the filter that result set
-   * down to the ones that are running.
+   * Task statuses are insert-only, but [addToHistory] keeps the latest state of each task on the
+   * tasks table, so running tasks are an indexed lookup rather than a scan of task_states.
+   *
+   * Instances that predate the tasks.state column don't maintain it: tasks they create have no
+   * state, and tasks they complete are left as STARTED. Candidates are therefore checked against
+   * their latest task_states row, which is loaded with the rest of the task anyway, and the state
+   * of any that have completed is corrected so they aren't candidates again.
    */
+  private fun runningTasks(thisInstance: Boolean): MutableList<Task> {
+    val (running, completed) = withPool(POOL_NAME) {
+      jooq.withRetry(sqlRetryProperties.reads) {
+        runningTaskIds(it, thisInstance).let { taskIds ->
+          retrieveInternal(field("id").`in`(*taskIds), field("task_id").`in`(*taskIds))
+        }
+      }
+    }.partition { it.status?.isCompleted != true }
+
+    if (completed.isNotEmpty()) {
+      correctStates(completed)
+    }
+    return running.toMutableList()
+  }
+
+  private fun correctStates(tasks: List<Task>) {
+    try {
+      withPool(POOL_NAME) {
+        tasks
+          .groupBy { (it.status as? DefaultTaskStatus)?.state }
+          .filterKeys { it != null }
+          .forEach { (state, tasksInState) ->
+            jooq.withRetry(sqlRetryProperties.transactions) {
+              it.update(tasksTable)
+                .set(field("state"), state.toString())
+                .where(field("id").`in`(*tasksInState.map { task -> task.id }.toTypedArray()))
+                .execute()
+            }
+          }
+      }
+    } catch (e: Exception) {
+      log.warn("Unable to correct the state of ${tasks.size} completed tasks", e)
+    }
+  }
+
   private fun runningTaskIds(ctx: DSLContext, thisInstance: Boolean): Array<String> {
     return withPool(POOL_NAME) {
-      val baseQuery = ctx.select()
-        .from(taskStatesTable.`as`("a"))
-        .innerJoin(
-          ctx.select(field("task_id"), DSL.max(field("created_at")).`as`("created"))
-            .from(taskStatesTable)
-            .groupBy(field("task_id"))
-            .asTable("b")
-        ).on(sql("a.task_id = b.task_id and a.created_at = b.created"))
-
-      val select = if (thisInstance) {
-        baseQuery
-          .innerJoin(tasksTable.`as`("t")).on(field("a.task_id").eq("t.id"))
-          .where(
-            field("a.owner_id").eq(ClouddriverHostname.ID)
-              .and(field("a.state").eq(TaskState.STARTED.toString()))
-          )
-      } else {
-        baseQuery.where(field("a.state").eq(TaskState.STARTED.toString()))
-      }
+      val running = field("state").eq(TaskState.STARTED.toString()).or(field("state").isNull)
 
-      select
-        .fetch("task_id", String::class.java)
+      ctx.select(field("id"))
+        .from(tasksTable)
+        .where(if (thisInstance) running.and(field("owner_id").eq(ClouddriverHostname.ID)) else running)
+        .fetch("id", String::class.java)
         .toTypedArray()
     }
   }
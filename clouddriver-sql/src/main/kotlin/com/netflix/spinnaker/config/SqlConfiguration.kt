@@ -35,7 +35,7 @@ import java.time.Clock
 @Configuration
 @ConditionalOnProperty("sql.enabled")
 @Import(DefaultSqlConfiguration::class)
-@EnableConfigurationProperties(SqlTaskCleanupAgentProperties::class)
+@EnableConfigurationProperties(SqlTaskCleanupAgentProperties::class, SqlTaskRepositoryProperties::class)
 class SqlConfiguration {
 
   @Bean
@@ -43,9 +43,10 @@ class SqlConfiguration {
   fun sqlTaskRepository(
     jooq: DSLContext,
     clock: Clock,
-    sqlProperties: SqlProperties
+    sqlProperties: SqlProperties,
+    properties: SqlTaskRepositoryProperties
   ): TaskRepository =
-    SqlTaskRepository(jooq, ObjectMapper(), clock, sqlProperties.retries)
+    SqlTaskRepository(jooq, ObjectMapper(), clock, sqlProperties.retries, properties)
 
   @Bean
   @ConditionalOnProperty("sql.task-repository.enabled")
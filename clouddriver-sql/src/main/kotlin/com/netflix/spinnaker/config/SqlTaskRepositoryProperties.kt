@@ -0,0 +1,28 @@
+/*
+ * Copyright 2019 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.spinnaker.config
+
+import org.springframework.boot.context.properties.ConfigurationProperties
+
+@ConfigurationProperties("sql.task-repository")
+data class SqlTaskRepositoryProperties(
+  /**
+   * How long completed tasks are served from memory, 0 to disable. Completed tasks don't change,
+   * so this only bounds memory and how long a cleaned up task can still be read.
+   */
+  var completedTaskCacheTtlMs: Long = 0,
+  var completedTaskCacheMaxSize: Long = 10_000
+)
@@ -15,14 +15,22 @@
  */
 package com.netflix.spinnaker.clouddriver.sql;
 
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.jooq.impl.DSL.field;
+import static org.jooq.impl.DSL.table;
+
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.netflix.spinnaker.clouddriver.core.test.TaskRepositoryTck;
+import com.netflix.spinnaker.clouddriver.data.task.Task;
 import com.netflix.spinnaker.clouddriver.data.task.TaskRepository;
+import com.netflix.spinnaker.config.SqlTaskRepositoryProperties;
 import com.netflix.spinnaker.kork.sql.config.RetryProperties;
 import com.netflix.spinnaker.kork.sql.config.SqlRetryProperties;
 import com.netflix.spinnaker.kork.sql.test.SqlTestUtil;
 import java.time.Clock;
+import java.util.stream.Collectors;
 import org.junit.After;
+import org.junit.Test;
 
 public class SqlTaskRepositoryTest extends TaskRepositoryTck {
 
@@ -38,8 +46,73 @@ public class SqlTaskRepositoryTest extends TaskRepositoryTck {
     properties.setReads(retry);
     properties.setTransactions(retry);
 
+    SqlTaskRepositoryProperties repositoryProperties = new SqlTaskRepositoryProperties();
+    repositoryProperties.setCompletedTaskCacheTtlMs(60_000);
+
     return new SqlTaskRepository(
-        database.context, new ObjectMapper(), Clock.systemDefaultZone(), properties);
+        database.context,
+        new ObjectMapper(),
+        Clock.systemDefaultZone(),
+        properties,
+        repositoryProperties);
+  }
+
+  @Test
+  public void testListByThisInstanceOnlyReturnsRunningTasks() {
+    Task running = subject.create("TEST", "Test Status");
+    Task completed = subject.create("TEST", "Test Status");
+    completed.complete();
+
+    assertThat(
+            subject.listByThisInstance().stream().map(Task::getId).collect(Collectors.toList()))
+        .contains(running.getId())
+        .doesNotContain(completed.getId());
+  }
+
+  @Test
+  public void testTasksWithoutCurrentStateFallBackToTheirHistory() {
+    Task running = subject.create("TEST", "Test Status");
+    Task completed = subject.create("TEST", "Test Status");
+    completed.complete();
+
+    // as left by instances that predate the tasks.state column
+    setTaskState(running.getId(), null);
+    setTaskState(completed.getId(), "STARTED");
+
+    assertThat(subject.list().stream().map(Task::getId).collect(Collectors.toList()))
+        .contains(running.getId())
+        .doesNotContain(completed.getId());
+    assertThat(
+            database
+                .context
+                .select(field("state"))
+                .from(table("tasks"))
+                .where(field("id").eq(completed.getId()))
+                .fetchOne(field("state"), String.class))
+        .isEqualTo("COMPLETED");
+  }
+
+  @Test
+  public void testCompletedTasksAreServedFromCache() {
+    Task task = subject.create("TEST", "Test Status");
+    task.complete();
+
+    Task first = subject.get(task.getId());
+    SqlTestUtil.cleanupDb(database.context);
+    Task second = subject.get(task.getId());
+
+    assertThat(second).isNotSameAs(first);
+    assertThat(second.getStatus().isCompleted()).isTrue();
+    assertThat(second.getHistory()).hasSameSizeAs(first.getHistory());
+  }
+
+  private void setTaskState(String taskId, String state) {
+    database
+        .context
+        .update(table("tasks"))
+        .set(field("state"), state)
+        .where(field("id").eq(taskId))
+        .execute();
   }
 
   @After
@@ -0,0 +1,205 @@
+/*
+ * Copyright 2019 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.spinnaker.clouddriver.titus.caching.agents;
+
+import com.netflix.spectator.api.Counter;
+import com.netflix.titus.grpc.protogen.Job;
+import com.netflix.titus.grpc.protogen.Task;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounded hand-off between the thread reading a Titus observeJobs stream and the thread applying
+ * and persisting its updates.
+ *
+ * <p>Pending updates are keyed by job or task id, so a newer update replaces one that hasn't been
+ * drained yet and only the latest state of each job and task is applied. Once {@code capacity}
+ * distinct ids are pending, offering another id blocks the stream reader, which in turn stops
+ * pulling from the gRPC stream, until the worker drains or the offer times out. It is up to the
+ * caller to decide what a timed out offer means.
+ */
+class TitusStreamingEventBuffer {
+
+  private final int capacity;
+  private final Counter coalescedEvents;
+
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Condition notFull = lock.newCondition();
+  private final Condition notEmpty = lock.newCondition();
+
+  private LinkedHashMap<String, Event> pending = new LinkedHashMap<>();
+  private boolean snapshotEnd = false;
+  private boolean reset = false;
+
+  TitusStreamingEventBuffer(int capacity, Counter coalescedEvents) {
+    if (capacity < 1) {
+      throw new IllegalArgumentException("capacity must be positive, was " + capacity);
+    }
+    this.capacity = capacity;
+    this.coalescedEvents = coalescedEvents;
+  }
+
+  boolean offerJob(Job job, long timeout, TimeUnit unit) throws InterruptedException {
+    return offer("job:" + job.getId(), new Event(job, null, null), timeout, unit);
+  }
+
+  /**
+   * @param movedFromJobId the job the task was moved from, or null if this isn't a move. Kept if a
+   *     later update for the same task replaces this one before it's drained.
+   */
+  boolean offerTask(Task task, String movedFromJobId, long timeout, TimeUnit unit)
+      throws InterruptedException {
+    return offer("task:" + task.getId(), new Event(null, task, movedFromJobId), timeout, unit);
+  }
+
+  /** Marks the end of the initial snapshot; drained after every update offered before it. */
+  void snapshotEnd() {
+    lock.lock();
+    try {
+      snapshotEnd = true;
+      notEmpty.signal();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Discards everything pending ahead of a resubscribe. The next batch reports the reset, so the
+   * worker knows to wait for a new snapshot.
+   */
+  void reset() {
+    lock.lock();
+    try {
+      pending = new LinkedHashMap<>();
+      snapshotEnd = false;
+      reset = true;
+      notFull.signalAll();
+      notEmpty.signal();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Takes everything pending, waiting up to {@code timeout} for something to arrive.
+   *
+   * @return a possibly empty batch
+   */
+  Batch drain(long timeout, TimeUnit unit) throws InterruptedException {
+    long remaining = unit.toNanos(timeout);
+    lock.lock();
+    try {
+      while (pending.isEmpty() && !snapshotEnd && !reset && remaining > 0) {
+        remaining = notEmpty.awaitNanos(remaining);
+      }
+
+      Batch batch = new Batch(new ArrayList<>(pending.values()), reset, snapshotEnd);
+      if (!pending.isEmpty()) {
+        pending = new LinkedHashMap<>();
+        notFull.signalAll();
+      }
+      snapshotEnd = false;
+      reset = false;
+      return batch;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  int size() {
+    lock.lock();
+    try {
+      return pending.size();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private boolean offer(String key, Event event, long timeout, TimeUnit unit)
+      throws InterruptedException {
+    long remaining = unit.toNanos(timeout);
+    lock.lockInterruptibly();
+    try {
+      Event previous = pending.get(key);
+      while (previous == null && pending.size() >= capacity) {
+        if (remaining <= 0) {
+          return false;
+        }
+        remaining = notFull.awaitNanos(remaining);
+        previous = pending.get(key);
+      }
+
+      if (previous != null) {
+        coalescedEvents.increment();
+        event = event.replacing(previous);
+      }
+      pending.put(key, event);
+      notEmpty.signal();
+      return true;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  static class Event {
+    final Job job;
+    final Task task;
+    final String movedFromJobId;
+    final long receivedAt;
+
+    private Event(Job job, Task task, String movedFromJobId) {
+      this(job, task, movedFromJobId, System.currentTimeMillis());
+    }
+
+    private Event(Job job, Task task, String movedFromJobId, long receivedAt) {
+      this.job = job;
+      this.task = task;
+      this.movedFromJobId = movedFromJobId;
+      this.receivedAt = receivedAt;
+    }
+
+    /** Latest state wins, but keep the earliest arrival time and any move it replaces. */
+    private Event replacing(Event previous) {
+      return new Event(
+          job,
+          task,
+          movedFromJobId != null ? movedFromJobId : previous.movedFromJobId,
+          Math.min(receivedAt, previous.receivedAt));
+    }
+  }
+
+  static class Batch {
+    final List<Event> events;
+    final boolean reset;
+    final boolean snapshotEnd;
+
+    private Batch(List<Event> events, boolean reset, boolean snapshotEnd) {
+      this.events = Collections.unmodifiableList(events);
+      this.reset = reset;
+      this.snapshotEnd = snapshotEnd;
+    }
+
+    boolean isEmpty() {
+      return events.isEmpty() && !reset && !snapshotEnd;
+    }
+  }
+}
@@ -60,7 +60,6 @@ import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import javax.inject.Provider;
-import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -191,110 +190,209 @@ public class TitusStreamingUpdateAgent implements CustomScheduledAgent {
      * <p>After the initial snapshot persist, the agent continues to consume observeJobs events,
      * updating StreamingCacheState, including a list of jobIds we've received events for. Once
      * either titus.streaming.changeThreshold events have been consumed, or
-     * titus.streaming.timeThresholdMs ms has passed, cacheResults are built for the full resource
-     * graph of applications that have had job/task updates. This is more work than only directly
-     * updating i.e. server groups based on job updates or instance based on task updates, but
-     * avoids pitfalls in properly maintaining relationships to or deleting higher level objects. if
-     * the last server group in a cluster is deleted, the cluster object must also be deleted, and
-     * the application object updated. The later cannot currently be done incrementally in an atomic
-     * operation; safely updating an application object requires rebuilding it with full context.
+     * titus.streaming.timeThresholdMs ms has passed, cacheResults are built for only the jobs and
+     * tasks that were touched since the last flush: their server groups, images and instances.
+     * Applications and clusters can't be patched in place, since their relationships are replaced
+     * on write, so the agent keeps an in-memory index of every cached server group and rebuilds
+     * the affected application and cluster objects from it rather than from the full job set. If
+     * the last server group in a cluster is deleted, the cluster object is evicted.
+     *
+     * <p>Scaling policies and load balancers are not part of the job stream; they are re-read on
+     * their own titus.streaming.policyRefreshIntervalMs cadence, and only jobs whose policies or
+     * load balancers changed since the previous read are marked for rewrite.
+     *
+     * <p>The stream is read on its own thread into a bounded TitusStreamingEventBuffer, which
+     * coalesces updates by job and task id; a second thread applies and persists them.
      */
     @Override
     public void executeAgent(Agent agent) {
       Long startTime = System.currentTimeMillis();
 
       StreamingCacheState state = new StreamingCacheState();
-
-      ScheduledExecutorService executor = Executors.newScheduledThreadPool(1);
-      final Future handler =
-          executor.submit(
-              () -> {
-                Iterator<JobChangeNotification> notificationIt =
-                    titusClient.observeJobs(
-                        ObserveJobsQuery.newBuilder()
-                            .putFilteringCriteria("jobType", "SERVICE")
-                            .putFilteringCriteria("attributes", "source:spinnaker")
-                            .build());
-
-                while (continueStreaming(startTime)) {
-                  try {
-                    while (notificationIt.hasNext() && continueStreaming(startTime)) {
-                      JobChangeNotification notification = notificationIt.next();
-                      switch (notification.getNotificationCase()) {
-                        case JOBUPDATE:
-                          updateJob(state, notification.getJobUpdate().getJob());
-                          break;
-                        case TASKUPDATE:
-                          if (notification.getTaskUpdate().getMovedFromAnotherJob()) {
-                            Task task = notification.getTaskUpdate().getTask();
-                            String destinationJobId = task.getJobId();
-                            String sourceJobId =
-                                task.getTaskContextOrDefault("task.movedFromJob", null);
-                            log.info(
-                                "{} task moved from job {} to {}",
-                                task.getId(),
-                                sourceJobId,
-                                destinationJobId);
-                            updateMovedTask(state, task, sourceJobId);
-                          }
-                          updateTask(state, notification.getTaskUpdate().getTask());
-                          break;
-                        case SNAPSHOTEND:
-                          state.lastUpdate.set(0);
-                          log.info(
-                              "{} snapshot finished in {}ms",
-                              getAgentType(),
-                              System.currentTimeMillis() - startTime);
-                          state.tasks.keySet().retainAll(state.jobs.keySet());
-                          if (state.snapshotComplete) {
-                            log.error(
-                                "{} received >1 SNAPSHOTEND events, this is unexpected and may be handled incorrectly",
-                                getAgentType());
-                          }
-                          state.snapshotComplete = true;
-                          break;
-                      }
-
-                      if (state.snapshotComplete) {
-                        writeToCache(state);
-                        if (!state.savedSnapshot) {
-                          state.savedSnapshot = true;
-                        }
-                      }
-                    }
-                  } catch (io.grpc.StatusRuntimeException e) {
-                    log.warn(
-                        "gRPC exception while streaming {} updates, attempting to reconnect",
-                        getAgentType(),
-                        e);
-                    notificationIt =
-                        titusClient.observeJobs(
-                            ObserveJobsQuery.newBuilder()
-                                .putFilteringCriteria("jobType", "SERVICE")
-                                .putFilteringCriteria("attributes", "source:spinnaker")
-                                .build());
-                    state.snapshotComplete = false;
-                    state.savedSnapshot = false;
-                  } catch (Exception e) {
-                    log.error("Exception while streaming {} titus updates", getAgentType(), e);
-                  }
-                }
-              });
+      TitusStreamingEventBuffer buffer =
+          new TitusStreamingEventBuffer(
+              dynamicConfigService.getConfig(
+                  Integer.class, "titus.streaming.buffer-capacity", 10000),
+              registry.counter(streamingMetricId("titus.cache.streaming.coalescedEvents")));
+      registry.gauge(
+          streamingMetricId("titus.cache.streaming.bufferDepth"),
+          buffer,
+          TitusStreamingEventBuffer::size);
+
+      ScheduledExecutorService executor = Executors.newScheduledThreadPool(3);
+      final Future reader = executor.submit(() -> readNotifications(buffer, startTime));
+      final Future writer = executor.submit(() -> applyAndPersist(state, buffer, startTime));
 
       executor.schedule(
           () -> {
-            handler.cancel(true);
+            reader.cancel(true);
+            writer.cancel(true);
           },
           getTimeoutMillis(),
           TimeUnit.MILLISECONDS);
-      CompletableFuture.completedFuture(handler).join();
+      executor.shutdown();
+      CompletableFuture.completedFuture(writer).join();
+    }
+
+    /**
+     * Reads the observeJobs stream into the event buffer. If the buffer stays full for
+     * titus.streaming.buffer-offer-timeout-ms, persistence has fallen too far behind to catch up
+     * from the stream, so pending events are dropped and the agent resubscribes for a fresh
+     * snapshot rather than buffering without bound.
+     */
+    private void readNotifications(TitusStreamingEventBuffer buffer, long startTime) {
+      long offerTimeoutMs =
+          dynamicConfigService.getConfig(
+              Long.class, "titus.streaming.buffer-offer-timeout-ms", 60000L);
+      Iterator<JobChangeNotification> notificationIt = observeJobs();
+
+      while (continueStreaming(startTime)) {
+        try {
+          while (notificationIt.hasNext() && continueStreaming(startTime)) {
+            JobChangeNotification notification = notificationIt.next();
+            boolean accepted = true;
+            switch (notification.getNotificationCase()) {
+              case JOBUPDATE:
+                accepted =
+                    buffer.offerJob(
+                        notification.getJobUpdate().getJob(), offerTimeoutMs, MILLISECONDS);
+                break;
+              case TASKUPDATE:
+                Task task = notification.getTaskUpdate().getTask();
+                String sourceJobId = null;
+                if (notification.getTaskUpdate().getMovedFromAnotherJob()) {
+                  sourceJobId = task.getTaskContextOrDefault("task.movedFromJob", null);
+                  log.info(
+                      "{} task moved from job {} to {}",
+                      task.getId(),
+                      sourceJobId,
+                      task.getJobId());
+                }
+                accepted = buffer.offerTask(task, sourceJobId, offerTimeoutMs, MILLISECONDS);
+                break;
+              case SNAPSHOTEND:
+                buffer.snapshotEnd();
+                break;
+            }
+
+            if (!accepted) {
+              log.warn(
+                  "{} event buffer has been full for {}ms, resubscribing for a new snapshot",
+                  getAgentType(),
+                  offerTimeoutMs);
+              registry
+                  .counter(streamingMetricId("titus.cache.streaming.backpressureResets"))
+                  .increment();
+              buffer.reset();
+              notificationIt = observeJobs();
+            }
+          }
+        } catch (io.grpc.StatusRuntimeException e) {
+          log.warn(
+              "gRPC exception while streaming {} updates, attempting to reconnect",
+              getAgentType(),
+              e);
+          buffer.reset();
+          notificationIt = observeJobs();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          return;
+        } catch (Exception e) {
+          log.error("Exception while streaming {} titus updates", getAgentType(), e);
+        }
+      }
+    }
+
+    /**
+     * Drains the event buffer into StreamingCacheState and persists it, so that slow cache writes
+     * hold back the buffer rather than the stream reader.
+     */
+    private void applyAndPersist(
+        StreamingCacheState state, TitusStreamingEventBuffer buffer, long startTime) {
+      while (continueStreaming(startTime)) {
+        try {
+          applyEvents(state, buffer.drain(1, TimeUnit.SECONDS), startTime);
+
+          if (state.snapshotComplete) {
+            boolean incremental = state.savedSnapshot;
+            if (writeToCache(state)) {
+              if (incremental && state.oldestUnpersistedEvent > 0) {
+                PercentileTimer.get(registry, metricId.withTag("operation", "eventToCache"))
+                    .record(
+                        System.currentTimeMillis() - state.oldestUnpersistedEvent, MILLISECONDS);
+              }
+              state.oldestUnpersistedEvent = 0;
+            }
+            if (!state.savedSnapshot) {
+              state.savedSnapshot = true;
+            }
+          }
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          return;
+        } catch (Exception e) {
+          log.error("Exception while caching {} titus updates", getAgentType(), e);
+        }
+      }
+    }
+
+    private void applyEvents(
+        StreamingCacheState state, TitusStreamingEventBuffer.Batch batch, long startTime) {
+      if (batch.reset) {
+        // The resubscribe replays every live job and task before the next SNAPSHOTEND
+        state.snapshotComplete = false;
+        state.savedSnapshot = false;
+        state.jobs.clear();
+        state.tasks.clear();
+        state.updatedJobs = new HashSet<>();
+        state.updatedTasks = new HashSet<>();
+        state.completedInstanceIds = new HashSet<>();
+        state.changes.set(0);
+        state.oldestUnpersistedEvent = 0;
+      }
+
+      for (TitusStreamingEventBuffer.Event event : batch.events) {
+        if (event.job != null) {
+          updateJob(state, event.job);
+        } else {
+          if (event.movedFromJobId != null) {
+            updateMovedTask(state, event.task, event.movedFromJobId);
+          }
+          updateTask(state, event.task);
+        }
+
+        if (state.oldestUnpersistedEvent == 0 || event.receivedAt < state.oldestUnpersistedEvent) {
+          state.oldestUnpersistedEvent = event.receivedAt;
+        }
+      }
+
+      if (batch.snapshotEnd) {
+        state.lastUpdate.set(0);
+        log.info(
+            "{} snapshot finished in {}ms",
+            getAgentType(),
+            System.currentTimeMillis() - startTime);
+        state.tasks.keySet().retainAll(state.jobs.keySet());
+        if (state.snapshotComplete) {
+          log.error(
+              "{} received >1 SNAPSHOTEND events, this is unexpected and may be handled incorrectly",
+              getAgentType());
+        }
+        state.snapshotComplete = true;
+      }
+    }
+
+    private Iterator<JobChangeNotification> observeJobs() {
+      return titusClient.observeJobs(
+          ObserveJobsQuery.newBuilder()
+              .putFilteringCriteria("jobType", "SERVICE")
+              .putFilteringCriteria("attributes", "source:spinnaker")
+              .build());
     }
 
     private void updateJob(StreamingCacheState state, Job job) {
       String jobId = job.getId();
-      String application = job.getJobDescriptor().getApplicationName();
 
-      state.jobIdToApp.put(jobId, application);
       if (state.snapshotComplete) {
         state.updatedJobs.add(jobId);
       }
@@ -328,15 +426,19 @@ public class TitusStreamingUpdateAgent implements CustomScheduledAgent {
     private void updateTask(StreamingCacheState state, Task task) {
       String jobId = task.getJobId();
       if (FILTERED_TASK_STATES.contains(task.getStatus().getState())) {
-        state.tasks.computeIfAbsent(jobId, t -> new HashSet<>()).remove(task);
-        state.tasks.get(jobId).add(task);
+        Set<Task> jobTasks = state.tasks.computeIfAbsent(jobId, t -> new HashSet<>());
+        removeTask(jobTasks, task);
+        jobTasks.add(task);
+        if (state.snapshotComplete) {
+          state.updatedTasks.add(task.getId());
+        }
       } else if (FINISHED_TASK_STATES.contains(task.getStatus().getState())) {
         if (state.snapshotComplete) {
           state.completedInstanceIds.add(
               Keys.getInstanceV2Key(task.getId(), account.getName(), region.getName()));
         }
         if (state.tasks.containsKey(jobId)) {
-          state.tasks.get(jobId).remove(task);
+          removeTask(state.tasks.get(jobId), task);
         } else if (state.snapshotComplete) {
           log.debug(
               "{} updateTask: task: {} jobId: {} has finished, but task not present in current snapshot set",
@@ -356,15 +458,26 @@ public class TitusStreamingUpdateAgent implements CustomScheduledAgent {
     private void updateMovedTask(StreamingCacheState state, Task task, String sourceJobId) {
       if (sourceJobId != null) {
         if (state.tasks.containsKey(sourceJobId)) {
-          state.tasks.get(sourceJobId).remove(task);
+          removeTask(state.tasks.get(sourceJobId), task);
           state.updatedJobs.add(sourceJobId);
         }
       }
     }
 
-    private void writeToCache(StreamingCacheState state) {
+    /**
+     * Tasks are matched by id: the protos held for a job carry an earlier status (and, for a moved
+     * task, the source job id), so they never equal the update that replaces them.
+     */
+    private void removeTask(Set<Task> tasks, Task task) {
+      tasks.removeIf(t -> t.getId().equals(task.getId()));
+    }
+
+    /** @return true if the state was persisted */
+    private boolean writeToCache(StreamingCacheState state) {
       long startTime = System.currentTimeMillis();
 
+      refreshScalingPoliciesAndLoadBalancers(state, startTime);
+
       if (!state.savedSnapshot
           || state.changes.get()
               >= dynamicConfigService.getConfig(
@@ -386,22 +499,7 @@ public class TitusStreamingUpdateAgent implements CustomScheduledAgent {
               getAgentType());
         }
 
-        List<ScalingPolicyResult> scalingPolicyResults =
-            titusAutoscalingClient != null
-                ? titusAutoscalingClient.getAllScalingPolicies()
-                : emptyList();
-        PercentileTimer.get(registry, metricId.withTag("operation", "getScalingPolicies"))
-            .record(System.currentTimeMillis() - startTime, MILLISECONDS);
-
-        long startLoadBalancerTime = System.currentTimeMillis();
-        Map<String, List<String>> allLoadBalancers =
-            titusLoadBalancerClient != null
-                ? titusLoadBalancerClient.getAllLoadBalancers()
-                : emptyMap();
-        PercentileTimer.get(registry, metricId.withTag("operation", "getLoadBalancers"))
-            .record(System.currentTimeMillis() - startLoadBalancerTime, MILLISECONDS);
-
-        CacheResult result = buildCacheResult(state, scalingPolicyResults, allLoadBalancers);
+        CacheResult result = buildCacheResult(state);
 
         Collection<String> authoritative =
             TYPES.stream()
@@ -416,24 +514,78 @@ public class TitusStreamingUpdateAgent implements CustomScheduledAgent {
           cache.putCacheResult(getAgentType(), authoritative, result);
         }
 
-        // prune jobIdToApp
-        Set<String> completedJobs = new HashSet<>(state.jobIdToApp.keySet());
-        completedJobs.removeAll(state.jobs.keySet());
-        completedJobs.forEach(j -> state.jobIdToApp.remove(j));
-
         state.updatedJobs = new HashSet<>();
+        state.updatedTasks = new HashSet<>();
         state.lastUpdate.set(System.currentTimeMillis());
         state.changes.set(0);
 
         PercentileTimer.get(registry, metricId.withTag("operation", "processSnapshot"))
             .record(System.currentTimeMillis() - startTime, MILLISECONDS);
+        return true;
       }
+      return false;
     }
 
-    private CacheResult buildCacheResult(
-        StreamingCacheState state,
-        List<ScalingPolicyResult> scalingPolicyResults,
-        Map<String, List<String>> allLoadBalancers) {
+    /**
+     * Re-reads scaling policies and load balancers when storing a snapshot, or once
+     * titus.streaming.policy-refresh-interval-ms has passed since the last read. Between snapshots,
+     * only jobs whose policies or load balancers differ from the previous read are marked as
+     * updated.
+     */
+    private void refreshScalingPoliciesAndLoadBalancers(StreamingCacheState state, long now) {
+      if (state.savedSnapshot
+          && now - state.lastPolicyRefresh
+              < dynamicConfigService.getConfig(
+                  Long.class, "titus.streaming.policy-refresh-interval-ms", 30000L)) {
+        return;
+      }
+
+      long startTime = System.currentTimeMillis();
+      Map<String, List<ScalingPolicyResult>> scalingPolicies =
+          titusAutoscalingClient != null
+              ? titusAutoscalingClient.getAllScalingPolicies().stream()
+                  .filter(it -> CACHEABLE_POLICY_STATES.contains(it.getPolicyState().getState()))
+                  .collect(Collectors.groupingBy(it -> it.getJobId().toLowerCase()))
+              : emptyMap();
+      PercentileTimer.get(registry, metricId.withTag("operation", "getScalingPolicies"))
+          .record(System.currentTimeMillis() - startTime, MILLISECONDS);
+
+      long startLoadBalancerTime = System.currentTimeMillis();
+      Map<String, List<String>> loadBalancers =
+          titusLoadBalancerClient != null
+              ? titusLoadBalancerClient.getAllLoadBalancers()
+              : emptyMap();
+      PercentileTimer.get(registry, metricId.withTag("operation", "getLoadBalancers"))
+          .record(System.currentTimeMillis() - startLoadBalancerTime, MILLISECONDS);
+
+      if (state.savedSnapshot) {
+        List<String> changedJobs =
+            state.jobs.keySet().stream()
+                .filter(
+                    jobId ->
+                        !Objects.equals(
+                                state.scalingPolicies.get(jobId.toLowerCase()),
+                                scalingPolicies.get(jobId.toLowerCase()))
+                            || !Objects.equals(
+                                state.loadBalancers.get(jobId), loadBalancers.get(jobId)))
+                .collect(Collectors.toList());
+
+        if (!changedJobs.isEmpty()) {
+          log.debug(
+              "{} scaling policies or load balancers changed for {} jobs",
+              getAgentType(),
+              changedJobs.size());
+          state.updatedJobs.addAll(changedJobs);
+          state.changes.addAndGet(changedJobs.size());
+        }
+      }
+
+      state.scalingPolicies = scalingPolicies;
+      state.loadBalancers = loadBalancers;
+      state.lastPolicyRefresh = System.currentTimeMillis();
+    }
+
+    private CacheResult buildCacheResult(StreamingCacheState state) {
       // INITIALIZE CACHES
       Map<String, CacheData> applicationCache = createCache();
       Map<String, CacheData> clusterCache = createCache();
@@ -442,156 +594,89 @@ public class TitusStreamingUpdateAgent implements CustomScheduledAgent {
       Map<String, CacheData> imageCache = createCache();
       Map<String, CacheData> instancesCache = createCache();
 
-      // These are used to calculate deletes when updating incrementally
-      Set<String> currentApps = new HashSet<>();
-      Set<String> currentClusters = new HashSet<>();
-      Set<String> currentServerGroups = new HashSet<>();
+      // Applications and clusters whose server group membership or target groups may have changed
+      Set<String> changedApps = new HashSet<>();
+      Set<String> changedClusters = new HashSet<>();
+      List<String> missingServerGroups = new ArrayList<>();
 
-      Map<String, Job> jobs;
+      Collection<String> jobIds;
 
       if (state.savedSnapshot) {
-        List<String> missingJobMappings =
-            state.updatedJobs.stream()
-                .filter(j -> !state.jobIdToApp.containsKey(j))
-                .collect(Collectors.toList());
+        jobIds = state.updatedJobs;
+      } else {
+        state.serverGroups.clear();
+        state.jobIdToServerGroup.clear();
+        state.appToServerGroups.clear();
+        state.clusterToServerGroups.clear();
+        jobIds = state.jobs.keySet();
+      }
 
-        if (!missingJobMappings.isEmpty()) {
-          log.error(
-              "{} updatedJobs missing from jobIdToApp cache: {}",
-              getAgentType(),
-              missingJobMappings);
+      for (String jobId : jobIds) {
+        Job job = state.jobs.get(jobId);
+        ServerGroupData data = job != null ? buildServerGroupData(state, job) : null;
+
+        String previousServerGroup = state.jobIdToServerGroup.get(jobId);
+        boolean serverGroupChanged =
+            data == null || !data.serverGroupKey.equals(previousServerGroup);
+        if (previousServerGroup != null && serverGroupChanged) {
+          if (unindexServerGroup(state, jobId, previousServerGroup, changedApps, changedClusters)) {
+            missingServerGroups.add(previousServerGroup);
+          }
         }
 
-        Set<String> changedApplications =
-            state.updatedJobs.stream()
-                .map(j -> state.jobIdToApp.get(j))
-                .collect(Collectors.toSet());
-        changedApplications.remove(null);
-
-        currentApps.addAll(changedApplications);
-
-        Set<String> jobsNeeded =
-            state.jobIdToApp.entrySet().stream()
-                .filter(entry -> changedApplications.contains(entry.getValue()))
-                .map(Map.Entry::getKey)
-                .collect(Collectors.toSet());
+        if (data == null) {
+          continue;
+        }
 
-        jobs =
-            state.jobs.entrySet().stream()
-                .filter(e -> jobsNeeded.contains(e.getKey()))
-                .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
-      } else {
-        jobs = state.jobs;
+        indexServerGroup(state, jobId, data, changedApps, changedClusters);
+        missingServerGroups.remove(data.serverGroupKey);
+
+        cacheServerGroup(data, serverGroupCache);
+        cacheImage(data, imageCache);
+        for (Task task : state.tasks.getOrDefault(jobId, emptySet())) {
+          // a moved or renamed server group needs every instance relationship rewritten
+          if (serverGroupChanged || state.updatedTasks.contains(task.getId())) {
+            InstanceData instanceData =
+                new InstanceData(
+                    new com.netflix.spinnaker.clouddriver.titus.client.model.Task(task),
+                    data.job.getName(),
+                    account.getName(),
+                    region.getName());
+            cacheInstance(instanceData, instancesCache);
+          }
+        }
       }
 
-      List<ServerGroupData> serverGroupDatas =
-          jobs.values().stream()
-              .map(
-                  job -> {
-                    List<ScalingPolicyData> jobScalingPolicies =
-                        scalingPolicyResults.stream()
-                            .filter(
-                                it ->
-                                    it.getJobId().equalsIgnoreCase(job.getId())
-                                        && CACHEABLE_POLICY_STATES.contains(
-                                            it.getPolicyState().getState()))
-                            .map(
-                                it ->
-                                    new ScalingPolicyData(
-                                        it.getId().getId(),
-                                        it.getScalingPolicy(),
-                                        it.getPolicyState()))
-                            .collect(Collectors.toList());
-
-                    List<String> jobLoadBalancers =
-                        allLoadBalancers.getOrDefault(job.getId(), emptyList());
-                    return new ServerGroupData(
-                        new com.netflix.spinnaker.clouddriver.titus.client.model.Job(
-                            job, EMPTY_LIST),
-                        jobScalingPolicies,
-                        jobLoadBalancers,
-                        state.tasks.getOrDefault(job.getId(), emptySet()).stream()
-                            .map(Task::getId)
-                            .collect(Collectors.toSet()),
-                        account.getName(),
-                        region.getName());
-                  })
-              .collect(Collectors.toList());
-
-      serverGroupDatas.forEach(
-          data -> {
-            String app = StringUtils.substringAfterLast(data.appNameKey, ":");
-
-            if (StringUtils.isNotEmpty(app)) {
-              state.appToClusters.computeIfAbsent(app, c -> new HashSet<>()).add(data.clusterKey);
-              state
-                  .appsToServerGroups
-                  .computeIfAbsent(app, c -> new HashSet<>())
-                  .add(data.serverGroupKey);
-              state.clusterKeyToApp.put(data.clusterKey, app);
-              state.sgKeyToApp.put(data.serverGroupKey, app);
-            }
-
-            if (state.savedSnapshot) {
-              currentApps.add(app);
-              currentClusters.add(data.clusterKey);
-              currentServerGroups.add(data.serverGroupKey);
-            }
+      for (String app : changedApps) {
+        Set<String> serverGroupKeys = state.appToServerGroups.getOrDefault(app, emptySet());
+        if (serverGroupKeys.isEmpty()) {
+          state.appToServerGroups.remove(app);
+          continue;
+        }
+        serverGroupKeys.forEach(
+            sg -> cacheApplication(state.serverGroups.get(sg), applicationCache));
+      }
 
-            cacheApplication(data, applicationCache);
-            cacheCluster(data, clusterCache);
-            cacheServerGroup(data, serverGroupCache);
-            cacheImage(data, imageCache);
-            for (Task task : (Set<Task>) state.tasks.getOrDefault(data.job.getId(), EMPTY_SET)) {
-              InstanceData instanceData =
-                  new InstanceData(
-                      new com.netflix.spinnaker.clouddriver.titus.client.model.Task(task),
-                      data.job.getName(),
-                      account.getName(),
-                      region.getName());
-              cacheInstance(instanceData, instancesCache);
-            }
-          });
+      List<String> missingClusters = new ArrayList<>();
+      for (String cluster : changedClusters) {
+        Set<String> serverGroupKeys = state.clusterToServerGroups.getOrDefault(cluster, emptySet());
+        if (serverGroupKeys.isEmpty()) {
+          state.clusterToServerGroups.remove(cluster);
+          missingClusters.add(cluster);
+          continue;
+        }
+        serverGroupKeys.forEach(sg -> cacheCluster(state.serverGroups.get(sg), clusterCache));
+      }
 
       if (state.savedSnapshot) {
-        List<String> missingClusters =
-            state.appToClusters.entrySet().stream()
-                .filter(e -> currentApps.contains(e.getKey()))
-                .flatMap(e -> e.getValue().stream())
-                .filter(c -> !currentClusters.contains(c))
-                .collect(Collectors.toList());
-
-        List<String> missingServerGroups =
-            state.appsToServerGroups.entrySet().stream()
-                .filter(e -> currentApps.contains(e.getKey()))
-                .flatMap(e -> e.getValue().stream())
-                .filter(c -> !currentServerGroups.contains(c))
-                .collect(Collectors.toList());
-
         if (!missingClusters.isEmpty()) {
           log.info("Evicting {} clusters in {}", missingClusters.size(), getAgentType());
           cache.evictDeletedItems(CLUSTERS.ns, missingClusters);
-          missingClusters.forEach(
-              cluster -> {
-                state
-                    .appToClusters
-                    .getOrDefault(state.clusterKeyToApp.get(cluster), emptySet())
-                    .remove(cluster);
-                state.clusterKeyToApp.remove(cluster);
-              });
         }
 
         if (!missingServerGroups.isEmpty()) {
           log.info("Evicting {} server groups in {}", missingServerGroups.size(), getAgentType());
           cache.evictDeletedItems(SERVER_GROUPS.ns, missingServerGroups);
-          missingServerGroups.forEach(
-              sg -> {
-                state
-                    .appsToServerGroups
-                    .getOrDefault(state.sgKeyToApp.get(sg), emptySet())
-                    .remove(sg);
-                state.sgKeyToApp.remove(sg);
-              });
         }
 
         if (!state.completedInstanceIds.isEmpty()) {
@@ -622,11 +707,93 @@ public class TitusStreamingUpdateAgent implements CustomScheduledAgent {
       return new DefaultCacheResult(cacheResults);
     }
 
+    private ServerGroupData buildServerGroupData(StreamingCacheState state, Job job) {
+      List<ScalingPolicyData> jobScalingPolicies =
+          state.scalingPolicies.getOrDefault(job.getId().toLowerCase(), emptyList()).stream()
+              .map(
+                  it ->
+                      new ScalingPolicyData(
+                          it.getId().getId(), it.getScalingPolicy(), it.getPolicyState()))
+              .collect(Collectors.toList());
+
+      return new ServerGroupData(
+          new com.netflix.spinnaker.clouddriver.titus.client.model.Job(job, EMPTY_LIST),
+          jobScalingPolicies,
+          state.loadBalancers.getOrDefault(job.getId(), emptyList()),
+          state.tasks.getOrDefault(job.getId(), emptySet()).stream()
+              .map(Task::getId)
+              .collect(Collectors.toSet()),
+          account.getName(),
+          region.getName());
+    }
+
+    private void indexServerGroup(
+        StreamingCacheState state,
+        String jobId,
+        ServerGroupData data,
+        Set<String> changedApps,
+        Set<String> changedClusters) {
+      ServerGroupSummary summary = new ServerGroupSummary(jobId, data);
+      ServerGroupSummary previous = state.serverGroups.put(data.serverGroupKey, summary);
+      if (previous != null && !previous.clusterKey.equals(summary.clusterKey)) {
+        state
+            .clusterToServerGroups
+            .getOrDefault(previous.clusterKey, emptySet())
+            .remove(summary.serverGroupKey);
+        changedClusters.add(previous.clusterKey);
+      }
+      if (previous != null && !previous.appNameKey.equals(summary.appNameKey)) {
+        state
+            .appToServerGroups
+            .getOrDefault(previous.appNameKey, emptySet())
+            .remove(summary.serverGroupKey);
+        changedApps.add(previous.appNameKey);
+      }
+
+      state.jobIdToServerGroup.put(jobId, data.serverGroupKey);
+      state
+          .appToServerGroups
+          .computeIfAbsent(summary.appNameKey, k -> new HashSet<>())
+          .add(summary.serverGroupKey);
+      state
+          .clusterToServerGroups
+          .computeIfAbsent(summary.clusterKey, k -> new HashSet<>())
+          .add(summary.serverGroupKey);
+      changedApps.add(summary.appNameKey);
+      changedClusters.add(summary.clusterKey);
+    }
+
+    /** @return true if the server group is no longer backed by any job and should be evicted */
+    private boolean unindexServerGroup(
+        StreamingCacheState state,
+        String jobId,
+        String serverGroupKey,
+        Set<String> changedApps,
+        Set<String> changedClusters) {
+      state.jobIdToServerGroup.remove(jobId);
+
+      ServerGroupSummary summary = state.serverGroups.get(serverGroupKey);
+      if (summary == null || !summary.jobId.equals(jobId)) {
+        // another job has since been cached under the same server group name
+        return false;
+      }
+
+      state.serverGroups.remove(serverGroupKey);
+      state.appToServerGroups.getOrDefault(summary.appNameKey, emptySet()).remove(serverGroupKey);
+      state
+          .clusterToServerGroups
+          .getOrDefault(summary.clusterKey, emptySet())
+          .remove(serverGroupKey);
+      changedApps.add(summary.appNameKey);
+      changedClusters.add(summary.clusterKey);
+      return true;
+    }
+
     /** Build authoritative cache object for applications based on server group data */
-    private void cacheApplication(ServerGroupData data, Map<String, CacheData> applications) {
+    private void cacheApplication(ServerGroupSummary data, Map<String, CacheData> applications) {
       CacheData applicationCache =
           applications.getOrDefault(data.appNameKey, new MutableCacheData(data.appNameKey));
-      applicationCache.getAttributes().put("name", data.name.getApp());
+      applicationCache.getAttributes().put("name", data.appName);
       Map<String, Collection<String>> relationships = applicationCache.getRelationships();
       relationships.computeIfAbsent(CLUSTERS.ns, key -> new HashSet<>()).add(data.clusterKey);
       relationships
@@ -639,10 +806,10 @@ public class TitusStreamingUpdateAgent implements CustomScheduledAgent {
     }
 
     /** Build informative cache object for clusters based on server group data */
-    private void cacheCluster(ServerGroupData data, Map<String, CacheData> clusters) {
+    private void cacheCluster(ServerGroupSummary data, Map<String, CacheData> clusters) {
       CacheData clusterCache =
           clusters.getOrDefault(data.clusterKey, new MutableCacheData(data.clusterKey));
-      clusterCache.getAttributes().put("name", data.name.getCluster());
+      clusterCache.getAttributes().put("name", data.clusterName);
       Map<String, Collection<String>> relationships = clusterCache.getRelationships();
       relationships.computeIfAbsent(APPLICATIONS.ns, key -> new HashSet<>()).add(data.appNameKey);
       relationships
@@ -721,14 +888,20 @@ public class TitusStreamingUpdateAgent implements CustomScheduledAgent {
       Map<String, Job> jobs = new HashMap<>();
       Map<String, Set<Task>> tasks = new HashMap<>();
 
-      Map<String, String> jobIdToApp = new HashMap<>();
-      Map<String, Set<String>> appToClusters = new HashMap<>();
-      Map<String, Set<String>> appsToServerGroups = new HashMap<>();
-      Map<String, String> clusterKeyToApp = new HashMap<>();
-      Map<String, String> sgKeyToApp = new HashMap<>();
+      // Index of every cached server group, used to rebuild applications and clusters
+      Map<String, ServerGroupSummary> serverGroups = new HashMap<>();
+      Map<String, String> jobIdToServerGroup = new HashMap<>();
+      Map<String, Set<String>> appToServerGroups = new HashMap<>();
+      Map<String, Set<String>> clusterToServerGroups = new HashMap<>();
+
+      Map<String, List<ScalingPolicyResult>> scalingPolicies = emptyMap();
+      Map<String, List<String>> loadBalancers = emptyMap();
+      long lastPolicyRefresh = 0;
+      long oldestUnpersistedEvent = 0;
 
       Set<String> completedInstanceIds = new HashSet<>();
       Set<String> updatedJobs = new HashSet<>();
+      Set<String> updatedTasks = new HashSet<>();
 
       Boolean snapshotComplete = false;
       Boolean savedSnapshot = false;
@@ -776,6 +949,13 @@ public class TitusStreamingUpdateAgent implements CustomScheduledAgent {
     return System.currentTimeMillis() < (startTime + getTimeoutMillis() - getPadTimeMillis());
   }
 
+  private Id streamingMetricId(String name) {
+    return registry
+        .createId(name)
+        .withTag("account", account.getName())
+        .withTag("region", region.getName());
+  }
+
   private Map<String, CacheData> createCache() {
     return new HashMap<>();
   }
@@ -936,6 +1116,27 @@ public class TitusStreamingUpdateAgent implements CustomScheduledAgent {
     }
   }
 
+  /** The subset of {@link ServerGroupData} needed to rebuild applications and clusters. */
+  private static class ServerGroupSummary {
+    final String jobId;
+    final String appName;
+    final String clusterName;
+    final String appNameKey;
+    final String clusterKey;
+    final String serverGroupKey;
+    final Set<String> targetGroupKeys;
+
+    ServerGroupSummary(String jobId, ServerGroupData data) {
+      this.jobId = jobId;
+      this.appName = data.name.getApp();
+      this.clusterName = data.name.getCluster();
+      this.appNameKey = data.appNameKey;
+      this.clusterKey = data.clusterKey;
+      this.serverGroupKey = data.serverGroupKey;
+      this.targetGroupKeys = data.targetGroupKeys;
+    }
+  }
+
   private class InstanceData {
     // The instance key, not the task id
     private final String instanceId;
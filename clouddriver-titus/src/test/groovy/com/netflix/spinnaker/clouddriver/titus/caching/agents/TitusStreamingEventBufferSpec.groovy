@@ -0,0 +1,118 @@
+/*
+ * Copyright 2019 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.spinnaker.clouddriver.titus.caching.agents
+
+import com.netflix.spectator.api.DefaultRegistry
+import com.netflix.titus.grpc.protogen.Job
+import com.netflix.titus.grpc.protogen.Task
+import com.netflix.titus.grpc.protogen.TaskStatus
+import spock.lang.Specification
+
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+
+class TitusStreamingEventBufferSpec extends Specification {
+
+  def registry = new DefaultRegistry()
+  def coalesced = registry.counter("coalesced")
+
+  void 'keeps only the latest update per id, in first arrival order'() {
+    given:
+    def buffer = new TitusStreamingEventBuffer(10, coalesced)
+
+    when:
+    buffer.offerTask(task("t1", TaskStatus.TaskState.Launched), null, 0, TimeUnit.MILLISECONDS)
+    buffer.offerJob(Job.newBuilder().setId("j1").build(), 0, TimeUnit.MILLISECONDS)
+    buffer.offerTask(task("t1", TaskStatus.TaskState.Started), null, 0, TimeUnit.MILLISECONDS)
+    def batch = buffer.drain(0, TimeUnit.MILLISECONDS)
+
+    then:
+    batch.events*.task*.id == ["t1", null]
+    batch.events[0].task.status.state == TaskStatus.TaskState.Started
+    batch.events[1].job.id == "j1"
+    coalesced.count() == 1
+    buffer.size() == 0
+  }
+
+  void 'a coalesced task keeps the job it was moved from'() {
+    given:
+    def buffer = new TitusStreamingEventBuffer(10, coalesced)
+
+    when:
+    buffer.offerTask(task("t1", TaskStatus.TaskState.Started), "source", 0, TimeUnit.MILLISECONDS)
+    buffer.offerTask(task("t1", TaskStatus.TaskState.Started), null, 0, TimeUnit.MILLISECONDS)
+
+    then:
+    buffer.drain(0, TimeUnit.MILLISECONDS).events[0].movedFromJobId == "source"
+  }
+
+  void 'a full buffer times out new ids but still coalesces existing ones'() {
+    given:
+    def buffer = new TitusStreamingEventBuffer(1, coalesced)
+    buffer.offerTask(task("t1", TaskStatus.TaskState.Launched), null, 0, TimeUnit.MILLISECONDS)
+
+    expect:
+    !buffer.offerTask(task("t2", TaskStatus.TaskState.Launched), null, 10, TimeUnit.MILLISECONDS)
+    buffer.offerTask(task("t1", TaskStatus.TaskState.Started), null, 0, TimeUnit.MILLISECONDS)
+  }
+
+  void 'a blocked offer resumes once the buffer is drained'() {
+    given:
+    def buffer = new TitusStreamingEventBuffer(1, coalesced)
+    buffer.offerTask(task("t1", TaskStatus.TaskState.Launched), null, 0, TimeUnit.MILLISECONDS)
+    def offered = new CountDownLatch(1)
+
+    when:
+    Thread.start {
+      if (buffer.offerTask(task("t2", TaskStatus.TaskState.Launched), null, 10, TimeUnit.SECONDS)) {
+        offered.countDown()
+      }
+    }
+    def first = buffer.drain(0, TimeUnit.MILLISECONDS)
+
+    then:
+    first.events*.task*.id == ["t1"]
+    offered.await(10, TimeUnit.SECONDS)
+    buffer.drain(0, TimeUnit.MILLISECONDS).events*.task*.id == ["t2"]
+  }
+
+  void 'reset discards pending events and is reported once'() {
+    given:
+    def buffer = new TitusStreamingEventBuffer(10, coalesced)
+    buffer.offerTask(task("t1", TaskStatus.TaskState.Launched), null, 0, TimeUnit.MILLISECONDS)
+    buffer.snapshotEnd()
+
+    when:
+    buffer.reset()
+    buffer.offerTask(task("t2", TaskStatus.TaskState.Launched), null, 0, TimeUnit.MILLISECONDS)
+    def batch = buffer.drain(0, TimeUnit.MILLISECONDS)
+
+    then:
+    batch.reset
+    !batch.snapshotEnd
+    batch.events*.task*.id == ["t2"]
+    buffer.drain(0, TimeUnit.MILLISECONDS).isEmpty()
+  }
+
+  private static Task task(String id, TaskStatus.TaskState state) {
+    return Task.newBuilder()
+      .setId(id)
+      .setJobId("j1")
+      .setStatus(TaskStatus.newBuilder().setState(state))
+      .build()
+  }
+}
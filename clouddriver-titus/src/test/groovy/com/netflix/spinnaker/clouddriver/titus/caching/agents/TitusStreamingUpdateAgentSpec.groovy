@@ -0,0 +1,283 @@
+/*
+ * Copyright 2019 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.spinnaker.clouddriver.titus.caching.agents
+
+import com.fasterxml.jackson.databind.ObjectMapper
+import com.netflix.spectator.api.DefaultRegistry
+import com.netflix.spinnaker.cats.agent.CacheResult
+import com.netflix.spinnaker.cats.provider.ProviderCache
+import com.netflix.spinnaker.cats.provider.ProviderRegistry
+import com.netflix.spinnaker.clouddriver.titus.TitusClientProvider
+import com.netflix.spinnaker.clouddriver.titus.caching.Keys
+import com.netflix.spinnaker.clouddriver.titus.caching.utils.AwsLookupUtil
+import com.netflix.spinnaker.clouddriver.titus.client.TitusClient
+import com.netflix.spinnaker.clouddriver.titus.client.TitusRegion
+import com.netflix.spinnaker.clouddriver.titus.credentials.NetflixTitusCredentials
+import com.netflix.spinnaker.kork.dynamicconfig.DynamicConfigService
+import com.netflix.titus.grpc.protogen.Capacity
+import com.netflix.titus.grpc.protogen.Container
+import com.netflix.titus.grpc.protogen.Image
+import com.netflix.titus.grpc.protogen.Job
+import com.netflix.titus.grpc.protogen.JobDescriptor
+import com.netflix.titus.grpc.protogen.JobStatus
+import com.netflix.titus.grpc.protogen.ServiceJobSpec
+import com.netflix.titus.grpc.protogen.Task
+import com.netflix.titus.grpc.protogen.TaskStatus
+import spock.lang.Specification
+
+import javax.inject.Provider
+import java.util.concurrent.TimeUnit
+
+import static com.netflix.spinnaker.clouddriver.titus.caching.Keys.Namespace.APPLICATIONS
+import static com.netflix.spinnaker.clouddriver.titus.caching.Keys.Namespace.CLUSTERS
+import static com.netflix.spinnaker.clouddriver.titus.caching.Keys.Namespace.INSTANCES
+import static com.netflix.spinnaker.clouddriver.titus.caching.Keys.Namespace.SERVER_GROUPS
+
+class TitusStreamingUpdateAgentSpec extends Specification {
+
+  static final String ACCOUNT = "test"
+  static final String REGION = "us-east-1"
+
+  def providerCache = Mock(ProviderCache)
+  def providerRegistry = Stub(ProviderRegistry) {
+    getProviderCache(_) >> providerCache
+  }
+  def titusClientProvider = Stub(TitusClientProvider) {
+    getTitusClient(_, _) >> Stub(TitusClient)
+  }
+  def credentials = Stub(NetflixTitusCredentials) {
+    getName() >> ACCOUNT
+  }
+  def awsLookupUtil = Stub(AwsLookupUtil) {
+    awsAccountId(_, _) >> "123456789012"
+  }
+  def dynamicConfigService = Stub(DynamicConfigService) {
+    // persist every batch, rather than waiting on the change or time thresholds
+    getConfig(Integer, "titus.streaming.change-threshold", _) >> 1
+    getConfig(_, _, _) >> { type, name, defaultValue -> defaultValue }
+  }
+
+  def agent = new TitusStreamingUpdateAgent(
+    titusClientProvider,
+    credentials,
+    new TitusRegion(REGION, ACCOUNT, "http://foo", false, false, "blah", "blah", 7104, []),
+    new ObjectMapper(),
+    new DefaultRegistry(),
+    { awsLookupUtil } as Provider<AwsLookupUtil>,
+    dynamicConfigService
+  )
+
+  def execution = agent.getAgentExecution(providerRegistry)
+  def state = new TitusStreamingUpdateAgent.StreamingCacheExecution.StreamingCacheState(execution)
+  def buffer = new TitusStreamingEventBuffer(100, new DefaultRegistry().counter("coalesced"))
+
+  CacheResult written
+
+  void 'snapshot caches every job and replaces the agent data'() {
+    given:
+    buffer.offerJob(job("j1", "app-stack-v001"), 0, TimeUnit.MILLISECONDS)
+    buffer.offerJob(job("j2", "app-stack-v002"), 0, TimeUnit.MILLISECONDS)
+    buffer.offerTask(task("t1", "j1", TaskStatus.TaskState.Started), null, 0, TimeUnit.MILLISECONDS)
+    buffer.offerTask(task("t2", "j2", TaskStatus.TaskState.Started), null, 0, TimeUnit.MILLISECONDS)
+    buffer.snapshotEnd()
+
+    when:
+    persist()
+
+    then:
+    1 * providerCache.putCacheResult(agent.agentType, _, _) >> { source, types, CacheResult result -> written = result }
+    0 * providerCache.addCacheResult(*_)
+    0 * providerCache.evictDeletedItems(*_)
+
+    ids(SERVER_GROUPS.ns) == [serverGroupKey("app-stack-v001"), serverGroupKey("app-stack-v002")] as Set
+    ids(INSTANCES.ns) == [instanceKey("t1"), instanceKey("t2")] as Set
+    relationships(CLUSTERS.ns, clusterKey("app-stack"), SERVER_GROUPS.ns) ==
+      [serverGroupKey("app-stack-v001"), serverGroupKey("app-stack-v002")] as Set
+    relationships(APPLICATIONS.ns, Keys.getApplicationKey("app"), CLUSTERS.ns) == [clusterKey("app-stack")] as Set
+    relationships(SERVER_GROUPS.ns, serverGroupKey("app-stack-v001"), INSTANCES.ns) == [instanceKey("t1")] as Set
+  }
+
+  void 'an added job is cached with its rebuilt application and cluster, without evictions'() {
+    given:
+    snapshot()
+    buffer.offerJob(job("j3", "app-other-v001"), 0, TimeUnit.MILLISECONDS)
+    buffer.offerTask(task("t3", "j3", TaskStatus.TaskState.Started), null, 0, TimeUnit.MILLISECONDS)
+
+    when:
+    persist()
+
+    then:
+    1 * providerCache.addCacheResult(agent.agentType, _, _) >> { source, types, CacheResult result -> written = result }
+    0 * providerCache.evictDeletedItems(*_)
+
+    ids(SERVER_GROUPS.ns) == [serverGroupKey("app-other-v001")] as Set
+    ids(INSTANCES.ns) == [instanceKey("t3")] as Set
+    ids(CLUSTERS.ns) == [clusterKey("app-other")] as Set
+
+    // applications are replaced on write, so they carry every server group, not just the new one
+    relationships(APPLICATIONS.ns, Keys.getApplicationKey("app"), SERVER_GROUPS.ns) ==
+      [serverGroupKey("app-stack-v001"), serverGroupKey("app-stack-v002"), serverGroupKey("app-other-v001")] as Set
+    relationships(APPLICATIONS.ns, Keys.getApplicationKey("app"), CLUSTERS.ns) ==
+      [clusterKey("app-stack"), clusterKey("app-other")] as Set
+  }
+
+  void 'an updated job rewrites its server group but not its unchanged instances'() {
+    given:
+    snapshot()
+    buffer.offerJob(job("j1", "app-stack-v001", 5), 0, TimeUnit.MILLISECONDS)
+
+    when:
+    persist()
+
+    then:
+    1 * providerCache.addCacheResult(agent.agentType, _, _) >> { source, types, CacheResult result -> written = result }
+    0 * providerCache.evictDeletedItems(*_)
+
+    ids(SERVER_GROUPS.ns) == [serverGroupKey("app-stack-v001")] as Set
+    written.cacheResults[SERVER_GROUPS.ns][0].attributes.job.instancesDesired == 5
+    relationships(SERVER_GROUPS.ns, serverGroupKey("app-stack-v001"), INSTANCES.ns) == [instanceKey("t1")] as Set
+    ids(INSTANCES.ns).isEmpty()
+    relationships(CLUSTERS.ns, clusterKey("app-stack"), SERVER_GROUPS.ns) ==
+      [serverGroupKey("app-stack-v001"), serverGroupKey("app-stack-v002")] as Set
+  }
+
+  void 'a finished job evicts its server group and instances, and drops it from its cluster'() {
+    given:
+    snapshot()
+    buffer.offerJob(job("j2", "app-stack-v002", 1, JobStatus.JobState.Finished), 0, TimeUnit.MILLISECONDS)
+
+    when:
+    persist()
+
+    then:
+    1 * providerCache.evictDeletedItems(SERVER_GROUPS.ns, [serverGroupKey("app-stack-v002")])
+    1 * providerCache.evictDeletedItems(INSTANCES.ns, { it as Set == [instanceKey("t2")] as Set })
+    0 * providerCache.evictDeletedItems(CLUSTERS.ns, _)
+    1 * providerCache.addCacheResult(agent.agentType, _, _) >> { source, types, CacheResult result -> written = result }
+
+    ids(SERVER_GROUPS.ns).isEmpty()
+    relationships(CLUSTERS.ns, clusterKey("app-stack"), SERVER_GROUPS.ns) == [serverGroupKey("app-stack-v001")] as Set
+    relationships(APPLICATIONS.ns, Keys.getApplicationKey("app"), SERVER_GROUPS.ns) ==
+      [serverGroupKey("app-stack-v001")] as Set
+  }
+
+  void 'finishing the last job in a cluster evicts the cluster'() {
+    given:
+    snapshot()
+    buffer.offerJob(job("j1", "app-stack-v001", 1, JobStatus.JobState.Finished), 0, TimeUnit.MILLISECONDS)
+    buffer.offerJob(job("j2", "app-stack-v002", 1, JobStatus.JobState.KillInitiated), 0, TimeUnit.MILLISECONDS)
+
+    when:
+    persist()
+
+    then:
+    1 * providerCache.evictDeletedItems(CLUSTERS.ns, [clusterKey("app-stack")])
+    1 * providerCache.evictDeletedItems(SERVER_GROUPS.ns, { it as Set == [serverGroupKey("app-stack-v001"), serverGroupKey("app-stack-v002")] as Set })
+    1 * providerCache.evictDeletedItems(INSTANCES.ns, { it as Set == [instanceKey("t1"), instanceKey("t2")] as Set })
+    1 * providerCache.addCacheResult(agent.agentType, _, _) >> { source, types, CacheResult result -> written = result }
+
+    ids(CLUSTERS.ns).isEmpty()
+    ids(APPLICATIONS.ns).isEmpty()
+  }
+
+  void 'a task moved between jobs is rewritten under its new server group'() {
+    given:
+    snapshot()
+    buffer.offerTask(task("t1", "j2", TaskStatus.TaskState.Started), "j1", 0, TimeUnit.MILLISECONDS)
+
+    when:
+    persist()
+
+    then:
+    1 * providerCache.addCacheResult(agent.agentType, _, _) >> { source, types, CacheResult result -> written = result }
+    0 * providerCache.evictDeletedItems(*_)
+
+    ids(SERVER_GROUPS.ns) == [serverGroupKey("app-stack-v001"), serverGroupKey("app-stack-v002")] as Set
+    relationships(SERVER_GROUPS.ns, serverGroupKey("app-stack-v001"), INSTANCES.ns).isEmpty()
+    relationships(SERVER_GROUPS.ns, serverGroupKey("app-stack-v002"), INSTANCES.ns) ==
+      [instanceKey("t1"), instanceKey("t2")] as Set
+    ids(INSTANCES.ns) == [instanceKey("t1")] as Set
+    relationships(INSTANCES.ns, instanceKey("t1"), SERVER_GROUPS.ns) == [serverGroupKey("app-stack-v002")] as Set
+  }
+
+  /** Stores the snapshot from {@code 'snapshot caches every job'}, ignoring the write. */
+  private void snapshot() {
+    buffer.offerJob(job("j1", "app-stack-v001"), 0, TimeUnit.MILLISECONDS)
+    buffer.offerJob(job("j2", "app-stack-v002"), 0, TimeUnit.MILLISECONDS)
+    buffer.offerTask(task("t1", "j1", TaskStatus.TaskState.Started), null, 0, TimeUnit.MILLISECONDS)
+    buffer.offerTask(task("t2", "j2", TaskStatus.TaskState.Started), null, 0, TimeUnit.MILLISECONDS)
+    buffer.snapshotEnd()
+    persist()
+  }
+
+  /** One pass of the agent's persistence loop. */
+  private void persist() {
+    execution.applyEvents(state, buffer.drain(0, TimeUnit.MILLISECONDS), System.currentTimeMillis())
+    if (state.snapshotComplete) {
+      execution.writeToCache(state)
+      state.savedSnapshot = true
+    }
+  }
+
+  private Set<String> ids(String type) {
+    return (written.cacheResults[type] ?: [])*.id as Set
+  }
+
+  private Set<String> relationships(String type, String id, String relationship) {
+    def cacheData = written.cacheResults[type].find { it.id == id }
+    assert cacheData != null
+    return (cacheData.relationships[relationship] ?: []) as Set
+  }
+
+  private static String serverGroupKey(String name) {
+    return Keys.getServerGroupV2Key(name, ACCOUNT, REGION)
+  }
+
+  private static String clusterKey(String cluster) {
+    return Keys.getClusterV2Key(cluster, "app", ACCOUNT)
+  }
+
+  private static String instanceKey(String taskId) {
+    return Keys.getInstanceV2Key(taskId, ACCOUNT, REGION)
+  }
+
+  private static Job job(String id,
+                         String name,
+                         int desired = 1,
+                         JobStatus.JobState state = JobStatus.JobState.Accepted) {
+    return Job.newBuilder()
+      .setId(id)
+      .setStatus(JobStatus.newBuilder().setState(state))
+      .setJobDescriptor(
+        JobDescriptor.newBuilder()
+          .setApplicationName("app")
+          .putAttributes("name", name)
+          .putAttributes("source", "spinnaker")
+          .setContainer(Container.newBuilder().setImage(Image.newBuilder().setName("app").setTag("latest")))
+          .setService(ServiceJobSpec.newBuilder().setCapacity(Capacity.newBuilder().setMin(0).setMax(10).setDesired(desired)))
+      )
+      .build()
+  }
+
+  private static Task task(String id, String jobId, TaskStatus.TaskState state) {
+    return Task.newBuilder()
+      .setId(id)
+      .setJobId(jobId)
+      .setStatus(TaskStatus.newBuilder().setState(state))
+      .build()
+  }
+}